@@ -32,7 +32,10 @@ public class GlobalExceptionHandler {
             ProjectNotFoundException.class,
             DepartmentNotFoundException.class,
             CommentNotFoundException.class,
-            AuthorityNotFoundException.class
+            AuthorityNotFoundException.class,
+            UploadSessionNotFoundException.class,
+            AttachmentIngestionNotFoundException.class,
+            AttachmentVersionNotFoundException.class
     })
     public ResponseEntity<Object> handleResourceNotFoundException(RuntimeException ex) {
         Map<String, Object> body = new HashMap<>();
@@ -41,6 +44,22 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(StorageQuotaExceededException.class)
+    public ResponseEntity<Object> handleStorageQuotaExceededException(RuntimeException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("timestamp", LocalDateTime.now());
+        return new ResponseEntity<>(body, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(PreviewNotAvailableException.class)
+    public ResponseEntity<Object> handlePreviewNotAvailableException(RuntimeException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("timestamp", LocalDateTime.now());
+        return new ResponseEntity<>(body, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Object> handleOtherRuntimeExceptions(RuntimeException ex) {
         Map<String, Object> body = new HashMap<>();
@@ -0,0 +1,21 @@
+package com.mgumussoy.advancedtaskmanagement.configs;
+
+import com.mgumussoy.advancedtaskmanagement.controllers.SignedDownloadServlet;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.SignedDownloadService;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SignedDownloadConfig {
+
+    @Bean
+    public ServletRegistrationBean<SignedDownloadServlet> signedDownloadServlet(SignedDownloadService signedDownloadService,
+                                                                                AttachmentFileService attachmentFileService) {
+        ServletRegistrationBean<SignedDownloadServlet> registration =
+                new ServletRegistrationBean<>(new SignedDownloadServlet(signedDownloadService, attachmentFileService), "/downloads/*");
+        registration.setName("signedDownloadServlet");
+        return registration;
+    }
+}
@@ -1,22 +1,50 @@
 package com.mgumussoy.advancedtaskmanagement.controllers;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentVersionDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.DownloadUrlDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.PreviewSize;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
 import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
-import org.springframework.http.ResponseEntity;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService;
+import com.mgumussoy.advancedtaskmanagement.services.SignedDownloadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/attachments")
 @PreAuthorize("hasAuthority('Team_Member')")
 public class AttachmentFileController {
     private final AttachmentFileService attachmentFileService;
+    private final SignedDownloadService signedDownloadService;
+    private final AttachmentPreviewService attachmentPreviewService;
+    private final String cacheControl;
 
-    public AttachmentFileController(AttachmentFileService attachmentFileService) {
+    public AttachmentFileController(AttachmentFileService attachmentFileService, SignedDownloadService signedDownloadService,
+                                    AttachmentPreviewService attachmentPreviewService,
+                                    @Value("${attachments.download.cache-control}") String cacheControl) {
         this.attachmentFileService = attachmentFileService;
+        this.signedDownloadService = signedDownloadService;
+        this.attachmentPreviewService = attachmentPreviewService;
+        this.cacheControl = cacheControl;
     }
 
     @PostMapping("/upload")
@@ -35,9 +63,62 @@ public class AttachmentFileController {
     }
 
     @GetMapping("/{fileId}")
-    public ResponseEntity<byte[]> getFile(@PathVariable Long fileId) {
-        byte[] fileData = attachmentFileService.getFile(fileId);
-        return ResponseEntity.ok(fileData);
+    public ResponseEntity<StreamingResponseBody> getFile(
+            @PathVariable Long fileId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+            HttpServletRequest request) throws IOException {
+        return serveFile(attachmentFileService.getFile(fileId), rangeHeader, acceptEncoding, ifNoneMatch, ifModifiedSince, request);
+    }
+
+    @GetMapping("/{fileId}/versions")
+    public ResponseEntity<List<AttachmentVersionDTO>> getFileVersions(@PathVariable Long fileId) {
+        return ResponseEntity.ok(attachmentFileService.getFileVersions(fileId));
+    }
+
+    @GetMapping("/{fileId}/versions/{versionNumber}")
+    public ResponseEntity<StreamingResponseBody> getFileVersion(
+            @PathVariable Long fileId,
+            @PathVariable int versionNumber,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+            HttpServletRequest request) throws IOException {
+        return serveFile(attachmentFileService.getFileVersion(fileId, versionNumber), rangeHeader, acceptEncoding,
+                ifNoneMatch, ifModifiedSince, request);
+    }
+
+    @GetMapping("/{fileId}/preview")
+    public ResponseEntity<Resource> getPreview(
+            @PathVariable Long fileId,
+            @RequestParam(value = "size", defaultValue = "MEDIUM") PreviewSize size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws IOException {
+        AttachmentFileDTO file = attachmentFileService.getFile(fileId);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (file.getContentHash() != null) {
+            headers.setETag("\"" + file.getContentHash() + "-" + size.getSize().toLowerCase() + "\"");
+        }
+        if (cacheControl != null && !cacheControl.isBlank()) {
+            headers.setCacheControl(cacheControl);
+        }
+        if (isNotModified(headers.getETag(), null, ifNoneMatch, null)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        AttachmentPreviewService.Preview preview = attachmentPreviewService.getPreview(file, size);
+        headers.setContentType(MediaType.parseMediaType(preview.contentType()));
+        return new ResponseEntity<>(preview.resource(), headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/{fileId}/download-url")
+    public ResponseEntity<DownloadUrlDTO> getDownloadUrl(@PathVariable Long fileId) {
+        DownloadUrlDTO downloadUrl = signedDownloadService.createDownloadUrl(fileId);
+        downloadUrl.setUrl(ServletUriComponentsBuilder.fromCurrentContextPath().path(downloadUrl.getUrl()).toUriString());
+        return ResponseEntity.ok(downloadUrl);
     }
 
     @PostMapping("/{fileId}")
@@ -49,4 +130,120 @@ public class AttachmentFileController {
         attachmentFileService.updateFile(fileId, taskId, description, file);
         return ResponseEntity.ok("File updated successfully!");
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<StreamingResponseBody> serveFile(AttachmentFileDTO file, String rangeHeader, String acceptEncoding,
+                                                            String ifNoneMatch, String ifModifiedSince,
+                                                            HttpServletRequest request) throws IOException {
+        long fileSize = file.getFileSize();
+        boolean passThroughGzip = file.getStorageCodec() == StorageCodec.GZIP && rangeHeader == null && acceptsGzip(acceptEncoding);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (file.getContentHash() != null) {
+            // The gzip pass-through is a different byte sequence, so it needs its own strong validator.
+            headers.setETag("\"" + file.getContentHash() + (passThroughGzip ? "-gzip" : "") + "\"");
+        }
+        if (file.getUpdateDate() != null) {
+            headers.setLastModified(file.getUpdateDate().getTime());
+        }
+        if (cacheControl != null && !cacheControl.isBlank()) {
+            headers.setCacheControl(cacheControl);
+        }
+        if (file.getStorageCodec() == StorageCodec.GZIP) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+        if (isNotModified(headers.getETag(), file.getUpdateDate(), ifNoneMatch, ifModifiedSince)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(resolveMediaType(file.getFileType()));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(file.getFileName(), StandardCharsets.UTF_8).build());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (passThroughGzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.setContentLength(file.getStoredSize());
+            StreamingResponseBody body = outputStream ->
+                    attachmentFileService.transferStoredFile(file, Channels.newChannel(outputStream));
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        }
+
+        long start = 0;
+        long end = fileSize - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        List<HttpRange> ranges = parseRanges(rangeHeader);
+        if (ranges.size() == 1) {
+            start = ranges.getFirst().getRangeStart(fileSize);
+            end = Math.min(ranges.getFirst().getRangeEnd(fileSize), fileSize - 1);
+            if (start >= fileSize || start > end) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+
+        long position = start;
+        long count = Math.max(end - start + 1, 0);
+        headers.setContentLength(count);
+        if (count > 0 && ContainerSendfile.isSupported(request)) {
+            Optional<Path> plainFile = attachmentFileService.getPlainFile(file);
+            if (plainFile.isPresent()) {
+                ContainerSendfile.send(request, plainFile.get(), position, count);
+                return new ResponseEntity<>(headers, status);
+            }
+        }
+        StreamingResponseBody body = outputStream ->
+                attachmentFileService.transferFile(file, position, count, Channels.newChannel(outputStream));
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    private boolean isNotModified(String eTag, Date lastModified, String ifNoneMatch, String ifModifiedSince) {
+        // If-None-Match takes precedence; If-Modified-Since is only consulted when it is absent.
+        if (ifNoneMatch != null) {
+            if (eTag == null) {
+                return false;
+            }
+            ETag current = ETag.create(eTag);
+            return ETag.parse(ifNoneMatch).stream().anyMatch(candidate -> candidate.isWildcard() || candidate.compare(current, false));
+        }
+        if (ifModifiedSince == null || lastModified == null) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return lastModified.getTime() / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private List<HttpRange> parseRanges(String rangeHeader) {
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").equalsIgnoreCase("q=0");
+            }
+        }
+        return false;
+    }
+
+    private MediaType resolveMediaType(String fileType) {
+        try {
+            return fileType != null ? MediaType.parseMediaType(fileType) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentIngestionDTO;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentIngestionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/attachments/ingestions")
+@PreAuthorize("hasAuthority('Team_Member')")
+public class AttachmentIngestionController {
+    private final AttachmentIngestionService attachmentIngestionService;
+
+    public AttachmentIngestionController(AttachmentIngestionService attachmentIngestionService) {
+        this.attachmentIngestionService = attachmentIngestionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<List<AttachmentIngestionDTO>> receiveFiles(
+            @RequestParam("taskId") Long taskId,
+            @RequestParam("description") String description,
+            @RequestPart("files") List<MultipartFile> files) throws IOException {
+        List<AttachmentIngestionDTO> ingestions = attachmentIngestionService.receiveFiles(taskId, description, files);
+        return ResponseEntity.accepted().body(ingestions);
+    }
+
+    @GetMapping("/{ingestionId}")
+    public ResponseEntity<AttachmentIngestionDTO> getIngestion(@PathVariable Long ingestionId) {
+        AttachmentIngestionDTO ingestion = attachmentIngestionService.getIngestion(ingestionId);
+        return ResponseEntity.ok(ingestion);
+    }
+}
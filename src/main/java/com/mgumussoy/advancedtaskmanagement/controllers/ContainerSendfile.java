@@ -0,0 +1,28 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.nio.file.Path;
+
+// Tomcat sends a file named in these request attributes straight from the page cache to the socket once the handler
+// returns without writing a body. Writing through the servlet output stream always copies through a heap buffer.
+final class ContainerSendfile {
+    private static final String SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String START = "org.apache.tomcat.sendfile.start";
+    private static final String END = "org.apache.tomcat.sendfile.end";
+
+    private ContainerSendfile() {
+    }
+
+    // False when the connector cannot send files, e.g. over TLS or outside Tomcat; the caller then streams the body itself.
+    static boolean isSupported(HttpServletRequest request) {
+        return Boolean.TRUE.equals(request.getAttribute(SUPPORT));
+    }
+
+    static void send(HttpServletRequest request, Path file, long position, long count) {
+        request.setAttribute(FILENAME, file.toAbsolutePath().toString());
+        request.setAttribute(START, position);
+        request.setAttribute(END, position + count);
+    }
+}
@@ -0,0 +1,42 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.UserEntityNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.services.TaskService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/me")
+public class MeController {
+    private final TaskService taskService;
+
+    public MeController(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    @PreAuthorize("hasAuthority('Team_Member')")
+    @GetMapping("/tasks")
+    public ResponseEntity<TaskPageDTO> getMyTasks(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        TaskPageDTO tasks = taskService.getTasksOfAssignee(userIdOf(jwt), cursor, size);
+        return ResponseEntity.ok(tasks);
+    }
+
+    // The token carries the caller's user id, see UserController.token, so the caller is known without a user lookup.
+    private Long userIdOf(Jwt jwt) throws UserEntityNotFoundException {
+        Object userId = jwt.getClaims().get("userId");
+        if (!(userId instanceof Number number)) {
+            throw new UserEntityNotFoundException();
+        }
+        return number.longValue();
+    }
+}
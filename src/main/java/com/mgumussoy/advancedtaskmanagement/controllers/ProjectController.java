@@ -1,22 +1,37 @@
 package com.mgumussoy.advancedtaskmanagement.controllers;
 
 import com.mgumussoy.advancedtaskmanagement.dtos.ProjectDTO;
-import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskBoardSummaryDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectEventService;
 import com.mgumussoy.advancedtaskmanagement.services.ProjectService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService;
 import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/projects")
 public class ProjectController {
     private final ProjectService projectService;
+    private final AttachmentFileService attachmentFileService;
+    private final TaskBoardService taskBoardService;
+    private final ProjectEventService projectEventService;
 
-    public ProjectController(ProjectService projectService) {
+    public ProjectController(ProjectService projectService, AttachmentFileService attachmentFileService, TaskBoardService taskBoardService,
+                             ProjectEventService projectEventService) {
         this.projectService = projectService;
+        this.attachmentFileService = attachmentFileService;
+        this.taskBoardService = taskBoardService;
+        this.projectEventService = projectEventService;
     }
 
     @PreAuthorize("hasAnyAuthority('Project_Group_Manager', 'Project_Manager', 'Team_Leader')")
@@ -47,8 +62,39 @@ public class ProjectController {
     }
 
     @GetMapping("/{projectId}/tasks")
-    public ResponseEntity<List<TaskDTO>> getTasksOfProject(@PathVariable Long projectId) {
-        List<TaskDTO> tasks = projectService.getTasksOfProject(projectId);
+    public ResponseEntity<TaskPageDTO> getTasksOfProject(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "ID") TaskSortKey sort) {
+        TaskPageDTO tasks = projectService.getTasksOfProject(projectId, cursor, size, sort);
         return ResponseEntity.ok(tasks);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{projectId}/board/summary")
+    public ResponseEntity<TaskBoardSummaryDTO> getBoardSummary(@PathVariable Long projectId) {
+        TaskBoardSummaryDTO summary = taskBoardService.getBoardSummary(projectId);
+        return ResponseEntity.ok(summary);
+    }
+
+    @GetMapping(value = "/{projectId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getProjectEvents(
+            @PathVariable Long projectId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter events = projectEventService.subscribe(projectId, lastEventId);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(events);
+    }
+
+    @PreAuthorize("hasAuthority('Team_Member')")
+    @GetMapping("/{projectId}/attachments.zip")
+    public ResponseEntity<StreamingResponseBody> getAttachmentArchiveOfProject(@PathVariable Long projectId) {
+        AttachmentFileService.ArchiveWriter archiveWriter = attachmentFileService.getProjectArchive(projectId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("project-" + projectId + "-attachments.zip").build().toString())
+                .body(archiveWriter::writeTo);
+    }
+}
@@ -0,0 +1,115 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.SignedDownloadService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+// Registered outside the DispatcherServlet and ignored by the security filter chain: the signed token carries the blob
+// metadata, so a download costs an HMAC check and a file transfer, with no JWT decode and no persistence context.
+// Revisions stored as deltas are the exception, since rebuilding them needs their base chain from the blob table.
+// A token stays valid until it expires even if the attachment is deleted in the meantime, as long as its blob exists.
+public class SignedDownloadServlet extends HttpServlet {
+    private final transient SignedDownloadService signedDownloadService;
+    private final transient AttachmentFileService attachmentFileService;
+
+    public SignedDownloadServlet(SignedDownloadService signedDownloadService, AttachmentFileService attachmentFileService) {
+        this.signedDownloadService = signedDownloadService;
+        this.attachmentFileService = attachmentFileService;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String token = request.getPathInfo() != null ? request.getPathInfo().substring(1) : null;
+        Optional<AttachmentFileDTO> resolvedFile = signedDownloadService.resolveToken(token);
+        if (resolvedFile.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        AttachmentFileDTO file = resolvedFile.get();
+
+        String eTag = file.getContentHash() != null ? "\"" + file.getContentHash() + "\"" : null;
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private");
+        if (eTag != null) {
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch != null && ETag.parse(ifNoneMatch).stream()
+                    .anyMatch(candidate -> candidate.isWildcard() || candidate.compare(ETag.create(eTag), false))) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        long fileSize = file.getFileSize();
+        long start = 0;
+        long end = fileSize - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges = parseRanges(request.getHeader(HttpHeaders.RANGE));
+        if (ranges.size() == 1) {
+            start = ranges.getFirst().getRangeStart(fileSize);
+            end = Math.min(ranges.getFirst().getRangeEnd(fileSize), fileSize - 1);
+            if (start >= fileSize || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        }
+
+        long count = Math.max(end - start + 1, 0);
+        response.setContentType(resolveMediaType(file.getFileType()).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(file.getFileName(), StandardCharsets.UTF_8).build().toString());
+        response.setContentLengthLong(count);
+        try {
+            if (count > 0 && ContainerSendfile.isSupported(request)) {
+                Optional<Path> plainFile = attachmentFileService.getPlainFile(file);
+                if (plainFile.isPresent()) {
+                    ContainerSendfile.send(request, plainFile.get(), start, count);
+                    return;
+                }
+            }
+            attachmentFileService.transferFile(file, start, count, Channels.newChannel(response.getOutputStream()));
+        } catch (NoSuchFileException e) {
+            // The blob was reclaimed after the URL was issued.
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+    }
+
+    private List<HttpRange> parseRanges(String rangeHeader) {
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    private MediaType resolveMediaType(String fileType) {
+        try {
+            return fileType != null ? MediaType.parseMediaType(fileType) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.StorageUsageDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/storage-usage")
+@PreAuthorize("hasAnyAuthority('Project_Group_Manager', 'Project_Manager', 'Team_Leader')")
+public class StorageUsageController {
+    private final StorageQuotaService storageQuotaService;
+
+    public StorageUsageController(StorageQuotaService storageQuotaService) {
+        this.storageQuotaService = storageQuotaService;
+    }
+
+    @GetMapping("/{scope}")
+    public ResponseEntity<List<StorageUsageDTO>> getUsages(@PathVariable StorageScope scope) {
+        List<StorageUsageDTO> usages = storageQuotaService.getUsages(scope);
+        return ResponseEntity.ok(usages);
+    }
+
+    @GetMapping("/{scope}/{scopeId}")
+    public ResponseEntity<StorageUsageDTO> getUsage(@PathVariable StorageScope scope, @PathVariable Long scopeId) {
+        StorageUsageDTO usage = storageQuotaService.getUsage(scope, scopeId);
+        return ResponseEntity.ok(usage);
+    }
+}
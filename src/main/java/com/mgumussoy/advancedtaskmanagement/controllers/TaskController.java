@@ -1,19 +1,41 @@
 package com.mgumussoy.advancedtaskmanagement.controllers;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFilePageDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.CommentDTO;
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskSearchHitDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.CommentService;
 import com.mgumussoy.advancedtaskmanagement.services.TaskService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskTextSearchService;
 import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/tasks")
 public class TaskController {
     private final TaskService taskService;
+    private final AttachmentFileService attachmentFileService;
+    private final TaskTextSearchService taskTextSearchService;
+    private final CommentService commentService;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, AttachmentFileService attachmentFileService, TaskTextSearchService taskTextSearchService,
+                          CommentService commentService) {
         this.taskService = taskService;
+        this.attachmentFileService = attachmentFileService;
+        this.taskTextSearchService = taskTextSearchService;
+        this.commentService = commentService;
     }
 
     @PreAuthorize("hasAuthority('Team_Member')")
@@ -44,10 +66,61 @@ public class TaskController {
         return ResponseEntity.ok(taskDTO);
     }
 
+    @PreAuthorize("hasAuthority('Team_Member')")
+    @GetMapping
+    public ResponseEntity<TaskPageDTO> searchTasks(
+            @ModelAttribute TaskFilterDTO filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "ID") TaskSortKey sort) {
+        TaskPageDTO tasks = taskService.searchTasks(filter, cursor, size, sort);
+        return ResponseEntity.ok(tasks);
+    }
+
+    @PreAuthorize("hasAuthority('Team_Member')")
+    @GetMapping("/search")
+    public ResponseEntity<List<TaskSearchHitDTO>> searchTaskText(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<TaskSearchHitDTO> hits = taskTextSearchService.search(q, page, size);
+        return ResponseEntity.ok(hits);
+    }
+
     @PreAuthorize("hasAuthority('Team_Member')")
     @PostMapping("/{taskId}/assign/{userId}")
     public ResponseEntity<String> assignTask(@PathVariable Long taskId, @PathVariable Long userId) {
         taskService.assignTask(taskId, userId);
         return ResponseEntity.ok("Task assigned successfully!");
     }
-}
\ No newline at end of file
+
+    @PreAuthorize("hasAuthority('Team_Member')")
+    @GetMapping("/{taskId}/attachments")
+    public ResponseEntity<AttachmentFilePageDTO> getAttachmentsOfTask(
+            @PathVariable Long taskId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        AttachmentFilePageDTO attachments = attachmentFileService.getFilesOfTask(taskId, page, size);
+        return ResponseEntity.ok(attachments);
+    }
+
+    @PreAuthorize("hasAuthority('Team_Member')")
+    @GetMapping("/{taskId}/comments")
+    public ResponseEntity<List<CommentDTO>> getCommentsOfTask(
+            @PathVariable Long taskId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<CommentDTO> comments = commentService.getCommentsOfTask(taskId, page, size);
+        return ResponseEntity.ok(comments);
+    }
+
+    @PreAuthorize("hasAuthority('Team_Member')")
+    @GetMapping("/{taskId}/attachments.zip")
+    public ResponseEntity<StreamingResponseBody> getAttachmentArchiveOfTask(@PathVariable Long taskId) {
+        AttachmentFileService.ArchiveWriter archiveWriter = attachmentFileService.getTaskArchive(taskId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("task-" + taskId + "-attachments.zip").build().toString())
+                .body(archiveWriter::writeTo);
+    }
+}
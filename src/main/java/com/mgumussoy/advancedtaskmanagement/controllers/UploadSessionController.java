@@ -0,0 +1,53 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.UploadSessionDTO;
+import com.mgumussoy.advancedtaskmanagement.services.UploadSessionService;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/attachments/upload-sessions")
+@PreAuthorize("hasAuthority('Team_Member')")
+public class UploadSessionController {
+    private final UploadSessionService uploadSessionService;
+
+    public UploadSessionController(UploadSessionService uploadSessionService) {
+        this.uploadSessionService = uploadSessionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDTO> createSession(@RequestBody @Valid UploadSessionDTO uploadSessionDTO) {
+        UploadSessionDTO createdSession = uploadSessionService.createSession(uploadSessionDTO);
+        return ResponseEntity.ok(createdSession);
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionDTO> getSession(@PathVariable Long sessionId) throws IOException {
+        UploadSessionDTO uploadSessionDTO = uploadSessionService.getSession(sessionId);
+        return ResponseEntity.ok(uploadSessionDTO);
+    }
+
+    @PutMapping(value = "/{sessionId}/chunks/{chunkNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<String> uploadChunk(@PathVariable Long sessionId, @PathVariable int chunkNumber, InputStream inputStream) throws IOException {
+        uploadSessionService.uploadChunk(sessionId, chunkNumber, inputStream);
+        return ResponseEntity.ok("Chunk uploaded successfully!");
+    }
+
+    @PostMapping("/{sessionId}/commit")
+    public ResponseEntity<String> commitSession(@PathVariable Long sessionId, @RequestParam("checksum") String checksum) throws IOException {
+        uploadSessionService.commitSession(sessionId, checksum);
+        return ResponseEntity.ok("File uploaded successfully!");
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<String> abortSession(@PathVariable Long sessionId) throws IOException {
+        uploadSessionService.abortSession(sessionId);
+        return ResponseEntity.ok("Upload session aborted successfully!");
+    }
+}
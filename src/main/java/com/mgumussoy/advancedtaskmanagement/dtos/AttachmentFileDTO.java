@@ -0,0 +1,43 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class AttachmentFileDTO {
+    private Long id;
+
+    private String fileName;
+
+    private String fileType;
+
+    private long fileSize;
+
+    private String description;
+
+    private Long taskId;
+
+    private String contentHash;
+
+    @JsonIgnore
+    private String storageKey;
+
+    @JsonIgnore
+    private long storedSize;
+
+    @JsonIgnore
+    private StorageCodec storageCodec;
+
+    private Date updateDate;
+
+    private int versionNumber;
+}
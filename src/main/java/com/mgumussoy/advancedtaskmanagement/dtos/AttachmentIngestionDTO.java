@@ -0,0 +1,33 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import com.mgumussoy.advancedtaskmanagement.enums.IngestionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AttachmentIngestionDTO {
+    private Long id;
+
+    private Long taskId;
+
+    private String fileName;
+
+    private String fileType;
+
+    private String description;
+
+    private long fileSize;
+
+    private IngestionStatus status;
+
+    private String contentHash;
+
+    private Long attachmentFileId;
+
+    private String failureReason;
+}
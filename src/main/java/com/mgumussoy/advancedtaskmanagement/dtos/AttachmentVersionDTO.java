@@ -0,0 +1,32 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AttachmentVersionDTO {
+    private int versionNumber;
+
+    private String fileName;
+
+    private String fileType;
+
+    private long fileSize;
+
+    private String description;
+
+    private String contentHash;
+
+    private String uploadedBy;
+
+    private Date uploadedDate;
+
+    private boolean current;
+}
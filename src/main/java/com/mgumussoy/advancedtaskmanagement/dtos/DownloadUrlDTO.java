@@ -0,0 +1,18 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DownloadUrlDTO {
+    private String url;
+
+    private Date expiresAt;
+}
@@ -0,0 +1,26 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectEventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProjectEventDTO {
+    private ProjectEventType type;
+
+    private Long projectId;
+
+    private Long taskId;
+
+    private Long commentId;
+
+    // The task or comment as committed; left out for deletions.
+    private TaskDTO task;
+
+    private CommentDTO comment;
+}
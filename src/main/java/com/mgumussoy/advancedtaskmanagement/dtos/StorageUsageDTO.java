@@ -0,0 +1,25 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StorageUsageDTO {
+    private StorageScope scope;
+
+    private Long scopeId;
+
+    private long usedBytes;
+
+    private long fileCount;
+
+    private long maxBytes;
+
+    private long maxFiles;
+}
@@ -0,0 +1,26 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TaskBoardSummaryDTO {
+    private Long projectId;
+
+    private long totalCount;
+
+    private long unassignedCount;
+
+    private Map<TaskState, Long> stateCounts;
+
+    private Map<TaskPriority, Long> priorityCounts;
+}
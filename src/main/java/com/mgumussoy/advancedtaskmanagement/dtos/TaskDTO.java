@@ -9,6 +9,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Date;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -35,4 +37,8 @@ public class TaskDTO {
     private Long projectId;
 
     private String reasonForStateChange;
+
+    private Date createdDate;
+
+    private Date updateDate;
 }
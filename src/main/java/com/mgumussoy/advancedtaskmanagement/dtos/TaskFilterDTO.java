@@ -0,0 +1,38 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TaskFilterDTO {
+    private List<TaskState> state;
+
+    private List<TaskPriority> priority;
+
+    private Long assigneeId;
+
+    private Long projectId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Date createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Date createdTo;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Date updatedFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Date updatedTo;
+}
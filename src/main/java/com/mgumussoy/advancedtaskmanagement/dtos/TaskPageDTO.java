@@ -0,0 +1,18 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TaskPageDTO {
+    private List<TaskDTO> tasks;
+
+    private String nextCursor;
+}
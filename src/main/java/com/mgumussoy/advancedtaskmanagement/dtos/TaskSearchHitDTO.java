@@ -0,0 +1,20 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TaskSearchHitDTO {
+    private TaskDTO task;
+
+    private double score;
+
+    private String userStoryHighlight;
+
+    private String acceptanceCriteriaHighlight;
+}
@@ -0,0 +1,44 @@
+package com.mgumussoy.advancedtaskmanagement.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionDTO {
+    private Long id;
+
+    @NotNull(message = "Task id cannot be null")
+    private Long taskId;
+
+    @NotBlank(message = "File name cannot be blank")
+    private String fileName;
+
+    private String fileType;
+
+    private String description;
+
+    @NotNull(message = "File size cannot be null")
+    @PositiveOrZero(message = "File size cannot be negative")
+    private Long fileSize;
+
+    @NotNull(message = "Chunk size cannot be null")
+    @Positive(message = "Chunk size must be positive")
+    private Long chunkSize;
+
+    private int totalChunks;
+
+    @Builder.Default
+    private List<Integer> receivedChunks = new ArrayList<>();
+}
@@ -0,0 +1,48 @@
+package com.mgumussoy.advancedtaskmanagement.entities;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@EqualsAndHashCode(callSuper = false)
+@Table(name = "attachment_blobs")
+public class AttachmentBlob extends BaseEntity {
+    @Column(unique = true, nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String storageKey;
+
+    private long fileSize;
+
+    private long storedSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StorageCodec storageCodec;
+
+    private long referenceCount;
+
+    // Set for DELTA blobs: the content the delta applies to, and how many deltas deep this blob sits on a full blob.
+    @Column(length = 64)
+    private String baseContentHash;
+
+    private int deltaDepth;
+
+    @Column(name = "released_date")
+    private Date releasedDate;
+
+    // Set for DELTA blobs that were downloaded recently: the fully rebuilt content, stored as a plain blob of its own.
+    @Column(name = "materialized_storage_key")
+    private String materializedStorageKey;
+
+    @Column(name = "materialized_date")
+    private Date materializedDate;
+}
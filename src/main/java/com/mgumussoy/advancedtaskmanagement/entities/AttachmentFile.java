@@ -1,7 +1,9 @@
 package com.mgumussoy.advancedtaskmanagement.entities;
 
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Data
 @NoArgsConstructor
@@ -19,8 +21,23 @@ public class AttachmentFile extends BaseEntity {
 
     private String description;
 
-    @Lob
-    private byte[] fileData;
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String storageKey;
+
+    private long fileSize;
+
+    private long storedSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StorageCodec storageCodec;
+
+    @ColumnDefault("1")
+    @Column(name = "version_number", nullable = false)
+    private int versionNumber;
 
     @ManyToOne
     @JoinColumn(name = "task_id")
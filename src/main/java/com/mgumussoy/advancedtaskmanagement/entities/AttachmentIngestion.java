@@ -0,0 +1,52 @@
+package com.mgumussoy.advancedtaskmanagement.entities;
+
+import com.mgumussoy.advancedtaskmanagement.enums.IngestionStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@EqualsAndHashCode(callSuper = false)
+@Table(name = "attachment_ingestions")
+public class AttachmentIngestion extends BaseEntity {
+    @ManyToOne
+    @JoinColumn(name = "task_id")
+    private TaskEntity taskEntity;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    private String fileType;
+
+    private String description;
+
+    @Column(nullable = false)
+    private long fileSize;
+
+    @Column(name = "staging_path", nullable = false)
+    private String stagingPath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IngestionStatus status;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "attachment_file_id")
+    private Long attachmentFileId;
+
+    private String failureReason;
+
+    // The node holding the staged upload; another node only takes the row over once the lease has run out.
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "lease_expires_at")
+    private Date leaseExpiresAt;
+}
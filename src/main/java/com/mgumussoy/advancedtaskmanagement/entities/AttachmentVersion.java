@@ -0,0 +1,52 @@
+package com.mgumussoy.advancedtaskmanagement.entities;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@EqualsAndHashCode(callSuper = false)
+@Table(name = "attachment_versions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"attachment_file_id", "version_number"}))
+public class AttachmentVersion extends BaseEntity {
+    @ManyToOne
+    @JoinColumn(name = "attachment_file_id", nullable = false)
+    private AttachmentFile attachmentFile;
+
+    @Column(name = "version_number", nullable = false)
+    private int versionNumber;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private String fileType;
+
+    private String description;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String storageKey;
+
+    private long fileSize;
+
+    private long storedSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StorageCodec storageCodec;
+
+    @Column(name = "uploaded_by")
+    private String uploadedBy;
+
+    @Column(name = "uploaded_date")
+    private Date uploadedDate;
+}
@@ -0,0 +1,25 @@
+package com.mgumussoy.advancedtaskmanagement.entities;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@EqualsAndHashCode(callSuper = false)
+@Table(name = "storage_usages", uniqueConstraints = @UniqueConstraint(columnNames = {"scope", "scope_id"}))
+public class StorageUsage extends BaseEntity {
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StorageScope scope;
+
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+
+    private long usedBytes;
+
+    private long fileCount;
+}
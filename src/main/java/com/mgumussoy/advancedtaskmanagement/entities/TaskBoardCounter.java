@@ -0,0 +1,32 @@
+package com.mgumussoy.advancedtaskmanagement.entities;
+
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@EqualsAndHashCode(callSuper = false)
+// One row per project, state, priority and assignment, so a board reads at most a few dozen rows however many tasks it has.
+@Table(name = "task_board_counters", uniqueConstraints = @UniqueConstraint(columnNames = {"project_id", "state", "priority", "assigned"}))
+public class TaskBoardCounter extends BaseEntity {
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskState state;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskPriority priority;
+
+    @Column(nullable = false)
+    private boolean assigned;
+
+    private long taskCount;
+}
@@ -16,7 +16,17 @@ import java.util.List;
 @Entity
 @EqualsAndHashCode(callSuper = false)
 @EntityListeners(PreventTaskStateChangeListener.class)
-@Table(name = "tasks")
+// The first three indexes match the keyset queries of the project task listing, the project's live tasks in sort key
+// order. The state and priority ones cover the usual task search filters within a project or for an assignee. The
+// priority rank one matches the keyset query of an assignee's own tasks, most urgent and oldest first.
+@Table(name = "tasks", indexes = {
+        @Index(name = "idx_tasks_project_deleted_id", columnList = "project_id, deleted, id"),
+        @Index(name = "idx_tasks_project_deleted_created", columnList = "project_id, deleted, created_date, id"),
+        @Index(name = "idx_tasks_project_deleted_updated", columnList = "project_id, deleted, update_date, id"),
+        @Index(name = "idx_tasks_project_deleted_state_priority", columnList = "project_id, deleted, state, priority, id"),
+        @Index(name = "idx_tasks_assignee_deleted_state_priority", columnList = "assignee_id, deleted, state, priority, id"),
+        @Index(name = "idx_tasks_assignee_deleted_priority_rank", columnList = "assignee_id, deleted, priority_rank, id")
+})
 public class TaskEntity extends BaseEntity {
     @Lob
     @Column(nullable = false)
@@ -34,6 +44,9 @@ public class TaskEntity extends BaseEntity {
     @Column(nullable = false)
     private TaskPriority priority;
 
+    // The priority is stored by name, which does not sort by urgency; the rank does and is kept in step with it on every write.
+    private Integer priorityRank;
+
     @OneToMany(mappedBy = "taskEntity", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Builder.Default
     private List<Comment> comments = new ArrayList<>();
@@ -42,13 +55,19 @@ public class TaskEntity extends BaseEntity {
     @Builder.Default
     private List<AttachmentFile> attachments = new ArrayList<>();
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assignee_id")
     private UserEntity assignee;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "project_id")
     private Project project;
 
     private String reasonForStateChange;
+
+    @PrePersist
+    @PreUpdate
+    void rankPriority() {
+        priorityRank = priority == null ? null : priority.getRank();
+    }
 }
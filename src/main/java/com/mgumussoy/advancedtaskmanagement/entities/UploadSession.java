@@ -0,0 +1,30 @@
+package com.mgumussoy.advancedtaskmanagement.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@EqualsAndHashCode(callSuper = false)
+@Table(name = "upload_sessions")
+public class UploadSession extends BaseEntity {
+    @ManyToOne
+    @JoinColumn(name = "task_id")
+    private TaskEntity taskEntity;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    private String fileType;
+
+    private String description;
+
+    @Column(nullable = false)
+    private long fileSize;
+
+    @Column(nullable = false)
+    private long chunkSize;
+}
@@ -0,0 +1,16 @@
+package com.mgumussoy.advancedtaskmanagement.enums;
+
+public enum CacheEvictionPolicy {
+    LRU("LRU"),
+    LFU("LFU");
+
+    private final String cacheEvictionPolicy;
+
+    private CacheEvictionPolicy(String policy) {
+        cacheEvictionPolicy = policy;
+    }
+
+    public String getPolicy() {
+        return cacheEvictionPolicy;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mgumussoy.advancedtaskmanagement.enums;
+
+public enum IngestionStatus {
+    RECEIVED("RECEIVED"),
+    HASHING("HASHING"),
+    COMPRESSING("COMPRESSING"),
+    SCANNING("SCANNING"),
+    COMMITTING("COMMITTING"),
+    COMPLETED("COMPLETED"),
+    FAILED("FAILED");
+
+    private final String ingestionStatus;
+
+    private IngestionStatus(String status) {
+        ingestionStatus = status;
+    }
+
+    public String getStatus() {
+        return ingestionStatus;
+    }
+}
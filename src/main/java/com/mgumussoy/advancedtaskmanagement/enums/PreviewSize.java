@@ -0,0 +1,23 @@
+package com.mgumussoy.advancedtaskmanagement.enums;
+
+public enum PreviewSize {
+    SMALL("SMALL", 128),
+    MEDIUM("MEDIUM", 512),
+    LARGE("LARGE", 1024);
+
+    private final String previewSize;
+    private final int maxEdge;
+
+    private PreviewSize(String size, int edge) {
+        previewSize = size;
+        maxEdge = edge;
+    }
+
+    public String getSize() {
+        return previewSize;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mgumussoy.advancedtaskmanagement.enums;
+
+public enum ProjectEventType {
+    TASK_CREATED("TASK_CREATED"),
+    TASK_UPDATED("TASK_UPDATED"),
+    TASK_ASSIGNED("TASK_ASSIGNED"),
+    TASK_DELETED("TASK_DELETED"),
+    COMMENT_CREATED("COMMENT_CREATED"),
+    COMMENT_UPDATED("COMMENT_UPDATED"),
+    COMMENT_DELETED("COMMENT_DELETED");
+
+    private final String projectEventType;
+
+    private ProjectEventType(String type) {
+        projectEventType = type;
+    }
+
+    public String getType() {
+        return projectEventType;
+    }
+}
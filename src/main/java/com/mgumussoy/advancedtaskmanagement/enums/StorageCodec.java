@@ -0,0 +1,17 @@
+package com.mgumussoy.advancedtaskmanagement.enums;
+
+public enum StorageCodec {
+    IDENTITY("IDENTITY"),
+    GZIP("GZIP"),
+    DELTA("DELTA");
+
+    private final String storageCodec;
+
+    private StorageCodec(String codec) {
+        storageCodec = codec;
+    }
+
+    public String getCodec() {
+        return storageCodec;
+    }
+}
@@ -0,0 +1,17 @@
+package com.mgumussoy.advancedtaskmanagement.enums;
+
+public enum StorageScope {
+    TASK("TASK"),
+    PROJECT("PROJECT"),
+    DEPARTMENT("DEPARTMENT");
+
+    private final String storageScope;
+
+    private StorageScope(String scope) {
+        storageScope = scope;
+    }
+
+    public String getScope() {
+        return storageScope;
+    }
+}
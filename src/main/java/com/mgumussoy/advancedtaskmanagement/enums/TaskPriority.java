@@ -16,4 +16,9 @@ public enum TaskPriority {
     public String getPriority() {
         return taskPriority;
     }
+
+    // Declaration order runs from the most to the least urgent, so the ordinal sorts tasks by urgency.
+    public int getRank() {
+        return ordinal();
+    }
 }
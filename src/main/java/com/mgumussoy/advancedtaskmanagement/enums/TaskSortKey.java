@@ -0,0 +1,17 @@
+package com.mgumussoy.advancedtaskmanagement.enums;
+
+public enum TaskSortKey {
+    ID("ID"),
+    CREATED_DATE("CREATED_DATE"),
+    UPDATE_DATE("UPDATE_DATE");
+
+    private final String taskSortKey;
+
+    private TaskSortKey(String sortKey) {
+        taskSortKey = sortKey;
+    }
+
+    public String getSortKey() {
+        return taskSortKey;
+    }
+}
@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class AttachmentIngestionNotFoundException extends RuntimeException {
+    public AttachmentIngestionNotFoundException() {
+        super("AttachmentIngestionNotFoundException");
+    }
+}
@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class AttachmentRejectedException extends RuntimeException {
+    public AttachmentRejectedException() {
+        super("AttachmentRejectedException");
+    }
+}
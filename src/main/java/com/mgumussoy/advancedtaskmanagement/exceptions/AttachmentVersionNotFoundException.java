@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class AttachmentVersionNotFoundException extends RuntimeException {
+    public AttachmentVersionNotFoundException() {
+        super("AttachmentVersionNotFoundException");
+    }
+}
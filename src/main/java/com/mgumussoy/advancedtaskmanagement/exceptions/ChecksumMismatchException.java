@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class ChecksumMismatchException extends RuntimeException {
+    public ChecksumMismatchException() {
+        super("ChecksumMismatchException");
+    }
+}
@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException() {
+        super("InvalidCursorException");
+    }
+}
@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class InvalidUploadChunkException extends RuntimeException {
+    public InvalidUploadChunkException() {
+        super("InvalidUploadChunkException");
+    }
+}
@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class PreviewNotAvailableException extends RuntimeException {
+    public PreviewNotAvailableException() {
+        super("PreviewNotAvailableException");
+    }
+}
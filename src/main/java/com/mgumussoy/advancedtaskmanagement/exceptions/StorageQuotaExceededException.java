@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class StorageQuotaExceededException extends RuntimeException {
+    public StorageQuotaExceededException() {
+        super("StorageQuotaExceededException");
+    }
+}
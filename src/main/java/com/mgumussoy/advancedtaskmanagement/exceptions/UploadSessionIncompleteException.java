@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class UploadSessionIncompleteException extends RuntimeException {
+    public UploadSessionIncompleteException() {
+        super("UploadSessionIncompleteException");
+    }
+}
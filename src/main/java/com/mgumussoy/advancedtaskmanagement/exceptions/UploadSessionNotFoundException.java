@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.exceptions;
+
+public class UploadSessionNotFoundException extends RuntimeException {
+    public UploadSessionNotFoundException() {
+        super("UploadSessionNotFoundException");
+    }
+}
@@ -0,0 +1,35 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface AttachmentBlobRepository extends JpaRepository<AttachmentBlob, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<AttachmentBlob> findWithLockByContentHash(String contentHash);
+
+    Optional<AttachmentBlob> findByContentHash(String contentHash);
+
+    boolean existsByContentHash(String contentHash);
+
+    boolean existsByStorageKey(String storageKey);
+
+    @Query("select b.contentHash from AttachmentBlob b where b.referenceCount <= 0 and b.releasedDate < :cutoff order by b.releasedDate")
+    List<String> findContentHashesReleasedBefore(@Param("cutoff") Date cutoff, Pageable pageable);
+
+    @Query("select b.contentHash from AttachmentBlob b where b.materializedDate < :cutoff order by b.materializedDate")
+    List<String> findContentHashesMaterializedBefore(@Param("cutoff") Date cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("update AttachmentBlob b set b.referenceCount = b.referenceCount + 1, b.releasedDate = null where b.contentHash = :contentHash")
+    int retainByContentHash(@Param("contentHash") String contentHash);
+}
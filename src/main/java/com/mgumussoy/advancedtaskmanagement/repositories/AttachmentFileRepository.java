@@ -1,7 +1,46 @@
 package com.mgumussoy.advancedtaskmanagement.repositories;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
 import com.mgumussoy.advancedtaskmanagement.entities.AttachmentFile;
+import com.mgumussoy.advancedtaskmanagement.entities.StorageUsage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface AttachmentFileRepository extends JpaRepository<AttachmentFile, Long> {
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO(" +
+            "a.id, a.fileName, a.fileType, a.fileSize, a.description, a.taskEntity.id, a.contentHash, a.storageKey, a.storedSize, a.storageCodec, a.updateDate, " +
+            "a.versionNumber) " +
+            "from AttachmentFile a where a.taskEntity.id = :taskId and a.deleted = false")
+    Slice<AttachmentFileDTO> findMetadataByTaskId(@Param("taskId") Long taskId, Pageable pageable);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO(" +
+            "a.id, a.fileName, a.fileType, a.fileSize, a.description, a.taskEntity.id, a.contentHash, a.storageKey, a.storedSize, a.storageCodec, a.updateDate, " +
+            "a.versionNumber) " +
+            "from AttachmentFile a where a.taskEntity.id = :taskId and a.deleted = false and a.id > :afterId order by a.id")
+    Slice<AttachmentFileDTO> findMetadataByTaskIdAfter(@Param("taskId") Long taskId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO(" +
+            "a.id, a.fileName, a.fileType, a.fileSize, a.description, a.taskEntity.id, a.contentHash, a.storageKey, a.storedSize, a.storageCodec, a.updateDate, " +
+            "a.versionNumber) " +
+            "from AttachmentFile a where a.taskEntity.project.id = :projectId and a.taskEntity.deleted = false and a.deleted = false " +
+            "and a.id > :afterId order by a.id")
+    Slice<AttachmentFileDTO> findMetadataByProjectIdAfter(@Param("projectId") Long projectId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.entities.StorageUsage(" +
+            "com.mgumussoy.advancedtaskmanagement.enums.StorageScope.TASK, a.taskEntity.id, sum(a.fileSize), count(a)) " +
+            "from AttachmentFile a where a.taskEntity.project.id = :projectId and a.taskEntity.deleted = false and a.deleted = false " +
+            "group by a.taskEntity.id")
+    List<StorageUsage> sumUsageByTaskOfProject(@Param("projectId") Long projectId);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.entities.StorageUsage(" +
+            "com.mgumussoy.advancedtaskmanagement.enums.StorageScope.DEPARTMENT, a.taskEntity.project.department.id, sum(a.fileSize), count(a)) " +
+            "from AttachmentFile a where a.taskEntity.project.department.id = :departmentId and a.taskEntity.deleted = false " +
+            "and a.deleted = false group by a.taskEntity.project.department.id")
+    Optional<StorageUsage> sumUsageOfDepartment(@Param("departmentId") Long departmentId);
 }
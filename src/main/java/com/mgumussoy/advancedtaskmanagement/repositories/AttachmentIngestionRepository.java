@@ -0,0 +1,18 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentIngestion;
+import com.mgumussoy.advancedtaskmanagement.enums.IngestionStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface AttachmentIngestionRepository extends JpaRepository<AttachmentIngestion, Long> {
+    List<AttachmentIngestion> findByStatusInAndDeletedFalse(Collection<IngestionStatus> statuses);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<AttachmentIngestion> findWithLockById(Long id);
+}
@@ -0,0 +1,13 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface AttachmentVersionRepository extends JpaRepository<AttachmentVersion, Long> {
+    List<AttachmentVersion> findByAttachmentFileIdAndDeletedFalseOrderByVersionNumber(Long attachmentFileId);
+
+    Optional<AttachmentVersion> findByAttachmentFileIdAndVersionNumberAndDeletedFalse(Long attachmentFileId, int versionNumber);
+}
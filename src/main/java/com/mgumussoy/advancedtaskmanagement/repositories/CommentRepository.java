@@ -1,7 +1,10 @@
 package com.mgumussoy.advancedtaskmanagement.repositories;
 
 import com.mgumussoy.advancedtaskmanagement.entities.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    Slice<Comment> findByTaskEntityIdAndDeletedFalse(Long taskId, Pageable pageable);
 }
@@ -1,7 +1,14 @@
 package com.mgumussoy.advancedtaskmanagement.repositories;
 
 import com.mgumussoy.advancedtaskmanagement.entities.Department;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface DepartmentRepository extends JpaRepository<Department, Long> {
+    @Query("select d.id from Department d where d.id > :afterId order by d.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -1,7 +1,16 @@
 package com.mgumussoy.advancedtaskmanagement.repositories;
 
 import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
+    boolean existsByIdAndDeletedFalse(Long id);
+
+    @Query("select p.id from Project p where p.id > :afterId order by p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
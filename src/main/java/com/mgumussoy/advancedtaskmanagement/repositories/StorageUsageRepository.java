@@ -0,0 +1,25 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.entities.StorageUsage;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, Long> {
+    Optional<StorageUsage> findByScopeAndScopeId(StorageScope scope, Long scopeId);
+
+    boolean existsByScopeAndScopeId(StorageScope scope, Long scopeId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<StorageUsage> findWithLockByScopeAndScopeId(StorageScope scope, Long scopeId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<StorageUsage> findWithLockByScopeAndScopeIdInOrderByScopeId(StorageScope scope, Collection<Long> scopeIds);
+
+    List<StorageUsage> findByScopeOrderByUsedBytesDesc(StorageScope scope);
+}
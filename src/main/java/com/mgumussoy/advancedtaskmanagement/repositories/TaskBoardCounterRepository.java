@@ -0,0 +1,33 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.entities.TaskBoardCounter;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TaskBoardCounterRepository extends JpaRepository<TaskBoardCounter, Long> {
+    List<TaskBoardCounter> findByProjectId(Long projectId);
+
+    boolean existsByProjectIdAndStateAndPriorityAndAssigned(Long projectId, TaskState state, TaskPriority priority, boolean assigned);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<TaskBoardCounter> findWithLockByProjectId(Long projectId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<TaskBoardCounter> findWithLockByProjectIdAndStateAndPriorityAndAssigned(Long projectId, TaskState state,
+                                                                                       TaskPriority priority, boolean assigned);
+
+    @Modifying
+    @Query("update TaskBoardCounter c set c.taskCount = case when c.taskCount + :delta < 0 then 0 else c.taskCount + :delta end " +
+            "where c.projectId = :projectId and c.state = :state and c.priority = :priority and c.assigned = :assigned")
+    int adjustTaskCount(@Param("projectId") Long projectId, @Param("state") TaskState state, @Param("priority") TaskPriority priority,
+                        @Param("assigned") boolean assigned, @Param("delta") long delta);
+}
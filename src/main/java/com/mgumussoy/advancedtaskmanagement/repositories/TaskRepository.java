@@ -1,7 +1,90 @@
 package com.mgumussoy.advancedtaskmanagement.repositories;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskBoardCounter;
 import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface TaskRepository extends JpaRepository<TaskEntity, Long> {
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface TaskRepository extends JpaRepository<TaskEntity, Long>, TaskSearchRepository {
+    boolean existsByIdAndDeletedFalse(Long id);
+
+    @EntityGraph(attributePaths = {"assignee", "project"})
+    Optional<TaskEntity> findWithAssigneeAndProjectById(Long id);
+
+    @EntityGraph(attributePaths = {"project", "project.department"})
+    Optional<TaskEntity> findWithProjectById(Long id);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO(" +
+            "t.id, t.userStory, t.acceptanceCriteria, t.state, t.priority, a.id, t.project.id, t.reasonForStateChange, t.createdDate, t.updateDate) " +
+            "from TaskEntity t left join t.assignee a " +
+            "where t.id = :id and t.deleted = false")
+    Optional<TaskDTO> findDTOById(@Param("id") Long id);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO(" +
+            "t.id, t.userStory, t.acceptanceCriteria, t.state, t.priority, a.id, t.project.id, t.reasonForStateChange, t.createdDate, t.updateDate) " +
+            "from TaskEntity t left join t.assignee a " +
+            "where t.project.id = :projectId and t.deleted = false and t.id > :afterId order by t.id")
+    Slice<TaskDTO> findByProjectIdAfterId(@Param("projectId") Long projectId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO(" +
+            "t.id, t.userStory, t.acceptanceCriteria, t.state, t.priority, a.id, t.project.id, t.reasonForStateChange, t.createdDate, t.updateDate) " +
+            "from TaskEntity t left join t.assignee a " +
+            "where t.project.id = :projectId and t.deleted = false " +
+            "and (t.createdDate > :afterDate or (t.createdDate = :afterDate and t.id > :afterId)) " +
+            "order by t.createdDate, t.id")
+    Slice<TaskDTO> findByProjectIdAfterCreatedDate(@Param("projectId") Long projectId, @Param("afterDate") Date afterDate,
+                                                   @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO(" +
+            "t.id, t.userStory, t.acceptanceCriteria, t.state, t.priority, a.id, t.project.id, t.reasonForStateChange, t.createdDate, t.updateDate) " +
+            "from TaskEntity t left join t.assignee a " +
+            "where t.project.id = :projectId and t.deleted = false " +
+            "and (t.updateDate > :afterDate or (t.updateDate = :afterDate and t.id > :afterId)) " +
+            "order by t.updateDate, t.id")
+    Slice<TaskDTO> findByProjectIdAfterUpdateDate(@Param("projectId") Long projectId, @Param("afterDate") Date afterDate,
+                                                  @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO(" +
+            "t.id, t.userStory, t.acceptanceCriteria, t.state, t.priority, a.id, t.project.id, t.reasonForStateChange, t.createdDate, t.updateDate) " +
+            "from TaskEntity t left join t.assignee a " +
+            "where t.assignee.id = :assigneeId and t.deleted = false " +
+            "and (t.priorityRank > :afterRank or (t.priorityRank = :afterRank and t.id > :afterId)) " +
+            "order by t.priorityRank, t.id")
+    Slice<TaskDTO> findByAssigneeIdAfterPriorityRank(@Param("assigneeId") Long assigneeId, @Param("afterRank") int afterRank,
+                                                     @Param("afterId") Long afterId, Pageable pageable);
+
+    // Tasks written before the priority_rank column existed have no rank yet; every later write sets it in TaskEntity.
+    @Modifying
+    @Query("update TaskEntity t set t.priorityRank = :priorityRank where t.priority = :priority and t.priorityRank is null")
+    int fillPriorityRank(@Param("priority") TaskPriority priority, @Param("priorityRank") int priorityRank);
+
+    @Query("select new com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO(" +
+            "t.id, t.userStory, t.acceptanceCriteria, t.state, t.priority, a.id, t.project.id, t.reasonForStateChange, t.createdDate, t.updateDate) " +
+            "from TaskEntity t left join t.assignee a " +
+            "where t.id in :ids and t.deleted = false")
+    List<TaskDTO> findByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Deleted tasks are included, so usage still recorded against them can be found and cleared.
+    @Query("select t.id from TaskEntity t where t.project.id = :projectId order by t.id")
+    List<Long> findIdsByProjectId(@Param("projectId") Long projectId);
+
+    // Recounts one project's board from its tasks; the grouping columns are a prefix of idx_tasks_project_deleted_state_priority.
+    @Query("select new com.mgumussoy.advancedtaskmanagement.entities.TaskBoardCounter(" +
+            "t.project.id, t.state, t.priority, case when t.assignee is null then false else true end, count(t)) " +
+            "from TaskEntity t " +
+            "where t.project.id = :projectId and t.deleted = false " +
+            "group by t.project.id, t.state, t.priority, case when t.assignee is null then false else true end")
+    List<TaskBoardCounter> countBoardByProjectId(@Param("projectId") Long projectId);
 }
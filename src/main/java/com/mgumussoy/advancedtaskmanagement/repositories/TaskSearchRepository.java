@@ -0,0 +1,13 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Date;
+
+public interface TaskSearchRepository {
+    Slice<TaskDTO> findByFilterAfter(TaskFilterDTO filter, TaskSortKey sortKey, Date afterDate, Long afterId, Pageable pageable);
+}
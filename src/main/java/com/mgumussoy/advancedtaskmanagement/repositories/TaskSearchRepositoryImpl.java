@@ -0,0 +1,89 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.entities.UserEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class TaskSearchRepositoryImpl implements TaskSearchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Only the criteria that were given end up in the where clause, so every combination gets a query the database
+    // can match against the composite indexes declared on TaskEntity instead of one catch-all query.
+    @Override
+    public Slice<TaskDTO> findByFilterAfter(TaskFilterDTO filter, TaskSortKey sortKey, Date afterDate, Long afterId, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TaskDTO> query = builder.createQuery(TaskDTO.class);
+        Root<TaskEntity> task = query.from(TaskEntity.class);
+        Join<TaskEntity, UserEntity> assignee = task.join("assignee", JoinType.LEFT);
+        Join<TaskEntity, Project> project = task.join("project", JoinType.LEFT);
+        query.select(builder.construct(TaskDTO.class,
+                task.get("id"), task.get("userStory"), task.get("acceptanceCriteria"), task.get("state"), task.get("priority"),
+                assignee.get("id"), project.get("id"), task.get("reasonForStateChange"), task.get("createdDate"), task.get("updateDate")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.isFalse(task.get("deleted")));
+        if (filter.getProjectId() != null) {
+            predicates.add(builder.equal(project.get("id"), filter.getProjectId()));
+        }
+        if (filter.getAssigneeId() != null) {
+            predicates.add(builder.equal(assignee.get("id"), filter.getAssigneeId()));
+        }
+        if (filter.getState() != null && !filter.getState().isEmpty()) {
+            predicates.add(task.get("state").in(filter.getState()));
+        }
+        if (filter.getPriority() != null && !filter.getPriority().isEmpty()) {
+            predicates.add(task.get("priority").in(filter.getPriority()));
+        }
+        addRange(builder, predicates, task.get("createdDate"), filter.getCreatedFrom(), filter.getCreatedTo());
+        addRange(builder, predicates, task.get("updateDate"), filter.getUpdatedFrom(), filter.getUpdatedTo());
+
+        Path<Long> id = task.get("id");
+        if (sortKey == TaskSortKey.ID) {
+            predicates.add(builder.greaterThan(id, afterId));
+            query.orderBy(builder.asc(id));
+        } else {
+            Path<Date> date = task.get(sortKey == TaskSortKey.CREATED_DATE ? "createdDate" : "updateDate");
+            predicates.add(builder.or(
+                    builder.greaterThan(date, afterDate),
+                    builder.and(builder.equal(date, afterDate), builder.greaterThan(id, afterId))));
+            query.orderBy(builder.asc(date), builder.asc(id));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+
+        // One row more than the page tells whether there is a next page without a count query.
+        List<TaskDTO> tasks = entityManager.createQuery(query)
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = tasks.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? tasks.subList(0, pageable.getPageSize()) : tasks, pageable, hasNext);
+    }
+
+    private static void addRange(CriteriaBuilder builder, List<Predicate> predicates, Path<Date> path, Date from, Date to) {
+        if (from != null) {
+            predicates.add(builder.greaterThanOrEqualTo(path, from));
+        }
+        if (to != null) {
+            predicates.add(builder.lessThan(path, to));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.mgumussoy.advancedtaskmanagement.repositories;
+
+import com.mgumussoy.advancedtaskmanagement.entities.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<UploadSession> findWithLockById(Long id);
+
+    @Query("select s.id from UploadSession s where s.deleted = false and s.createdDate < :cutoff order by s.id")
+    List<Long> findIdsCreatedBefore(@Param("cutoff") Date cutoff);
+}
@@ -0,0 +1,19 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+public interface AttachmentCacheService {
+    Optional<AttachmentFileDTO> getFile(Long fileId);
+
+    void putFile(AttachmentFileDTO file);
+
+    Optional<ByteBuffer> getContent(String storageKey, long storedSize) throws IOException;
+
+    void evictFile(Long fileId);
+
+    void evictContent(String storageKey);
+}
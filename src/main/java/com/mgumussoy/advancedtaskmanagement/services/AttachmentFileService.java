@@ -1,18 +1,67 @@
 package com.mgumussoy.advancedtaskmanagement.services;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFilePageDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentVersionDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
 import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentFileNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentVersionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 
 public interface AttachmentFileService {
     void saveFiles(Long taskId, String description, List<MultipartFile> files) throws IOException, TaskNotFoundException;
 
+    AttachmentFileDTO saveFile(Long taskId, String description, String fileName, String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException, TaskNotFoundException;
+
+    String computeContentHash(InputStreamSource inputStreamSource) throws IOException;
+
+    StagedBlob writeStagedBlob(String contentHash, String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException;
+
+    AttachmentFileDTO saveStagedFile(Long taskId, String description, String fileName, String fileType, StagedBlob stagedBlob,
+                                     InputStreamSource inputStreamSource) throws IOException, TaskNotFoundException;
+
+    void discardStagedBlob(StagedBlob stagedBlob);
+
+    StagedBlob retainStagedBlob(StagedBlob stagedBlob, String fileType, InputStreamSource inputStreamSource);
+
     void deleteFile(Long fileId) throws AttachmentFileNotFoundException;
 
-    byte[] getFile(Long fileId) throws AttachmentFileNotFoundException;
+    AttachmentFilePageDTO getFilesOfTask(Long taskId, int page, int size) throws TaskNotFoundException;
+
+    AttachmentFileDTO getFile(Long fileId) throws AttachmentFileNotFoundException;
+
+    List<AttachmentVersionDTO> getFileVersions(Long fileId) throws AttachmentFileNotFoundException;
+
+    AttachmentFileDTO getFileVersion(Long fileId, int versionNumber) throws AttachmentFileNotFoundException, AttachmentVersionNotFoundException;
+
+    void transferFile(AttachmentFileDTO file, long position, long count, WritableByteChannel target) throws IOException;
+
+    void transferStoredFile(AttachmentFileDTO file, WritableByteChannel target) throws IOException;
+
+    Optional<Path> getPlainFile(AttachmentFileDTO file) throws IOException;
 
     void updateFile(Long fileId, Long taskId, String description, MultipartFile file) throws IOException, AttachmentFileNotFoundException, TaskNotFoundException;
+
+    ArchiveWriter getTaskArchive(Long taskId) throws TaskNotFoundException;
+
+    ArchiveWriter getProjectArchive(Long projectId) throws ProjectNotFoundException;
+
+    @FunctionalInterface
+    interface ArchiveWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    // A blob written ahead of its metadata transaction; storageKey is null when the content hash was already stored.
+    record StagedBlob(String contentHash, long fileSize, String storageKey, StorageCodec storageCodec, long storedSize) {
+    }
 }
@@ -0,0 +1,17 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentIngestionDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentIngestionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface AttachmentIngestionService {
+    List<AttachmentIngestionDTO> receiveFiles(Long taskId, String description, List<MultipartFile> files) throws IOException, TaskNotFoundException,
+            StorageQuotaExceededException;
+
+    AttachmentIngestionDTO getIngestion(Long ingestionId) throws AttachmentIngestionNotFoundException;
+}
@@ -0,0 +1,5 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+public interface AttachmentMigrationService {
+    int migrateLegacyFileData();
+}
@@ -0,0 +1,20 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.PreviewSize;
+import com.mgumussoy.advancedtaskmanagement.exceptions.PreviewNotAvailableException;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+
+public interface AttachmentPreviewService {
+    Preview getPreview(AttachmentFileDTO file, PreviewSize size) throws IOException, PreviewNotAvailableException;
+
+    void generatePreviews(String contentHash, String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException;
+
+    void evictPreviews(String contentHash);
+
+    record Preview(String contentHash, PreviewSize size, String contentType, Resource resource) {
+    }
+}
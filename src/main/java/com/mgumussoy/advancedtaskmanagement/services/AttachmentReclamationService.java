@@ -0,0 +1,7 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+public interface AttachmentReclamationService {
+    long reclaimReleasedBlobs();
+
+    int expireMaterializedBlobs();
+}
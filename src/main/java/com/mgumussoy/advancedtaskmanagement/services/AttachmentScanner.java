@@ -0,0 +1,13 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentRejectedException;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+
+// Hook for the ingestion pipeline's scan stage; implementations reject content by throwing AttachmentRejectedException.
+// The staged upload may be encrypted at rest, so the content is handed over as a stream rather than a path.
+public interface AttachmentScanner {
+    void scan(InputStreamSource content, String fileName, String fileType) throws IOException, AttachmentRejectedException;
+}
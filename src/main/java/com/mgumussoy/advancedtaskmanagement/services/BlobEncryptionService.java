@@ -0,0 +1,14 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+public interface BlobEncryptionService {
+    boolean isEnabled();
+
+    OutputStream encrypt(OutputStream outputStream) throws IOException;
+
+    SeekableByteChannel decrypt(FileChannel channel, boolean allowPlaintext) throws IOException;
+}
@@ -0,0 +1,29 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface BlobStoreService {
+    String store(InputStream inputStream) throws IOException;
+
+    String store(BlobWriter blobWriter) throws IOException;
+
+    InputStream openStream(String key) throws IOException;
+
+    SeekableByteChannel openChannel(String key) throws IOException;
+
+    long getSize(String key) throws IOException;
+
+    Optional<Path> getPlainFile(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    @FunctionalInterface
+    interface BlobWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+}
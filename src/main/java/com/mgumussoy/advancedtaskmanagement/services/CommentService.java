@@ -5,6 +5,8 @@ import com.mgumussoy.advancedtaskmanagement.exceptions.CommentNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.UserEntityNotFoundException;
 
+import java.util.List;
+
 public interface CommentService {
     CommentDTO createComment(CommentDTO comment) throws TaskNotFoundException, UserEntityNotFoundException;
 
@@ -13,4 +15,6 @@ public interface CommentService {
     void updateComment(Long commentId, CommentDTO newComment) throws CommentNotFoundException, TaskNotFoundException, UserEntityNotFoundException;
 
     CommentDTO getComment(Long commentId) throws CommentNotFoundException;
+
+    List<CommentDTO> getCommentsOfTask(Long taskId, int page, int size) throws TaskNotFoundException;
 }
@@ -0,0 +1,16 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface CompressionService {
+    StorageCodec chooseStorageCodec(String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException;
+
+    void encode(StorageCodec storageCodec, InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    InputStream decode(StorageCodec storageCodec, InputStream inputStream) throws IOException;
+}
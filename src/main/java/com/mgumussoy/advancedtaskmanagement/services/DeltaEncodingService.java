@@ -0,0 +1,9 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import java.io.IOException;
+
+public interface DeltaEncodingService {
+    byte[] encode(byte[] base, byte[] target);
+
+    byte[] apply(byte[] base, byte[] delta) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.ProjectEventDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface ProjectEventService {
+    void publish(ProjectEventDTO event);
+
+    SseEmitter subscribe(Long projectId, String lastEventId) throws ProjectNotFoundException;
+}
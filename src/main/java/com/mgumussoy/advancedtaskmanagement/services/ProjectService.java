@@ -1,14 +1,15 @@
 package com.mgumussoy.advancedtaskmanagement.services;
 
 import com.mgumussoy.advancedtaskmanagement.dtos.ProjectDTO;
-import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
 import com.mgumussoy.advancedtaskmanagement.exceptions.DepartmentNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
 
-import java.util.List;
-
 public interface ProjectService {
-    List<TaskDTO> getTasksOfProject(Long projectId) throws ProjectNotFoundException;
+    TaskPageDTO getTasksOfProject(Long projectId, String cursor, int size, TaskSortKey sortKey)
+            throws ProjectNotFoundException, InvalidCursorException;
 
     ProjectDTO createProject(ProjectDTO projectDTO) throws DepartmentNotFoundException;
 
@@ -0,0 +1,13 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.DownloadUrlDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentFileNotFoundException;
+
+import java.util.Optional;
+
+public interface SignedDownloadService {
+    DownloadUrlDTO createDownloadUrl(Long fileId) throws AttachmentFileNotFoundException;
+
+    Optional<AttachmentFileDTO> resolveToken(String token);
+}
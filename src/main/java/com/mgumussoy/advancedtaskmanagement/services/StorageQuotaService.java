@@ -0,0 +1,28 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.StorageUsageDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+
+import java.util.List;
+
+public interface StorageQuotaService {
+    void checkQuota(Long taskId, long bytes, long files) throws TaskNotFoundException, StorageQuotaExceededException;
+
+    void recordUsage(TaskEntity task, long bytes, long files) throws StorageQuotaExceededException;
+
+    void replaceUsage(TaskEntity oldTask, long oldBytes, TaskEntity newTask, long newBytes) throws StorageQuotaExceededException;
+
+    void moveTaskUsage(Long taskId, Project oldProject, Project newProject);
+
+    void releaseTaskUsage(TaskEntity task);
+
+    long reconcileUsage();
+
+    StorageUsageDTO getUsage(StorageScope scope, Long scopeId);
+
+    List<StorageUsageDTO> getUsages(StorageScope scope);
+}
@@ -0,0 +1,25 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskBoardSummaryDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+
+public interface TaskBoardService {
+    void recordChange(BoardSlot before, BoardSlot after);
+
+    TaskBoardSummaryDTO getBoardSummary(Long projectId) throws ProjectNotFoundException;
+
+    long reconcileCounters();
+
+    record BoardSlot(Long projectId, TaskState state, TaskPriority priority, boolean assigned) {
+        // The slot a task is counted in, or null for tasks that are not on any board.
+        public static BoardSlot of(TaskEntity task) {
+            if (task.isDeleted() || task.getProject() == null || task.getState() == null || task.getPriority() == null) {
+                return null;
+            }
+            return new BoardSlot(task.getProject().getId(), task.getState(), task.getPriority(), task.getAssignee() != null);
+        }
+    }
+}
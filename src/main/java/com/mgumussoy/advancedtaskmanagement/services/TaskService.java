@@ -1,6 +1,9 @@
 package com.mgumussoy.advancedtaskmanagement.services;
 
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
 
 public interface TaskService {
     TaskDTO saveTask(TaskDTO taskDTO);
@@ -12,4 +15,10 @@ public interface TaskService {
     TaskDTO updateTask(Long taskId, TaskDTO taskDTO);
 
     void deleteTask(Long taskId);
+
+    TaskPageDTO searchTasks(TaskFilterDTO filter, String cursor, int size, TaskSortKey sortKey);
+
+    TaskPageDTO getTasksOfAssignee(Long assigneeId, String cursor, int size);
+
+    int fillMissingPriorityRanks();
 }
@@ -0,0 +1,15 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskSearchHitDTO;
+
+import java.util.List;
+
+public interface TaskTextSearchService {
+    List<TaskSearchHitDTO> search(String query, int page, int size);
+
+    void indexTask(Long taskId, String userStory, String acceptanceCriteria);
+
+    void removeTask(Long taskId);
+
+    void rebuildIndex();
+}
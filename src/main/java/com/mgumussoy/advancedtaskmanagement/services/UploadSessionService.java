@@ -0,0 +1,22 @@
+package com.mgumussoy.advancedtaskmanagement.services;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.UploadSessionDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface UploadSessionService {
+    UploadSessionDTO createSession(UploadSessionDTO uploadSessionDTO) throws TaskNotFoundException, InvalidUploadChunkException;
+
+    UploadSessionDTO getSession(Long sessionId) throws IOException, UploadSessionNotFoundException;
+
+    void uploadChunk(Long sessionId, int chunkNumber, InputStream inputStream) throws IOException, UploadSessionNotFoundException, InvalidUploadChunkException;
+
+    void commitSession(Long sessionId, String checksum) throws IOException, UploadSessionNotFoundException, UploadSessionIncompleteException,
+            ChecksumMismatchException, TaskNotFoundException;
+
+    void abortSession(Long sessionId) throws IOException, UploadSessionNotFoundException;
+
+    int expireSessions();
+}
@@ -0,0 +1,24 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Defers work that others can observe until the surrounding transaction commits, so a rolled back change never shows up
+// outside of it. Outside of a transaction the work runs right away.
+final class AfterCommit {
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,221 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.CacheEvictionPolicy;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentCacheService;
+import com.mgumussoy.advancedtaskmanagement.services.BlobStoreService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+public class AttachmentCacheServiceImp implements AttachmentCacheService {
+    private final BlobStoreService blobStoreService;
+    private final CacheEvictionPolicy evictionPolicy;
+    private final long maxBytes;
+    private final long maxFileSize;
+    private final int admissionHits;
+    private final long fileTtlMillis;
+
+    private final Map<Long, CachedFile> files;
+    private final Map<String, Integer> admissionCandidates;
+    private final Map<String, Segment> segments = new HashMap<>();
+    private long mappedBytes;
+    private long clock;
+
+    private final Counter fileHits;
+    private final Counter fileMisses;
+    private final Counter contentHits;
+    private final Counter contentMisses;
+    private final Counter contentEvictions;
+
+    @Autowired
+    public AttachmentCacheServiceImp(BlobStoreService blobStoreService, MeterRegistry meterRegistry,
+                                     @Value("${attachments.cache.eviction-policy}") CacheEvictionPolicy evictionPolicy,
+                                     @Value("${attachments.cache.max-size}") DataSize maxSize,
+                                     @Value("${attachments.cache.max-file-size}") DataSize maxFileSize,
+                                     @Value("${attachments.cache.max-entries}") int maxEntries,
+                                     @Value("${attachments.cache.admission-hits}") int admissionHits,
+                                     @Value("${attachments.cache.file-ttl}") Duration fileTtl) {
+        this.blobStoreService = blobStoreService;
+        this.evictionPolicy = evictionPolicy;
+        this.maxBytes = maxSize.toBytes();
+        // A single mapping is limited to Integer.MAX_VALUE bytes.
+        this.maxFileSize = Math.min(maxFileSize.toBytes(), Math.min(maxBytes, Integer.MAX_VALUE));
+        this.admissionHits = Math.max(admissionHits, 1);
+        this.fileTtlMillis = fileTtl.toMillis();
+        this.files = boundedMap(maxEntries);
+        this.admissionCandidates = boundedMap(maxEntries);
+
+        this.fileHits = requestCounter(meterRegistry, "file", "hit");
+        this.fileMisses = requestCounter(meterRegistry, "file", "miss");
+        this.contentHits = requestCounter(meterRegistry, "content", "hit");
+        this.contentMisses = requestCounter(meterRegistry, "content", "miss");
+        this.contentEvictions = Counter.builder("attachments.cache.evictions")
+                .tag("cache", "content")
+                .register(meterRegistry);
+        Gauge.builder("attachments.cache.entries", this, cache -> cache.entries(cache.files))
+                .tag("cache", "file")
+                .register(meterRegistry);
+        Gauge.builder("attachments.cache.entries", this, cache -> cache.entries(cache.segments))
+                .tag("cache", "content")
+                .register(meterRegistry);
+        Gauge.builder("attachments.cache.mapped", this, AttachmentCacheServiceImp::getMappedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("attachments.cache.capacity", () -> maxBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Writes only evict the entry on the node that made them, so entries expire after the TTL to bound how long other
+    // nodes keep serving metadata of a replaced or deleted file.
+    @Override
+    public synchronized Optional<AttachmentFileDTO> getFile(Long fileId) {
+        CachedFile cachedFile = files.get(fileId);
+        if (cachedFile != null && cachedFile.expiresAt() <= System.currentTimeMillis()) {
+            files.remove(fileId);
+            cachedFile = null;
+        }
+        (cachedFile != null ? fileHits : fileMisses).increment();
+        // Callers get their own copy so a mutated DTO never leaks back into the cache.
+        return Optional.ofNullable(cachedFile).map(cached -> cached.file().toBuilder().build());
+    }
+
+    @Override
+    public synchronized void putFile(AttachmentFileDTO file) {
+        if (fileTtlMillis > 0) {
+            files.put(file.getId(), new CachedFile(file.toBuilder().build(), System.currentTimeMillis() + fileTtlMillis));
+        }
+    }
+
+    @Override
+    public Optional<ByteBuffer> getContent(String storageKey, long storedSize) throws IOException {
+        synchronized (this) {
+            Segment segment = segments.get(storageKey);
+            if (segment != null) {
+                contentHits.increment();
+                segment.hits++;
+                segment.lastAccess = ++clock;
+                return Optional.of(segment.buffer.duplicate());
+            }
+            contentMisses.increment();
+            if (storedSize <= 0 || storedSize > maxFileSize || admissionCandidates.merge(storageKey, 1, Integer::sum) < admissionHits) {
+                return Optional.empty();
+            }
+        }
+
+        // Mapping happens outside the lock; the blob file is immutable, so a racing reader maps the same bytes.
+        ByteBuffer buffer;
+        try (SeekableByteChannel channel = blobStoreService.openChannel(storageKey)) {
+            if (channel.size() != storedSize) {
+                return Optional.empty();
+            }
+            if (channel instanceof FileChannel fileChannel) {
+                buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, storedSize);
+            } else {
+                // Encrypted blobs cannot be mapped; their decrypted bytes are held off-heap instead.
+                buffer = ByteBuffer.allocateDirect((int) storedSize);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        return Optional.empty();
+                    }
+                }
+                buffer.flip();
+            }
+        }
+
+        synchronized (this) {
+            Segment segment = segments.get(storageKey);
+            if (segment == null) {
+                admissionCandidates.remove(storageKey);
+                makeRoom(storedSize);
+                segment = new Segment(buffer);
+                segment.hits = admissionHits;
+                segments.put(storageKey, segment);
+                mappedBytes += storedSize;
+            }
+            segment.lastAccess = ++clock;
+            return Optional.of(segment.buffer.duplicate());
+        }
+    }
+
+    @Override
+    public synchronized void evictFile(Long fileId) {
+        files.remove(fileId);
+    }
+
+    @Override
+    public synchronized void evictContent(String storageKey) {
+        admissionCandidates.remove(storageKey);
+        Segment segment = segments.remove(storageKey);
+        if (segment != null) {
+            mappedBytes -= segment.buffer.capacity();
+        }
+    }
+
+    public synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    private void makeRoom(long bytes) {
+        Comparator<Map.Entry<String, Segment>> order = evictionPolicy == CacheEvictionPolicy.LFU
+                ? Comparator.<Map.Entry<String, Segment>>comparingLong(entry -> entry.getValue().hits)
+                        .thenComparingLong(entry -> entry.getValue().lastAccess)
+                : Comparator.comparingLong(entry -> entry.getValue().lastAccess);
+        while (mappedBytes + bytes > maxBytes && !segments.isEmpty()) {
+            String victim = segments.entrySet().stream().min(order).orElseThrow().getKey();
+            // The mapping itself is released by the garbage collector once readers holding a duplicate are done.
+            mappedBytes -= segments.remove(victim).buffer.capacity();
+            contentEvictions.increment();
+        }
+    }
+
+    private synchronized int entries(Map<?, ?> map) {
+        return map.size();
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder("attachments.cache.requests")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static <K, V> Map<K, V> boundedMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private record CachedFile(AttachmentFileDTO file, long expiresAt) {
+    }
+
+    private static final class Segment {
+        private final ByteBuffer buffer;
+        private long hits;
+        private long lastAccess;
+
+        private Segment(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
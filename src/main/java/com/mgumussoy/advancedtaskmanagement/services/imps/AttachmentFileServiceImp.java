@@ -1,49 +1,209 @@
 package com.mgumussoy.advancedtaskmanagement.services.imps;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFilePageDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentVersionDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentBlob;
 import com.mgumussoy.advancedtaskmanagement.entities.AttachmentFile;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentVersion;
 import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
 import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentFileNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentVersionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentFileRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentVersionRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentCacheService;
 import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.BlobStoreService;
+import com.mgumussoy.advancedtaskmanagement.services.CompressionService;
+import com.mgumussoy.advancedtaskmanagement.services.DeltaEncodingService;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
 import com.mgumussoy.advancedtaskmanagement.services.TaskService;
+import jakarta.annotation.PreDestroy;
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+@Slf4j
 @Service
 public class AttachmentFileServiceImp implements AttachmentFileService {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ARCHIVE_BATCH_SIZE = 100;
+
     private final AttachmentFileRepository attachmentFileRepository;
     private final TaskRepository taskRepository;
+    private final ProjectRepository projectRepository;
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final BlobStoreService blobStoreService;
+    private final CompressionService compressionService;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageQuotaService storageQuotaService;
+    private final AttachmentCacheService attachmentCacheService;
+    private final AttachmentVersionRepository attachmentVersionRepository;
+    private final DeltaEncodingService deltaEncodingService;
+    private final ExecutorService uploadExecutor;
+    private final Semaphore inFlightBudget;
+    private final int inFlightBudgetPermits;
+    private final long maxDeltaSourceSize;
+    private final int maxDeltaChain;
+    private final double maxDeltaRatio;
 
     @Autowired
-    public AttachmentFileServiceImp(AttachmentFileRepository attachmentFileRepository, TaskService taskService, TaskRepository taskRepository) {
+    public AttachmentFileServiceImp(AttachmentFileRepository attachmentFileRepository, TaskService taskService, TaskRepository taskRepository,
+                                    ProjectRepository projectRepository, AttachmentBlobRepository attachmentBlobRepository, BlobStoreService blobStoreService,
+                                    CompressionService compressionService, TransactionTemplate transactionTemplate,
+                                    StorageQuotaService storageQuotaService, AttachmentCacheService attachmentCacheService,
+                                    AttachmentVersionRepository attachmentVersionRepository, DeltaEncodingService deltaEncodingService,
+                                    @Value("${attachments.upload.workers}") int uploadWorkers,
+                                    @Value("${attachments.upload.max-in-flight}") DataSize maxInFlight,
+                                    @Value("${attachments.versions.max-delta-source-size}") DataSize maxDeltaSourceSize,
+                                    @Value("${attachments.versions.max-delta-chain}") int maxDeltaChain,
+                                    @Value("${attachments.versions.max-delta-ratio}") double maxDeltaRatio) {
         this.attachmentFileRepository = attachmentFileRepository;
         this.taskRepository = taskRepository;
+        this.projectRepository = projectRepository;
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        this.blobStoreService = blobStoreService;
+        this.compressionService = compressionService;
+        this.transactionTemplate = transactionTemplate;
+        this.storageQuotaService = storageQuotaService;
+        this.attachmentCacheService = attachmentCacheService;
+        this.attachmentVersionRepository = attachmentVersionRepository;
+        this.deltaEncodingService = deltaEncodingService;
+        this.uploadExecutor = new ThreadPoolExecutor(uploadWorkers, uploadWorkers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(uploadWorkers * 4), new CustomizableThreadFactory("attachment-upload-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.inFlightBudgetPermits = (int) Math.clamp(maxInFlight.toKilobytes(), 1, Integer.MAX_VALUE);
+        this.inFlightBudget = new Semaphore(inFlightBudgetPermits);
+        this.maxDeltaSourceSize = maxDeltaSourceSize.toBytes();
+        this.maxDeltaChain = maxDeltaChain;
+        this.maxDeltaRatio = maxDeltaRatio;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
     }
 
     @Override
-    @Transactional
     public void saveFiles(Long taskId, String description, List<MultipartFile> files) throws IOException, TaskNotFoundException {
+        long totalBytes = files.stream().mapToLong(MultipartFile::getSize).sum();
+        storageQuotaService.checkQuota(taskId, totalBytes, files.size());
+
+        // Hashing, compression and blob writes happen outside the transaction; it only has to insert the metadata rows.
+        List<StagedBlob> stagedBlobs = stageBlobs(files);
+        try {
+            transactionTemplate.execute(status -> {
+                TaskEntity task = findTaskById(taskId);
+                storageQuotaService.recordUsage(task, totalBytes, files.size());
+                for (int i = 0; i < files.size(); i++) {
+                    MultipartFile file = files.get(i);
+                    AttachmentBlob attachmentBlob = claimStagedBlob(stagedBlobs.get(i), file.getContentType(), file);
+                    addAttachment(task, description, file.getOriginalFilename(), file.getContentType(), attachmentBlob);
+                }
+                taskRepository.save(task);
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            stagedBlobs.forEach(this::discardStagedBlob);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            stagedBlobs.forEach(this::discardStagedBlob);
+            throw e;
+        }
+    }
+
+    @Override
+    @Transactional
+    public AttachmentFileDTO saveFile(Long taskId, String description, String fileName, String fileType, long fileSize,
+                                      InputStreamSource inputStreamSource) throws IOException, TaskNotFoundException {
         TaskEntity task = findTaskById(taskId);
+        storageQuotaService.recordUsage(task, fileSize, 1);
+        AttachmentFile fileEntity = addAttachment(task, description, fileName, fileType, fileSize, inputStreamSource);
+        attachmentFileRepository.save(fileEntity);
+        return convertEntityToDTO(fileEntity);
+    }
 
-        for (MultipartFile file : files) {
-            AttachmentFile fileEntity = new AttachmentFile();
-            fileEntity.setTaskEntity(task);
-            fileEntity.setDescription(description);
-            fileEntity.setFileName(file.getOriginalFilename());
-            fileEntity.setFileType(file.getContentType());
-            fileEntity.setFileData(file.getBytes());
+    @Override
+    public StagedBlob writeStagedBlob(String contentHash, String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException {
+        return writeBlob(contentHash, fileType, fileSize, inputStreamSource);
+    }
 
-            task.getAttachments().add(fileEntity);
+    @Override
+    public AttachmentFileDTO saveStagedFile(Long taskId, String description, String fileName, String fileType, StagedBlob stagedBlob,
+                                            InputStreamSource inputStreamSource) throws IOException, TaskNotFoundException {
+        try {
+            return transactionTemplate.execute(status -> {
+                TaskEntity task = findTaskById(taskId);
+                storageQuotaService.recordUsage(task, stagedBlob.fileSize(), 1);
+                AttachmentBlob attachmentBlob = claimStagedBlob(stagedBlob, fileType, inputStreamSource);
+                AttachmentFile fileEntity = addAttachment(task, description, fileName, fileType, attachmentBlob);
+                attachmentFileRepository.save(fileEntity);
+                return convertEntityToDTO(fileEntity);
+            });
+        } catch (UncheckedIOException e) {
+            discardStagedBlob(stagedBlob);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            discardStagedBlob(stagedBlob);
+            throw e;
         }
-
-        taskRepository.save(task);
     }
 
     @Override
@@ -51,6 +211,11 @@ public class AttachmentFileServiceImp implements AttachmentFileService {
     public void deleteFile(Long fileId) throws AttachmentFileNotFoundException {
         AttachmentFile attachmentFile = findAttachmentFileById(fileId);
         TaskEntity taskEntity = attachmentFile.getTaskEntity();
+        List<AttachmentVersion> versions = attachmentVersionRepository.findByAttachmentFileIdAndDeletedFalseOrderByVersionNumber(fileId);
+        for (AttachmentVersion version : versions) {
+            releaseBlob(version.getContentHash());
+        }
+        attachmentVersionRepository.deleteAll(versions);
 
         if (taskEntity != null) {
             taskEntity.getAttachments().remove(attachmentFile);
@@ -58,12 +223,124 @@ public class AttachmentFileServiceImp implements AttachmentFileService {
 
         attachmentFile.setDeleted(true);
         attachmentFileRepository.save(attachmentFile);
+        evictCachedFile(fileId);
+        releaseBlob(attachmentFile.getContentHash());
+        if (taskEntity != null) {
+            storageQuotaService.recordUsage(taskEntity, -attachmentFile.getFileSize(), -1);
+        }
+    }
+
+    @Override
+    public AttachmentFilePageDTO getFilesOfTask(Long taskId, int page, int size) throws TaskNotFoundException {
+        if (!taskRepository.existsByIdAndDeletedFalse(taskId)) {
+            throw new TaskNotFoundException();
+        }
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.clamp(size, 1, MAX_PAGE_SIZE), Sort.by("id"));
+        Slice<AttachmentFileDTO> files = attachmentFileRepository.findMetadataByTaskId(taskId, pageRequest);
+        return AttachmentFilePageDTO.builder()
+                .files(files.getContent())
+                .hasNext(files.hasNext())
+                .build();
+    }
+
+    @Override
+    public AttachmentFileDTO getFile(Long fileId) throws AttachmentFileNotFoundException {
+        Optional<AttachmentFileDTO> cachedFile = attachmentCacheService.getFile(fileId);
+        if (cachedFile.isPresent()) {
+            return cachedFile.get();
+        }
+        AttachmentFileDTO file = convertEntityToDTO(findAttachmentFileById(fileId));
+        attachmentCacheService.putFile(file);
+        return file;
     }
 
     @Override
-    public byte[] getFile(Long fileId) throws AttachmentFileNotFoundException {
+    public List<AttachmentVersionDTO> getFileVersions(Long fileId) throws AttachmentFileNotFoundException {
         AttachmentFile attachmentFile = findAttachmentFileById(fileId);
-        return attachmentFile.getFileData();
+        List<AttachmentVersionDTO> versions = new ArrayList<>();
+        for (AttachmentVersion version : attachmentVersionRepository.findByAttachmentFileIdAndDeletedFalseOrderByVersionNumber(fileId)) {
+            versions.add(AttachmentVersionDTO.builder()
+                    .versionNumber(version.getVersionNumber())
+                    .fileName(version.getFileName())
+                    .fileType(version.getFileType())
+                    .fileSize(version.getFileSize())
+                    .description(version.getDescription())
+                    .contentHash(version.getContentHash())
+                    .uploadedBy(version.getUploadedBy())
+                    .uploadedDate(version.getUploadedDate())
+                    .build());
+        }
+        versions.add(AttachmentVersionDTO.builder()
+                .versionNumber(attachmentFile.getVersionNumber())
+                .fileName(attachmentFile.getFileName())
+                .fileType(attachmentFile.getFileType())
+                .fileSize(attachmentFile.getFileSize())
+                .description(attachmentFile.getDescription())
+                .contentHash(attachmentFile.getContentHash())
+                .uploadedBy(attachmentFile.getUpdateBy())
+                .uploadedDate(attachmentFile.getUpdateDate())
+                .current(true)
+                .build());
+        return versions;
+    }
+
+    @Override
+    public AttachmentFileDTO getFileVersion(Long fileId, int versionNumber) throws AttachmentFileNotFoundException,
+            AttachmentVersionNotFoundException {
+        AttachmentFileDTO file = getFile(fileId);
+        if (file.getVersionNumber() == versionNumber) {
+            return file;
+        }
+        AttachmentVersion version = attachmentVersionRepository.findByAttachmentFileIdAndVersionNumberAndDeletedFalse(fileId, versionNumber)
+                .orElseThrow(AttachmentVersionNotFoundException::new);
+        return AttachmentFileDTO.builder()
+                .id(fileId)
+                .fileName(version.getFileName())
+                .fileType(version.getFileType())
+                .fileSize(version.getFileSize())
+                .description(version.getDescription())
+                .taskId(file.getTaskId())
+                .contentHash(version.getContentHash())
+                .storageKey(version.getStorageKey())
+                .storedSize(version.getStoredSize())
+                .storageCodec(version.getStorageCodec())
+                .updateDate(version.getUploadedDate())
+                .versionNumber(version.getVersionNumber())
+                .build();
+    }
+
+    @Override
+    public void transferFile(AttachmentFileDTO file, long position, long count, WritableByteChannel target) throws IOException {
+        if (file.getStorageCodec() == StorageCodec.DELTA) {
+            try {
+                transferStoredBytes(materializeDelta(file.getContentHash()), file.getFileSize(), position, count, target);
+            } catch (NoSuchFileException e) {
+                // The rebuilt copy expired between looking it up and opening it, so it is rebuilt once more.
+                transferStoredBytes(materializeDelta(file.getContentHash()), file.getFileSize(), position, count, target);
+            }
+            return;
+        }
+        if (file.getStorageCodec() == StorageCodec.IDENTITY) {
+            transferStoredBytes(file.getStorageKey(), file.getStoredSize(), position, count, target);
+            return;
+        }
+        try (InputStream inputStream = compressionService.decode(file.getStorageCodec(), blobStoreService.openStream(file.getStorageKey()))) {
+            inputStream.skipNBytes(position);
+            copyNBytes(inputStream, Channels.newOutputStream(target), count);
+        }
+    }
+
+    @Override
+    public void transferStoredFile(AttachmentFileDTO file, WritableByteChannel target) throws IOException {
+        transferStoredBytes(file.getStorageKey(), file.getStoredSize(), 0, file.getStoredSize(), target);
+    }
+
+    @Override
+    public Optional<Path> getPlainFile(AttachmentFileDTO file) throws IOException {
+        if (file.getStorageCodec() != StorageCodec.IDENTITY) {
+            return Optional.empty();
+        }
+        return blobStoreService.getPlainFile(file.getStorageKey());
     }
 
     @Override
@@ -71,19 +348,509 @@ public class AttachmentFileServiceImp implements AttachmentFileService {
     public void updateFile(Long fileId, Long taskId, String description, MultipartFile file) throws IOException, AttachmentFileNotFoundException, TaskNotFoundException {
         AttachmentFile fileEntity = findAttachmentFileById(fileId);
         TaskEntity oldTaskEntity = fileEntity.getTaskEntity();
-
-        oldTaskEntity.getAttachments().remove(fileEntity);
-
         TaskEntity newTaskEntity = findTaskById(taskId);
+        evictCachedFile(fileId);
+
+        // Quota rows are checked before the new content is read, and all queries run before the attachment
+        // changes collection so an intermediate flush cannot orphan-delete it.
+        storageQuotaService.replaceUsage(oldTaskEntity, fileEntity.getFileSize(), newTaskEntity, file.getSize());
+        // The replaced revision keeps its blob reference through the version row, so nothing is released here.
+        attachmentVersionRepository.save(createVersion(fileEntity));
+        AttachmentBlob attachmentBlob = acquireRevisionBlob(fileEntity, file);
 
         fileEntity.setDescription(description);
         fileEntity.setFileName(file.getOriginalFilename());
         fileEntity.setFileType(file.getContentType());
-        fileEntity.setFileData(file.getBytes());
+        fileEntity.setVersionNumber(fileEntity.getVersionNumber() + 1);
+        applyBlob(fileEntity, attachmentBlob);
 
+        oldTaskEntity.getAttachments().remove(fileEntity);
+        fileEntity.setTaskEntity(newTaskEntity);
         newTaskEntity.getAttachments().add(fileEntity);
     }
 
+    @Override
+    public ArchiveWriter getTaskArchive(Long taskId) throws TaskNotFoundException {
+        if (!taskRepository.existsByIdAndDeletedFalse(taskId)) {
+            throw new TaskNotFoundException();
+        }
+        return outputStream -> writeArchive(outputStream,
+                (afterId, pageable) -> attachmentFileRepository.findMetadataByTaskIdAfter(taskId, afterId, pageable), false);
+    }
+
+    @Override
+    public ArchiveWriter getProjectArchive(Long projectId) throws ProjectNotFoundException {
+        if (!projectRepository.existsByIdAndDeletedFalse(projectId)) {
+            throw new ProjectNotFoundException();
+        }
+        return outputStream -> writeArchive(outputStream,
+                (afterId, pageable) -> attachmentFileRepository.findMetadataByProjectIdAfter(projectId, afterId, pageable), true);
+    }
+
+    private void writeArchive(OutputStream outputStream, BiFunction<Long, Pageable, Slice<AttachmentFileDTO>> batchLoader,
+                              boolean groupByTask) throws IOException {
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        WritableByteChannel target = Channels.newChannel(zipOutputStream);
+        Set<String> entryNames = new HashSet<>();
+        Pageable pageable = PageRequest.of(0, ARCHIVE_BATCH_SIZE);
+
+        long afterId = 0;
+        Slice<AttachmentFileDTO> batch;
+        do {
+            batch = batchLoader.apply(afterId, pageable);
+            for (AttachmentFileDTO file : batch) {
+                String prefix = groupByTask ? "task-" + file.getTaskId() + "/" : "";
+                ZipEntry zipEntry = new ZipEntry(uniqueEntryName(entryNames, prefix, sanitizeEntryName(file)));
+                // Blobs kept uncompressed at rest are media or small files; deflating them again is wasted CPU.
+                zipOutputStream.setLevel(file.getStorageCodec() == StorageCodec.IDENTITY ? Deflater.NO_COMPRESSION : Deflater.BEST_SPEED);
+                zipOutputStream.putNextEntry(zipEntry);
+                transferFile(file, 0, file.getFileSize(), target);
+                zipOutputStream.closeEntry();
+                afterId = file.getId();
+            }
+        } while (batch.hasNext());
+
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    private String sanitizeEntryName(AttachmentFileDTO file) {
+        String fileName = file.getFileName() != null ? file.getFileName() : "";
+        fileName = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1).trim();
+        if (fileName.isEmpty() || fileName.equals(".") || fileName.equals("..")) {
+            return "attachment-" + file.getId();
+        }
+        return fileName;
+    }
+
+    private String uniqueEntryName(Set<String> entryNames, String prefix, String fileName) {
+        String entryName = prefix + fileName;
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+        String extension = extensionIndex > 0 ? fileName.substring(extensionIndex) : "";
+        for (int copy = 2; !entryNames.add(entryName); copy++) {
+            entryName = prefix + baseName + " (" + copy + ")" + extension;
+        }
+        return entryName;
+    }
+
+    private void transferStoredBytes(String storageKey, long storedSize, long position, long count, WritableByteChannel target) throws IOException {
+        Optional<ByteBuffer> cachedContent = attachmentCacheService.getContent(storageKey, storedSize);
+        if (cachedContent.isPresent()) {
+            ByteBuffer content = cachedContent.get().slice((int) position, (int) Math.min(count, storedSize - position));
+            while (content.hasRemaining()) {
+                target.write(content);
+            }
+            return;
+        }
+        try (SeekableByteChannel channel = blobStoreService.openChannel(storageKey)) {
+            if (!(channel instanceof FileChannel fileChannel)) {
+                // Encrypted blobs are decrypted segment by segment, so they are copied through a buffer.
+                channel.position(position);
+                copyNBytes(Channels.newInputStream(channel), Channels.newOutputStream(target), count);
+                return;
+            }
+            // Into a socket channel this is a kernel-side copy; a wrapped servlet stream still goes through a JDK buffer.
+            long end = position + count;
+            while (position < end) {
+                long transferred = fileChannel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    private void copyNBytes(InputStream inputStream, OutputStream outputStream, long count) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (count > 0) {
+            int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, count));
+            if (read < 0) {
+                break;
+            }
+            outputStream.write(buffer, 0, read);
+            count -= read;
+        }
+        outputStream.flush();
+    }
+
+    private List<StagedBlob> stageBlobs(List<MultipartFile> files) throws IOException {
+        List<CompletableFuture<StagedBlob>> futures = new ArrayList<>();
+        for (MultipartFile file : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> stageBlobWithinBudget(file), uploadExecutor));
+        }
+
+        List<StagedBlob> stagedBlobs = new ArrayList<>();
+        Throwable failure = null;
+        for (CompletableFuture<StagedBlob> future : futures) {
+            try {
+                stagedBlobs.add(future.join());
+            } catch (CompletionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            }
+        }
+        if (failure == null) {
+            return stagedBlobs;
+        }
+
+        stagedBlobs.forEach(this::discardStagedBlob);
+        if (failure instanceof UncheckedIOException uncheckedIOException) {
+            throw uncheckedIOException.getCause();
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    private StagedBlob stageBlobWithinBudget(MultipartFile file) {
+        int permits = (int) Math.clamp((file.getSize() + 1023) / 1024, 1, inFlightBudgetPermits);
+        inFlightBudget.acquireUninterruptibly(permits);
+        try {
+            String contentHash = computeContentHash(file);
+            if (attachmentBlobRepository.existsByContentHash(contentHash)) {
+                return new StagedBlob(contentHash, file.getSize(), null, null, 0);
+            }
+            return writeBlob(contentHash, file.getContentType(), file.getSize(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inFlightBudget.release(permits);
+        }
+    }
+
+    private AttachmentBlob claimStagedBlob(StagedBlob stagedBlob, String fileType, InputStreamSource inputStreamSource) {
+        Optional<AttachmentBlob> existingBlob = attachmentBlobRepository.findWithLockByContentHash(stagedBlob.contentHash());
+        if (existingBlob.isPresent()) {
+            AttachmentBlob attachmentBlob = retainBlob(existingBlob.get());
+            if (stagedBlob.storageKey() != null && !stagedBlob.storageKey().equals(attachmentBlob.getStorageKey())) {
+                deleteBlobAfterCommit(stagedBlob.storageKey());
+            }
+            return attachmentBlob;
+        }
+        if (stagedBlob.storageKey() != null) {
+            return createBlob(stagedBlob);
+        }
+        // The blob seen while staging was released in the meantime, so the content has to be written after all.
+        try {
+            return createBlob(writeBlob(stagedBlob.contentHash(), fileType, stagedBlob.fileSize(), inputStreamSource));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Claims the staged blob in the caller's transaction and describes the blob the content ended up in.
+    @Override
+    public StagedBlob retainStagedBlob(StagedBlob stagedBlob, String fileType, InputStreamSource inputStreamSource) {
+        AttachmentBlob attachmentBlob = claimStagedBlob(stagedBlob, fileType, inputStreamSource);
+        return new StagedBlob(attachmentBlob.getContentHash(), attachmentBlob.getFileSize(), attachmentBlob.getStorageKey(),
+                attachmentBlob.getStorageCodec(), attachmentBlob.getStoredSize());
+    }
+
+    @Override
+    public void discardStagedBlob(StagedBlob stagedBlob) {
+        String storageKey = stagedBlob.storageKey();
+        if (storageKey == null || attachmentBlobRepository.existsByStorageKey(storageKey)) {
+            return;
+        }
+        try {
+            blobStoreService.delete(storageKey);
+        } catch (IOException e) {
+            log.warn("Could not delete staged blob {}", storageKey, e);
+        }
+    }
+
+    private AttachmentFile addAttachment(TaskEntity task, String description, String fileName, String fileType, long fileSize,
+                                         InputStreamSource inputStreamSource) throws IOException {
+        return addAttachment(task, description, fileName, fileType, acquireBlob(fileType, fileSize, inputStreamSource));
+    }
+
+    private AttachmentFile addAttachment(TaskEntity task, String description, String fileName, String fileType,
+                                         AttachmentBlob attachmentBlob) {
+        AttachmentFile fileEntity = new AttachmentFile();
+        fileEntity.setTaskEntity(task);
+        fileEntity.setDescription(description);
+        fileEntity.setFileName(fileName);
+        fileEntity.setFileType(fileType);
+        fileEntity.setVersionNumber(1);
+        applyBlob(fileEntity, attachmentBlob);
+
+        task.getAttachments().add(fileEntity);
+        return fileEntity;
+    }
+
+    private void applyBlob(AttachmentFile fileEntity, AttachmentBlob attachmentBlob) {
+        fileEntity.setContentHash(attachmentBlob.getContentHash());
+        fileEntity.setStorageKey(attachmentBlob.getStorageKey());
+        fileEntity.setFileSize(attachmentBlob.getFileSize());
+        fileEntity.setStoredSize(attachmentBlob.getStoredSize());
+        fileEntity.setStorageCodec(attachmentBlob.getStorageCodec());
+    }
+
+    private AttachmentBlob acquireBlob(String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException {
+        // Hash first so duplicate content only costs a read of the spooled upload, never a second write.
+        String contentHash = computeContentHash(inputStreamSource);
+
+        Optional<AttachmentBlob> existingBlob = attachmentBlobRepository.findWithLockByContentHash(contentHash);
+        if (existingBlob.isPresent()) {
+            return retainBlob(existingBlob.get());
+        }
+
+        return createBlob(writeBlob(contentHash, fileType, fileSize, inputStreamSource));
+    }
+
+    private StagedBlob writeBlob(String contentHash, String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException {
+        StorageCodec storageCodec = compressionService.chooseStorageCodec(fileType, fileSize, inputStreamSource);
+        String storageKey;
+        try (InputStream inputStream = inputStreamSource.getInputStream()) {
+            storageKey = storageCodec == StorageCodec.IDENTITY
+                    ? blobStoreService.store(inputStream)
+                    : blobStoreService.store(outputStream -> compressionService.encode(storageCodec, inputStream, outputStream));
+        }
+        return new StagedBlob(contentHash, fileSize, storageKey, storageCodec, blobStoreService.getSize(storageKey));
+    }
+
+    private AttachmentVersion createVersion(AttachmentFile fileEntity) {
+        return AttachmentVersion.builder()
+                .attachmentFile(fileEntity)
+                .versionNumber(fileEntity.getVersionNumber())
+                .fileName(fileEntity.getFileName())
+                .fileType(fileEntity.getFileType())
+                .description(fileEntity.getDescription())
+                .contentHash(fileEntity.getContentHash())
+                .storageKey(fileEntity.getStorageKey())
+                .fileSize(fileEntity.getFileSize())
+                .storedSize(fileEntity.getStoredSize())
+                .storageCodec(fileEntity.getStorageCodec())
+                .uploadedBy(fileEntity.getUpdateBy())
+                .uploadedDate(fileEntity.getUpdateDate())
+                .build();
+    }
+
+    private AttachmentBlob acquireRevisionBlob(AttachmentFile previous, MultipartFile file) throws IOException {
+        String contentHash = computeContentHash(file);
+
+        Optional<AttachmentBlob> existingBlob = attachmentBlobRepository.findWithLockByContentHash(contentHash);
+        if (existingBlob.isPresent()) {
+            return retainBlob(existingBlob.get());
+        }
+
+        Optional<AttachmentBlob> deltaBlob = writeDeltaBlob(contentHash, previous, file);
+        if (deltaBlob.isPresent()) {
+            return deltaBlob.get();
+        }
+        return createBlob(writeBlob(contentHash, file.getContentType(), file.getSize(), file));
+    }
+
+    private Optional<AttachmentBlob> writeDeltaBlob(String contentHash, AttachmentFile previous, MultipartFile file) throws IOException {
+        // Both revisions are held in memory while diffing, so only reasonably small files are stored as deltas.
+        if (file.getSize() > maxDeltaSourceSize || previous.getFileSize() > maxDeltaSourceSize) {
+            return Optional.empty();
+        }
+        // The diff runs against an unlocked read of the base; its row is only locked by the reference update at the end.
+        Optional<AttachmentBlob> baseBlob = attachmentBlobRepository.findByContentHash(previous.getContentHash());
+        if (baseBlob.isEmpty() || baseBlob.get().getDeltaDepth() >= maxDeltaChain) {
+            return Optional.empty();
+        }
+
+        byte[] delta;
+        try (InputStream inputStream = file.getInputStream()) {
+            delta = deltaEncodingService.encode(reconstructContent(baseBlob.get()), inputStream.readAllBytes());
+        }
+        ByteArrayOutputStream storedDelta = new ByteArrayOutputStream();
+        compressionService.encode(StorageCodec.GZIP, new ByteArrayInputStream(delta), storedDelta);
+        if (storedDelta.size() > file.getSize() * maxDeltaRatio) {
+            return Optional.empty();
+        }
+
+        String storageKey = blobStoreService.store(new ByteArrayInputStream(storedDelta.toByteArray()));
+        // The delta keeps its base alive, so the reclaimer cannot remove content that later revisions are built on. The
+        // increment runs in the database because the base entity read above may be stale by now.
+        if (attachmentBlobRepository.retainByContentHash(baseBlob.get().getContentHash()) == 0) {
+            blobStoreService.delete(storageKey);
+            return Optional.empty();
+        }
+        deleteBlobAfterRollback(storageKey);
+        AttachmentBlob attachmentBlob = AttachmentBlob.builder()
+                .contentHash(contentHash)
+                .storageKey(storageKey)
+                .fileSize(file.getSize())
+                .storedSize(storedDelta.size())
+                .storageCodec(StorageCodec.DELTA)
+                .baseContentHash(baseBlob.get().getContentHash())
+                .deltaDepth(baseBlob.get().getDeltaDepth() + 1)
+                .referenceCount(1)
+                .build();
+        attachmentBlobRepository.save(attachmentBlob);
+        return Optional.of(attachmentBlob);
+    }
+
+    // Replaying a delta chain holds every revision on it in memory, so a downloaded revision is rebuilt once and kept as a
+    // plain blob that later downloads and ranges read like any other. The reclaimer drops copies after a while.
+    private String materializeDelta(String contentHash) throws IOException {
+        AttachmentBlob attachmentBlob = findBlob(contentHash);
+        if (attachmentBlob.getMaterializedStorageKey() != null) {
+            return attachmentBlob.getMaterializedStorageKey();
+        }
+
+        String storageKey = blobStoreService.store(new ByteArrayInputStream(reconstructContent(attachmentBlob)));
+        String materializedKey = transactionTemplate.execute(status -> attachmentBlobRepository.findWithLockByContentHash(contentHash)
+                .map(lockedBlob -> {
+                    if (lockedBlob.getMaterializedStorageKey() == null) {
+                        lockedBlob.setMaterializedStorageKey(storageKey);
+                        lockedBlob.setMaterializedDate(new Date());
+                        attachmentBlobRepository.save(lockedBlob);
+                    }
+                    return lockedBlob.getMaterializedStorageKey();
+                })
+                .orElse(null));
+        if (!storageKey.equals(materializedKey)) {
+            // A concurrent download stored its copy first, or the blob was reclaimed in the meantime.
+            try {
+                blobStoreService.delete(storageKey);
+            } catch (IOException e) {
+                log.warn("Could not delete rebuilt blob {}", storageKey, e);
+            }
+        }
+        if (materializedKey == null) {
+            throw new NoSuchFileException(contentHash);
+        }
+        return materializedKey;
+    }
+
+    private byte[] reconstructContent(AttachmentBlob attachmentBlob) throws IOException {
+        // Walk down to the nearest fully stored blob, then replay the deltas on top of it.
+        Deque<AttachmentBlob> deltaBlobs = new ArrayDeque<>();
+        while (attachmentBlob.getStorageCodec() == StorageCodec.DELTA) {
+            deltaBlobs.push(attachmentBlob);
+            attachmentBlob = findBlob(attachmentBlob.getBaseContentHash());
+        }
+
+        byte[] content;
+        try (InputStream inputStream = compressionService.decode(attachmentBlob.getStorageCodec(),
+                blobStoreService.openStream(attachmentBlob.getStorageKey()))) {
+            content = inputStream.readAllBytes();
+        }
+        while (!deltaBlobs.isEmpty()) {
+            try (InputStream inputStream = compressionService.decode(StorageCodec.GZIP, blobStoreService.openStream(deltaBlobs.pop().getStorageKey()))) {
+                content = deltaEncodingService.apply(content, inputStream.readAllBytes());
+            }
+        }
+        return content;
+    }
+
+    private AttachmentBlob findBlob(String contentHash) throws NoSuchFileException {
+        return attachmentBlobRepository.findByContentHash(contentHash).orElseThrow(() -> new NoSuchFileException(contentHash));
+    }
+
+    private AttachmentBlob createBlob(StagedBlob stagedBlob) {
+        deleteBlobAfterRollback(stagedBlob.storageKey());
+
+        AttachmentBlob attachmentBlob = AttachmentBlob.builder()
+                .contentHash(stagedBlob.contentHash())
+                .storageKey(stagedBlob.storageKey())
+                .fileSize(stagedBlob.fileSize())
+                .storedSize(stagedBlob.storedSize())
+                .storageCodec(stagedBlob.storageCodec())
+                .referenceCount(1)
+                .build();
+        attachmentBlobRepository.save(attachmentBlob);
+        return attachmentBlob;
+    }
+
+    private AttachmentBlob retainBlob(AttachmentBlob attachmentBlob) {
+        attachmentBlob.setReferenceCount(attachmentBlob.getReferenceCount() + 1);
+        attachmentBlob.setReleasedDate(null);
+        attachmentBlobRepository.save(attachmentBlob);
+        return attachmentBlob;
+    }
+
+    private void releaseBlob(String contentHash) {
+        if (contentHash == null) {
+            return;
+        }
+        attachmentBlobRepository.findWithLockByContentHash(contentHash).ifPresent(attachmentBlob -> {
+            attachmentBlob.setReferenceCount(attachmentBlob.getReferenceCount() - 1);
+            if (attachmentBlob.getReferenceCount() <= 0) {
+                // The bytes are removed by AttachmentReclamationService once the grace period has passed.
+                attachmentBlob.setReleasedDate(new Date());
+            }
+            attachmentBlobRepository.save(attachmentBlob);
+        });
+    }
+
+    @Override
+    public String computeContentHash(InputStreamSource inputStreamSource) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream inputStream = inputStreamSource.getInputStream()) {
+            inputStream.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest));
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    private void evictCachedFile(Long fileId) {
+        attachmentCacheService.evictFile(fileId);
+        // Evict again once the transaction is over, in case a concurrent read cached the row before it committed.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    attachmentCacheService.evictFile(fileId);
+                }
+            });
+        }
+    }
+
+    private void deleteBlobAfterRollback(String storageKey) {
+        registerBlobCleanup(storageKey, TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    private void deleteBlobAfterCommit(String storageKey) {
+        registerBlobCleanup(storageKey, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private void registerBlobCleanup(String storageKey, int status) {
+        if (storageKey == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int completionStatus) {
+                if (completionStatus != status) {
+                    return;
+                }
+                try {
+                    blobStoreService.delete(storageKey);
+                } catch (IOException e) {
+                    log.warn("Could not delete blob {}", storageKey, e);
+                }
+            }
+        });
+    }
+
+    private AttachmentFileDTO convertEntityToDTO(AttachmentFile attachmentFile) {
+        return AttachmentFileDTO.builder()
+                .id(attachmentFile.getId())
+                .fileName(attachmentFile.getFileName())
+                .fileType(attachmentFile.getFileType())
+                .fileSize(attachmentFile.getFileSize())
+                .description(attachmentFile.getDescription())
+                .taskId(attachmentFile.getTaskEntity() != null ? attachmentFile.getTaskEntity().getId() : null)
+                .contentHash(attachmentFile.getContentHash())
+                .storageKey(attachmentFile.getStorageKey())
+                .storedSize(attachmentFile.getStoredSize())
+                .storageCodec(attachmentFile.getStorageCodec())
+                .updateDate(attachmentFile.getUpdateDate())
+                .versionNumber(attachmentFile.getVersionNumber())
+                .build();
+    }
+
     private AttachmentFile findAttachmentFileById(Long fileId) throws AttachmentFileNotFoundException {
         AttachmentFile attachmentFile = attachmentFileRepository.findById(fileId).orElseThrow(AttachmentFileNotFoundException::new);
         if (attachmentFile.isDeleted()) throw new AttachmentFileNotFoundException();
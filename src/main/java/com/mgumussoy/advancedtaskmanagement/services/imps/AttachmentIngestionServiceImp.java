@@ -0,0 +1,414 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentIngestionDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentIngestion;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.IngestionStatus;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentIngestionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentIngestionRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService.StagedBlob;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentIngestionService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentScanner;
+import com.mgumussoy.advancedtaskmanagement.services.BlobEncryptionService;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class AttachmentIngestionServiceImp implements AttachmentIngestionService {
+    private static final EnumSet<IngestionStatus> PENDING_STATUSES = EnumSet.of(IngestionStatus.RECEIVED, IngestionStatus.HASHING,
+            IngestionStatus.COMPRESSING, IngestionStatus.SCANNING, IngestionStatus.COMMITTING);
+    private static final int FAILURE_REASON_LENGTH = 255;
+
+    // A full stage queue blocks the upstream thread instead of running the work on it, so each stage keeps its own pool size.
+    private static final RejectedExecutionHandler BLOCKING_HANDOFF = (runnable, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Ingestion pipeline is shut down");
+        }
+        try {
+            executor.getQueue().put(runnable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    };
+
+    private final AttachmentIngestionRepository attachmentIngestionRepository;
+    private final TaskRepository taskRepository;
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final AttachmentFileService attachmentFileService;
+    private final StorageQuotaService storageQuotaService;
+    private final ObjectProvider<AttachmentScanner> attachmentScanners;
+    private final AttachmentPreviewService attachmentPreviewService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobEncryptionService blobEncryptionService;
+    private final Path rootPath;
+    private final String nodeId;
+    private final Duration lease;
+    private final boolean eagerPreviews;
+    private final ExecutorService hashStage;
+    private final ExecutorService compressStage;
+    private final ExecutorService scanStage;
+    private final ExecutorService commitStage;
+
+    @Autowired
+    public AttachmentIngestionServiceImp(AttachmentIngestionRepository attachmentIngestionRepository, TaskRepository taskRepository,
+                                         AttachmentBlobRepository attachmentBlobRepository, AttachmentFileService attachmentFileService,
+                                         StorageQuotaService storageQuotaService, ObjectProvider<AttachmentScanner> attachmentScanners,
+                                         AttachmentPreviewService attachmentPreviewService, TransactionTemplate transactionTemplate,
+                                         BlobEncryptionService blobEncryptionService,
+                                         @Value("${attachments.ingestion.root}") String root,
+                                         @Value("${attachments.ingestion.node-id}") String nodeId,
+                                         @Value("${attachments.ingestion.lease}") Duration lease,
+                                         @Value("${attachments.ingestion.hash-workers}") int hashWorkers,
+                                         @Value("${attachments.ingestion.compress-workers}") int compressWorkers,
+                                         @Value("${attachments.ingestion.scan-workers}") int scanWorkers,
+                                         @Value("${attachments.ingestion.commit-workers}") int commitWorkers,
+                                         @Value("${attachments.ingestion.queue-capacity}") int queueCapacity,
+                                         @Value("${attachments.preview.eager}") boolean eagerPreviews) {
+        this.attachmentIngestionRepository = attachmentIngestionRepository;
+        this.taskRepository = taskRepository;
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        this.attachmentFileService = attachmentFileService;
+        this.storageQuotaService = storageQuotaService;
+        this.attachmentScanners = attachmentScanners;
+        this.attachmentPreviewService = attachmentPreviewService;
+        this.transactionTemplate = transactionTemplate;
+        this.blobEncryptionService = blobEncryptionService;
+        this.rootPath = Paths.get(root).toAbsolutePath().normalize();
+        this.nodeId = nodeId;
+        this.lease = lease;
+        this.eagerPreviews = eagerPreviews;
+        this.hashStage = newStage("ingestion-hash-", hashWorkers, queueCapacity);
+        this.compressStage = newStage("ingestion-compress-", compressWorkers, queueCapacity);
+        this.scanStage = newStage("ingestion-scan-", scanWorkers, queueCapacity);
+        this.commitStage = newStage("ingestion-commit-", commitWorkers, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Queued work is dropped; the rows stay pending and are picked up again by resumePendingIngestions.
+        for (ExecutorService stage : List.of(hashStage, compressStage, scanStage, commitStage)) {
+            stage.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingIngestions() {
+        for (AttachmentIngestion pending : attachmentIngestionRepository.findByStatusInAndDeletedFalse(PENDING_STATUSES)) {
+            AttachmentIngestion ingestion = transactionTemplate.execute(status -> claim(pending.getId()));
+            if (ingestion == null) {
+                continue;
+            }
+            IngestionJob job = new IngestionJob(ingestion);
+            if (Files.exists(job.stagingPath)) {
+                submit(hashStage, job, this::hash);
+            } else {
+                fail(job, new IOException("Staged upload is missing"));
+            }
+        }
+    }
+
+    private AttachmentIngestion claim(Long ingestionId) {
+        AttachmentIngestion ingestion = attachmentIngestionRepository.findWithLockById(ingestionId)
+                .filter(locked -> !locked.isDeleted() && PENDING_STATUSES.contains(locked.getStatus()))
+                .orElse(null);
+        if (ingestion == null) {
+            return null;
+        }
+        if (!nodeId.equals(ingestion.getClaimedBy())) {
+            // Another node's staged file is only reachable here when the staging root is shared between nodes.
+            boolean leaseExpired = ingestion.getLeaseExpiresAt() == null || ingestion.getLeaseExpiresAt().before(new Date());
+            if (!leaseExpired || !Files.exists(Paths.get(ingestion.getStagingPath()))) {
+                return null;
+            }
+        }
+        ingestion.setClaimedBy(nodeId);
+        ingestion.setLeaseExpiresAt(leaseDeadline());
+        return attachmentIngestionRepository.save(ingestion);
+    }
+
+    @Override
+    public List<AttachmentIngestionDTO> receiveFiles(Long taskId, String description, List<MultipartFile> files) throws IOException,
+            TaskNotFoundException, StorageQuotaExceededException {
+        TaskEntity task = findTaskById(taskId);
+        storageQuotaService.checkQuota(taskId, files.stream().mapToLong(MultipartFile::getSize).sum(), files.size());
+
+        List<Path> stagingPaths = new ArrayList<>();
+        List<AttachmentIngestion> ingestions = new ArrayList<>();
+        try {
+            Files.createDirectories(rootPath);
+            for (MultipartFile file : files) {
+                Path stagingPath = receive(file);
+                stagingPaths.add(stagingPath);
+                ingestions.add(AttachmentIngestion.builder()
+                        .taskEntity(task)
+                        .fileName(file.getOriginalFilename())
+                        .fileType(file.getContentType())
+                        .description(description)
+                        .fileSize(file.getSize())
+                        .stagingPath(stagingPath.toString())
+                        .status(IngestionStatus.RECEIVED)
+                        .claimedBy(nodeId)
+                        .leaseExpiresAt(leaseDeadline())
+                        .build());
+            }
+            ingestions = attachmentIngestionRepository.saveAll(ingestions);
+        } catch (IOException | RuntimeException e) {
+            for (Path stagingPath : stagingPaths) {
+                Files.deleteIfExists(stagingPath);
+            }
+            throw e;
+        }
+
+        List<AttachmentIngestionDTO> received = new ArrayList<>();
+        for (AttachmentIngestion ingestion : ingestions) {
+            received.add(convertEntityToDTO(ingestion));
+            submit(hashStage, new IngestionJob(ingestion), this::hash);
+        }
+        return received;
+    }
+
+    @Override
+    public AttachmentIngestionDTO getIngestion(Long ingestionId) throws AttachmentIngestionNotFoundException {
+        AttachmentIngestion ingestion = attachmentIngestionRepository.findById(ingestionId)
+                .orElseThrow(AttachmentIngestionNotFoundException::new);
+        if (ingestion.isDeleted()) throw new AttachmentIngestionNotFoundException();
+        return convertEntityToDTO(ingestion);
+    }
+
+    private Path receive(MultipartFile file) throws IOException {
+        Path stagingPath = Files.createTempFile(rootPath, "ingest-", ".part");
+        // The staged upload sits on disk until it is committed, so it is encrypted like a stored blob.
+        try {
+            try (InputStream inputStream = file.getInputStream();
+                 OutputStream outputStream = blobEncryptionService.encrypt(new BufferedOutputStream(Files.newOutputStream(stagingPath)))) {
+                inputStream.transferTo(outputStream);
+            }
+            // The request is acknowledged once the upload is on disk, so it has to survive a crash from here on.
+            try (FileChannel channel = FileChannel.open(stagingPath, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(stagingPath);
+            throw e;
+        }
+        return stagingPath;
+    }
+
+    private void hash(IngestionJob job) throws IOException {
+        updateStatus(job, IngestionStatus.HASHING);
+        String contentHash = attachmentFileService.computeContentHash(job.resource);
+        job.ingestion.setContentHash(contentHash);
+        if (attachmentBlobRepository.existsByContentHash(contentHash)) {
+            job.stagedBlob = new StagedBlob(contentHash, job.ingestion.getFileSize(), null, null, 0);
+            submit(scanStage, job, this::scan);
+        } else {
+            submit(compressStage, job, this::compress);
+        }
+    }
+
+    private void compress(IngestionJob job) throws IOException {
+        updateStatus(job, IngestionStatus.COMPRESSING);
+        job.stagedBlob = attachmentFileService.writeStagedBlob(job.ingestion.getContentHash(), job.ingestion.getFileType(),
+                job.ingestion.getFileSize(), job.resource);
+        submit(scanStage, job, this::scan);
+    }
+
+    private void scan(IngestionJob job) throws IOException {
+        updateStatus(job, IngestionStatus.SCANNING);
+        for (AttachmentScanner attachmentScanner : attachmentScanners.orderedStream().toList()) {
+            attachmentScanner.scan(job.resource, job.ingestion.getFileName(), job.ingestion.getFileType());
+        }
+        submit(commitStage, job, this::commit);
+    }
+
+    private void commit(IngestionJob job) throws IOException {
+        updateStatus(job, IngestionStatus.COMMITTING);
+        // The attachment and the COMPLETED status commit together, so an ingestion resumed after a crash cannot add it twice.
+        // A failure anywhere in that transaction rolls back the blob row, so fail() discards the staged blob either way.
+        AttachmentIngestion committed;
+        try {
+            committed = transactionTemplate.execute(status -> commitClaimed(job, job.stagedBlob));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        StagedBlob stagedBlob = job.stagedBlob;
+        job.stagedBlob = null;
+        if (committed == null) {
+            log.warn("Attachment ingestion {} was taken over by another node before it was committed", job.ingestion.getId());
+            attachmentFileService.discardStagedBlob(stagedBlob);
+            return;
+        }
+        job.ingestion = committed;
+        if (eagerPreviews) {
+            generatePreviews(job);
+        }
+        Files.deleteIfExists(job.stagingPath);
+    }
+
+    private AttachmentIngestion commitClaimed(IngestionJob job, StagedBlob stagedBlob) {
+        AttachmentIngestion ingestion = attachmentIngestionRepository.findWithLockById(job.ingestion.getId())
+                .filter(locked -> locked.getStatus() == IngestionStatus.COMMITTING && nodeId.equals(locked.getClaimedBy()))
+                .orElse(null);
+        if (ingestion == null) {
+            return null;
+        }
+        try {
+            AttachmentFileDTO attachmentFile = attachmentFileService.saveStagedFile(ingestion.getTaskEntity().getId(),
+                    ingestion.getDescription(), ingestion.getFileName(), ingestion.getFileType(), stagedBlob, job.resource);
+            ingestion.setAttachmentFileId(attachmentFile.getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ingestion.setStatus(IngestionStatus.COMPLETED);
+        return attachmentIngestionRepository.save(ingestion);
+    }
+
+    private void generatePreviews(IngestionJob job) {
+        // The upload is still on local disk here, so previews are rendered without reading the blob back.
+        try {
+            attachmentPreviewService.generatePreviews(job.ingestion.getContentHash(), job.ingestion.getFileType(),
+                    job.ingestion.getFileSize(), job.resource);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not generate previews for attachment ingestion {}", job.ingestion.getId(), e);
+        }
+    }
+
+    private void fail(IngestionJob job, Exception exception) {
+        log.warn("Attachment ingestion {} failed", job.ingestion.getId(), exception);
+        if (job.stagedBlob != null) {
+            attachmentFileService.discardStagedBlob(job.stagedBlob);
+        }
+        try {
+            job.ingestion.setFailureReason(truncateFailureReason(exception.getMessage()));
+            updateStatus(job, IngestionStatus.FAILED);
+            Files.deleteIfExists(job.stagingPath);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not record failure of attachment ingestion {}", job.ingestion.getId(), e);
+        }
+    }
+
+    private void submit(ExecutorService stage, IngestionJob job, IngestionStep step) {
+        stage.execute(() -> {
+            try {
+                step.run(job);
+            } catch (Exception e) {
+                fail(job, e);
+            }
+        });
+    }
+
+    private void updateStatus(IngestionJob job, IngestionStatus status) {
+        job.ingestion.setStatus(status);
+        job.ingestion.setLeaseExpiresAt(leaseDeadline());
+        job.ingestion = attachmentIngestionRepository.save(job.ingestion);
+    }
+
+    private Date leaseDeadline() {
+        return new Date(System.currentTimeMillis() + lease.toMillis());
+    }
+
+    private static String truncateFailureReason(String failureReason) {
+        if (failureReason == null || failureReason.length() <= FAILURE_REASON_LENGTH) {
+            return failureReason;
+        }
+        return failureReason.substring(0, FAILURE_REASON_LENGTH);
+    }
+
+    private AttachmentIngestionDTO convertEntityToDTO(AttachmentIngestion ingestion) {
+        return AttachmentIngestionDTO.builder()
+                .id(ingestion.getId())
+                .taskId(ingestion.getTaskEntity().getId())
+                .fileName(ingestion.getFileName())
+                .fileType(ingestion.getFileType())
+                .description(ingestion.getDescription())
+                .fileSize(ingestion.getFileSize())
+                .status(ingestion.getStatus())
+                .contentHash(ingestion.getContentHash())
+                .attachmentFileId(ingestion.getAttachmentFileId())
+                .failureReason(ingestion.getFailureReason())
+                .build();
+    }
+
+    private TaskEntity findTaskById(Long taskId) throws TaskNotFoundException {
+        TaskEntity task = taskRepository.findById(taskId).orElseThrow(TaskNotFoundException::new);
+        if (task.isDeleted()) throw new TaskNotFoundException();
+        return task;
+    }
+
+    private static ExecutorService newStage(String threadNamePrefix, int workers, int queueCapacity) {
+        return new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory(threadNamePrefix), BLOCKING_HANDOFF);
+    }
+
+    @FunctionalInterface
+    private interface IngestionStep {
+        void run(IngestionJob job) throws Exception;
+    }
+
+    private InputStream openStaged(Path stagingPath) throws IOException {
+        FileChannel channel = FileChannel.open(stagingPath, StandardOpenOption.READ);
+        try {
+            // Uploads staged before encryption was enabled are still read as they are.
+            return Channels.newInputStream(blobEncryptionService.decrypt(channel, true));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private final class IngestionJob {
+        private final Path stagingPath;
+        private final InputStreamSource resource;
+        private AttachmentIngestion ingestion;
+        private StagedBlob stagedBlob;
+
+        private IngestionJob(AttachmentIngestion ingestion) {
+            this.ingestion = ingestion;
+            this.stagingPath = Paths.get(ingestion.getStagingPath());
+            this.resource = () -> openStaged(stagingPath);
+        }
+    }
+}
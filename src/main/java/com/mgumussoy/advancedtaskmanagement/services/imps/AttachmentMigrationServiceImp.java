@@ -0,0 +1,112 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService.StagedBlob;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentMigrationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+// Attachments written before the blob store kept their bytes in the file_data column, which ddl-auto=update leaves in
+// place while the new columns are added empty. Each such row is moved into the blob store once, and its column cleared.
+@Slf4j
+@Service
+public class AttachmentMigrationServiceImp implements AttachmentMigrationService {
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AttachmentFileService attachmentFileService;
+
+    @Autowired
+    public AttachmentMigrationServiceImp(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                         AttachmentFileService attachmentFileService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.attachmentFileService = attachmentFileService;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public int migrateLegacyFileData() {
+        if (!hasLegacyColumn()) {
+            return 0;
+        }
+        int migratedFiles = 0;
+        long afterId = 0;
+
+        List<LegacyFile> legacyFiles;
+        do {
+            legacyFiles = jdbcTemplate.query("select id, file_type from attachment_files where file_data is not null " +
+                            "and (storage_key is null or storage_key = '') and id > ? order by id limit " + BATCH_SIZE,
+                    (resultSet, rowNumber) -> new LegacyFile(resultSet.getLong("id"), resultSet.getString("file_type")), afterId);
+            for (LegacyFile legacyFile : legacyFiles) {
+                try {
+                    migrate(legacyFile);
+                    migratedFiles++;
+                } catch (IOException | RuntimeException e) {
+                    // The row keeps its file_data, so the next start tries it again.
+                    log.warn("Could not move the content of attachment {} into the blob store", legacyFile.id(), e);
+                }
+                afterId = legacyFile.id();
+            }
+        } while (legacyFiles.size() == BATCH_SIZE);
+
+        if (migratedFiles > 0) {
+            log.info("Moved the content of {} attachments into the blob store", migratedFiles);
+        }
+        return migratedFiles;
+    }
+
+    private void migrate(LegacyFile legacyFile) throws IOException {
+        // The column was always read whole into a byte[], so a single row fits in memory; nothing is spooled to disk.
+        byte[] fileData = jdbcTemplate.queryForObject("select file_data from attachment_files where id = ?", byte[].class, legacyFile.id());
+        if (fileData == null) {
+            return;
+        }
+        ByteArrayResource content = new ByteArrayResource(fileData);
+        String contentHash = attachmentFileService.computeContentHash(content);
+        StagedBlob stagedBlob = attachmentFileService.writeStagedBlob(contentHash, legacyFile.fileType(), fileData.length, content);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                StagedBlob storedBlob = attachmentFileService.retainStagedBlob(stagedBlob, legacyFile.fileType(), content);
+                jdbcTemplate.update("update attachment_files set content_hash = ?, storage_key = ?, file_size = ?, stored_size = ?, " +
+                                "storage_codec = ?, file_data = null where id = ?",
+                        storedBlob.contentHash(), storedBlob.storageKey(), storedBlob.fileSize(), storedBlob.storedSize(),
+                        storedBlob.storageCodec().name(), legacyFile.id());
+            });
+        } catch (UncheckedIOException e) {
+            attachmentFileService.discardStagedBlob(stagedBlob);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            attachmentFileService.discardStagedBlob(stagedBlob);
+            throw e;
+        }
+    }
+
+    private boolean hasLegacyColumn() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            boolean upperCase = metaData.storesUpperCaseIdentifiers();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null,
+                    upperCase ? "ATTACHMENT_FILES" : "attachment_files", upperCase ? "FILE_DATA" : "file_data")) {
+                return columns.next();
+            }
+        }));
+    }
+
+    private record LegacyFile(long id, String fileType) {
+    }
+}
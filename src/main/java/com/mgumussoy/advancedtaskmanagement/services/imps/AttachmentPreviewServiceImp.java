@@ -0,0 +1,338 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.PreviewSize;
+import com.mgumussoy.advancedtaskmanagement.exceptions.PreviewNotAvailableException;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService;
+import com.mgumussoy.advancedtaskmanagement.services.BlobEncryptionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class AttachmentPreviewServiceImp implements AttachmentPreviewService {
+    private static final String JPEG_TYPE = "image/jpeg";
+    private static final String PNG_TYPE = "image/png";
+    private static final List<PreviewSize> SIZES_LARGEST_FIRST = Arrays.stream(PreviewSize.values())
+            .sorted(Comparator.comparingInt(PreviewSize::getMaxEdge).reversed())
+            .toList();
+
+    private final AttachmentFileService attachmentFileService;
+    private final BlobEncryptionService blobEncryptionService;
+    private final Path rootPath;
+    private final long maxSourceSize;
+    private final long maxSourcePixels;
+    private final float jpegQuality;
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> renderings = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AttachmentPreviewServiceImp(AttachmentFileService attachmentFileService, BlobEncryptionService blobEncryptionService,
+                                       @Value("${attachments.preview.root}") String root,
+                                       @Value("${attachments.preview.max-source-size}") DataSize maxSourceSize,
+                                       @Value("${attachments.preview.max-source-pixels}") long maxSourcePixels,
+                                       @Value("${attachments.preview.jpeg-quality}") float jpegQuality) {
+        this.attachmentFileService = attachmentFileService;
+        this.blobEncryptionService = blobEncryptionService;
+        this.rootPath = Paths.get(root).toAbsolutePath().normalize();
+        this.maxSourceSize = maxSourceSize.toBytes();
+        this.maxSourcePixels = maxSourcePixels;
+        this.jpegQuality = jpegQuality;
+    }
+
+    @Override
+    public Preview getPreview(AttachmentFileDTO file, PreviewSize size) throws IOException, PreviewNotAvailableException {
+        if (!isPreviewable(file.getContentHash(), file.getFileType(), file.getFileSize())) {
+            throw new PreviewNotAvailableException();
+        }
+        Optional<Preview> preview = findPreview(file.getContentHash(), size);
+        if (preview.isPresent()) {
+            return preview.get();
+        }
+
+        render(file.getContentHash(), () -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream((int) file.getFileSize());
+            attachmentFileService.transferFile(file, 0, file.getFileSize(), Channels.newChannel(content));
+            return new ByteArrayInputStream(content.toByteArray());
+        });
+        return findPreview(file.getContentHash(), size).orElseThrow(PreviewNotAvailableException::new);
+    }
+
+    @Override
+    public void generatePreviews(String contentHash, String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException {
+        if (!isPreviewable(contentHash, fileType, fileSize)
+                || SIZES_LARGEST_FIRST.stream().allMatch(size -> findRendition(contentHash, size).isPresent())) {
+            return;
+        }
+        try {
+            render(contentHash, inputStreamSource);
+        } catch (PreviewNotAvailableException e) {
+            // Not every file with an image content type can be decoded; it is simply served without a preview.
+            log.debug("No preview for attachment content {}", contentHash);
+        }
+    }
+
+    @Override
+    public void evictPreviews(String contentHash) {
+        if (!isValidHash(contentHash)) {
+            return;
+        }
+        for (PreviewSize size : PreviewSize.values()) {
+            for (String contentType : List.of(JPEG_TYPE, PNG_TYPE)) {
+                try {
+                    Files.deleteIfExists(resolve(contentHash, size, contentType));
+                } catch (IOException e) {
+                    log.warn("Could not delete attachment preview {} {}", contentHash, size, e);
+                }
+            }
+        }
+    }
+
+    private void render(String contentHash, InputStreamSource inputStreamSource) throws IOException {
+        CompletableFuture<Void> rendering = new CompletableFuture<>();
+        CompletableFuture<Void> running = renderings.putIfAbsent(contentHash, rendering);
+        if (running != null) {
+            // The same content is already being decoded for another request; wait for its renditions instead.
+            try {
+                running.join();
+                return;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException ioException) throw ioException;
+                if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+                throw e;
+            }
+        }
+        try {
+            writeRenditions(contentHash, decode(inputStreamSource));
+            rendering.complete(null);
+        } catch (Throwable t) {
+            rendering.completeExceptionally(t);
+            throw t;
+        } finally {
+            renderings.remove(contentHash, rendering);
+        }
+    }
+
+    private BufferedImage decode(InputStreamSource inputStreamSource) throws IOException {
+        try (InputStream inputStream = inputStreamSource.getInputStream();
+             ImageInputStream imageInputStream = new MemoryCacheImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                throw new PreviewNotAvailableException();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new PreviewNotAvailableException();
+                }
+                // Subsampling while decoding keeps large photos from being held in memory at full resolution; the
+                // largest rendition still gets at least twice its edge length to be scaled down from.
+                int step = Math.max(1, Math.max(width, height) / (2 * SIZES_LARGEST_FIRST.getFirst().getMaxEdge()));
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, readParam);
+            } catch (IIOException e) {
+                throw new PreviewNotAvailableException();
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void writeRenditions(String contentHash, BufferedImage image) throws IOException {
+        String contentType = image.getColorModel().hasAlpha() ? PNG_TYPE : JPEG_TYPE;
+        BufferedImage rendition = image;
+        for (PreviewSize size : SIZES_LARGEST_FIRST) {
+            // Each rendition is scaled from the next larger one, so the source image is only decoded once.
+            rendition = scale(rendition, size.getMaxEdge(), PNG_TYPE.equals(contentType));
+            write(rendition, contentType, resolve(contentHash, size, contentType));
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxEdge, boolean alpha) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage scaled = source;
+        do {
+            // Bilinear filtering only samples neighbouring pixels, so large reductions are done in halving steps.
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(scaled, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            scaled = next;
+        } while (width != targetWidth || height != targetHeight);
+        return scaled;
+    }
+
+    private void write(BufferedImage image, String contentType, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "preview", ".part");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByMIMEType(contentType).next();
+            // Renditions show the attachment's content, so they are encrypted like its blob. The image is buffered in
+            // memory rather than in ImageIO's temp file cache, which would leave a plaintext copy behind.
+            try (OutputStream fileStream = blobEncryptionService.encrypt(new BufferedOutputStream(Files.newOutputStream(temp)));
+                 ImageOutputStream outputStream = new MemoryCacheImageOutputStream(fileStream)) {
+                writer.setOutput(outputStream);
+                ImageWriteParam writeParam = writer.getDefaultWriteParam();
+                if (JPEG_TYPE.equals(contentType)) {
+                    writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    writeParam.setCompressionQuality(jpegQuality);
+                }
+                writer.write(null, new IIOImage(image, null, null), writeParam);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Optional<Preview> findPreview(String contentHash, PreviewSize size) throws IOException {
+        Optional<String> contentType = findRendition(contentHash, size);
+        if (contentType.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Preview(contentHash, size, contentType.get(), openRendition(resolve(contentHash, size, contentType.get()))));
+    }
+
+    private Optional<String> findRendition(String contentHash, PreviewSize size) {
+        for (String contentType : List.of(JPEG_TYPE, PNG_TYPE)) {
+            if (Files.exists(resolve(contentHash, size, contentType))) {
+                return Optional.of(contentType);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Renditions written before encryption was enabled are plain files and are still served straight from disk.
+    private Resource openRendition(Path path) throws IOException {
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            SeekableByteChannel content = blobEncryptionService.decrypt(channel, true);
+            if (content == channel) {
+                return new FileSystemResource(path);
+            }
+            size = content.size();
+        }
+        return new EncryptedRendition(path, size);
+    }
+
+    private boolean isPreviewable(String contentHash, String fileType, long fileSize) {
+        if (!isValidHash(contentHash) || fileType == null || fileSize > maxSourceSize) {
+            return false;
+        }
+        String mimeType = fileType.split(";")[0].trim().toLowerCase();
+        return mimeType.startsWith("image/") && ImageIO.getImageReadersByMIMEType(mimeType).hasNext();
+    }
+
+    private static boolean isValidHash(String contentHash) {
+        return contentHash != null && contentHash.matches("[0-9a-f]{64}");
+    }
+
+    private final class EncryptedRendition extends AbstractResource {
+        private final Path path;
+        private final long size;
+
+        private EncryptedRendition(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                return Channels.newInputStream(blobEncryptionService.decrypt(channel, false));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean exists() {
+            return Files.exists(path);
+        }
+
+        @Override
+        public long contentLength() {
+            return size;
+        }
+
+        @Override
+        public String getFilename() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public String getDescription() {
+            return "encrypted preview [" + path + "]";
+        }
+    }
+
+    // Renditions are keyed by content hash, so every attachment sharing a blob shares its previews as well.
+    private Path resolve(String contentHash, PreviewSize size, String contentType) {
+        String extension = PNG_TYPE.equals(contentType) ? ".png" : ".jpg";
+        return rootPath.resolve(contentHash.substring(0, 2)).resolve(contentHash + "-" + size.getSize().toLowerCase() + extension);
+    }
+}
@@ -0,0 +1,184 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentBlob;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentCacheService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentReclamationService;
+import com.mgumussoy.advancedtaskmanagement.services.BlobStoreService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class AttachmentReclamationServiceImp implements AttachmentReclamationService {
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final BlobStoreService blobStoreService;
+    private final AttachmentCacheService attachmentCacheService;
+    private final AttachmentPreviewService attachmentPreviewService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration gracePeriod;
+    private final Duration materializedTtl;
+    private final int batchSize;
+    private final long maxBytesPerSecond;
+
+    @Autowired
+    public AttachmentReclamationServiceImp(AttachmentBlobRepository attachmentBlobRepository, BlobStoreService blobStoreService,
+                                           AttachmentCacheService attachmentCacheService, AttachmentPreviewService attachmentPreviewService,
+                                           TransactionTemplate transactionTemplate,
+                                           @Value("${attachments.reclamation.grace-period}") Duration gracePeriod,
+                                           @Value("${attachments.versions.materialized-ttl}") Duration materializedTtl,
+                                           @Value("${attachments.reclamation.batch-size}") int batchSize,
+                                           @Value("${attachments.reclamation.max-bytes-per-second}") DataSize maxBytesPerSecond) {
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        this.blobStoreService = blobStoreService;
+        this.attachmentCacheService = attachmentCacheService;
+        this.attachmentPreviewService = attachmentPreviewService;
+        this.transactionTemplate = transactionTemplate;
+        this.gracePeriod = gracePeriod;
+        this.materializedTtl = materializedTtl;
+        this.batchSize = batchSize;
+        this.maxBytesPerSecond = Math.max(maxBytesPerSecond.toBytes(), 1);
+    }
+
+    @Scheduled(fixedDelayString = "${attachments.reclamation.interval}", initialDelayString = "${attachments.reclamation.interval}")
+    public void scheduledReclamation() {
+        reclaimReleasedBlobs();
+        expireMaterializedBlobs();
+    }
+
+    @Override
+    public long reclaimReleasedBlobs() {
+        Date cutoff = new Date(System.currentTimeMillis() - gracePeriod.toMillis());
+        long startNanos = System.nanoTime();
+        long freedBytes = 0;
+        int reclaimedBlobs = 0;
+
+        List<String> contentHashes;
+        do {
+            contentHashes = attachmentBlobRepository.findContentHashesReleasedBefore(cutoff, PageRequest.of(0, batchSize));
+            for (String contentHash : contentHashes) {
+                Optional<AttachmentBlob> reclaimedBlob = transactionTemplate.execute(status -> removeBlobRow(contentHash, cutoff));
+                if (reclaimedBlob == null || reclaimedBlob.isEmpty()) {
+                    continue;
+                }
+                deleteStoredBlob(reclaimedBlob.get().getStorageKey());
+                if (reclaimedBlob.get().getMaterializedStorageKey() != null) {
+                    deleteStoredBlob(reclaimedBlob.get().getMaterializedStorageKey());
+                }
+                attachmentPreviewService.evictPreviews(contentHash);
+                freedBytes += reclaimedBlob.get().getStoredSize();
+                reclaimedBlobs++;
+                if (!throttle(startNanos, freedBytes)) {
+                    contentHashes = List.of();
+                    break;
+                }
+            }
+        } while (contentHashes.size() == batchSize);
+
+        if (reclaimedBlobs > 0) {
+            log.info("Reclaimed {} attachment blobs, freed {} bytes", reclaimedBlobs, freedBytes);
+        }
+        return freedBytes;
+    }
+
+    // Rebuilt copies of delta revisions are dropped some time after they were made; the next download rebuilds them.
+    @Override
+    public int expireMaterializedBlobs() {
+        Date cutoff = new Date(System.currentTimeMillis() - materializedTtl.toMillis());
+        int expiredBlobs = 0;
+
+        List<String> contentHashes;
+        do {
+            contentHashes = attachmentBlobRepository.findContentHashesMaterializedBefore(cutoff, PageRequest.of(0, batchSize));
+            for (String contentHash : contentHashes) {
+                String storageKey = transactionTemplate.execute(status -> clearMaterializedBlob(contentHash, cutoff));
+                if (storageKey != null) {
+                    deleteStoredBlob(storageKey);
+                    expiredBlobs++;
+                }
+            }
+        } while (contentHashes.size() == batchSize);
+
+        if (expiredBlobs > 0) {
+            log.info("Dropped {} rebuilt attachment revisions", expiredBlobs);
+        }
+        return expiredBlobs;
+    }
+
+    private String clearMaterializedBlob(String contentHash, Date cutoff) {
+        return attachmentBlobRepository.findWithLockByContentHash(contentHash)
+                .filter(blob -> blob.getMaterializedDate() != null && blob.getMaterializedDate().before(cutoff))
+                .map(blob -> {
+                    String storageKey = blob.getMaterializedStorageKey();
+                    blob.setMaterializedStorageKey(null);
+                    blob.setMaterializedDate(null);
+                    attachmentBlobRepository.save(blob);
+                    return storageKey;
+                })
+                .orElse(null);
+    }
+
+    private Optional<AttachmentBlob> removeBlobRow(String contentHash, Date cutoff) {
+        Optional<AttachmentBlob> attachmentBlob = attachmentBlobRepository.findWithLockByContentHash(contentHash)
+                .filter(blob -> blob.getReferenceCount() <= 0 && blob.getReleasedDate() != null && blob.getReleasedDate().before(cutoff));
+        attachmentBlob.ifPresent(blob -> {
+            attachmentBlobRepository.delete(blob);
+            if (blob.getBaseContentHash() != null) {
+                releaseBaseBlob(blob.getBaseContentHash());
+            }
+        });
+        return attachmentBlob;
+    }
+
+    // A delta blob holds a reference on the blob it was encoded against; once the delta is gone the base may
+    // become reclaimable itself on a later pass.
+    private void releaseBaseBlob(String contentHash) {
+        attachmentBlobRepository.findWithLockByContentHash(contentHash).ifPresent(baseBlob -> {
+            baseBlob.setReferenceCount(baseBlob.getReferenceCount() - 1);
+            if (baseBlob.getReferenceCount() <= 0) {
+                baseBlob.setReleasedDate(new Date());
+            }
+            attachmentBlobRepository.save(baseBlob);
+        });
+    }
+
+    private void deleteStoredBlob(String storageKey) {
+        attachmentCacheService.evictContent(storageKey);
+        try {
+            blobStoreService.delete(storageKey);
+        } catch (IOException e) {
+            log.warn("Could not delete reclaimed attachment blob {}", storageKey, e);
+        }
+    }
+
+    private boolean throttle(long startNanos, long freedBytes) {
+        // Whole seconds and the remainder are scaled apart, since freedBytes in nanoseconds overflows a long past ~9 GB.
+        long budgetNanos = TimeUnit.SECONDS.toNanos(freedBytes / maxBytesPerSecond)
+                + TimeUnit.SECONDS.toNanos(freedBytes % maxBytesPerSecond) / maxBytesPerSecond;
+        long aheadNanos = budgetNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
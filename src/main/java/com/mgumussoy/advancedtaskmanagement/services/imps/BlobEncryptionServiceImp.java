@@ -0,0 +1,341 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.services.BlobEncryptionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+// Blobs are encrypted as a header (marker, data key wrapped with the master key, nonce prefix) followed by
+// independently sealed AES-GCM segments. Each segment's nonce carries its index and a final-segment flag, so segments
+// cannot be reordered or the blob truncated without failing authentication, and a range read only decrypts the
+// segments it touches.
+@Service
+public class BlobEncryptionServiceImp implements BlobEncryptionService {
+    // Stored blobs are told apart by their key. The marker is only sniffed for transient files such as upload chunks,
+    // staged ingestions and previews, which may have been written before encryption was enabled.
+    private static final byte[] MAGIC = {'A', 'T', 'M', 'B', 'L', 'O', 'B', 1};
+    private static final int DATA_KEY_SIZE = 32;
+    private static final int WRAPPED_KEY_SIZE = DATA_KEY_SIZE + 8;
+    private static final int NONCE_PREFIX_SIZE = 7;
+    private static final int HEADER_SIZE = MAGIC.length + WRAPPED_KEY_SIZE + NONCE_PREFIX_SIZE;
+    private static final int TAG_SIZE = 16;
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final int CIPHERTEXT_SEGMENT_SIZE = SEGMENT_SIZE + TAG_SIZE;
+
+    private final boolean enabled;
+    private final SecretKey masterKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    public BlobEncryptionServiceImp(@Value("${attachments.encryption.enabled}") boolean enabled,
+                                    @Value("${attachments.encryption.master-key}") String masterKey) {
+        this.masterKey = masterKey == null || masterKey.isBlank() ? null : new SecretKeySpec(decodeKey(masterKey), "AES");
+        if (enabled && this.masterKey == null) {
+            throw new IllegalStateException("attachments.encryption.master-key must be set when encryption is enabled");
+        }
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public OutputStream encrypt(OutputStream outputStream) throws IOException {
+        if (!enabled) {
+            return outputStream;
+        }
+        byte[] dataKeyBytes = new byte[DATA_KEY_SIZE];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_SIZE];
+        secureRandom.nextBytes(dataKeyBytes);
+        secureRandom.nextBytes(noncePrefix);
+        SecretKey dataKey = new SecretKeySpec(dataKeyBytes, "AES");
+        Arrays.fill(dataKeyBytes, (byte) 0);
+
+        outputStream.write(MAGIC);
+        outputStream.write(wrap(dataKey));
+        outputStream.write(noncePrefix);
+        return new EncryptingOutputStream(outputStream, dataKey, noncePrefix);
+    }
+
+    @Override
+    public SeekableByteChannel decrypt(FileChannel channel, boolean allowPlaintext) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() >= HEADER_SIZE + TAG_SIZE) {
+            readFully(channel, header, 0);
+        }
+        if (!Arrays.equals(header.array(), 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            if (!allowPlaintext) {
+                throw new IOException("Attachment blob was written encrypted but is not encrypted");
+            }
+            return channel;
+        }
+        if (masterKey == null) {
+            throw new IOException("Attachment blob is encrypted but no master key is configured");
+        }
+        SecretKey dataKey = unwrap(Arrays.copyOfRange(header.array(), MAGIC.length, MAGIC.length + WRAPPED_KEY_SIZE));
+        byte[] noncePrefix = Arrays.copyOfRange(header.array(), MAGIC.length + WRAPPED_KEY_SIZE, HEADER_SIZE);
+        return new DecryptingChannel(channel, dataKey, noncePrefix);
+    }
+
+    private byte[] wrap(SecretKey dataKey) {
+        try {
+            Cipher cipher = Cipher.getInstance("AESWrap");
+            cipher.init(Cipher.WRAP_MODE, masterKey);
+            return cipher.wrap(dataKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SecretKey unwrap(byte[] wrappedKey) throws IOException {
+        try {
+            Cipher cipher = Cipher.getInstance("AESWrap");
+            cipher.init(Cipher.UNWRAP_MODE, masterKey);
+            return (SecretKey) cipher.unwrap(wrappedKey, "AES", Cipher.SECRET_KEY);
+        } catch (InvalidKeyException e) {
+            throw new IOException("Attachment blob data key could not be unwrapped with the configured master key", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] decodeKey(String masterKey) {
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(masterKey.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("attachments.encryption.master-key must be Base64 encoded", e);
+        }
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalStateException("attachments.encryption.master-key must be a 128, 192 or 256 bit AES key");
+        }
+        return key;
+    }
+
+    private static Cipher createCipher() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static GCMParameterSpec segmentParameters(byte[] noncePrefix, long segment, boolean last) throws IOException {
+        if (segment > Integer.MAX_VALUE) {
+            throw new IOException("Attachment blob has too many segments");
+        }
+        byte[] nonce = ByteBuffer.allocate(NONCE_PREFIX_SIZE + 5)
+                .put(noncePrefix)
+                .putInt((int) segment)
+                .put((byte) (last ? 1 : 0))
+                .array();
+        return new GCMParameterSpec(TAG_SIZE * 8, nonce);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Encrypted attachment blob is truncated");
+            }
+        }
+    }
+
+    private static final class EncryptingOutputStream extends OutputStream {
+        private final OutputStream outputStream;
+        private final SecretKey dataKey;
+        private final byte[] noncePrefix;
+        private final Cipher cipher = createCipher();
+        private final byte[] plaintext = new byte[SEGMENT_SIZE];
+        private final byte[] ciphertext = new byte[CIPHERTEXT_SEGMENT_SIZE];
+        private int buffered;
+        private long segment;
+        private boolean closed;
+
+        private EncryptingOutputStream(OutputStream outputStream, SecretKey dataKey, byte[] noncePrefix) {
+            this.outputStream = outputStream;
+            this.dataKey = dataKey;
+            this.noncePrefix = noncePrefix;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (length > 0) {
+                // A full segment is only sealed once more data arrives, because the last one has to be flagged as such.
+                if (buffered == SEGMENT_SIZE) {
+                    writeSegment(false);
+                }
+                int count = Math.min(length, SEGMENT_SIZE - buffered);
+                System.arraycopy(bytes, offset, plaintext, buffered, count);
+                buffered += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeSegment(true);
+            } finally {
+                outputStream.close();
+            }
+        }
+
+        private void writeSegment(boolean last) throws IOException {
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, dataKey, segmentParameters(noncePrefix, segment, last));
+                int length = cipher.doFinal(plaintext, 0, buffered, ciphertext, 0);
+                outputStream.write(ciphertext, 0, length);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not encrypt attachment blob", e);
+            }
+            segment++;
+            buffered = 0;
+        }
+    }
+
+    private static final class DecryptingChannel implements SeekableByteChannel {
+        private final FileChannel channel;
+        private final SecretKey dataKey;
+        private final byte[] noncePrefix;
+        private final Cipher cipher = createCipher();
+        private final ByteBuffer ciphertext = ByteBuffer.allocate(CIPHERTEXT_SEGMENT_SIZE);
+        private final byte[] plaintext = new byte[SEGMENT_SIZE];
+        private final long ciphertextSize;
+        private final long segmentCount;
+        private final long size;
+        private long loadedSegment = -1;
+        private int loadedLength;
+        private long position;
+
+        private DecryptingChannel(FileChannel channel, SecretKey dataKey, byte[] noncePrefix) throws IOException {
+            this.channel = channel;
+            this.dataKey = dataKey;
+            this.noncePrefix = noncePrefix;
+            this.ciphertextSize = channel.size();
+            long body = ciphertextSize - HEADER_SIZE;
+            this.segmentCount = (body + CIPHERTEXT_SEGMENT_SIZE - 1) / CIPHERTEXT_SEGMENT_SIZE;
+            if (body - (segmentCount - 1) * CIPHERTEXT_SEGMENT_SIZE < TAG_SIZE) {
+                throw new IOException("Encrypted attachment blob is truncated");
+            }
+            this.size = body - segmentCount * TAG_SIZE;
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            if (!channel.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            if (position >= size) {
+                return -1;
+            }
+            if (!target.hasRemaining()) {
+                return 0;
+            }
+            long segment = position / SEGMENT_SIZE;
+            if (segment != loadedSegment) {
+                load(segment);
+            }
+            int offset = (int) (position % SEGMENT_SIZE);
+            int count = Math.min(target.remaining(), loadedLength - offset);
+            target.put(plaintext, offset, count);
+            position += count;
+            return count;
+        }
+
+        private void load(long segment) throws IOException {
+            boolean last = segment == segmentCount - 1;
+            long offset = HEADER_SIZE + segment * CIPHERTEXT_SEGMENT_SIZE;
+            int length = (int) (last ? ciphertextSize - offset : CIPHERTEXT_SEGMENT_SIZE);
+            loadedSegment = -1;
+            ciphertext.clear().limit(length);
+            readFully(channel, ciphertext, offset);
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, dataKey, segmentParameters(noncePrefix, segment, last));
+                loadedLength = cipher.doFinal(ciphertext.array(), 0, length, plaintext, 0);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Encrypted attachment blob failed authentication", e);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not decrypt attachment blob", e);
+            }
+            loadedSegment = segment;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) {
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("Negative position");
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.mgumussoy.advancedtaskmanagement.services.imps;
 
 import com.mgumussoy.advancedtaskmanagement.dtos.CommentDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.ProjectEventDTO;
 import com.mgumussoy.advancedtaskmanagement.entities.Comment;
 import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
 import com.mgumussoy.advancedtaskmanagement.entities.UserEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectEventType;
 import com.mgumussoy.advancedtaskmanagement.exceptions.CommentNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.UserEntityNotFoundException;
@@ -11,24 +13,35 @@ import com.mgumussoy.advancedtaskmanagement.repositories.CommentRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.UserEntityRepository;
 import com.mgumussoy.advancedtaskmanagement.services.CommentService;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectEventService;
 import jakarta.transaction.Transactional;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Objects;
+
 @Service
 public class CommentServiceImp implements CommentService {
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final CommentRepository commentRepository;
     private final ModelMapper modelMapper;
     private final TaskRepository taskRepository;
     private final UserEntityRepository userEntityRepository;
+    private final ProjectEventService projectEventService;
 
     @Autowired
-    public CommentServiceImp(CommentRepository commentRepository, ModelMapper modelMapper, TaskRepository taskRepository, UserEntityRepository userEntityRepository) {
+    public CommentServiceImp(CommentRepository commentRepository, ModelMapper modelMapper, TaskRepository taskRepository, UserEntityRepository userEntityRepository,
+                             ProjectEventService projectEventService) {
         this.commentRepository = commentRepository;
         this.modelMapper = modelMapper;
         this.taskRepository = taskRepository;
         this.userEntityRepository = userEntityRepository;
+        this.projectEventService = projectEventService;
     }
 
     @Override
@@ -48,7 +61,9 @@ public class CommentServiceImp implements CommentService {
         task.getComments().add(commentEntity);
         author.getComments().add(commentEntity);
 
-        return convertEntityToDTO(commentEntity);
+        CommentDTO savedComment = convertEntityToDTO(commentEntity);
+        publishCommentEvent(ProjectEventType.COMMENT_CREATED, task, commentEntity.getId(), savedComment);
+        return savedComment;
     }
 
     @Override
@@ -57,6 +72,7 @@ public class CommentServiceImp implements CommentService {
         Comment comment = findCommentById(commentId);
         comment.setDeleted(true);
         commentRepository.save(comment);
+        publishCommentEvent(ProjectEventType.COMMENT_DELETED, comment.getTaskEntity(), commentId, null);
     }
 
     @Override
@@ -81,6 +97,12 @@ public class CommentServiceImp implements CommentService {
 
         newTask.getComments().add(existingComment);
         newAuthor.getComments().add(existingComment);
+
+        CommentDTO updatedComment = convertEntityToDTO(existingComment);
+        publishCommentEvent(ProjectEventType.COMMENT_UPDATED, newTask, commentId, updatedComment);
+        if (!Objects.equals(projectIdOf(oldTask), projectIdOf(newTask))) {
+            publishCommentEvent(ProjectEventType.COMMENT_UPDATED, oldTask, commentId, updatedComment);
+        }
     }
 
     @Override
@@ -88,6 +110,32 @@ public class CommentServiceImp implements CommentService {
         return convertEntityToDTO(findCommentById(commentId));
     }
 
+    @Override
+    public List<CommentDTO> getCommentsOfTask(Long taskId, int page, int size) throws TaskNotFoundException {
+        if (!taskRepository.existsByIdAndDeletedFalse(taskId)) {
+            throw new TaskNotFoundException();
+        }
+        // The author and task are lazy and only their ids are read, so the page is a single query whoever wrote it.
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.clamp(size, 1, MAX_PAGE_SIZE), Sort.by("id"));
+        return commentRepository.findByTaskEntityIdAndDeletedFalse(taskId, pageRequest).stream()
+                .map(this::convertEntityToDTO)
+                .toList();
+    }
+
+    private void publishCommentEvent(ProjectEventType type, TaskEntity task, Long commentId, CommentDTO comment) {
+        projectEventService.publish(ProjectEventDTO.builder()
+                .type(type)
+                .projectId(projectIdOf(task))
+                .taskId(task.getId())
+                .commentId(commentId)
+                .comment(comment)
+                .build());
+    }
+
+    private static Long projectIdOf(TaskEntity task) {
+        return task.getProject() == null ? null : task.getProject().getId();
+    }
+
     private Comment findCommentById(Long commentId) throws CommentNotFoundException {
         Comment comment = commentRepository.findById(commentId).orElseThrow(CommentNotFoundException::new);
         if (comment.isDeleted()) throw new CommentNotFoundException();
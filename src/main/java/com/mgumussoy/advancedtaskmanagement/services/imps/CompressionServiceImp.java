@@ -0,0 +1,99 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.services.CompressionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class CompressionServiceImp implements CompressionService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<MediaType> compressibleTypes;
+    private final long minSize;
+    private final int sampleSize;
+    private final double maxRatio;
+
+    public CompressionServiceImp(@Value("${attachments.compression.content-types}") List<String> compressibleTypes,
+                                 @Value("${attachments.compression.min-size}") DataSize minSize,
+                                 @Value("${attachments.compression.sample-size}") DataSize sampleSize,
+                                 @Value("${attachments.compression.max-ratio}") double maxRatio) {
+        this.compressibleTypes = compressibleTypes.stream().map(MediaType::parseMediaType).toList();
+        this.minSize = minSize.toBytes();
+        this.sampleSize = (int) sampleSize.toBytes();
+        this.maxRatio = maxRatio;
+    }
+
+    @Override
+    public StorageCodec chooseStorageCodec(String fileType, long fileSize, InputStreamSource inputStreamSource) throws IOException {
+        if (fileSize < minSize || !isCompressible(fileType)) {
+            return StorageCodec.IDENTITY;
+        }
+
+        byte[] sample;
+        try (InputStream inputStream = inputStreamSource.getInputStream()) {
+            sample = inputStream.readNBytes(sampleSize);
+        }
+        return measureRatio(sample) <= maxRatio ? StorageCodec.GZIP : StorageCodec.IDENTITY;
+    }
+
+    @Override
+    public void encode(StorageCodec storageCodec, InputStream inputStream, OutputStream outputStream) throws IOException {
+        if (storageCodec != StorageCodec.GZIP) {
+            inputStream.transferTo(outputStream);
+            return;
+        }
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        inputStream.transferTo(gzipOutputStream);
+        gzipOutputStream.finish();
+    }
+
+    @Override
+    public InputStream decode(StorageCodec storageCodec, InputStream inputStream) throws IOException {
+        return storageCodec == StorageCodec.GZIP ? new GZIPInputStream(inputStream, BUFFER_SIZE) : inputStream;
+    }
+
+    private boolean isCompressible(String fileType) {
+        if (fileType == null) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(fileType);
+            return compressibleTypes.stream().anyMatch(type -> type.includes(mediaType))
+                    || mediaType.getSubtype().endsWith("+json")
+                    || mediaType.getSubtype().endsWith("+xml");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private double measureRatio(byte[] sample) {
+        if (sample.length == 0) {
+            return 1.0;
+        }
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long compressedSize = 0;
+            while (!deflater.finished()) {
+                compressedSize += deflater.deflate(buffer);
+            }
+            return (double) compressedSize / sample.length;
+        } finally {
+            deflater.end();
+        }
+    }
+}
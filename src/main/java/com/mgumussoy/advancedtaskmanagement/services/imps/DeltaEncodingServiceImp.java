@@ -0,0 +1,154 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.services.DeltaEncodingService;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// A delta is the target length followed by COPY (offset, length into the base) and ADD (literal bytes)
+// instructions, all lengths and offsets written as unsigned varints.
+@Service
+public class DeltaEncodingServiceImp implements DeltaEncodingService {
+    private static final int BLOCK_SIZE = 32;
+    private static final long HASH_BASE = 257;
+    private static final long HASH_BASE_POWER = power(HASH_BASE, BLOCK_SIZE - 1);
+    private static final int COPY = 1;
+    private static final int ADD = 2;
+
+    @Override
+    public byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        writeVarint(delta, target.length);
+
+        // Base blocks are indexed at fixed offsets; the target is scanned with a rolling hash so matches are found at
+        // any alignment, which is what makes inserted or removed bytes cheap.
+        Map<Long, Integer> blockIndex = new HashMap<>();
+        for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE) {
+            blockIndex.putIfAbsent(hash(base, offset), offset);
+        }
+
+        int literalStart = 0;
+        int position = 0;
+        long rollingHash = target.length >= BLOCK_SIZE ? hash(target, 0) : 0;
+        while (!blockIndex.isEmpty() && position + BLOCK_SIZE <= target.length) {
+            Integer candidate = blockIndex.get(rollingHash);
+            if (candidate != null && Arrays.equals(base, candidate, candidate + BLOCK_SIZE, target, position, position + BLOCK_SIZE)) {
+                int baseStart = candidate;
+                int targetStart = position;
+                while (targetStart > literalStart && baseStart > 0 && base[baseStart - 1] == target[targetStart - 1]) {
+                    baseStart--;
+                    targetStart--;
+                }
+                int length = position - targetStart + BLOCK_SIZE;
+                while (targetStart + length < target.length && baseStart + length < base.length
+                        && base[baseStart + length] == target[targetStart + length]) {
+                    length++;
+                }
+
+                writeAdd(delta, target, literalStart, targetStart);
+                writeVarint(delta, COPY);
+                writeVarint(delta, baseStart);
+                writeVarint(delta, length);
+                position = targetStart + length;
+                literalStart = position;
+                if (position + BLOCK_SIZE <= target.length) {
+                    rollingHash = hash(target, position);
+                }
+                continue;
+            }
+            if (position + BLOCK_SIZE < target.length) {
+                rollingHash = (rollingHash - (target[position] & 0xFF) * HASH_BASE_POWER) * HASH_BASE + (target[position + BLOCK_SIZE] & 0xFF);
+            }
+            position++;
+        }
+        writeAdd(delta, target, literalStart, target.length);
+        return delta.toByteArray();
+    }
+
+    @Override
+    public byte[] apply(byte[] base, byte[] delta) throws IOException {
+        ByteArrayInputStream instructions = new ByteArrayInputStream(delta);
+        byte[] target = new byte[readVarint(instructions)];
+        int position = 0;
+        while (instructions.available() > 0) {
+            int instruction = readVarint(instructions);
+            if (instruction == COPY) {
+                int offset = readVarint(instructions);
+                int length = readVarint(instructions);
+                if ((long) offset + length > base.length || (long) position + length > target.length) {
+                    throw new IOException("Corrupt attachment delta");
+                }
+                System.arraycopy(base, offset, target, position, length);
+                position += length;
+            } else if (instruction == ADD) {
+                int length = readVarint(instructions);
+                if ((long) position + length > target.length || instructions.readNBytes(target, position, length) != length) {
+                    throw new IOException("Corrupt attachment delta");
+                }
+                position += length;
+            } else {
+                throw new IOException("Corrupt attachment delta");
+            }
+        }
+        if (position != target.length) {
+            throw new IOException("Corrupt attachment delta");
+        }
+        return target;
+    }
+
+    private static void writeAdd(ByteArrayOutputStream delta, byte[] target, int from, int to) {
+        if (to <= from) {
+            return;
+        }
+        writeVarint(delta, ADD);
+        writeVarint(delta, to - from);
+        delta.write(target, from, to - from);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream outputStream, long value) {
+        while ((value & ~0x7FL) != 0) {
+            outputStream.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        outputStream.write((int) value);
+    }
+
+    private static int readVarint(ByteArrayInputStream inputStream) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int next = inputStream.read();
+            if (next < 0) {
+                break;
+            }
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                if (value > Integer.MAX_VALUE) {
+                    break;
+                }
+                return (int) value;
+            }
+        }
+        throw new IOException("Corrupt attachment delta");
+    }
+
+    private static long hash(byte[] data, int offset) {
+        long hash = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            hash = hash * HASH_BASE + (data[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private static long power(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+}
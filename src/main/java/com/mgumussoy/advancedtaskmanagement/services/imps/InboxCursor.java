@@ -0,0 +1,44 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Cursor of an assignee's own tasks, which are listed most urgent first and oldest first within a priority: the
+// priority rank and the id of the last task of a page, opaque to clients like TaskCursor.
+record InboxCursor(int priorityRank, Long id) {
+    private static final String PREFIX = "PRIORITY";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    static InboxCursor of(String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isBlank()) {
+            return new InboxCursor(-1, 0L);
+        }
+        try {
+            String[] parts = new String(DECODER.decode(cursor), StandardCharsets.UTF_8).split(":", -1);
+            if (parts.length != 3 || !PREFIX.equals(parts[0])) {
+                throw new InvalidCursorException();
+            }
+            return new InboxCursor(Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    static String next(Slice<TaskDTO> tasks) {
+        if (!tasks.hasNext()) {
+            return null;
+        }
+        TaskDTO last = tasks.getContent().getLast();
+        return new InboxCursor(last.getPriority().getRank(), last.getId()).encode();
+    }
+
+    String encode() {
+        String value = PREFIX + ":" + priorityRank + ":" + id;
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
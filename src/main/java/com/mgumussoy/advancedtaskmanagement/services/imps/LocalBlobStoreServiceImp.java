@@ -0,0 +1,121 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.services.BlobEncryptionService;
+import com.mgumussoy.advancedtaskmanagement.services.BlobStoreService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+public class LocalBlobStoreServiceImp implements BlobStoreService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Marks the key of a blob written encrypted, so the row referencing it only accepts an encrypted file. Blobs under keys
+    // without it were written before encryption was enabled and are read as they are, whatever bytes they start with.
+    private static final String ENCRYPTED_SUFFIX = ".enc";
+
+    private final BlobEncryptionService blobEncryptionService;
+    private final Path rootPath;
+
+    public LocalBlobStoreServiceImp(BlobEncryptionService blobEncryptionService, @Value("${attachments.storage.root}") String root) {
+        this.blobEncryptionService = blobEncryptionService;
+        this.rootPath = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String store(InputStream inputStream) throws IOException {
+        return store(inputStream::transferTo);
+    }
+
+    @Override
+    public String store(BlobWriter blobWriter) throws IOException {
+        Path tempDirectory = rootPath.resolve("tmp");
+        Files.createDirectories(tempDirectory);
+
+        // Every stored object gets a key of its own. Deduplication happens on the content hash of the blob row, so two
+        // uploads of the same content never share a file that the loser's rollback or the reclaimer could delete.
+        Path temp = Files.createTempFile(tempDirectory, "blob", ".part");
+        try {
+            try (OutputStream outputStream = blobEncryptionService.encrypt(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                blobWriter.writeTo(outputStream);
+            }
+            String key = UUID.randomUUID().toString().replace("-", "") + (blobEncryptionService.isEnabled() ? ENCRYPTED_SUFFIX : "");
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return key;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream openStream(String key) throws IOException {
+        return Channels.newInputStream(openChannel(key));
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(String key) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        if (!isEncryptedKey(key)) {
+            return channel;
+        }
+        try {
+            return blobEncryptionService.decrypt(channel, false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Sizes are those of the decrypted bytes, which is what ranges and Content-Length are computed against.
+    @Override
+    public long getSize(String key) throws IOException {
+        try (SeekableByteChannel channel = openChannel(key)) {
+            return channel.size();
+        }
+    }
+
+    // The file behind a blob whose bytes are stored as they are, which the container can send without reading it here.
+    @Override
+    public Optional<Path> getPlainFile(String key) throws IOException {
+        Path path = resolve(key);
+        if (isEncryptedKey(key)) {
+            return Optional.empty();
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(key);
+        }
+        return Optional.of(path);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private static boolean isEncryptedKey(String key) {
+        return key.endsWith(ENCRYPTED_SUFFIX);
+    }
+
+    private Path resolve(String key) {
+        if (key == null || !key.matches("[0-9a-f]{32}(\\.enc)?")) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        return rootPath.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
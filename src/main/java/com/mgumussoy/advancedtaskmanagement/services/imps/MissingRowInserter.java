@@ -0,0 +1,34 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.BooleanSupplier;
+
+// Creates rows that callers then lock and update, such as counters and usage totals keyed by a unique constraint. The
+// insert commits in its own transaction, so when a concurrent writer creates the same row first the unique constraint
+// rolls back only that insert and not the caller's work; the caller's locking read or update then waits for that row.
+@Component
+class MissingRowInserter {
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MissingRowInserter(PlatformTransactionManager transactionManager) {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    void insertIfAbsent(BooleanSupplier exists, Runnable insert) {
+        if (exists.getAsBoolean()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert.run());
+        } catch (DataIntegrityViolationException ignored) {
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.ProjectEventDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectEventService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Streams go through async requests, so an open stream holds no request thread. A single dispatcher thread owns the
+// ring buffer and the subscriber lists: events are appended and queued, and subscribers replayed and added, in one order
+// without locks, so a subscriber never misses or repeats an event published while it was being replayed. The writes
+// themselves run on a sender pool, one subscriber at a time in queue order, so a slow client cannot hold up the others.
+@Slf4j
+@Service
+public class ProjectEventServiceImp implements ProjectEventService {
+    static final String SUBSCRIBED = "SUBSCRIBED";
+    static final String RESET = "RESET";
+
+    private final ProjectRepository projectRepository;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService senders;
+    // Sequences restart with the instance, so ids carry an epoch and ids of an earlier run are never resumed from.
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final ProjectEventDTO[] buffer;
+    private final Map<Long, List<Subscriber>> subscribers = new HashMap<>();
+    private long lastSequence;
+
+    @Autowired
+    public ProjectEventServiceImp(ProjectRepository projectRepository,
+                                  @Value("${tasks.events.buffer-size}") int bufferSize,
+                                  @Value("${tasks.events.subscriber-queue-capacity}") int queueCapacity,
+                                  @Value("${tasks.events.sender-threads}") int senderThreads,
+                                  @Value("${tasks.events.timeout}") Duration timeout,
+                                  @Value("${tasks.events.heartbeat-interval}") Duration heartbeatInterval) {
+        this.projectRepository = projectRepository;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.buffer = new ProjectEventDTO[bufferSize];
+        this.senders = Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("project-event-sender-"));
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("project-events-"));
+        this.dispatcher.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Completing the streams makes clients reconnect, and a new instance answers their Last-Event-ID with a reset.
+        dispatch(() -> subscribers.values().forEach(list -> list.forEach(Subscriber::close)));
+        dispatcher.shutdown();
+        senders.shutdown();
+    }
+
+    @Override
+    public void publish(ProjectEventDTO event) {
+        if (event.getProjectId() == null) {
+            return;
+        }
+        // Clients must not see a change that is rolled back, so events wait for the transaction that made it to commit.
+        AfterCommit.run(() -> dispatch(() -> append(event)));
+    }
+
+    @Override
+    public SseEmitter subscribe(Long projectId, String lastEventId) throws ProjectNotFoundException {
+        if (!projectRepository.existsByIdAndDeletedFalse(projectId)) {
+            throw new ProjectNotFoundException();
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(projectId, emitter);
+        // Clients reconnect on their own when a stream ends, so a timed out stream is simply completed.
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(() -> dispatch(() -> unsubscribe(subscriber)));
+        dispatch(() -> replayAndSubscribe(lastEventId, subscriber));
+        return emitter;
+    }
+
+    private void append(ProjectEventDTO event) {
+        lastSequence++;
+        buffer[(int) (lastSequence % buffer.length)] = event;
+        List<Subscriber> projectSubscribers = subscribers.get(event.getProjectId());
+        if (projectSubscribers != null) {
+            projectSubscribers.removeIf(subscriber -> !subscriber.offer(eventOf(lastSequence, event)));
+        }
+    }
+
+    private void replayAndSubscribe(String lastEventId, Subscriber subscriber) {
+        Long projectId = subscriber.projectId;
+        Long resumeAfter = lastEventId == null ? null : sequenceOf(lastEventId);
+        long oldestBuffered = Math.max(lastSequence - buffer.length, 0) + 1;
+        List<SseEmitter.SseEventBuilder> missed = new ArrayList<>();
+        if (lastEventId == null) {
+            missed.add(controlOf(SUBSCRIBED, projectId));
+        } else if (resumeAfter == null || resumeAfter > lastSequence || resumeAfter + 1 < oldestBuffered) {
+            // Events the client missed are no longer buffered, or were never sent by this instance: it has to re-read the project.
+            missed.add(controlOf(RESET, projectId));
+        } else {
+            for (long sequence = resumeAfter + 1; sequence <= lastSequence; sequence++) {
+                ProjectEventDTO buffered = buffer[(int) (sequence % buffer.length)];
+                if (buffered.getProjectId().equals(projectId)) {
+                    missed.add(eventOf(sequence, buffered));
+                }
+            }
+            // A replay that would not fit the queue would drop the client right away, and it would come back with the same id.
+            if (missed.size() > queueCapacity) {
+                missed = List.of(controlOf(RESET, projectId));
+            }
+        }
+        for (SseEmitter.SseEventBuilder event : missed) {
+            if (!subscriber.offer(event)) {
+                return;
+            }
+        }
+        subscribers.computeIfAbsent(projectId, id -> new ArrayList<>()).add(subscriber);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        List<Subscriber> projectSubscribers = subscribers.get(subscriber.projectId);
+        if (projectSubscribers != null && projectSubscribers.remove(subscriber) && projectSubscribers.isEmpty()) {
+            subscribers.remove(subscriber.projectId);
+        }
+    }
+
+    // Proxies drop idle connections, and a write is the only way to notice a client that went away without closing.
+    private void sendHeartbeats() {
+        for (List<Subscriber> projectSubscribers : subscribers.values()) {
+            projectSubscribers.removeIf(subscriber -> !subscriber.offer(SseEmitter.event().comment("heartbeat")));
+        }
+        subscribers.values().removeIf(List::isEmpty);
+    }
+
+    private SseEmitter.SseEventBuilder eventOf(long sequence, ProjectEventDTO event) {
+        return SseEmitter.event()
+                .id(eventId(sequence))
+                .name(event.getType().getType())
+                .data(event, MediaType.APPLICATION_JSON);
+    }
+
+    // Carries the current id, so a client that reconnects right after it resumes from this point.
+    private SseEmitter.SseEventBuilder controlOf(String name, Long projectId) {
+        return SseEmitter.event().id(eventId(lastSequence)).name(name).data(projectId);
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private Long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !epoch.equals(eventId.substring(0, separator))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void dispatch(Runnable action) {
+        try {
+            dispatcher.execute(action);
+        } catch (RejectedExecutionException e) {
+            log.debug("Project event dispatcher is shut down", e);
+        }
+    }
+
+    // Queues the events of one stream and writes them on the sender pool. At most one sender drains a queue at a time,
+    // so events go out in the order the dispatcher queued them.
+    private final class Subscriber {
+        private final Long projectId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+
+        private Subscriber(Long projectId, SseEmitter emitter) {
+            this.projectId = projectId;
+            this.emitter = emitter;
+        }
+
+        // Returns false once the stream is closed. A client that lets its queue fill up is dropped rather than buffered
+        // without bound; it reconnects with its Last-Event-ID and is caught up from the ring buffer, or reset.
+        private boolean offer(SseEmitter.SseEventBuilder event) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (queue.size() < queueCapacity) {
+                    queue.add(event);
+                    if (!draining) {
+                        draining = true;
+                        return startDraining();
+                    }
+                    return true;
+                }
+            }
+            log.debug("Dropping project event stream of project {} that fell {} events behind", projectId, queueCapacity);
+            close();
+            return false;
+        }
+
+        private boolean startDraining() {
+            try {
+                senders.execute(this::drain);
+                return true;
+            } catch (RejectedExecutionException e) {
+                closed = true;
+                queue.clear();
+                return false;
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = closed ? null : queue.poll();
+                    if (event == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                if (!send(event)) {
+                    close();
+                    dispatch(() -> unsubscribe(this));
+                    return;
+                }
+            }
+        }
+
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // The container reports the broken connection and completes the emitter; it only has to be dropped here.
+                log.debug("Dropping project event stream", e);
+                return false;
+            }
+        }
+
+        private void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.clear();
+            }
+            emitter.complete();
+        }
+    }
+}
@@ -2,39 +2,58 @@ package com.mgumussoy.advancedtaskmanagement.services.imps;
 
 import com.mgumussoy.advancedtaskmanagement.dtos.ProjectDTO;
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
 import com.mgumussoy.advancedtaskmanagement.entities.Department;
 import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
 import com.mgumussoy.advancedtaskmanagement.exceptions.DepartmentNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.repositories.DepartmentRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
 import com.mgumussoy.advancedtaskmanagement.services.ProjectService;
 import jakarta.transaction.Transactional;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @Service
 public class ProjectServiceImp implements ProjectService {
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProjectRepository projectRepository;
     private final DepartmentRepository departmentRepository;
+    private final TaskRepository taskRepository;
     private final ModelMapper modelMapper;
 
     @Autowired
     public ProjectServiceImp(ProjectRepository projectRepository, DepartmentRepository departmentRepository,
-                             ModelMapper modelMapper) {
+                             TaskRepository taskRepository, ModelMapper modelMapper) {
         this.projectRepository = projectRepository;
         this.departmentRepository = departmentRepository;
+        this.taskRepository = taskRepository;
         this.modelMapper = modelMapper;
     }
 
     @Override
-    public List<TaskDTO> getTasksOfProject(Long projectId) throws ProjectNotFoundException {
-        Project project = findProjectById(projectId);
-        return project.getTaskEntities().stream().map(task -> modelMapper.map(task, TaskDTO.class)).collect(Collectors.toList());
+    public TaskPageDTO getTasksOfProject(Long projectId, String cursor, int size, TaskSortKey sortKey)
+            throws ProjectNotFoundException, InvalidCursorException {
+        if (!projectRepository.existsByIdAndDeletedFalse(projectId)) {
+            throw new ProjectNotFoundException();
+        }
+        TaskCursor after = TaskCursor.of(cursor, sortKey);
+        // Slices ask for one row more than the page, so the last page is known without a count query.
+        Pageable pageable = PageRequest.of(0, Math.clamp(size, 1, MAX_PAGE_SIZE));
+        Slice<TaskDTO> tasks = switch (sortKey) {
+            case ID -> taskRepository.findByProjectIdAfterId(projectId, after.id(), pageable);
+            case CREATED_DATE -> taskRepository.findByProjectIdAfterCreatedDate(projectId, after.date(), after.id(), pageable);
+            case UPDATE_DATE -> taskRepository.findByProjectIdAfterUpdateDate(projectId, after.date(), after.id(), pageable);
+        };
+        return TaskPageDTO.builder().tasks(tasks.getContent()).nextCursor(TaskCursor.next(tasks, sortKey)).build();
     }
 
     @Override
@@ -90,4 +109,4 @@ public class ProjectServiceImp implements ProjectService {
         if (department.isDeleted()) throw new DepartmentNotFoundException();
         return department;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.DownloadUrlDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentFileNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.SignedDownloadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+
+@Service
+public class SignedDownloadServiceImp implements SignedDownloadService {
+    public static final String DOWNLOAD_PATH = "/downloads/";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final AttachmentFileService attachmentFileService;
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec signingKey;
+    private final Duration urlTtl;
+
+    @Autowired
+    public SignedDownloadServiceImp(AttachmentFileService attachmentFileService, ObjectMapper objectMapper,
+                                    @Value("${attachments.download.signing-key}") String signingKey,
+                                    @Value("${attachments.download.url-ttl}") Duration urlTtl) {
+        this.attachmentFileService = attachmentFileService;
+        this.objectMapper = objectMapper;
+        this.signingKey = new SecretKeySpec(resolveKey(signingKey), HMAC_ALGORITHM);
+        this.urlTtl = urlTtl;
+    }
+
+    @Override
+    public DownloadUrlDTO createDownloadUrl(Long fileId) throws AttachmentFileNotFoundException {
+        AttachmentFileDTO file = attachmentFileService.getFile(fileId);
+        Date expiresAt = new Date(System.currentTimeMillis() + urlTtl.toMillis());
+
+        // Everything needed to stream the blob travels in the signed token, so serving it needs no database lookup.
+        DownloadClaims claims = new DownloadClaims(file.getId(), file.getFileName(), file.getFileType(), file.getFileSize(),
+                file.getContentHash(), file.getStorageKey(), file.getStoredSize(), file.getStorageCodec(), expiresAt.getTime());
+        String payload;
+        try {
+            payload = Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(claims));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return DownloadUrlDTO.builder()
+                .url(DOWNLOAD_PATH + payload + "." + sign(payload))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Override
+    public Optional<AttachmentFileDTO> resolveToken(String token) {
+        int separator = token != null ? token.lastIndexOf('.') : -1;
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, separator);
+        byte[] expectedSignature = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] signature = token.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expectedSignature, signature)) {
+            return Optional.empty();
+        }
+
+        DownloadClaims claims;
+        try {
+            claims = objectMapper.readValue(Base64.getUrlDecoder().decode(payload), DownloadClaims.class);
+        } catch (IllegalArgumentException | IOException e) {
+            return Optional.empty();
+        }
+        if (claims.expiresAt() < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(AttachmentFileDTO.builder()
+                .id(claims.id())
+                .fileName(claims.fileName())
+                .fileType(claims.fileType())
+                .fileSize(claims.fileSize())
+                .contentHash(claims.contentHash())
+                .storageKey(claims.storageKey())
+                .storedSize(claims.storedSize())
+                .storageCodec(claims.storageCodec())
+                .build());
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] resolveKey(String signingKey) {
+        if (signingKey != null && !signingKey.isBlank()) {
+            return signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        // Like the JWT key pair, a generated key only holds for this instance; set the property when running several nodes.
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    private record DownloadClaims(Long id, String fileName, String fileType, long fileSize, String contentHash,
+                                  String storageKey, long storedSize, StorageCodec storageCodec, long expiresAt) {
+    }
+}
@@ -0,0 +1,345 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.StorageUsageDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.entities.StorageUsage;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentFileRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.DepartmentRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.StorageUsageRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+public class StorageQuotaServiceImp implements StorageQuotaService {
+    // Usage rows are always locked in this order, so uploads, moves and recounts touching the same scopes cannot deadlock.
+    private static final Comparator<UsageScope> LOCK_ORDER = Comparator.comparing(UsageScope::scope).thenComparing(UsageScope::scopeId);
+
+    private final StorageUsageRepository storageUsageRepository;
+    private final TaskRepository taskRepository;
+    private final AttachmentFileRepository attachmentFileRepository;
+    private final ProjectRepository projectRepository;
+    private final DepartmentRepository departmentRepository;
+    private final MissingRowInserter missingRowInserter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Map<StorageScope, Long> maxBytes = new EnumMap<>(StorageScope.class);
+    private final Map<StorageScope, Long> maxFiles = new EnumMap<>(StorageScope.class);
+
+    @Autowired
+    public StorageQuotaServiceImp(StorageUsageRepository storageUsageRepository, TaskRepository taskRepository,
+                                  AttachmentFileRepository attachmentFileRepository, ProjectRepository projectRepository,
+                                  DepartmentRepository departmentRepository, MissingRowInserter missingRowInserter,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${attachments.quota.reconciliation.batch-size}") int batchSize,
+                                  @Value("${attachments.quota.task.max-bytes}") DataSize taskMaxBytes,
+                                  @Value("${attachments.quota.task.max-files}") long taskMaxFiles,
+                                  @Value("${attachments.quota.project.max-bytes}") DataSize projectMaxBytes,
+                                  @Value("${attachments.quota.project.max-files}") long projectMaxFiles,
+                                  @Value("${attachments.quota.department.max-bytes}") DataSize departmentMaxBytes,
+                                  @Value("${attachments.quota.department.max-files}") long departmentMaxFiles) {
+        this.storageUsageRepository = storageUsageRepository;
+        this.taskRepository = taskRepository;
+        this.attachmentFileRepository = attachmentFileRepository;
+        this.projectRepository = projectRepository;
+        this.departmentRepository = departmentRepository;
+        this.missingRowInserter = missingRowInserter;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        maxBytes.put(StorageScope.TASK, taskMaxBytes.toBytes());
+        maxFiles.put(StorageScope.TASK, taskMaxFiles);
+        maxBytes.put(StorageScope.PROJECT, projectMaxBytes.toBytes());
+        maxFiles.put(StorageScope.PROJECT, projectMaxFiles);
+        maxBytes.put(StorageScope.DEPARTMENT, departmentMaxBytes.toBytes());
+        maxFiles.put(StorageScope.DEPARTMENT, departmentMaxFiles);
+    }
+
+    @Override
+    public void checkQuota(Long taskId, long bytes, long files) throws TaskNotFoundException, StorageQuotaExceededException {
+        // Runs before the upload transaction, so the project and department the scopes need are fetched up front.
+        TaskEntity task = taskRepository.findWithProjectById(taskId).orElseThrow(TaskNotFoundException::new);
+        if (task.isDeleted()) throw new TaskNotFoundException();
+
+        for (Map.Entry<StorageScope, Long> scope : resolveScopes(task).entrySet()) {
+            StorageUsage storageUsage = storageUsageRepository.findByScopeAndScopeId(scope.getKey(), scope.getValue())
+                    .orElseGet(() -> newStorageUsage(scope.getKey(), scope.getValue()));
+            verifyQuota(storageUsage, bytes, files);
+        }
+    }
+
+    @Override
+    public void recordUsage(TaskEntity task, long bytes, long files) throws StorageQuotaExceededException {
+        Map<UsageScope, UsageChange> changes = new TreeMap<>(LOCK_ORDER);
+        addChange(changes, resolveScopes(task), bytes, files);
+        applyChanges(changes, true);
+    }
+
+    // The old and new scopes of a replaced attachment are updated in one pass, so a file moving between two tasks
+    // locks their rows in the same order as a file moving the other way.
+    @Override
+    public void replaceUsage(TaskEntity oldTask, long oldBytes, TaskEntity newTask, long newBytes) throws StorageQuotaExceededException {
+        Map<UsageScope, UsageChange> changes = new TreeMap<>(LOCK_ORDER);
+        addChange(changes, resolveScopes(oldTask), -oldBytes, -1);
+        addChange(changes, resolveScopes(newTask), newBytes, 1);
+        applyChanges(changes, true);
+    }
+
+    // A task keeps its own usage when it changes projects; only the project and department totals move with it. Moving a
+    // task is never refused for quota, so the target may end up above its limit until attachments are removed.
+    @Override
+    public void moveTaskUsage(Long taskId, Project oldProject, Project newProject) {
+        if (Objects.equals(projectIdOf(oldProject), projectIdOf(newProject))) {
+            return;
+        }
+        storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, taskId).ifPresent(taskUsage -> {
+            Map<UsageScope, UsageChange> changes = new TreeMap<>(LOCK_ORDER);
+            addChange(changes, resolveScopes(oldProject), -taskUsage.getUsedBytes(), -taskUsage.getFileCount());
+            addChange(changes, resolveScopes(newProject), taskUsage.getUsedBytes(), taskUsage.getFileCount());
+            applyChanges(changes, false);
+        });
+    }
+
+    @Override
+    public void releaseTaskUsage(TaskEntity task) {
+        storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, task.getId()).ifPresent(taskUsage -> {
+            Map<UsageScope, UsageChange> changes = new TreeMap<>(LOCK_ORDER);
+            addChange(changes, resolveScopes(task), -taskUsage.getUsedBytes(), -taskUsage.getFileCount());
+            applyChanges(changes, false);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${attachments.quota.reconciliation.interval}", initialDelayString = "${attachments.quota.reconciliation.interval}")
+    public void scheduledReconciliation() {
+        reconcileUsage();
+    }
+
+    // Also runs once at startup, which backfills the usage of attachments stored before quotas were tracked.
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public long reconcileUsage() {
+        long repairedUsages = 0;
+        Long afterId = 0L;
+
+        List<Long> projectIds;
+        do {
+            projectIds = projectRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+            for (Long projectId : projectIds) {
+                repairedUsages += reconcileProject(projectId);
+                afterId = projectId;
+            }
+        } while (projectIds.size() == batchSize);
+
+        afterId = 0L;
+        List<Long> departmentIds;
+        do {
+            departmentIds = departmentRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+            for (Long departmentId : departmentIds) {
+                repairedUsages += reconcileDepartment(departmentId);
+                afterId = departmentId;
+            }
+        } while (departmentIds.size() == batchSize);
+
+        if (repairedUsages > 0) {
+            log.warn("Repaired {} storage usages that drifted from the attachment table", repairedUsages);
+        }
+        return repairedUsages;
+    }
+
+    // Rows are created up front and locked before the attachments are summed, so uploads to the project wait for the
+    // recount instead of having their increments overwritten by it.
+    private long reconcileProject(Long projectId) {
+        List<StorageUsage> taskUsages = attachmentFileRepository.sumUsageByTaskOfProject(projectId);
+        taskUsages.forEach(taskUsage -> createIfAbsent(new UsageScope(StorageScope.TASK, taskUsage.getScopeId())));
+        if (!taskUsages.isEmpty()) {
+            createIfAbsent(new UsageScope(StorageScope.PROJECT, projectId));
+        }
+
+        Long repaired = transactionTemplate.execute(status -> {
+            List<Long> taskIds = taskRepository.findIdsByProjectId(projectId);
+            List<StorageUsage> lockedUsages = new ArrayList<>(taskIds.isEmpty() ? List.of()
+                    : storageUsageRepository.findWithLockByScopeAndScopeIdInOrderByScopeId(StorageScope.TASK, taskIds));
+            StorageUsage projectUsage = storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.PROJECT, projectId).orElse(null);
+
+            Map<Long, StorageUsage> actualUsages = new HashMap<>();
+            long projectBytes = 0;
+            long projectFiles = 0;
+            for (StorageUsage actualUsage : attachmentFileRepository.sumUsageByTaskOfProject(projectId)) {
+                actualUsages.put(actualUsage.getScopeId(), actualUsage);
+                projectBytes += actualUsage.getUsedBytes();
+                projectFiles += actualUsage.getFileCount();
+            }
+
+            long repairedUsages = 0;
+            for (StorageUsage taskUsage : lockedUsages) {
+                StorageUsage actualUsage = actualUsages.get(taskUsage.getScopeId());
+                repairedUsages += correctUsage(taskUsage, actualUsage == null ? 0 : actualUsage.getUsedBytes(),
+                        actualUsage == null ? 0 : actualUsage.getFileCount());
+            }
+            if (projectUsage != null) {
+                repairedUsages += correctUsage(projectUsage, projectBytes, projectFiles);
+            }
+            return repairedUsages;
+        });
+        return repaired == null ? 0 : repaired;
+    }
+
+    private long reconcileDepartment(Long departmentId) {
+        if (attachmentFileRepository.sumUsageOfDepartment(departmentId).isPresent()) {
+            createIfAbsent(new UsageScope(StorageScope.DEPARTMENT, departmentId));
+        }
+
+        Long repaired = transactionTemplate.execute(status -> storageUsageRepository
+                .findWithLockByScopeAndScopeId(StorageScope.DEPARTMENT, departmentId)
+                .map(departmentUsage -> {
+                    StorageUsage actualUsage = attachmentFileRepository.sumUsageOfDepartment(departmentId).orElse(null);
+                    return correctUsage(departmentUsage, actualUsage == null ? 0 : actualUsage.getUsedBytes(),
+                            actualUsage == null ? 0 : actualUsage.getFileCount());
+                })
+                .orElse(0L));
+        return repaired == null ? 0 : repaired;
+    }
+
+    private long correctUsage(StorageUsage storageUsage, long usedBytes, long fileCount) {
+        if (storageUsage.getUsedBytes() == usedBytes && storageUsage.getFileCount() == fileCount) {
+            return 0;
+        }
+        storageUsage.setUsedBytes(usedBytes);
+        storageUsage.setFileCount(fileCount);
+        storageUsageRepository.save(storageUsage);
+        return 1;
+    }
+
+    @Override
+    public StorageUsageDTO getUsage(StorageScope scope, Long scopeId) {
+        StorageUsage storageUsage = storageUsageRepository.findByScopeAndScopeId(scope, scopeId)
+                .orElseGet(() -> newStorageUsage(scope, scopeId));
+        return convertEntityToDTO(storageUsage);
+    }
+
+    @Override
+    public List<StorageUsageDTO> getUsages(StorageScope scope) {
+        return storageUsageRepository.findByScopeOrderByUsedBytesDesc(scope).stream()
+                .map(this::convertEntityToDTO)
+                .toList();
+    }
+
+    private Map<StorageScope, Long> resolveScopes(TaskEntity task) {
+        Map<StorageScope, Long> scopes = resolveScopes(task.getProject());
+        scopes.put(StorageScope.TASK, task.getId());
+        return scopes;
+    }
+
+    private Map<StorageScope, Long> resolveScopes(Project project) {
+        Map<StorageScope, Long> scopes = new EnumMap<>(StorageScope.class);
+        if (project != null) {
+            scopes.put(StorageScope.PROJECT, project.getId());
+            if (project.getDepartment() != null) {
+                scopes.put(StorageScope.DEPARTMENT, project.getDepartment().getId());
+            }
+        }
+        return scopes;
+    }
+
+    private Long projectIdOf(Project project) {
+        return project == null ? null : project.getId();
+    }
+
+    private void addChange(Map<UsageScope, UsageChange> changes, Map<StorageScope, Long> scopes, long bytes, long files) {
+        scopes.forEach((scope, scopeId) -> changes.merge(new UsageScope(scope, scopeId), new UsageChange(bytes, files), UsageChange::plus));
+    }
+
+    // Every row is locked and checked before any of them is written, so a refused upload leaves all scopes untouched.
+    private void applyChanges(Map<UsageScope, UsageChange> changes, boolean enforceQuota) throws StorageQuotaExceededException {
+        changes.values().removeIf(UsageChange::isEmpty);
+        if (changes.isEmpty()) {
+            return;
+        }
+        // Missing rows are created before any row is locked, so the lock order below covers first uploads as well.
+        changes.keySet().forEach(this::createIfAbsent);
+
+        List<Map.Entry<StorageUsage, UsageChange>> lockedUsages = new ArrayList<>();
+        for (Map.Entry<UsageScope, UsageChange> change : changes.entrySet()) {
+            UsageScope usageScope = change.getKey();
+            StorageUsage storageUsage = storageUsageRepository.findWithLockByScopeAndScopeId(usageScope.scope(), usageScope.scopeId())
+                    .orElseGet(() -> newStorageUsage(usageScope.scope(), usageScope.scopeId()));
+            if (enforceQuota) {
+                verifyQuota(storageUsage, change.getValue().bytes(), change.getValue().files());
+            }
+            lockedUsages.add(Map.entry(storageUsage, change.getValue()));
+        }
+        for (Map.Entry<StorageUsage, UsageChange> lockedUsage : lockedUsages) {
+            StorageUsage storageUsage = lockedUsage.getKey();
+            storageUsage.setUsedBytes(Math.max(storageUsage.getUsedBytes() + lockedUsage.getValue().bytes(), 0));
+            storageUsage.setFileCount(Math.max(storageUsage.getFileCount() + lockedUsage.getValue().files(), 0));
+            storageUsageRepository.save(storageUsage);
+        }
+    }
+
+    private void createIfAbsent(UsageScope usageScope) {
+        missingRowInserter.insertIfAbsent(() -> storageUsageRepository.existsByScopeAndScopeId(usageScope.scope(), usageScope.scopeId()),
+                () -> storageUsageRepository.saveAndFlush(newStorageUsage(usageScope.scope(), usageScope.scopeId())));
+    }
+
+    private void verifyQuota(StorageUsage storageUsage, long bytes, long files) throws StorageQuotaExceededException {
+        boolean exceedsBytes = bytes > 0 && storageUsage.getUsedBytes() + bytes > maxBytes.get(storageUsage.getScope());
+        boolean exceedsFiles = files > 0 && storageUsage.getFileCount() + files > maxFiles.get(storageUsage.getScope());
+        if (exceedsBytes || exceedsFiles) {
+            throw new StorageQuotaExceededException();
+        }
+    }
+
+    private StorageUsage newStorageUsage(StorageScope scope, Long scopeId) {
+        return StorageUsage.builder()
+                .scope(scope)
+                .scopeId(scopeId)
+                .build();
+    }
+
+    private StorageUsageDTO convertEntityToDTO(StorageUsage storageUsage) {
+        return StorageUsageDTO.builder()
+                .scope(storageUsage.getScope())
+                .scopeId(storageUsage.getScopeId())
+                .usedBytes(storageUsage.getUsedBytes())
+                .fileCount(storageUsage.getFileCount())
+                .maxBytes(maxBytes.get(storageUsage.getScope()))
+                .maxFiles(maxFiles.get(storageUsage.getScope()))
+                .build();
+    }
+
+    private record UsageScope(StorageScope scope, Long scopeId) {
+    }
+
+    private record UsageChange(long bytes, long files) {
+        UsageChange plus(UsageChange other) {
+            return new UsageChange(bytes + other.bytes, files + other.files);
+        }
+
+        boolean isEmpty() {
+            return bytes == 0 && files == 0;
+        }
+    }
+}
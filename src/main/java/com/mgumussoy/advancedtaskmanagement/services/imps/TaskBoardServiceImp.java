@@ -0,0 +1,190 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskBoardSummaryDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskBoardCounter;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskBoardCounterRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+public class TaskBoardServiceImp implements TaskBoardService {
+    // Counters are always locked in this order so two tasks moving between the same slots in opposite directions cannot deadlock.
+    private static final Comparator<BoardSlot> LOCK_ORDER = Comparator.comparing(BoardSlot::projectId)
+            .thenComparing(BoardSlot::state)
+            .thenComparing(BoardSlot::priority)
+            .thenComparing(BoardSlot::assigned);
+
+    private final TaskBoardCounterRepository taskBoardCounterRepository;
+    private final TaskRepository taskRepository;
+    private final ProjectRepository projectRepository;
+    private final MissingRowInserter missingRowInserter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public TaskBoardServiceImp(TaskBoardCounterRepository taskBoardCounterRepository, TaskRepository taskRepository,
+                               ProjectRepository projectRepository, MissingRowInserter missingRowInserter,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${tasks.board.reconciliation.batch-size}") int batchSize) {
+        this.taskBoardCounterRepository = taskBoardCounterRepository;
+        this.taskRepository = taskRepository;
+        this.projectRepository = projectRepository;
+        this.missingRowInserter = missingRowInserter;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public void recordChange(BoardSlot before, BoardSlot after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        Map<BoardSlot, Long> deltas = new TreeMap<>(LOCK_ORDER);
+        if (before != null) {
+            deltas.put(before, -1L);
+        }
+        if (after != null) {
+            deltas.put(after, 1L);
+        }
+        // Missing rows are created before any row is updated, so the lock order below covers new slots as well.
+        deltas.keySet().forEach(this::createIfAbsent);
+        deltas.forEach((slot, delta) -> taskBoardCounterRepository.adjustTaskCount(slot.projectId(), slot.state(), slot.priority(),
+                slot.assigned(), delta));
+    }
+
+    @Override
+    public TaskBoardSummaryDTO getBoardSummary(Long projectId) throws ProjectNotFoundException {
+        if (!projectRepository.existsByIdAndDeletedFalse(projectId)) {
+            throw new ProjectNotFoundException();
+        }
+
+        Map<TaskState, Long> stateCounts = new EnumMap<>(TaskState.class);
+        Map<TaskPriority, Long> priorityCounts = new EnumMap<>(TaskPriority.class);
+        for (TaskState state : TaskState.values()) {
+            stateCounts.put(state, 0L);
+        }
+        for (TaskPriority priority : TaskPriority.values()) {
+            priorityCounts.put(priority, 0L);
+        }
+        long totalCount = 0;
+        long unassignedCount = 0;
+        for (TaskBoardCounter counter : taskBoardCounterRepository.findByProjectId(projectId)) {
+            stateCounts.merge(counter.getState(), counter.getTaskCount(), Long::sum);
+            priorityCounts.merge(counter.getPriority(), counter.getTaskCount(), Long::sum);
+            totalCount += counter.getTaskCount();
+            if (!counter.isAssigned()) {
+                unassignedCount += counter.getTaskCount();
+            }
+        }
+
+        return TaskBoardSummaryDTO.builder()
+                .projectId(projectId)
+                .totalCount(totalCount)
+                .unassignedCount(unassignedCount)
+                .stateCounts(stateCounts)
+                .priorityCounts(priorityCounts)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${tasks.board.reconciliation.interval}", initialDelayString = "${tasks.board.reconciliation.interval}")
+    public void scheduledReconciliation() {
+        reconcileCounters();
+    }
+
+    // Also runs once at startup, which backfills the counters of projects whose tasks were written before they were tracked.
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public long reconcileCounters() {
+        long repairedCounters = 0;
+        Long afterId = 0L;
+
+        List<Long> projectIds;
+        do {
+            projectIds = projectRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+            for (Long projectId : projectIds) {
+                Long repaired = transactionTemplate.execute(status -> reconcileProject(projectId));
+                repairedCounters += repaired == null ? 0 : repaired;
+                afterId = projectId;
+            }
+        } while (projectIds.size() == batchSize);
+
+        if (repairedCounters > 0) {
+            log.warn("Repaired {} task board counters that drifted from the task table", repairedCounters);
+        }
+        return repairedCounters;
+    }
+
+    // The project's counter rows are locked before its tasks are counted, so task writes of the project wait for the
+    // recount instead of having their increments overwritten by it.
+    private long reconcileProject(Long projectId) {
+        Map<BoardSlot, TaskBoardCounter> counters = new HashMap<>();
+        for (TaskBoardCounter counter : taskBoardCounterRepository.findWithLockByProjectId(projectId)) {
+            counters.put(slotOf(counter), counter);
+        }
+        Map<BoardSlot, Long> actualCounts = new HashMap<>();
+        for (TaskBoardCounter count : taskRepository.countBoardByProjectId(projectId)) {
+            actualCounts.put(slotOf(count), count.getTaskCount());
+        }
+
+        long repaired = 0;
+        for (Map.Entry<BoardSlot, TaskBoardCounter> entry : counters.entrySet()) {
+            long actualCount = actualCounts.getOrDefault(entry.getKey(), 0L);
+            if (entry.getValue().getTaskCount() != actualCount) {
+                entry.getValue().setTaskCount(actualCount);
+                taskBoardCounterRepository.save(entry.getValue());
+                repaired++;
+            }
+        }
+        for (Map.Entry<BoardSlot, Long> entry : actualCounts.entrySet()) {
+            BoardSlot slot = entry.getKey();
+            if (!counters.containsKey(slot)) {
+                createIfAbsent(slot);
+                TaskBoardCounter counter = taskBoardCounterRepository.findWithLockByProjectIdAndStateAndPriorityAndAssigned(
+                        slot.projectId(), slot.state(), slot.priority(), slot.assigned()).orElseThrow();
+                counter.setTaskCount(entry.getValue());
+                taskBoardCounterRepository.save(counter);
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    private void createIfAbsent(BoardSlot slot) {
+        missingRowInserter.insertIfAbsent(() -> taskBoardCounterRepository.existsByProjectIdAndStateAndPriorityAndAssigned(
+                        slot.projectId(), slot.state(), slot.priority(), slot.assigned()),
+                () -> taskBoardCounterRepository.saveAndFlush(TaskBoardCounter.builder()
+                        .projectId(slot.projectId())
+                        .state(slot.state())
+                        .priority(slot.priority())
+                        .assigned(slot.assigned())
+                        .build()));
+    }
+
+    private BoardSlot slotOf(TaskBoardCounter counter) {
+        return new BoardSlot(counter.getProjectId(), counter.getState(), counter.getPriority(), counter.isAssigned());
+    }
+}
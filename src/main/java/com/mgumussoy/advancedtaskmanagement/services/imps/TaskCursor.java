@@ -0,0 +1,54 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+// Cursors are opaque to clients: the sort key, the sort value and the id of the last task of a page, so the next
+// page continues right after it even when several tasks share the same date.
+record TaskCursor(TaskSortKey sortKey, Date date, Long id) {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    static TaskCursor of(String cursor, TaskSortKey sortKey) throws InvalidCursorException {
+        if (cursor == null || cursor.isBlank()) {
+            return new TaskCursor(sortKey, sortKey == TaskSortKey.ID ? null : new Date(0), 0L);
+        }
+        try {
+            String[] parts = new String(DECODER.decode(cursor), StandardCharsets.UTF_8).split(":", -1);
+            if (parts.length != 3 || !sortKey.getSortKey().equals(parts[0])) {
+                throw new InvalidCursorException();
+            }
+            Date date = parts[1].isEmpty() ? null : new Date(Long.parseLong(parts[1]));
+            if ((date == null) != (sortKey == TaskSortKey.ID)) {
+                throw new InvalidCursorException();
+            }
+            return new TaskCursor(sortKey, date, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    static String next(Slice<TaskDTO> tasks, TaskSortKey sortKey) {
+        if (!tasks.hasNext()) {
+            return null;
+        }
+        TaskDTO last = tasks.getContent().getLast();
+        Date lastDate = switch (sortKey) {
+            case ID -> null;
+            case CREATED_DATE -> last.getCreatedDate();
+            case UPDATE_DATE -> last.getUpdateDate();
+        };
+        return new TaskCursor(sortKey, lastDate, last.getId()).encode();
+    }
+
+    String encode() {
+        String value = sortKey.getSortKey() + ":" + (date == null ? "" : date.getTime()) + ":" + id;
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
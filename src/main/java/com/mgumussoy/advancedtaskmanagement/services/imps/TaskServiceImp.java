@@ -1,34 +1,62 @@
 package com.mgumussoy.advancedtaskmanagement.services.imps;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.ProjectEventDTO;
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
 import com.mgumussoy.advancedtaskmanagement.entities.Project;
 import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
 import com.mgumussoy.advancedtaskmanagement.entities.UserEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectEventType;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
 import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
 import com.mgumussoy.advancedtaskmanagement.exceptions.*;
 import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.UserEntityRepository;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectEventService;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService.BoardSlot;
 import com.mgumussoy.advancedtaskmanagement.services.TaskService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskTextSearchService;
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class TaskServiceImp implements TaskService {
+    private static final int MAX_PAGE_SIZE = 100;
 
     private final TaskRepository taskRepository;
     private final ModelMapper modelMapper;
     private final ProjectRepository projectRepository;
     private final UserEntityRepository userEntityRepository;
+    private final TaskTextSearchService taskTextSearchService;
+    private final TaskBoardService taskBoardService;
+    private final ProjectEventService projectEventService;
+    private final StorageQuotaService storageQuotaService;
 
     @Autowired
-    public TaskServiceImp(TaskRepository taskRepository, ModelMapper modelMapper, ProjectRepository projectRepository, UserEntityRepository userEntityRepository) {
+    public TaskServiceImp(TaskRepository taskRepository, ModelMapper modelMapper, ProjectRepository projectRepository, UserEntityRepository userEntityRepository,
+                          TaskTextSearchService taskTextSearchService, TaskBoardService taskBoardService, ProjectEventService projectEventService,
+                          StorageQuotaService storageQuotaService) {
         this.taskRepository = taskRepository;
         this.modelMapper = modelMapper;
         this.projectRepository = projectRepository;
         this.userEntityRepository = userEntityRepository;
+        this.taskTextSearchService = taskTextSearchService;
+        this.taskBoardService = taskBoardService;
+        this.projectEventService = projectEventService;
+        this.storageQuotaService = storageQuotaService;
     }
 
     @Override
@@ -41,8 +69,12 @@ public class TaskServiceImp implements TaskService {
 
         userEntity.getTaskEntities().add(taskEntity);
         project.getTaskEntities().add(taskEntity);
+        taskBoardService.recordChange(null, BoardSlot.of(taskEntity));
+        taskTextSearchService.indexTask(taskEntity.getId(), taskEntity.getUserStory(), taskEntity.getAcceptanceCriteria());
 
-        return modelMapper.map(taskEntity, TaskDTO.class);
+        TaskDTO savedTask = modelMapper.map(taskEntity, TaskDTO.class);
+        publishTaskEvent(ProjectEventType.TASK_CREATED, project, taskEntity.getId(), savedTask);
+        return savedTask;
     }
 
     @Override
@@ -50,6 +82,7 @@ public class TaskServiceImp implements TaskService {
     public void assignTask(Long taskId, Long userId) throws UserEntityNotFoundException, TaskNotFoundException {
         TaskEntity taskEntity = getTaskEntity(taskId);
         UserEntity newUserEntity = findAssigneeById(userId);
+        BoardSlot oldSlot = BoardSlot.of(taskEntity);
 
         UserEntity oldUserEntity = taskEntity.getAssignee();
         if (oldUserEntity != null) {
@@ -59,11 +92,14 @@ public class TaskServiceImp implements TaskService {
         taskEntity.setAssignee(newUserEntity);
         newUserEntity.getTaskEntities().add(taskEntity);
         taskRepository.save(taskEntity);
+        taskBoardService.recordChange(oldSlot, BoardSlot.of(taskEntity));
+        publishTaskEvent(ProjectEventType.TASK_ASSIGNED, taskEntity.getProject(), taskId, modelMapper.map(taskEntity, TaskDTO.class));
     }
 
     @Override
     public TaskDTO getTask(Long taskId) throws TaskNotFoundException {
-        return modelMapper.map(getTaskEntity(taskId), TaskDTO.class);
+        // Read straight into the DTO; loading the entity would also load its assignee and project just to copy two ids.
+        return taskRepository.findDTOById(taskId).orElseThrow(TaskNotFoundException::new);
     }
 
     @Override
@@ -71,36 +107,56 @@ public class TaskServiceImp implements TaskService {
     public TaskDTO updateTask(Long taskId, TaskDTO taskDTO) throws TaskNotFoundException, UserEntityNotFoundException, ProjectNotFoundException,
             TaskStateCanNotBeChanged, ReasonOfStateChangeMustBeEntered {
 
-        TaskEntity oldTaskEntity = getTaskEntity(taskId);
-        UserEntity oldUserEntity = oldTaskEntity.getAssignee();
-        Project oldProject = oldTaskEntity.getProject();
+        TaskEntity taskEntity = getTaskEntity(taskId);
+        UserEntity oldUserEntity = taskEntity.getAssignee();
+        Project oldProject = taskEntity.getProject();
+        // Taken before the new values are set on the loaded entity.
+        BoardSlot oldSlot = BoardSlot.of(taskEntity);
 
-        checkTaskState(taskDTO, oldTaskEntity);
+        checkTaskState(taskDTO, taskEntity);
+
+        UserEntity newUserEntity = findAssigneeById(taskDTO.getAssigneeId());
+        Project newProject = findProjectById(taskDTO.getProjectId());
 
         if (oldUserEntity != null) {
-            oldUserEntity.getTaskEntities().remove(oldTaskEntity);
+            oldUserEntity.getTaskEntities().remove(taskEntity);
         }
 
         if (oldProject != null) {
-            oldProject.getTaskEntities().remove(oldTaskEntity);
+            oldProject.getTaskEntities().remove(taskEntity);
         }
 
-        UserEntity newUserEntity = findAssigneeById(taskDTO.getAssigneeId());
-        Project newProject = findProjectById(taskDTO.getProjectId());
-
-        TaskEntity newTaskEntity = DTOToEntity(taskDTO, newUserEntity, newProject);
-        newTaskEntity.setId(taskId);
-
-        newTaskEntity = taskRepository.save(newTaskEntity);
-        newUserEntity.getTaskEntities().add(newTaskEntity);
-        newProject.getTaskEntities().add(newTaskEntity);
+        // The loaded entity is updated in place; saving a newly built one would replace its comment and attachment
+        // collections with empty ones, and orphan removal would delete them.
+        taskEntity.setUserStory(taskDTO.getUserStory());
+        taskEntity.setAcceptanceCriteria(taskDTO.getAcceptanceCriteria());
+        taskEntity.setState(taskDTO.getState());
+        taskEntity.setPriority(taskDTO.getPriority());
+        taskEntity.setReasonForStateChange(taskDTO.getReasonForStateChange());
+        taskEntity.setAssignee(newUserEntity);
+        taskEntity.setProject(newProject);
 
-        return modelMapper.map(newTaskEntity, TaskDTO.class);
+        taskEntity = taskRepository.save(taskEntity);
+        newUserEntity.getTaskEntities().add(taskEntity);
+        newProject.getTaskEntities().add(taskEntity);
+        taskBoardService.recordChange(oldSlot, BoardSlot.of(taskEntity));
+        storageQuotaService.moveTaskUsage(taskId, oldProject, newProject);
+        taskTextSearchService.indexTask(taskId, taskEntity.getUserStory(), taskEntity.getAcceptanceCriteria());
+
+        TaskDTO updatedTask = modelMapper.map(taskEntity, TaskDTO.class);
+        publishTaskEvent(ProjectEventType.TASK_UPDATED, newProject, taskId, updatedTask);
+        // A task moved to another project also disappears from the old project's board; the event's projectId tells it apart.
+        if (oldProject != null && !oldProject.getId().equals(newProject.getId())) {
+            publishTaskEvent(ProjectEventType.TASK_UPDATED, oldProject, taskId, updatedTask);
+        }
+        return updatedTask;
     }
 
     @Override
+    @Transactional
     public void deleteTask(Long taskId) {
         TaskEntity taskEntity = getTaskEntity(taskId);
+        BoardSlot oldSlot = BoardSlot.of(taskEntity);
         taskEntity.setDeleted(true);
 
         UserEntity userEntity = taskEntity.getAssignee();
@@ -115,6 +171,52 @@ public class TaskServiceImp implements TaskService {
         }
 
         taskRepository.save(taskEntity);
+        taskBoardService.recordChange(oldSlot, null);
+        storageQuotaService.releaseTaskUsage(taskEntity);
+        taskTextSearchService.removeTask(taskId);
+        publishTaskEvent(ProjectEventType.TASK_DELETED, project, taskId, null);
+    }
+
+    @Override
+    public TaskPageDTO searchTasks(TaskFilterDTO filter, String cursor, int size, TaskSortKey sortKey) throws InvalidCursorException {
+        TaskCursor after = TaskCursor.of(cursor, sortKey);
+        Slice<TaskDTO> tasks = taskRepository.findByFilterAfter(filter, sortKey, after.date(), after.id(),
+                PageRequest.of(0, Math.clamp(size, 1, MAX_PAGE_SIZE)));
+        return TaskPageDTO.builder().tasks(tasks.getContent()).nextCursor(TaskCursor.next(tasks, sortKey)).build();
+    }
+
+    @Override
+    public TaskPageDTO getTasksOfAssignee(Long assigneeId, String cursor, int size) throws InvalidCursorException {
+        InboxCursor after = InboxCursor.of(cursor);
+        Slice<TaskDTO> tasks = taskRepository.findByAssigneeIdAfterPriorityRank(assigneeId, after.priorityRank(), after.id(),
+                PageRequest.of(0, Math.clamp(size, 1, MAX_PAGE_SIZE)));
+        return TaskPageDTO.builder().tasks(tasks.getContent()).nextCursor(InboxCursor.next(tasks)).build();
+    }
+
+    @Override
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public int fillMissingPriorityRanks() {
+        int rankedTasks = 0;
+        for (TaskPriority priority : TaskPriority.values()) {
+            rankedTasks += taskRepository.fillPriorityRank(priority, priority.getRank());
+        }
+        if (rankedTasks > 0) {
+            log.info("Filled in the priority rank of {} tasks", rankedTasks);
+        }
+        return rankedTasks;
+    }
+
+    private void publishTaskEvent(ProjectEventType type, Project project, Long taskId, TaskDTO task) {
+        if (project == null) {
+            return;
+        }
+        projectEventService.publish(ProjectEventDTO.builder()
+                .type(type)
+                .projectId(project.getId())
+                .taskId(taskId)
+                .task(task)
+                .build());
     }
 
     private TaskEntity DTOToEntity(TaskDTO taskDTO, UserEntity userEntity, Project project) throws UserEntityNotFoundException, ProjectNotFoundException {
@@ -129,7 +231,8 @@ public class TaskServiceImp implements TaskService {
     }
 
     private TaskEntity getTaskEntity(Long taskId) throws TaskNotFoundException {
-        TaskEntity taskEntity = taskRepository.findById(taskId).orElseThrow(TaskNotFoundException::new);
+        // Every caller moves the task between its assignee's and project's collections, so both are fetched with it.
+        TaskEntity taskEntity = taskRepository.findWithAssigneeAndProjectById(taskId).orElseThrow(TaskNotFoundException::new);
         if (taskEntity.isDeleted()) throw new TaskNotFoundException();
         return taskEntity;
     }
@@ -0,0 +1,346 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskSearchHitDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.TaskTextSearchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class TaskTextSearchServiceImp implements TaskTextSearchService {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int REBUILD_BATCH_SIZE = 500;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final int SNIPPET_LENGTH = 200;
+    private static final int SNIPPET_LEAD = 60;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Comparator<Map.Entry<Long, Double>> RANKING = Map.Entry.<Long, Double>comparingByValue().reversed()
+            .thenComparing(Map.Entry.comparingByKey());
+
+    // Okapi BM25 per field; a match in the user story counts twice as much as one in the acceptance criteria.
+    private static final int FIELD_COUNT = 2;
+    private static final double[] FIELD_WEIGHTS = {2.0, 1.0};
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final TaskRepository taskRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private InvertedIndex index = new InvertedIndex();
+    // Tasks changed while a rebuild is reading the tasks table, replayed onto the rebuilt index before it is swapped in.
+    // A null value stands for a removed task.
+    private Map<Long, List<List<String>>> changesDuringRebuild;
+
+    @Autowired
+    public TaskTextSearchServiceImp(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    @Override
+    public List<TaskSearchHitDTO> search(String query, int page, int size) {
+        Set<String> queryTerms = new LinkedHashSet<>(terms(query));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        int offset = Math.max(page, 0) * pageSize;
+
+        Map<Long, Double> scores;
+        lock.readLock().lock();
+        try {
+            scores = index.score(queryTerms);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Map.Entry<Long, Double>> ranked = top(scores, offset + pageSize);
+        if (ranked.size() <= offset) {
+            return List.of();
+        }
+        ranked = ranked.subList(offset, ranked.size());
+
+        // The index only keeps term statistics; the text to show and highlight is read back for the page alone.
+        Map<Long, TaskDTO> tasks = taskRepository.findByIdIn(ranked.stream().map(Map.Entry::getKey).toList()).stream()
+                .collect(Collectors.toMap(TaskDTO::getId, Function.identity()));
+        List<TaskSearchHitDTO> hits = new ArrayList<>();
+        for (Map.Entry<Long, Double> entry : ranked) {
+            TaskDTO task = tasks.get(entry.getKey());
+            if (task == null) {
+                continue;
+            }
+            hits.add(TaskSearchHitDTO.builder()
+                    .task(task)
+                    .score(entry.getValue())
+                    .userStoryHighlight(highlight(task.getUserStory(), queryTerms))
+                    .acceptanceCriteriaHighlight(highlight(task.getAcceptanceCriteria(), queryTerms))
+                    .build());
+        }
+        return hits;
+    }
+
+    @Override
+    public void indexTask(Long taskId, String userStory, String acceptanceCriteria) {
+        List<List<String>> fieldTerms = List.of(terms(userStory), terms(acceptanceCriteria));
+        // A rolled back save must not show up in search results, so index changes wait for the task transaction to commit.
+        AfterCommit.run(() -> apply(taskId, fieldTerms));
+    }
+
+    @Override
+    public void removeTask(Long taskId) {
+        AfterCommit.run(() -> apply(taskId, null));
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuildIndex() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        InvertedIndex rebuilt = new InvertedIndex();
+        try {
+            long afterId = 0;
+            Slice<TaskDTO> batch;
+            do {
+                batch = taskRepository.findByFilterAfter(new TaskFilterDTO(), TaskSortKey.ID, null, afterId,
+                        PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (TaskDTO task : batch) {
+                    rebuilt.add(task.getId(), List.of(terms(task.getUserStory()), terms(task.getAcceptanceCriteria())));
+                    afterId = task.getId();
+                }
+            } while (batch.hasNext());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach((taskId, fieldTerms) -> {
+                rebuilt.remove(taskId);
+                if (fieldTerms != null) {
+                    rebuilt.add(taskId, fieldTerms);
+                }
+            });
+            changesDuringRebuild = null;
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} tasks for text search", rebuilt.size());
+    }
+
+    private void apply(Long taskId, List<List<String>> fieldTerms) {
+        lock.writeLock().lock();
+        try {
+            index.remove(taskId);
+            if (fieldTerms != null) {
+                index.add(taskId, fieldTerms);
+            }
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.put(taskId, fieldTerms);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Keeps only the best entries in a bounded heap instead of sorting every task that matched a common term.
+    private static List<Map.Entry<Long, Double>> top(Map<Long, Double> scores, int limit) {
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(RANKING.reversed());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    private static String highlight(String text, Set<String> queryTerms) {
+        List<Token> tokens = tokenize(text);
+        List<Token> matches = tokens.stream().filter(token -> queryTerms.contains(token.term())).toList();
+        if (matches.isEmpty()) {
+            return null;
+        }
+
+        // The snippet starts at a word shortly before the first match and ends at a word boundary.
+        int leadStart = matches.getFirst().start() - SNIPPET_LEAD;
+        int start = tokens.stream().mapToInt(Token::start).filter(tokenStart -> tokenStart >= leadStart).findFirst().orElse(0);
+        int end = text.length();
+        if (start + SNIPPET_LENGTH < end) {
+            int limit = start + SNIPPET_LENGTH;
+            end = tokens.stream().mapToInt(Token::end).filter(tokenEnd -> tokenEnd <= limit).max().orElse(limit);
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append('…');
+        }
+        int position = start;
+        for (Token match : matches) {
+            if (match.start() < start) {
+                continue;
+            }
+            if (match.end() > end) {
+                break;
+            }
+            snippet.append(HtmlUtils.htmlEscape(text.substring(position, match.start())))
+                    .append("<mark>")
+                    .append(HtmlUtils.htmlEscape(text.substring(match.start(), match.end())))
+                    .append("</mark>");
+            position = match.end();
+        }
+        snippet.append(HtmlUtils.htmlEscape(text.substring(position, end)));
+        if (end < text.length()) {
+            snippet.append('…');
+        }
+        return snippet.toString();
+    }
+
+    private static List<String> terms(String text) {
+        return tokenize(text).stream().map(Token::term).toList();
+    }
+
+    // Words are runs of letters and digits, compared case- and accent-insensitively.
+    private static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            boolean wordPart = Character.isLetterOrDigit(codePoint)
+                    || (start >= 0 && Character.getType(codePoint) == Character.NON_SPACING_MARK);
+            if (wordPart && start < 0) {
+                start = i;
+            } else if (!wordPart && start >= 0) {
+                String term = normalize(text.substring(start, i));
+                if (!term.isEmpty() && term.length() <= MAX_TERM_LENGTH) {
+                    tokens.add(new Token(term, start, i));
+                }
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return tokens;
+    }
+
+    private static String normalize(String word) {
+        String decomposed = Normalizer.normalize(word.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    private record Token(String term, int start, int end) {
+    }
+
+    private static final class InvertedIndex {
+        // term -> task id -> occurrences of the term in each field
+        private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+        private final Map<Long, int[]> fieldLengths = new HashMap<>();
+        private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+        private final long[] totalLengths = new long[FIELD_COUNT];
+
+        void add(Long taskId, List<List<String>> fieldTerms) {
+            int[] lengths = new int[FIELD_COUNT];
+            Set<String> terms = new HashSet<>();
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                List<String> fieldTokens = fieldTerms.get(field);
+                lengths[field] = fieldTokens.size();
+                totalLengths[field] += fieldTokens.size();
+                for (String term : fieldTokens) {
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).computeIfAbsent(taskId, key -> new int[FIELD_COUNT])[field]++;
+                    terms.add(term);
+                }
+            }
+            fieldLengths.put(taskId, lengths);
+            documentTerms.put(taskId, terms);
+        }
+
+        void remove(Long taskId) {
+            Set<String> terms = documentTerms.remove(taskId);
+            if (terms == null) {
+                return;
+            }
+            int[] lengths = fieldLengths.remove(taskId);
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                totalLengths[field] -= lengths[field];
+            }
+            for (String term : terms) {
+                Map<Long, int[]> documents = postings.get(term);
+                documents.remove(taskId);
+                if (documents.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        Map<Long, Double> score(Collection<String> queryTerms) {
+            int documentCount = fieldLengths.size();
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                Map<Long, int[]> documents = postings.get(term);
+                if (documents == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - documents.size() + 0.5) / (documents.size() + 0.5));
+                for (Map.Entry<Long, int[]> posting : documents.entrySet()) {
+                    int[] lengths = fieldLengths.get(posting.getKey());
+                    double score = 0;
+                    for (int field = 0; field < FIELD_COUNT; field++) {
+                        int frequency = posting.getValue()[field];
+                        if (frequency == 0) {
+                            continue;
+                        }
+                        double averageLength = (double) totalLengths[field] / documentCount;
+                        double norm = 1 - B + B * lengths[field] / averageLength;
+                        score += FIELD_WEIGHTS[field] * frequency * (K1 + 1) / (frequency + K1 * norm);
+                    }
+                    scores.merge(posting.getKey(), idf * score, Double::sum);
+                }
+            }
+            return scores;
+        }
+
+        int size() {
+            return fieldLengths.size();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.UploadSessionDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.entities.UploadSession;
+import com.mgumussoy.advancedtaskmanagement.exceptions.*;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.UploadSessionRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService.StagedBlob;
+import com.mgumussoy.advancedtaskmanagement.services.BlobEncryptionService;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import com.mgumussoy.advancedtaskmanagement.services.UploadSessionService;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class UploadSessionServiceImp implements UploadSessionService {
+    private static final String CHUNK_SUFFIX = ".chunk";
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TaskRepository taskRepository;
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final AttachmentFileService attachmentFileService;
+    private final StorageQuotaService storageQuotaService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobEncryptionService blobEncryptionService;
+    private final Path rootPath;
+    private final long maxChunkSize;
+    private final Duration ttl;
+
+    @Autowired
+    public UploadSessionServiceImp(UploadSessionRepository uploadSessionRepository, TaskRepository taskRepository,
+                                   AttachmentBlobRepository attachmentBlobRepository, AttachmentFileService attachmentFileService,
+                                   StorageQuotaService storageQuotaService, TransactionTemplate transactionTemplate,
+                                   BlobEncryptionService blobEncryptionService,
+                                   @Value("${attachments.upload-sessions.root}") String root,
+                                   @Value("${attachments.upload-sessions.max-chunk-size}") DataSize maxChunkSize,
+                                   @Value("${attachments.upload-sessions.ttl}") Duration ttl) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.taskRepository = taskRepository;
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        this.attachmentFileService = attachmentFileService;
+        this.storageQuotaService = storageQuotaService;
+        this.transactionTemplate = transactionTemplate;
+        this.blobEncryptionService = blobEncryptionService;
+        this.rootPath = Paths.get(root).toAbsolutePath().normalize();
+        this.maxChunkSize = maxChunkSize.toBytes();
+        this.ttl = ttl;
+    }
+
+    @Override
+    @Transactional
+    public UploadSessionDTO createSession(UploadSessionDTO uploadSessionDTO) throws TaskNotFoundException, InvalidUploadChunkException {
+        if (uploadSessionDTO.getChunkSize() > maxChunkSize) {
+            throw new InvalidUploadChunkException();
+        }
+        TaskEntity task = findTaskById(uploadSessionDTO.getTaskId());
+        storageQuotaService.checkQuota(task.getId(), uploadSessionDTO.getFileSize(), 1);
+
+        UploadSession uploadSession = uploadSessionRepository.save(UploadSession.builder()
+                .taskEntity(task)
+                .fileName(uploadSessionDTO.getFileName())
+                .fileType(uploadSessionDTO.getFileType())
+                .description(uploadSessionDTO.getDescription())
+                .fileSize(uploadSessionDTO.getFileSize())
+                .chunkSize(uploadSessionDTO.getChunkSize())
+                .build());
+
+        return convertEntityToDTO(uploadSession, List.of());
+    }
+
+    @Override
+    public UploadSessionDTO getSession(Long sessionId) throws IOException, UploadSessionNotFoundException {
+        UploadSession uploadSession = findUploadSessionById(sessionId);
+        return convertEntityToDTO(uploadSession, getReceivedChunks(uploadSession));
+    }
+
+    @Override
+    public void uploadChunk(Long sessionId, int chunkNumber, InputStream inputStream) throws IOException, UploadSessionNotFoundException, InvalidUploadChunkException {
+        UploadSession uploadSession = findUploadSessionById(sessionId);
+        int totalChunks = getTotalChunks(uploadSession);
+        if (chunkNumber < 0 || chunkNumber >= totalChunks) {
+            throw new InvalidUploadChunkException();
+        }
+
+        long expectedSize = chunkNumber == totalChunks - 1
+                ? uploadSession.getFileSize() - uploadSession.getChunkSize() * (totalChunks - 1)
+                : uploadSession.getChunkSize();
+
+        Path sessionPath = getSessionPath(uploadSession);
+        Files.createDirectories(sessionPath);
+        Path temp = Files.createTempFile(sessionPath, String.valueOf(chunkNumber), ".part");
+        try {
+            long written;
+            // Chunks hold attachment content until the session is committed, so they are encrypted like stored blobs.
+            try (OutputStream outputStream = blobEncryptionService.encrypt(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                written = inputStream.transferTo(new BoundedOutputStream(outputStream, expectedSize));
+            } catch (BoundedOutputStream.LimitExceededException e) {
+                throw new InvalidUploadChunkException();
+            }
+            if (written != expectedSize) {
+                throw new InvalidUploadChunkException();
+            }
+            Files.move(temp, getChunkPath(sessionPath, chunkNumber), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void commitSession(Long sessionId, String checksum) throws IOException, UploadSessionNotFoundException, UploadSessionIncompleteException,
+            ChecksumMismatchException, TaskNotFoundException {
+        UploadSession uploadSession = findUploadSessionById(sessionId);
+        int totalChunks = getTotalChunks(uploadSession);
+        if (getReceivedChunks(uploadSession).size() != totalChunks) {
+            throw new UploadSessionIncompleteException();
+        }
+
+        // The assembled chunks are hashed and checked before anything is stored, so a mismatch leaves no blob or row
+        // behind and the client can re-send the broken chunks. The transaction only inserts the metadata.
+        Path sessionPath = getSessionPath(uploadSession);
+        InputStreamSource chunks = () -> new SequenceInputStream(new ChunkEnumeration(sessionPath, totalChunks));
+        String contentHash = attachmentFileService.computeContentHash(chunks);
+        if (!contentHash.equalsIgnoreCase(checksum)) {
+            throw new ChecksumMismatchException();
+        }
+        StagedBlob stagedBlob = attachmentBlobRepository.existsByContentHash(contentHash)
+                ? new StagedBlob(contentHash, uploadSession.getFileSize(), null, null, 0)
+                : attachmentFileService.writeStagedBlob(contentHash, uploadSession.getFileType(), uploadSession.getFileSize(), chunks);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Locking the session row lets only one of two concurrent commits of the same session through.
+                UploadSession lockedSession = uploadSessionRepository.findWithLockById(sessionId)
+                        .filter(session -> !session.isDeleted())
+                        .orElseThrow(UploadSessionNotFoundException::new);
+                lockedSession.setDeleted(true);
+                uploadSessionRepository.save(lockedSession);
+                try {
+                    attachmentFileService.saveStagedFile(lockedSession.getTaskEntity().getId(), lockedSession.getDescription(),
+                            lockedSession.getFileName(), lockedSession.getFileType(), stagedBlob, chunks);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            attachmentFileService.discardStagedBlob(stagedBlob);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            attachmentFileService.discardStagedBlob(stagedBlob);
+            throw e;
+        }
+        deleteSessionPath(sessionPath);
+    }
+
+    @Override
+    @Transactional
+    public void abortSession(Long sessionId) throws IOException, UploadSessionNotFoundException {
+        UploadSession uploadSession = findUploadSessionById(sessionId);
+        uploadSession.setDeleted(true);
+        uploadSessionRepository.save(uploadSession);
+        FileSystemUtils.deleteRecursively(getSessionPath(uploadSession));
+    }
+
+    @Scheduled(fixedDelayString = "${attachments.upload-sessions.cleanup-interval}", initialDelayString = "${attachments.upload-sessions.cleanup-interval}")
+    public void scheduledExpiry() {
+        expireSessions();
+    }
+
+    // Sessions that have not received a chunk within the TTL are closed and their chunks removed, as are chunk
+    // directories left behind by sessions that were already closed.
+    @Override
+    public int expireSessions() {
+        Date cutoff = new Date(System.currentTimeMillis() - ttl.toMillis());
+        int expiredSessions = 0;
+        for (Long sessionId : uploadSessionRepository.findIdsCreatedBefore(cutoff)) {
+            Path sessionPath = rootPath.resolve(String.valueOf(sessionId));
+            try {
+                if (lastChunkTime(sessionPath).toMillis() >= cutoff.getTime()) {
+                    continue;
+                }
+                Boolean expired = transactionTemplate.execute(status -> uploadSessionRepository.findWithLockById(sessionId)
+                        .filter(session -> !session.isDeleted())
+                        .map(session -> {
+                            session.setDeleted(true);
+                            uploadSessionRepository.save(session);
+                            return true;
+                        })
+                        .orElse(false));
+                if (Boolean.TRUE.equals(expired)) {
+                    FileSystemUtils.deleteRecursively(sessionPath);
+                    expiredSessions++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not expire upload session {}", sessionId, e);
+            }
+        }
+        deleteOrphanedSessionPaths(cutoff);
+
+        if (expiredSessions > 0) {
+            log.info("Expired {} abandoned upload sessions", expiredSessions);
+        }
+        return expiredSessions;
+    }
+
+    private void deleteOrphanedSessionPaths(Date cutoff) {
+        if (!Files.isDirectory(rootPath)) {
+            return;
+        }
+        List<Path> sessionPaths;
+        try (Stream<Path> paths = Files.list(rootPath)) {
+            sessionPaths = paths.filter(path -> path.getFileName().toString().matches("[0-9]+")).toList();
+        } catch (IOException e) {
+            log.warn("Could not list upload session directories", e);
+            return;
+        }
+        for (Path sessionPath : sessionPaths) {
+            try {
+                Long sessionId = Long.valueOf(sessionPath.getFileName().toString());
+                if (lastChunkTime(sessionPath).toMillis() < cutoff.getTime()
+                        && uploadSessionRepository.findById(sessionId).map(UploadSession::isDeleted).orElse(true)) {
+                    FileSystemUtils.deleteRecursively(sessionPath);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not delete upload session directory {}", sessionPath, e);
+            }
+        }
+    }
+
+    private FileTime lastChunkTime(Path sessionPath) throws IOException {
+        if (!Files.isDirectory(sessionPath)) {
+            return FileTime.fromMillis(0);
+        }
+        FileTime lastChunkTime = Files.getLastModifiedTime(sessionPath);
+        try (Stream<Path> files = Files.list(sessionPath)) {
+            for (Path file : files.toList()) {
+                FileTime modified = Files.getLastModifiedTime(file);
+                if (modified.compareTo(lastChunkTime) > 0) {
+                    lastChunkTime = modified;
+                }
+            }
+        }
+        return lastChunkTime;
+    }
+
+    private List<Integer> getReceivedChunks(UploadSession uploadSession) throws IOException {
+        Path sessionPath = getSessionPath(uploadSession);
+        if (!Files.isDirectory(sessionPath)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(sessionPath)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(CHUNK_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(0, name.length() - CHUNK_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private int getTotalChunks(UploadSession uploadSession) {
+        return (int) ((uploadSession.getFileSize() + uploadSession.getChunkSize() - 1) / uploadSession.getChunkSize());
+    }
+
+    private Path getSessionPath(UploadSession uploadSession) {
+        return rootPath.resolve(String.valueOf(uploadSession.getId()));
+    }
+
+    private static Path getChunkPath(Path sessionPath, int chunkNumber) {
+        return sessionPath.resolve(chunkNumber + CHUNK_SUFFIX);
+    }
+
+    private void deleteSessionPath(Path sessionPath) {
+        // The attachment is committed at this point; chunks that cannot be removed now are swept by expireSessions.
+        try {
+            FileSystemUtils.deleteRecursively(sessionPath);
+        } catch (IOException e) {
+            log.warn("Could not delete chunks of committed upload session {}", sessionPath, e);
+        }
+    }
+
+    private UploadSessionDTO convertEntityToDTO(UploadSession uploadSession, List<Integer> receivedChunks) {
+        return UploadSessionDTO.builder()
+                .id(uploadSession.getId())
+                .taskId(uploadSession.getTaskEntity().getId())
+                .fileName(uploadSession.getFileName())
+                .fileType(uploadSession.getFileType())
+                .description(uploadSession.getDescription())
+                .fileSize(uploadSession.getFileSize())
+                .chunkSize(uploadSession.getChunkSize())
+                .totalChunks(getTotalChunks(uploadSession))
+                .receivedChunks(new ArrayList<>(receivedChunks))
+                .build();
+    }
+
+    private UploadSession findUploadSessionById(Long sessionId) throws UploadSessionNotFoundException {
+        UploadSession uploadSession = uploadSessionRepository.findById(sessionId).orElseThrow(UploadSessionNotFoundException::new);
+        if (uploadSession.isDeleted()) throw new UploadSessionNotFoundException();
+        return uploadSession;
+    }
+
+    private TaskEntity findTaskById(Long taskId) throws TaskNotFoundException {
+        TaskEntity task = taskRepository.findById(taskId).orElseThrow(TaskNotFoundException::new);
+        if (task.isDeleted()) throw new TaskNotFoundException();
+        return task;
+    }
+
+    private class ChunkEnumeration implements Enumeration<InputStream> {
+        private final Path sessionPath;
+        private final int totalChunks;
+        private int nextChunk = 0;
+
+        ChunkEnumeration(Path sessionPath, int totalChunks) {
+            this.sessionPath = sessionPath;
+            this.totalChunks = totalChunks;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return nextChunk < totalChunks;
+        }
+
+        @Override
+        public InputStream nextElement() {
+            FileChannel channel = null;
+            try {
+                // Chunks received before encryption was enabled are still read as they are.
+                channel = FileChannel.open(getChunkPath(sessionPath, nextChunk++), StandardOpenOption.READ);
+                return Channels.newInputStream(blobEncryptionService.decrypt(channel, true));
+            } catch (IOException e) {
+                closeQuietly(channel);
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static void closeQuietly(FileChannel channel) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Could not close upload chunk", e);
+            }
+        }
+    }
+
+    private static class BoundedOutputStream extends FilterOutputStream {
+        private long remaining;
+
+        BoundedOutputStream(OutputStream outputStream, long limit) {
+            super(outputStream);
+            this.remaining = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (--remaining < 0) throw new LimitExceededException();
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            remaining -= len;
+            if (remaining < 0) throw new LimitExceededException();
+            out.write(b, off, len);
+        }
+
+        static class LimitExceededException extends IOException {
+        }
+    }
+}
@@ -1,41 +1,73 @@
 package com.mgumussoy.advancedtaskmanagement.controllers;
 
 import com.mgumussoy.advancedtaskmanagement.configs.GlobalExceptionHandler;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentVersionDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.DownloadUrlDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.PreviewSize;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
 import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentFileNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentVersionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.PreviewNotAvailableException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService;
+import com.mgumussoy.advancedtaskmanagement.services.SignedDownloadService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.io.IOException;
-
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 public class AttachmentFileControllerTest {
 
     private static final String API_BASE_PATH = "/attachments";
 
+    private static final Date UPDATE_DATE = new Date(1700000000000L);
+
     private MockMvc mockMvc;
 
-    @InjectMocks
     private AttachmentFileController attachmentFileController;
 
     @Mock
     private AttachmentFileService attachmentFileService;
 
+    @Mock
+    private SignedDownloadService signedDownloadService;
+
+    @Mock
+    private AttachmentPreviewService attachmentPreviewService;
+
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        attachmentFileController = new AttachmentFileController(attachmentFileService, signedDownloadService, attachmentPreviewService,
+                "private, no-cache");
         mockMvc = MockMvcBuilders.standaloneSetup(attachmentFileController)
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .build();
@@ -85,6 +117,21 @@ public class AttachmentFileControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void upload_ThrowsStorageQuotaExceededException() throws Exception {
+        String apiPath = API_BASE_PATH + "/upload";
+        MockMultipartFile file = new MockMultipartFile("files", "test.txt", "text/plain", "test content".getBytes());
+
+        doThrow(new StorageQuotaExceededException()).when(attachmentFileService).saveFiles(anyLong(), any(), anyList());
+
+        mockMvc.perform(multipart(apiPath)
+                        .file(file)
+                        .param("taskId", "1")
+                        .param("description", "Test description")
+                        .contentType("multipart/form-data"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
     // ------------------ Delete Endpoint Tests ------------------
     @Test
     void delete_ShouldReturnOk() throws Exception {
@@ -105,14 +152,219 @@ public class AttachmentFileControllerTest {
     }
 
     // ------------------ Get File Endpoint Tests ------------------
+    private AttachmentFileDTO mockStoredFile(byte[] content) throws IOException {
+        AttachmentFileDTO file = AttachmentFileDTO.builder()
+                .id(1L)
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .fileSize(content.length)
+                .storedSize(content.length)
+                .storageCodec(StorageCodec.IDENTITY)
+                .contentHash("abc123")
+                .updateDate(UPDATE_DATE)
+                .build();
+        when(attachmentFileService.getFile(anyLong())).thenReturn(file);
+        doAnswer(invocation -> {
+            long position = invocation.getArgument(1);
+            long count = invocation.getArgument(2);
+            WritableByteChannel target = invocation.getArgument(3);
+            target.write(ByteBuffer.wrap(content, (int) position, (int) count));
+            return null;
+        }).when(attachmentFileService).transferFile(eq(file), anyLong(), anyLong(), any());
+        return file;
+    }
+
     @Test
     void getFile_ShouldReturnOk() throws Exception {
         String apiPath = API_BASE_PATH + "/1";
         byte[] dummyData = "dummy data".getBytes();
-        when(attachmentFileService.getFile(anyLong())).thenReturn(dummyData);
+        mockStoredFile(dummyData);
+
+        MvcResult result = mockMvc.perform(get(apiPath))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/plain"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("test.txt")))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes(dummyData));
+    }
 
-        mockMvc.perform(get(apiPath))
-                .andExpect(status().isOk());
+    @Test
+    void getFile_WithRange_ShouldReturnPartialContent() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        byte[] dummyData = "dummy data".getBytes();
+        mockStoredFile(dummyData);
+
+        MvcResult result = mockMvc.perform(get(apiPath).header(HttpHeaders.RANGE, "bytes=6-"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 6-9/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().bytes("data".getBytes()));
+    }
+
+    @Test
+    void getFile_SendfileSupported_ShouldHandPlainFileToContainer() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        AttachmentFileDTO file = mockStoredFile("dummy data".getBytes());
+        Path blobFile = tempDir.resolve("blob");
+        when(attachmentFileService.getPlainFile(file)).thenReturn(Optional.of(blobFile));
+
+        mockMvc.perform(get(apiPath)
+                        .header(HttpHeaders.RANGE, "bytes=6-")
+                        .requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 6-9/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", blobFile.toAbsolutePath().toString()))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 6L))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.end", 10L));
+        verify(attachmentFileService, never()).transferFile(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getFile_SendfileSupportedButNoPlainFile_ShouldStream() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        AttachmentFileDTO file = mockStoredFile("dummy data".getBytes());
+        when(attachmentFileService.getPlainFile(file)).thenReturn(Optional.empty());
+
+        MvcResult result = mockMvc.perform(get(apiPath).requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("dummy data".getBytes()));
+    }
+
+    @Test
+    void getFile_GzipStoredWithAcceptEncoding_ShouldPassCompressedBytesThrough() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        byte[] compressed = {31, -117, 8, 0};
+        AttachmentFileDTO file = AttachmentFileDTO.builder()
+                .id(1L)
+                .fileName("app.log")
+                .fileType("text/plain")
+                .fileSize(100)
+                .storedSize(compressed.length)
+                .storageCodec(StorageCodec.GZIP)
+                .contentHash("abc123")
+                .build();
+        when(attachmentFileService.getFile(anyLong())).thenReturn(file);
+        doAnswer(invocation -> {
+            WritableByteChannel target = invocation.getArgument(1);
+            target.write(ByteBuffer.wrap(compressed));
+            return null;
+        }).when(attachmentFileService).transferStoredFile(eq(file), any());
+
+        MvcResult result = mockMvc.perform(get(apiPath).header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123-gzip\""))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, compressed.length))
+                .andExpect(content().bytes(compressed));
+        verify(attachmentFileService, never()).transferFile(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getFile_GzipStoredWithoutAcceptEncoding_ShouldDecompress() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        AttachmentFileDTO file = mockStoredFile("dummy data".getBytes());
+        file.setStorageCodec(StorageCodec.GZIP);
+
+        MvcResult result = mockMvc.perform(get(apiPath))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes("dummy data".getBytes()));
+        verify(attachmentFileService, never()).transferStoredFile(any(), any());
+    }
+
+    @Test
+    void getFile_WithUnsatisfiableRange_ShouldReturnRangeNotSatisfiable() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        mockStoredFile("dummy data".getBytes());
+
+        mockMvc.perform(get(apiPath).header(HttpHeaders.RANGE, "bytes=50-60"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void getFile_ShouldReturnValidators() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        mockStoredFile("dummy data".getBytes());
+
+        MvcResult result = mockMvc.perform(get(apiPath))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, UPDATE_DATE.getTime()))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"));
+    }
+
+    @Test
+    void getFile_WithMatchingIfNoneMatch_ShouldReturnNotModified() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        mockStoredFile("dummy data".getBytes());
+
+        mockMvc.perform(get(apiPath).header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(content().bytes(new byte[0]));
+        verify(attachmentFileService, never()).transferFile(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getFile_WithStaleIfNoneMatch_ShouldIgnoreIfModifiedSince() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        mockStoredFile("dummy data".getBytes());
+
+        MvcResult result = mockMvc.perform(get(apiPath)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\"")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("dummy data".getBytes()));
+    }
+
+    @Test
+    void getFile_NotModifiedSince_ShouldReturnNotModified() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        mockStoredFile("dummy data".getBytes());
+
+        mockMvc.perform(get(apiPath).header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isNotModified());
+        verify(attachmentFileService, never()).transferFile(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getFile_ModifiedSince_ShouldReturnOk() throws Exception {
+        String apiPath = API_BASE_PATH + "/1";
+        mockStoredFile("dummy data".getBytes());
+
+        mockMvc.perform(get(apiPath).header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 14 Nov 2023 22:13:19 GMT"))
+                .andExpect(request().asyncStarted());
     }
 
     @Test
@@ -125,6 +377,135 @@ public class AttachmentFileControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    // ------------------ Version Endpoint Tests ------------------
+    @Test
+    void getFileVersions_ShouldReturnOk() throws Exception {
+        List<AttachmentVersionDTO> versions = List.of(
+                AttachmentVersionDTO.builder().versionNumber(1).fileName("old.txt").build(),
+                AttachmentVersionDTO.builder().versionNumber(2).fileName("test.txt").current(true).build());
+        when(attachmentFileService.getFileVersions(1L)).thenReturn(versions);
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/versions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].versionNumber").value(1))
+                .andExpect(jsonPath("$[1].current").value(true));
+    }
+
+    @Test
+    void getFileVersion_ShouldStreamVersionContent() throws Exception {
+        byte[] content = "old data".getBytes();
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileName("old.txt").fileType("text/plain")
+                .fileSize(content.length).storageCodec(StorageCodec.DELTA).contentHash("old123").versionNumber(1)
+                .updateDate(UPDATE_DATE).build();
+        when(attachmentFileService.getFileVersion(1L, 1)).thenReturn(file);
+        doAnswer(invocation -> {
+            WritableByteChannel target = invocation.getArgument(3);
+            target.write(ByteBuffer.wrap(content, 4, 4));
+            return null;
+        }).when(attachmentFileService).transferFile(eq(file), eq(4L), eq(4L), any());
+
+        MvcResult result = mockMvc.perform(get(API_BASE_PATH + "/1/versions/1").header(HttpHeaders.RANGE, "bytes=4-"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"old123\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("old.txt")))
+                .andExpect(content().bytes("data".getBytes()));
+    }
+
+    @Test
+    void getFileVersion_VersionNotFound_ShouldReturnNotFound() throws Exception {
+        when(attachmentFileService.getFileVersion(1L, 9)).thenThrow(new AttachmentVersionNotFoundException());
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/versions/9"))
+                .andExpect(status().isNotFound());
+    }
+
+    // ------------------ Preview Endpoint Tests ------------------
+    @Test
+    void getPreview_ShouldReturnRendition() throws Exception {
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileName("photo.png").fileType("image/png")
+                .fileSize(5000).contentHash("abc").build();
+        Path previewPath = Files.write(tempDir.resolve("abc-small.jpg"), "preview".getBytes());
+        when(attachmentFileService.getFile(1L)).thenReturn(file);
+        when(attachmentPreviewService.getPreview(file, PreviewSize.SMALL))
+                .thenReturn(new AttachmentPreviewService.Preview("abc", PreviewSize.SMALL, "image/jpeg", new FileSystemResource(previewPath)));
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/preview").param("size", "SMALL"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-small\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+                .andExpect(content().bytes("preview".getBytes()));
+    }
+
+    @Test
+    void getPreview_DefaultsToMediumSize() throws Exception {
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileType("image/png").contentHash("abc").build();
+        Path previewPath = Files.write(tempDir.resolve("abc-medium.jpg"), "preview".getBytes());
+        when(attachmentFileService.getFile(1L)).thenReturn(file);
+        when(attachmentPreviewService.getPreview(file, PreviewSize.MEDIUM))
+                .thenReturn(new AttachmentPreviewService.Preview("abc", PreviewSize.MEDIUM, "image/jpeg", new FileSystemResource(previewPath)));
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/preview"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-medium\""));
+    }
+
+    @Test
+    void getPreview_MatchingETag_ShouldReturnNotModified() throws Exception {
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileType("image/png").contentHash("abc").build();
+        when(attachmentFileService.getFile(1L)).thenReturn(file);
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/preview").param("size", "LARGE")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc-large\""))
+                .andExpect(status().isNotModified());
+
+        verifyNoInteractions(attachmentPreviewService);
+    }
+
+    @Test
+    void getPreview_NotAnImage_ShouldReturnUnsupportedMediaType() throws Exception {
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileType("application/pdf").contentHash("abc").build();
+        when(attachmentFileService.getFile(1L)).thenReturn(file);
+        when(attachmentPreviewService.getPreview(file, PreviewSize.MEDIUM)).thenThrow(new PreviewNotAvailableException());
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/preview"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    void getPreview_UnknownSize_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get(API_BASE_PATH + "/1/preview").param("size", "HUGE"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(attachmentFileService);
+    }
+
+    // ------------------ Download URL Endpoint Tests ------------------
+    @Test
+    void getDownloadUrl_ShouldReturnAbsoluteUrl() throws Exception {
+        String apiPath = API_BASE_PATH + "/1/download-url";
+        when(signedDownloadService.createDownloadUrl(1L))
+                .thenReturn(DownloadUrlDTO.builder().url("/downloads/payload.signature").expiresAt(UPDATE_DATE).build());
+
+        mockMvc.perform(get(apiPath))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("http://localhost/downloads/payload.signature"))
+                .andExpect(jsonPath("$.expiresAt").exists());
+    }
+
+    @Test
+    void getDownloadUrl_ThrowsAttachmentFileNotFoundException() throws Exception {
+        String apiPath = API_BASE_PATH + "/1/download-url";
+        when(signedDownloadService.createDownloadUrl(1L)).thenThrow(new AttachmentFileNotFoundException());
+
+        mockMvc.perform(get(apiPath))
+                .andExpect(status().isBadRequest());
+    }
+
     // ------------------ Update Endpoint Tests ------------------
     @Test
     void update_ShouldReturnOk() throws Exception {
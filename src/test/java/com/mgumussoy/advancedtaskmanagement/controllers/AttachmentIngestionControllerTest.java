@@ -0,0 +1,95 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgumussoy.advancedtaskmanagement.configs.GlobalExceptionHandler;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentIngestionDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.IngestionStatus;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentIngestionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class AttachmentIngestionControllerTest {
+
+    private static final String API_BASE_PATH = "/attachments/ingestions";
+
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private AttachmentIngestionController attachmentIngestionController;
+
+    @Mock
+    private AttachmentIngestionService attachmentIngestionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        objectMapper = new ObjectMapper();
+        mockMvc = MockMvcBuilders.standaloneSetup(attachmentIngestionController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    // ------------------ Receive Files Tests ------------------
+    @Test
+    void receiveFiles_ShouldReturnAccepted() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "test.txt", "text/plain", "dummy content".getBytes());
+        List<AttachmentIngestionDTO> response = List.of(AttachmentIngestionDTO.builder().id(5L).taskId(1L).fileName("test.txt")
+                .status(IngestionStatus.RECEIVED).build());
+        when(attachmentIngestionService.receiveFiles(eq(1L), eq("desc"), anyList())).thenReturn(response);
+
+        mockMvc.perform(multipart(API_BASE_PATH)
+                        .file(file)
+                        .param("taskId", "1")
+                        .param("description", "desc"))
+                .andExpect(status().isAccepted())
+                .andExpect(content().json(objectMapper.writeValueAsString(response)));
+    }
+
+    @Test
+    void receiveFiles_QuotaExceeded_ShouldReturnPayloadTooLarge() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "test.txt", "text/plain", "dummy content".getBytes());
+        when(attachmentIngestionService.receiveFiles(eq(1L), eq("desc"), anyList())).thenThrow(new StorageQuotaExceededException());
+
+        mockMvc.perform(multipart(API_BASE_PATH)
+                        .file(file)
+                        .param("taskId", "1")
+                        .param("description", "desc"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    // ------------------ Get Ingestion Tests ------------------
+    @Test
+    void getIngestion_ShouldReturnOk() throws Exception {
+        AttachmentIngestionDTO response = AttachmentIngestionDTO.builder().id(5L).taskId(1L).fileName("test.txt")
+                .status(IngestionStatus.COMPLETED).attachmentFileId(9L).build();
+        when(attachmentIngestionService.getIngestion(5L)).thenReturn(response);
+
+        mockMvc.perform(get(API_BASE_PATH + "/5"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(response)));
+    }
+
+    @Test
+    void getIngestion_NotFound_ShouldReturnNotFound() throws Exception {
+        when(attachmentIngestionService.getIngestion(5L)).thenThrow(new AttachmentIngestionNotFoundException());
+
+        mockMvc.perform(get(API_BASE_PATH + "/5"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,126 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgumussoy.advancedtaskmanagement.configs.GlobalExceptionHandler;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
+import com.mgumussoy.advancedtaskmanagement.services.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class MeControllerTest {
+
+    private static final String API_BASE_PATH = "/me";
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private MeController meController;
+
+    @Mock
+    private TaskService taskService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        objectMapper = new ObjectMapper();
+        mockMvc = MockMvcBuilders.standaloneSetup(meController)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void authenticate(Map<String, Object> claims) {
+        Jwt jwt = Jwt.withTokenValue("dummyToken")
+                .header("alg", "RS256")
+                .subject("user")
+                .claims(existing -> existing.putAll(claims))
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+
+    // ------------------ Get My Tasks Tests ------------------
+    @Test
+    void getMyTasks_ShouldReturnTasksOfTokenUser() throws Exception {
+        authenticate(Map.of("userId", 7L));
+        TaskPageDTO page = TaskPageDTO.builder()
+                .tasks(List.of(TaskDTO.builder()
+                        .id(1L)
+                        .userStory("User story")
+                        .acceptanceCriteria("Acceptance criteria")
+                        .state(TaskState.BACKLOG)
+                        .priority(TaskPriority.HIGHEST)
+                        .assigneeId(7L)
+                        .projectId(2L)
+                        .build()))
+                .nextCursor("next")
+                .build();
+        when(taskService.getTasksOfAssignee(7L, null, 20)).thenReturn(page);
+
+        mockMvc.perform(get(API_BASE_PATH + "/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(page)));
+    }
+
+    @Test
+    void getMyTasks_PassesCursorAndSize() throws Exception {
+        authenticate(Map.of("userId", 7));
+        TaskPageDTO page = TaskPageDTO.builder().tasks(List.of()).build();
+        when(taskService.getTasksOfAssignee(7L, "abc", 5)).thenReturn(page);
+
+        mockMvc.perform(get(API_BASE_PATH + "/tasks").param("cursor", "abc").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(page)));
+    }
+
+    @Test
+    void getMyTasks_InvalidCursor() throws Exception {
+        authenticate(Map.of("userId", 7L));
+        doThrow(new InvalidCursorException()).when(taskService).getTasksOfAssignee(anyLong(), anyString(), anyInt());
+
+        mockMvc.perform(get(API_BASE_PATH + "/tasks").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getMyTasks_TokenWithoutUserId() throws Exception {
+        authenticate(Map.of("roles", "Team_Member"));
+
+        mockMvc.perform(get(API_BASE_PATH + "/tasks"))
+                .andExpect(status().isNotFound());
+        verifyNoInteractions(taskService);
+    }
+}
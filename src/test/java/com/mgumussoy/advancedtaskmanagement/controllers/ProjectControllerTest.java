@@ -3,30 +3,44 @@ package com.mgumussoy.advancedtaskmanagement.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mgumussoy.advancedtaskmanagement.configs.GlobalExceptionHandler;
 import com.mgumussoy.advancedtaskmanagement.dtos.ProjectDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskBoardSummaryDTO;
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
 import com.mgumussoy.advancedtaskmanagement.enums.ProjectStatus;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
 import com.mgumussoy.advancedtaskmanagement.exceptions.DepartmentNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectEventService;
 import com.mgumussoy.advancedtaskmanagement.services.ProjectService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Collections;
-import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 public class ProjectControllerTest {
 
@@ -40,6 +54,15 @@ public class ProjectControllerTest {
     @Mock
     private ProjectService projectService;
 
+    @Mock
+    private AttachmentFileService attachmentFileService;
+
+    @Mock
+    private TaskBoardService taskBoardService;
+
+    @Mock
+    private ProjectEventService projectEventService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -188,26 +211,129 @@ public class ProjectControllerTest {
     @Test
     void getTasksOfProject_ShouldReturnOk() throws Exception {
         long projectId = 1L;
-        List<TaskDTO> tasks = Collections.singletonList(TaskDTO.builder()
-                .id(1L)
-                .acceptanceCriteria("aa")
-                .build());
+        TaskPageDTO tasks = TaskPageDTO.builder()
+                .tasks(Collections.singletonList(TaskDTO.builder()
+                        .id(1L)
+                        .acceptanceCriteria("aa")
+                        .build()))
+                .nextCursor("SUQ6OjE")
+                .build();
 
-        when(projectService.getTasksOfProject(anyLong())).thenReturn(tasks);
+        when(projectService.getTasksOfProject(eq(projectId), isNull(), eq(20), eq(TaskSortKey.ID))).thenReturn(tasks);
 
         mockMvc.perform(get(API_BASE_PATH + "/" + projectId + "/tasks"))
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(tasks)));
     }
 
+    @Test
+    void getTasksOfProject_WithCursorAndSort_ShouldReturnOk() throws Exception {
+        long projectId = 1L;
+        TaskPageDTO tasks = TaskPageDTO.builder().tasks(Collections.emptyList()).build();
+
+        when(projectService.getTasksOfProject(projectId, "cursor", 50, TaskSortKey.UPDATE_DATE)).thenReturn(tasks);
+
+        mockMvc.perform(get(API_BASE_PATH + "/" + projectId + "/tasks")
+                        .param("cursor", "cursor")
+                        .param("size", "50")
+                        .param("sort", "UPDATE_DATE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getTasksOfProject_InvalidCursor_ShouldReturnBadRequest() throws Exception {
+        long projectId = 1L;
+
+        doThrow(new InvalidCursorException())
+                .when(projectService).getTasksOfProject(anyLong(), any(), anyInt(), any());
+
+        mockMvc.perform(get(API_BASE_PATH + "/" + projectId + "/tasks").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getTasksOfProject_ThrowsProjectNotFoundException() throws Exception {
         long projectId = 1L;
 
         doThrow(new ProjectNotFoundException())
-                .when(projectService).getTasksOfProject(anyLong());
+                .when(projectService).getTasksOfProject(anyLong(), any(), anyInt(), any());
 
         mockMvc.perform(get(API_BASE_PATH + "/" + projectId + "/tasks"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    // ------------------ Get Board Summary Tests ------------------
+    @Test
+    void getBoardSummary_ShouldReturnOk() throws Exception {
+        long projectId = 1L;
+        TaskBoardSummaryDTO summary = TaskBoardSummaryDTO.builder()
+                .projectId(projectId)
+                .totalCount(3)
+                .unassignedCount(1)
+                .stateCounts(Map.of(TaskState.BACKLOG, 2L, TaskState.IN_DEVELOPMENT, 1L))
+                .priorityCounts(Map.of(TaskPriority.HIGH, 3L))
+                .build();
+
+        when(taskBoardService.getBoardSummary(projectId)).thenReturn(summary);
+
+        mockMvc.perform(get(API_BASE_PATH + "/" + projectId + "/board/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(3))
+                .andExpect(jsonPath("$.unassignedCount").value(1))
+                .andExpect(jsonPath("$.stateCounts.BACKLOG").value(2))
+                .andExpect(jsonPath("$.priorityCounts.HIGH").value(3));
+    }
+
+    @Test
+    void getBoardSummary_ThrowsProjectNotFoundException() throws Exception {
+        long projectId = 1L;
+
+        doThrow(new ProjectNotFoundException()).when(taskBoardService).getBoardSummary(projectId);
+
+        mockMvc.perform(get(API_BASE_PATH + "/" + projectId + "/board/summary"))
+                .andExpect(status().isNotFound());
+    }
+
+    // ------------------ Get Project Events Tests ------------------
+    @Test
+    void getProjectEvents_ShouldStartStream() throws Exception {
+        when(projectEventService.subscribe(1L, "abc-4")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/events").header("Last-Event-ID", "abc-4"))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void getProjectEvents_ThrowsProjectNotFoundException() throws Exception {
+        doThrow(new ProjectNotFoundException()).when(projectEventService).subscribe(1L, null);
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/events"))
+                .andExpect(status().isNotFound());
+    }
+
+    // ------------------ Get Attachment Archive Of Project Tests ------------------
+    @Test
+    void getAttachmentArchiveOfProject_ShouldStreamZip() throws Exception {
+        when(attachmentFileService.getProjectArchive(1L)).thenReturn(outputStream -> outputStream.write("PK".getBytes()));
+
+        MvcResult result = mockMvc.perform(get(API_BASE_PATH + "/1/attachments.zip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"project-1-attachments.zip\""))
+                .andExpect(content().bytes("PK".getBytes()));
+    }
+
+    @Test
+    void getAttachmentArchiveOfProject_ThrowsProjectNotFoundException() throws Exception {
+        doThrow(new ProjectNotFoundException()).when(attachmentFileService).getProjectArchive(anyLong());
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/attachments.zip"))
+                .andExpect(status().isNotFound());
+    }
+}
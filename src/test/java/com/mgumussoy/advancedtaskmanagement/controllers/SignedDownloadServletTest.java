@@ -0,0 +1,167 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.SignedDownloadService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SignedDownloadServletTest {
+
+    @Mock
+    private SignedDownloadService signedDownloadService;
+
+    @Mock
+    private AttachmentFileService attachmentFileService;
+
+    private SignedDownloadServlet signedDownloadServlet;
+
+    private AttachmentFileDTO file;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        signedDownloadServlet = new SignedDownloadServlet(signedDownloadService, attachmentFileService);
+        file = AttachmentFileDTO.builder()
+                .id(1L)
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .fileSize(10)
+                .contentHash("abc123")
+                .storageKey("key")
+                .storedSize(10)
+                .storageCodec(StorageCodec.IDENTITY)
+                .build();
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        signedDownloadServlet.service(request, response);
+        return response;
+    }
+
+    private MockHttpServletRequest downloadRequest(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/downloads/" + token);
+        request.setServletPath("/downloads");
+        request.setPathInfo("/" + token);
+        return request;
+    }
+
+    @Test
+    void download_ShouldStreamFile() throws Exception {
+        when(signedDownloadService.resolveToken("token")).thenReturn(Optional.of(file));
+        doAnswer(invocation -> {
+            WritableByteChannel target = invocation.getArgument(3);
+            target.write(ByteBuffer.wrap("dummy data".getBytes()));
+            return null;
+        }).when(attachmentFileService).transferFile(eq(file), eq(0L), eq(10L), any());
+
+        MockHttpServletResponse response = perform(downloadRequest("token"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("text/plain", response.getContentType());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("\"abc123\"", response.getHeader(HttpHeaders.ETAG));
+        assertTrue(response.getHeader(HttpHeaders.CONTENT_DISPOSITION).contains("test.txt"));
+        assertEquals("dummy data", response.getContentAsString());
+    }
+
+    @Test
+    void download_InvalidToken_ShouldReturnForbidden() throws Exception {
+        when(signedDownloadService.resolveToken("token")).thenReturn(Optional.empty());
+
+        MockHttpServletResponse response = perform(downloadRequest("token"));
+
+        assertEquals(403, response.getStatus());
+        verifyNoInteractions(attachmentFileService);
+    }
+
+    @Test
+    void download_WithMatchingIfNoneMatch_ShouldReturnNotModified() throws Exception {
+        when(signedDownloadService.resolveToken("token")).thenReturn(Optional.of(file));
+        MockHttpServletRequest request = downloadRequest("token");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc123\"");
+
+        MockHttpServletResponse response = perform(request);
+
+        assertEquals(304, response.getStatus());
+        verifyNoInteractions(attachmentFileService);
+    }
+
+    @Test
+    void download_ReclaimedBlob_ShouldReturnNotFound() throws Exception {
+        when(signedDownloadService.resolveToken("token")).thenReturn(Optional.of(file));
+        doThrow(new NoSuchFileException("key")).when(attachmentFileService).transferFile(eq(file), anyLong(), anyLong(), any());
+
+        MockHttpServletResponse response = perform(downloadRequest("token"));
+
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    void download_WithRange_ShouldReturnPartialContent() throws Exception {
+        when(signedDownloadService.resolveToken("token")).thenReturn(Optional.of(file));
+        doAnswer(invocation -> {
+            WritableByteChannel target = invocation.getArgument(3);
+            target.write(ByteBuffer.wrap("data".getBytes()));
+            return null;
+        }).when(attachmentFileService).transferFile(eq(file), eq(6L), eq(4L), any());
+        MockHttpServletRequest request = downloadRequest("token");
+        request.addHeader(HttpHeaders.RANGE, "bytes=6-");
+
+        MockHttpServletResponse response = perform(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 6-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("data", response.getContentAsString());
+    }
+
+    @Test
+    void download_WithUnsatisfiableRange_ShouldReturnRangeNotSatisfiable() throws Exception {
+        when(signedDownloadService.resolveToken("token")).thenReturn(Optional.of(file));
+        MockHttpServletRequest request = downloadRequest("token");
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+
+        MockHttpServletResponse response = perform(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        verifyNoInteractions(attachmentFileService);
+    }
+
+    @Test
+    void download_PlainBlob_ShouldUseContainerSendfile() throws Exception {
+        when(signedDownloadService.resolveToken("token")).thenReturn(Optional.of(file));
+        Path blob = Path.of("/blobs/ke/y/key");
+        when(attachmentFileService.getPlainFile(file)).thenReturn(Optional.of(blob));
+        MockHttpServletRequest request = downloadRequest("token");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = perform(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(blob.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(6L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        verify(attachmentFileService, never()).transferFile(any(), anyLong(), anyLong(), any());
+    }
+}
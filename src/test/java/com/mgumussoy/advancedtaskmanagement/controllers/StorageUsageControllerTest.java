@@ -0,0 +1,82 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgumussoy.advancedtaskmanagement.configs.GlobalExceptionHandler;
+import com.mgumussoy.advancedtaskmanagement.dtos.StorageUsageDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class StorageUsageControllerTest {
+
+    private static final String API_BASE_PATH = "/storage-usage";
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private StorageUsageController storageUsageController;
+
+    @Mock
+    private StorageQuotaService storageQuotaService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        objectMapper = new ObjectMapper();
+        mockMvc = MockMvcBuilders.standaloneSetup(storageUsageController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private StorageUsageDTO createUsage(StorageScope scope, Long scopeId) {
+        return StorageUsageDTO.builder()
+                .scope(scope)
+                .scopeId(scopeId)
+                .usedBytes(2048)
+                .fileCount(3)
+                .maxBytes(4096)
+                .maxFiles(10)
+                .build();
+    }
+
+    // ------------------ Get Usages Tests ------------------
+    @Test
+    void getUsages_ShouldReturnOk() throws Exception {
+        List<StorageUsageDTO> usages = List.of(createUsage(StorageScope.DEPARTMENT, 1L), createUsage(StorageScope.DEPARTMENT, 2L));
+        when(storageQuotaService.getUsages(StorageScope.DEPARTMENT)).thenReturn(usages);
+
+        mockMvc.perform(get(API_BASE_PATH + "/DEPARTMENT"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(usages)));
+    }
+
+    @Test
+    void getUsages_InvalidScope() throws Exception {
+        mockMvc.perform(get(API_BASE_PATH + "/GALAXY"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ------------------ Get Usage Tests ------------------
+    @Test
+    void getUsage_ShouldReturnOk() throws Exception {
+        StorageUsageDTO usage = createUsage(StorageScope.PROJECT, 7L);
+        when(storageQuotaService.getUsage(StorageScope.PROJECT, 7L)).thenReturn(usage);
+
+        mockMvc.perform(get(API_BASE_PATH + "/PROJECT/7"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(usage)));
+    }
+}
@@ -2,27 +2,50 @@ package com.mgumussoy.advancedtaskmanagement.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mgumussoy.advancedtaskmanagement.configs.GlobalExceptionHandler;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFilePageDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.CommentDTO;
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskSearchHitDTO;
 import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
 import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.UserEntityNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.CommentService;
 import com.mgumussoy.advancedtaskmanagement.services.TaskService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskTextSearchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 public class TaskControllerTest {
 
@@ -36,6 +59,15 @@ public class TaskControllerTest {
     @Mock
     private TaskService taskService;
 
+    @Mock
+    private AttachmentFileService attachmentFileService;
+
+    @Mock
+    private TaskTextSearchService taskTextSearchService;
+
+    @Mock
+    private CommentService commentService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -192,6 +224,56 @@ public class TaskControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    // ------------------ Search Tasks Tests ------------------
+    @Test
+    void searchTasks_ShouldReturnOk() throws Exception {
+        TaskPageDTO tasks = TaskPageDTO.builder()
+                .tasks(List.of(TaskDTO.builder().id(1L).state(TaskState.BACKLOG).priority(TaskPriority.HIGHEST).build()))
+                .nextCursor("next")
+                .build();
+        when(taskService.searchTasks(any(TaskFilterDTO.class), isNull(), eq(20), eq(TaskSortKey.ID))).thenReturn(tasks);
+
+        mockMvc.perform(get(API_BASE_PATH)
+                        .param("state", "BACKLOG", "IN_DEVELOPMENT")
+                        .param("priority", "HIGHEST")
+                        .param("assigneeId", "2")
+                        .param("projectId", "3")
+                        .param("createdFrom", "2024-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(tasks)));
+
+        ArgumentCaptor<TaskFilterDTO> filter = ArgumentCaptor.forClass(TaskFilterDTO.class);
+        verify(taskService).searchTasks(filter.capture(), isNull(), eq(20), eq(TaskSortKey.ID));
+        assertEquals(List.of(TaskState.BACKLOG, TaskState.IN_DEVELOPMENT), filter.getValue().getState());
+        assertEquals(List.of(TaskPriority.HIGHEST), filter.getValue().getPriority());
+        assertEquals(2L, filter.getValue().getAssigneeId());
+        assertEquals(3L, filter.getValue().getProjectId());
+        assertEquals(Date.from(Instant.parse("2024-01-01T00:00:00Z")), filter.getValue().getCreatedFrom());
+    }
+
+    @Test
+    void searchTasks_InvalidCursor_ShouldReturnBadRequest() throws Exception {
+        when(taskService.searchTasks(any(TaskFilterDTO.class), eq("garbage"), anyInt(), any())).thenThrow(new InvalidCursorException());
+
+        mockMvc.perform(get(API_BASE_PATH).param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ------------------ Search Task Text Tests ------------------
+    @Test
+    void searchTaskText_ShouldReturnOk() throws Exception {
+        List<TaskSearchHitDTO> hits = List.of(TaskSearchHitDTO.builder()
+                .task(TaskDTO.builder().id(1L).userStory("Export the report").build())
+                .score(1.5)
+                .userStoryHighlight("<mark>Export</mark> the report")
+                .build());
+        when(taskTextSearchService.search("export", 0, 20)).thenReturn(hits);
+
+        mockMvc.perform(get(API_BASE_PATH + "/search").param("q", "export"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(hits)));
+    }
+
     // ------------------ Assign Task Tests ------------------
     @Test
     void assignTask_ShouldReturnOk() throws Exception {
@@ -226,4 +308,82 @@ public class TaskControllerTest {
         mockMvc.perform(post(API_BASE_PATH + "/" + taskId + "/assign/" + userId))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    // ------------------ Get Attachments Of Task Tests ------------------
+    @Test
+    void getAttachmentsOfTask_ShouldReturnOk() throws Exception {
+        AttachmentFilePageDTO attachments = AttachmentFilePageDTO.builder()
+                .files(List.of(AttachmentFileDTO.builder()
+                        .id(1L)
+                        .fileName("test.txt")
+                        .fileType("text/plain")
+                        .fileSize(12)
+                        .taskId(1L)
+                        .contentHash("abc")
+                        .build()))
+                .hasNext(true)
+                .build();
+        when(attachmentFileService.getFilesOfTask(1L, 2, 10)).thenReturn(attachments);
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/attachments").param("page", "2").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(attachments)))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    void getAttachmentsOfTask_ThrowsTaskNotFoundException() throws Exception {
+        doThrow(new TaskNotFoundException()).when(attachmentFileService).getFilesOfTask(anyLong(), anyInt(), anyInt());
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/attachments"))
+                .andExpect(status().isNotFound());
+    }
+
+    // ------------------ Get Comments Of Task Tests ------------------
+    @Test
+    void getCommentsOfTask_ShouldReturnOk() throws Exception {
+        List<CommentDTO> comments = List.of(CommentDTO.builder()
+                .id(1L)
+                .text("Looks good")
+                .taskId(1L)
+                .authorId(2L)
+                .build());
+        when(commentService.getCommentsOfTask(1L, 2, 10)).thenReturn(comments);
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/comments").param("page", "2").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(comments)));
+    }
+
+    @Test
+    void getCommentsOfTask_ThrowsTaskNotFoundException() throws Exception {
+        doThrow(new TaskNotFoundException()).when(commentService).getCommentsOfTask(anyLong(), anyInt(), anyInt());
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/comments"))
+                .andExpect(status().isNotFound());
+    }
+
+    // ------------------ Get Attachment Archive Of Task Tests ------------------
+    @Test
+    void getAttachmentArchiveOfTask_ShouldStreamZip() throws Exception {
+        when(attachmentFileService.getTaskArchive(1L)).thenReturn(outputStream -> outputStream.write("PK".getBytes()));
+
+        MvcResult result = mockMvc.perform(get(API_BASE_PATH + "/1/attachments.zip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"task-1-attachments.zip\""))
+                .andExpect(content().bytes("PK".getBytes()));
+    }
+
+    @Test
+    void getAttachmentArchiveOfTask_ThrowsTaskNotFoundException() throws Exception {
+        doThrow(new TaskNotFoundException()).when(attachmentFileService).getTaskArchive(anyLong());
+
+        mockMvc.perform(get(API_BASE_PATH + "/1/attachments.zip"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,117 @@
+package com.mgumussoy.advancedtaskmanagement.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgumussoy.advancedtaskmanagement.configs.GlobalExceptionHandler;
+import com.mgumussoy.advancedtaskmanagement.dtos.UploadSessionDTO;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ChecksumMismatchException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.UploadSessionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.services.UploadSessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class UploadSessionControllerTest {
+
+    private static final String API_BASE_PATH = "/attachments/upload-sessions";
+
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private UploadSessionController uploadSessionController;
+
+    @Mock
+    private UploadSessionService uploadSessionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        objectMapper = new ObjectMapper();
+        mockMvc = MockMvcBuilders.standaloneSetup(uploadSessionController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    // ------------------ Create Session Tests ------------------
+    @Test
+    void createSession_ShouldReturnOk() throws Exception {
+        UploadSessionDTO request = UploadSessionDTO.builder().taskId(1L).fileName("test.txt").fileSize(10L).chunkSize(4L).build();
+        UploadSessionDTO response = UploadSessionDTO.builder().id(5L).taskId(1L).fileName("test.txt").fileSize(10L).chunkSize(4L).totalChunks(3).build();
+        when(uploadSessionService.createSession(any(UploadSessionDTO.class))).thenReturn(response);
+
+        mockMvc.perform(post(API_BASE_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(response)));
+    }
+
+    @Test
+    void createSession_InvalidRequest() throws Exception {
+        UploadSessionDTO request = UploadSessionDTO.builder().taskId(1L).fileSize(10L).build();
+
+        mockMvc.perform(post(API_BASE_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ------------------ Upload Chunk Tests ------------------
+    @Test
+    void uploadChunk_ShouldReturnOk() throws Exception {
+        mockMvc.perform(put(API_BASE_PATH + "/5/chunks/0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("0123".getBytes()))
+                .andExpect(status().isOk());
+
+        verify(uploadSessionService).uploadChunk(eq(5L), eq(0), any(InputStream.class));
+    }
+
+    @Test
+    void uploadChunk_ThrowsUploadSessionNotFoundException() throws Exception {
+        doThrow(new UploadSessionNotFoundException()).when(uploadSessionService).uploadChunk(anyLong(), anyInt(), any());
+
+        mockMvc.perform(put(API_BASE_PATH + "/5/chunks/0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("0123".getBytes()))
+                .andExpect(status().isNotFound());
+    }
+
+    // ------------------ Commit Session Tests ------------------
+    @Test
+    void commitSession_ShouldReturnOk() throws Exception {
+        mockMvc.perform(post(API_BASE_PATH + "/5/commit").param("checksum", "abc"))
+                .andExpect(status().isOk());
+
+        verify(uploadSessionService).commitSession(5L, "abc");
+    }
+
+    @Test
+    void commitSession_ThrowsChecksumMismatchException() throws Exception {
+        doThrow(new ChecksumMismatchException()).when(uploadSessionService).commitSession(anyLong(), any());
+
+        mockMvc.perform(post(API_BASE_PATH + "/5/commit").param("checksum", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ------------------ Abort Session Tests ------------------
+    @Test
+    void abortSession_ShouldReturnOk() throws Exception {
+        mockMvc.perform(delete(API_BASE_PATH + "/5"))
+                .andExpect(status().isOk());
+
+        verify(uploadSessionService).abortSession(5L);
+    }
+}
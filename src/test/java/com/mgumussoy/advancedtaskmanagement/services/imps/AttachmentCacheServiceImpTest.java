@@ -0,0 +1,195 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.CacheEvictionPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttachmentCacheServiceImpTest {
+
+    private static final String MASTER_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    @TempDir
+    Path tempDir;
+
+    private LocalBlobStoreServiceImp blobStoreService;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        blobStoreService = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(false, ""), tempDir.toString());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private AttachmentCacheServiceImp createCache(CacheEvictionPolicy evictionPolicy, long maxBytes) {
+        return createCache(evictionPolicy, maxBytes, Duration.ofMinutes(1));
+    }
+
+    private AttachmentCacheServiceImp createCache(CacheEvictionPolicy evictionPolicy, long maxBytes, Duration fileTtl) {
+        return new AttachmentCacheServiceImp(blobStoreService, meterRegistry, evictionPolicy, DataSize.ofBytes(maxBytes),
+                DataSize.ofBytes(10), 100, 2, fileTtl);
+    }
+
+    private String storeBlob(String content) throws IOException {
+        return blobStoreService.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String read(Optional<ByteBuffer> content) {
+        return StandardCharsets.UTF_8.decode(content.orElseThrow()).toString();
+    }
+
+    private double requests(String cache, String result) {
+        return meterRegistry.get("attachments.cache.requests").tag("cache", cache).tag("result", result).counter().count();
+    }
+
+    // ------------------ getFile Tests ------------------
+    @Test
+    void getFile_HitReturnsCopy() {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100);
+        assertTrue(cache.getFile(1L).isEmpty());
+
+        cache.putFile(AttachmentFileDTO.builder().id(1L).fileName("test.txt").build());
+        cache.getFile(1L).orElseThrow().setFileName("changed.txt");
+
+        assertEquals("test.txt", cache.getFile(1L).orElseThrow().getFileName());
+        assertEquals(2, requests("file", "hit"));
+        assertEquals(1, requests("file", "miss"));
+    }
+
+    @Test
+    void getFile_ExpiresAfterTtl() throws InterruptedException {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100, Duration.ofMillis(20));
+        cache.putFile(AttachmentFileDTO.builder().id(1L).fileName("test.txt").build());
+        assertTrue(cache.getFile(1L).isPresent());
+
+        Thread.sleep(40);
+
+        assertTrue(cache.getFile(1L).isEmpty());
+        assertEquals(1, requests("file", "miss"));
+    }
+
+    @Test
+    void putFile_ZeroTtlDisablesFileCache() {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100, Duration.ZERO);
+        cache.putFile(AttachmentFileDTO.builder().id(1L).build());
+
+        assertTrue(cache.getFile(1L).isEmpty());
+    }
+
+    @Test
+    void evictFile_successful() {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100);
+        cache.putFile(AttachmentFileDTO.builder().id(1L).build());
+
+        cache.evictFile(1L);
+
+        assertTrue(cache.getFile(1L).isEmpty());
+    }
+
+    // ------------------ getContent Tests ------------------
+    @Test
+    void getContent_MappedAfterAdmissionHits() throws IOException {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100);
+        String key = storeBlob("hello");
+
+        assertTrue(cache.getContent(key, 5).isEmpty());
+        assertEquals("hello", read(cache.getContent(key, 5)));
+        assertEquals("hello", read(cache.getContent(key, 5)));
+
+        assertEquals(5, cache.getMappedBytes());
+        assertEquals(5, meterRegistry.get("attachments.cache.mapped").gauge().value());
+        assertEquals(1, requests("content", "hit"));
+        assertEquals(2, requests("content", "miss"));
+    }
+
+    @Test
+    void getContent_HoldsDecryptedContentOfEncryptedBlob() throws IOException {
+        blobStoreService = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString());
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100);
+        String key = storeBlob("hello");
+
+        assertTrue(cache.getContent(key, 5).isEmpty());
+        assertEquals("hello", read(cache.getContent(key, 5)));
+        assertEquals("hello", read(cache.getContent(key, 5)));
+        assertEquals(5, cache.getMappedBytes());
+    }
+
+    @Test
+    void getContent_SkipsFilesAboveLimit() throws IOException {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100);
+        String key = storeBlob("more than ten bytes");
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cache.getContent(key, 19).isEmpty());
+        }
+        assertEquals(0, cache.getMappedBytes());
+    }
+
+    @Test
+    void getContent_LruEvictsLeastRecentlyUsed() throws IOException {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 10);
+        String first = storeBlob("aaaa");
+        String second = storeBlob("bbbb");
+        String third = storeBlob("cccc");
+        cache.getContent(first, 4);
+        cache.getContent(first, 4);
+        cache.getContent(first, 4);
+        cache.getContent(second, 4);
+        cache.getContent(second, 4);
+
+        cache.getContent(third, 4);
+        cache.getContent(third, 4);
+
+        assertEquals(8, cache.getMappedBytes());
+        assertTrue(cache.getContent(first, 4).isEmpty());
+        assertEquals("bbbb", read(cache.getContent(second, 4)));
+        assertEquals(1, meterRegistry.get("attachments.cache.evictions").counter().count());
+    }
+
+    @Test
+    void getContent_LfuEvictsLeastFrequentlyUsed() throws IOException {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LFU, 10);
+        String first = storeBlob("aaaa");
+        String second = storeBlob("bbbb");
+        String third = storeBlob("cccc");
+        cache.getContent(first, 4);
+        cache.getContent(first, 4);
+        cache.getContent(first, 4);
+        cache.getContent(second, 4);
+        cache.getContent(second, 4);
+
+        cache.getContent(third, 4);
+        cache.getContent(third, 4);
+
+        assertEquals("aaaa", read(cache.getContent(first, 4)));
+        assertTrue(cache.getContent(second, 4).isEmpty());
+    }
+
+    @Test
+    void evictContent_ReleasesMappedBytes() throws IOException {
+        AttachmentCacheServiceImp cache = createCache(CacheEvictionPolicy.LRU, 100);
+        String key = storeBlob("hello");
+        cache.getContent(key, 5);
+        cache.getContent(key, 5);
+
+        cache.evictContent(key);
+
+        assertEquals(0, cache.getMappedBytes());
+        assertTrue(cache.getContent(key, 5).isEmpty());
+    }
+}
@@ -1,32 +1,77 @@
 package com.mgumussoy.advancedtaskmanagement.services.imps;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFilePageDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentVersionDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentBlob;
 import com.mgumussoy.advancedtaskmanagement.entities.AttachmentFile;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentVersion;
 import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
 import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentFileNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentVersionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentFileRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentVersionRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentCacheService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.BlobStoreService;
+import com.mgumussoy.advancedtaskmanagement.services.CompressionService;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class AttachmentFileServiceImpTest {
 
-    @InjectMocks
+    private static final String CONTENT_HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
     private AttachmentFileServiceImp attachmentFileServiceImp;
 
     @Mock
@@ -35,9 +80,70 @@ public class AttachmentFileServiceImpTest {
     @Mock
     private TaskRepository taskRepository;
 
+    @Mock
+    private ProjectRepository projectRepository;
+
+    @Mock
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Mock
+    private BlobStoreService blobStoreService;
+
+    @Mock
+    private CompressionService compressionService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private StorageQuotaService storageQuotaService;
+
+    @Mock
+    private AttachmentCacheService attachmentCacheService;
+
+    @Mock
+    private AttachmentVersionRepository attachmentVersionRepository;
+
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
         MockitoAnnotations.openMocks(this);
+        attachmentFileServiceImp = new AttachmentFileServiceImp(attachmentFileRepository, null, taskRepository, projectRepository,
+                attachmentBlobRepository, blobStoreService, compressionService, transactionTemplate, storageQuotaService,
+                attachmentCacheService, attachmentVersionRepository, new DeltaEncodingServiceImp(), 2, DataSize.ofKilobytes(64),
+                DataSize.ofMegabytes(1), 8, 0.5);
+        when(compressionService.chooseStorageCodec(any(), anyLong(), any())).thenReturn(StorageCodec.IDENTITY);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        attachmentFileServiceImp.shutdown();
+    }
+
+    private static String sha256(String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes()));
+    }
+
+    private static byte[] randomText(long seed, int length) {
+        Random random = new Random(seed);
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return content;
+    }
+
+    // Stored deltas are gzip-encoded; the tests keep them readable by letting the codec pass bytes through.
+    private void passThroughCompression() throws IOException {
+        doAnswer(invocation -> {
+            InputStream inputStream = invocation.getArgument(1);
+            inputStream.transferTo(invocation.getArgument(2));
+            return null;
+        }).when(compressionService).encode(any(), any(InputStream.class), any());
+        when(compressionService.decode(any(), any(InputStream.class))).thenAnswer(invocation -> invocation.getArgument(1));
     }
 
     private TaskEntity createValidTask(Long taskId) {
@@ -55,7 +161,12 @@ public class AttachmentFileServiceImpTest {
         file.setId(fileId);
         file.setFileName("test.txt");
         file.setFileType("text/plain");
-        file.setFileData("dummy content".getBytes());
+        file.setContentHash(CONTENT_HASH);
+        file.setStorageKey(CONTENT_HASH);
+        file.setFileSize(13);
+        file.setStoredSize(13);
+        file.setStorageCodec(StorageCodec.IDENTITY);
+        file.setVersionNumber(1);
         file.setDeleted(false);
         file.setTaskEntity(task);
         return file;
@@ -71,6 +182,7 @@ public class AttachmentFileServiceImpTest {
 
         TaskEntity task = createValidTask(taskId);
         when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("stored-key");
 
         attachmentFileServiceImp.saveFiles(taskId, description, files);
 
@@ -78,20 +190,183 @@ public class AttachmentFileServiceImpTest {
         AttachmentFile savedFile = task.getAttachments().getFirst();
         assertEquals("test.txt", savedFile.getFileName());
         assertEquals("text/plain", savedFile.getFileType());
-        assertEquals("file content", new String(savedFile.getFileData()));
+        assertEquals("stored-key", savedFile.getStorageKey());
+        assertEquals(sha256("file content"), savedFile.getContentHash());
+        assertEquals("file content".length(), savedFile.getFileSize());
+        verify(blobStoreService, times(1)).store(any(InputStream.class));
+        verify(attachmentBlobRepository).save(argThat(blob -> blob.getReferenceCount() == 1 && blob.getStorageKey().equals("stored-key")));
         verify(taskRepository, times(1)).save(task);
     }
 
+    @Test
+    void saveFiles_CompressesWhenCodecChosen() throws Exception {
+        Long taskId = 1L;
+        MockMultipartFile multipartFile = new MockMultipartFile("files", "app.log", "text/plain", "log line\n".repeat(100).getBytes());
+
+        TaskEntity task = createValidTask(taskId);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        when(compressionService.chooseStorageCodec(eq("text/plain"), eq(900L), any())).thenReturn(StorageCodec.GZIP);
+        when(blobStoreService.store(any(BlobStoreService.BlobWriter.class))).thenReturn("compressed-key");
+        when(blobStoreService.getSize("compressed-key")).thenReturn(40L);
+
+        attachmentFileServiceImp.saveFiles(taskId, "desc", List.of(multipartFile));
+
+        AttachmentFile savedFile = task.getAttachments().getFirst();
+        assertEquals(StorageCodec.GZIP, savedFile.getStorageCodec());
+        assertEquals(900, savedFile.getFileSize());
+        assertEquals(40, savedFile.getStoredSize());
+        verify(blobStoreService, never()).store(any(InputStream.class));
+    }
+
+    @Test
+    void saveFiles_ReusesExistingBlob() throws Exception {
+        Long taskId = 1L;
+        MockMultipartFile multipartFile = new MockMultipartFile("files", "copy.txt", "text/plain", "file content".getBytes());
+        AttachmentBlob existingBlob = AttachmentBlob.builder()
+                .contentHash(sha256("file content"))
+                .storageKey("existing-key")
+                .fileSize(12)
+                .storedSize(12)
+                .storageCodec(StorageCodec.IDENTITY)
+                .referenceCount(1)
+                .build();
+
+        TaskEntity task = createValidTask(taskId);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        when(attachmentBlobRepository.existsByContentHash(sha256("file content"))).thenReturn(true);
+        when(attachmentBlobRepository.findWithLockByContentHash(sha256("file content"))).thenReturn(Optional.of(existingBlob));
+
+        attachmentFileServiceImp.saveFiles(taskId, "desc", List.of(multipartFile));
+
+        assertEquals("existing-key", task.getAttachments().getFirst().getStorageKey());
+        assertEquals(2, existingBlob.getReferenceCount());
+        verify(blobStoreService, never()).store(any(InputStream.class));
+        verify(blobStoreService, never()).store(any(BlobStoreService.BlobWriter.class));
+    }
+
+    @Test
+    void saveFiles_StagesFilesInParallelAndKeepsOrder() throws Exception {
+        Long taskId = 1L;
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            files.add(new MockMultipartFile("files", "file-" + i + ".txt", "text/plain", ("content " + i).getBytes()));
+        }
+
+        TaskEntity task = createValidTask(taskId);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        when(blobStoreService.store(any(InputStream.class))).thenAnswer(invocation -> {
+            InputStream inputStream = invocation.getArgument(0);
+            return "key-" + new String(inputStream.readAllBytes());
+        });
+
+        attachmentFileServiceImp.saveFiles(taskId, "desc", files);
+
+        assertEquals(6, task.getAttachments().size());
+        for (int i = 0; i < 6; i++) {
+            AttachmentFile savedFile = task.getAttachments().get(i);
+            assertEquals("file-" + i + ".txt", savedFile.getFileName());
+            assertEquals("key-content " + i, savedFile.getStorageKey());
+            assertEquals(sha256("content " + i), savedFile.getContentHash());
+        }
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void saveFiles_DiscardsStagedBlobsWhenTransactionFails() throws Exception {
+        Long taskId = 1L;
+        MockMultipartFile multipartFile = new MockMultipartFile("files", "test.txt", "text/plain", "file content".getBytes());
+
+        when(taskRepository.findById(taskId)).thenReturn(Optional.empty());
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("stored-key");
+
+        assertThrows(TaskNotFoundException.class, () -> attachmentFileServiceImp.saveFiles(taskId, "desc", List.of(multipartFile)));
+
+        verify(blobStoreService).delete("stored-key");
+    }
+
+    @Test
+    void saveFiles_WritesBlobReleasedAfterStaging() throws Exception {
+        Long taskId = 1L;
+        MockMultipartFile multipartFile = new MockMultipartFile("files", "test.txt", "text/plain", "file content".getBytes());
+
+        TaskEntity task = createValidTask(taskId);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        when(attachmentBlobRepository.existsByContentHash(sha256("file content"))).thenReturn(true);
+        when(attachmentBlobRepository.findWithLockByContentHash(sha256("file content"))).thenReturn(Optional.empty());
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("stored-key");
+
+        attachmentFileServiceImp.saveFiles(taskId, "desc", List.of(multipartFile));
+
+        assertEquals("stored-key", task.getAttachments().getFirst().getStorageKey());
+        verify(blobStoreService, times(1)).store(any(InputStream.class));
+        verify(attachmentBlobRepository).save(argThat(blob -> blob.getReferenceCount() == 1));
+    }
+
+    @Test
+    void saveFiles_RevivesReleasedBlob() throws Exception {
+        Long taskId = 1L;
+        MockMultipartFile multipartFile = new MockMultipartFile("files", "again.txt", "text/plain", "file content".getBytes());
+        AttachmentBlob releasedBlob = AttachmentBlob.builder()
+                .contentHash(sha256("file content"))
+                .storageKey("released-key")
+                .storageCodec(StorageCodec.IDENTITY)
+                .referenceCount(0)
+                .releasedDate(new Date())
+                .build();
+
+        TaskEntity task = createValidTask(taskId);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        when(attachmentBlobRepository.existsByContentHash(sha256("file content"))).thenReturn(true);
+        when(attachmentBlobRepository.findWithLockByContentHash(sha256("file content"))).thenReturn(Optional.of(releasedBlob));
+
+        attachmentFileServiceImp.saveFiles(taskId, "desc", List.of(multipartFile));
+
+        assertEquals(1, releasedBlob.getReferenceCount());
+        assertNull(releasedBlob.getReleasedDate());
+        assertEquals("released-key", task.getAttachments().getFirst().getStorageKey());
+    }
+
+    @Test
+    void saveFiles_RecordsUsageInTransaction() throws Exception {
+        Long taskId = 1L;
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "a.txt", "text/plain", "12345".getBytes()),
+                new MockMultipartFile("files", "b.txt", "text/plain", "1234567".getBytes()));
+
+        TaskEntity task = createValidTask(taskId);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("stored-key");
+
+        attachmentFileServiceImp.saveFiles(taskId, "desc", files);
+
+        verify(storageQuotaService).checkQuota(taskId, 12, 2);
+        verify(storageQuotaService).recordUsage(task, 12, 2);
+    }
+
+    @Test
+    void saveFiles_QuotaExceeded() throws Exception {
+        Long taskId = 1L;
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getSize()).thenReturn(1024L);
+        doThrow(new StorageQuotaExceededException()).when(storageQuotaService).checkQuota(taskId, 1024, 1);
+
+        assertThrows(StorageQuotaExceededException.class, () -> attachmentFileServiceImp.saveFiles(taskId, "desc", List.of(file)));
+
+        verify(file, never()).getInputStream();
+        verifyNoInteractions(blobStoreService, transactionTemplate);
+    }
+
     @Test
     void saveFiles_TaskNotFound() {
         Long taskId = 1L;
         String description = "File description";
         List<MultipartFile> files = new ArrayList<>();
-        when(taskRepository.findById(taskId)).thenReturn(Optional.empty());
+        doThrow(new TaskNotFoundException()).when(storageQuotaService).checkQuota(taskId, 0, 0);
 
         assertThrows(TaskNotFoundException.class, () -> {
             attachmentFileServiceImp.saveFiles(taskId, description, files);
         });
+        verifyNoInteractions(blobStoreService, transactionTemplate);
     }
 
     @Test
@@ -101,17 +376,54 @@ public class AttachmentFileServiceImpTest {
         MultipartFile file = mock(MultipartFile.class);
         when(file.getOriginalFilename()).thenReturn("error.txt");
         when(file.getContentType()).thenReturn("text/plain");
-        when(file.getBytes()).thenThrow(new IOException("IO error"));
+        when(file.getInputStream()).thenThrow(new IOException("IO error"));
         List<MultipartFile> files = List.of(file);
 
-        TaskEntity task = createValidTask(taskId);
-        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
 
         assertThrows(IOException.class, () -> {
             attachmentFileServiceImp.saveFiles(taskId, description, files);
         });
 
         verify(taskRepository, never()).save(any());
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    // ------------------ saveStagedFile Tests ------------------
+    @Test
+    void saveStagedFile_successful() throws Exception {
+        Long taskId = 1L;
+        MockMultipartFile multipartFile = new MockMultipartFile("files", "test.txt", "text/plain", "file content".getBytes());
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("stored-key");
+
+        TaskEntity task = createValidTask(taskId);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.of(task));
+
+        AttachmentFileService.StagedBlob stagedBlob = attachmentFileServiceImp.writeStagedBlob(sha256("file content"),
+                "text/plain", 12, multipartFile);
+        AttachmentFileDTO savedFile = attachmentFileServiceImp.saveStagedFile(taskId, "desc", "test.txt", "text/plain",
+                stagedBlob, multipartFile);
+
+        assertEquals("stored-key", stagedBlob.storageKey());
+        assertEquals("test.txt", savedFile.getFileName());
+        assertEquals("stored-key", savedFile.getStorageKey());
+        assertEquals(1, task.getAttachments().size());
+        verify(storageQuotaService).recordUsage(task, 12, 1);
+        verify(attachmentBlobRepository).save(argThat(blob -> blob.getStorageKey().equals("stored-key")));
+        verify(attachmentFileRepository).save(any(AttachmentFile.class));
+    }
+
+    @Test
+    void saveStagedFile_DiscardsStagedBlobWhenTransactionFails() throws Exception {
+        Long taskId = 1L;
+        AttachmentFileService.StagedBlob stagedBlob = new AttachmentFileService.StagedBlob(CONTENT_HASH, 13, "stored-key",
+                StorageCodec.IDENTITY, 13);
+        when(taskRepository.findById(taskId)).thenReturn(Optional.empty());
+
+        assertThrows(TaskNotFoundException.class, () -> attachmentFileServiceImp.saveStagedFile(taskId, "desc", "test.txt",
+                "text/plain", stagedBlob, mock(InputStreamSource.class)));
+
+        verify(blobStoreService).delete("stored-key");
+        verify(attachmentFileRepository, never()).save(any());
     }
 
     // ------------------ deleteFile Tests ------------------
@@ -131,6 +443,57 @@ public class AttachmentFileServiceImpTest {
         assertTrue(captor.getValue().isDeleted());
 
         assertFalse(task.getAttachments().contains(file));
+        verify(storageQuotaService).recordUsage(task, -13, -1);
+        verify(attachmentCacheService).evictFile(fileId);
+    }
+
+    @Test
+    void deleteFile_ReleasesLastReference() throws Exception {
+        Long fileId = 1L;
+        AttachmentFile file = createValidAttachmentFile(fileId, createValidTask(10L));
+        AttachmentBlob blob = AttachmentBlob.builder().contentHash(CONTENT_HASH).storageKey(CONTENT_HASH).referenceCount(1).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(attachmentBlobRepository.findWithLockByContentHash(CONTENT_HASH)).thenReturn(Optional.of(blob));
+
+        attachmentFileServiceImp.deleteFile(fileId);
+
+        assertEquals(0, blob.getReferenceCount());
+        assertNotNull(blob.getReleasedDate());
+        verify(attachmentBlobRepository).save(blob);
+        verify(attachmentBlobRepository, never()).delete(any());
+        verify(blobStoreService, never()).delete(any());
+    }
+
+    @Test
+    void deleteFile_KeepsSharedBlob() throws Exception {
+        Long fileId = 1L;
+        AttachmentFile file = createValidAttachmentFile(fileId, createValidTask(10L));
+        AttachmentBlob blob = AttachmentBlob.builder().contentHash(CONTENT_HASH).storageKey(CONTENT_HASH).referenceCount(2).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(attachmentBlobRepository.findWithLockByContentHash(CONTENT_HASH)).thenReturn(Optional.of(blob));
+
+        attachmentFileServiceImp.deleteFile(fileId);
+
+        assertEquals(1, blob.getReferenceCount());
+        verify(attachmentBlobRepository, never()).delete(any());
+        verify(blobStoreService, never()).delete(any());
+    }
+
+    @Test
+    void deleteFile_ReleasesVersionBlobs() throws Exception {
+        Long fileId = 1L;
+        AttachmentFile file = createValidAttachmentFile(fileId, createValidTask(10L));
+        AttachmentVersion version = AttachmentVersion.builder().attachmentFile(file).versionNumber(1).contentHash("old-hash").build();
+        AttachmentBlob oldBlob = AttachmentBlob.builder().contentHash("old-hash").referenceCount(1).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(attachmentVersionRepository.findByAttachmentFileIdAndDeletedFalseOrderByVersionNumber(fileId)).thenReturn(List.of(version));
+        when(attachmentBlobRepository.findWithLockByContentHash("old-hash")).thenReturn(Optional.of(oldBlob));
+
+        attachmentFileServiceImp.deleteFile(fileId);
+
+        assertEquals(0, oldBlob.getReferenceCount());
+        assertNotNull(oldBlob.getReleasedDate());
+        verify(attachmentVersionRepository).deleteAll(List.of(version));
     }
 
     @Test
@@ -154,6 +517,43 @@ public class AttachmentFileServiceImpTest {
         });
     }
 
+    // ------------------ getFilesOfTask Tests ------------------
+    @Test
+    void getFilesOfTask_successful() {
+        List<AttachmentFileDTO> attachments = List.of(AttachmentFileDTO.builder().id(1L).fileName("test.txt").build());
+        when(taskRepository.existsByIdAndDeletedFalse(10L)).thenReturn(true);
+        when(attachmentFileRepository.findMetadataByTaskId(eq(10L), any(Pageable.class))).thenReturn(new SliceImpl<>(attachments));
+
+        AttachmentFilePageDTO result = attachmentFileServiceImp.getFilesOfTask(10L, -1, 1000);
+
+        assertEquals(attachments, result.getFiles());
+        assertFalse(result.isHasNext());
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(attachmentFileRepository).findMetadataByTaskId(eq(10L), captor.capture());
+        assertEquals(0, captor.getValue().getPageNumber());
+        assertEquals(100, captor.getValue().getPageSize());
+        verifyNoInteractions(blobStoreService);
+    }
+
+    @Test
+    void getFilesOfTask_MorePages() {
+        List<AttachmentFileDTO> attachments = List.of(AttachmentFileDTO.builder().id(1L).fileName("test.txt").build());
+        when(taskRepository.existsByIdAndDeletedFalse(10L)).thenReturn(true);
+        when(attachmentFileRepository.findMetadataByTaskId(eq(10L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(attachments, Pageable.ofSize(1), true));
+
+        AttachmentFilePageDTO result = attachmentFileServiceImp.getFilesOfTask(10L, 0, 1);
+
+        assertEquals(attachments, result.getFiles());
+        assertTrue(result.isHasNext());
+    }
+
+    @Test
+    void getFilesOfTask_TaskNotFound() {
+        when(taskRepository.existsByIdAndDeletedFalse(10L)).thenReturn(false);
+        assertThrows(TaskNotFoundException.class, () -> attachmentFileServiceImp.getFilesOfTask(10L, 0, 20));
+    }
+
     // ------------------ getFile Tests ------------------
     @Test
     void getFile_successful() throws Exception {
@@ -162,9 +562,52 @@ public class AttachmentFileServiceImpTest {
         AttachmentFile file = createValidAttachmentFile(fileId, task);
         when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
 
-        byte[] data = attachmentFileServiceImp.getFile(fileId);
-        assertNotNull(data);
-        assertEquals("dummy content", new String(data));
+        AttachmentFileDTO fileDTO = attachmentFileServiceImp.getFile(fileId);
+
+        assertEquals(fileId, fileDTO.getId());
+        assertEquals("test.txt", fileDTO.getFileName());
+        assertEquals("text/plain", fileDTO.getFileType());
+        assertEquals(13, fileDTO.getFileSize());
+        assertEquals(10L, fileDTO.getTaskId());
+        verifyNoInteractions(blobStoreService);
+        verify(attachmentCacheService).putFile(fileDTO);
+    }
+
+    @Test
+    void getFile_ServedFromCache() throws Exception {
+        AttachmentFileDTO cachedFile = AttachmentFileDTO.builder().id(1L).fileName("test.txt").build();
+        when(attachmentCacheService.getFile(1L)).thenReturn(Optional.of(cachedFile));
+
+        AttachmentFileDTO fileDTO = attachmentFileServiceImp.getFile(1L);
+
+        assertSame(cachedFile, fileDTO);
+        verifyNoInteractions(attachmentFileRepository);
+        verify(attachmentCacheService, never()).putFile(any());
+    }
+
+    @Test
+    void transferFile_ServedFromCachedContent() throws Exception {
+        AttachmentFileDTO fileDTO = AttachmentFileDTO.builder().storageKey("key").fileSize(13).storedSize(13)
+                .storageCodec(StorageCodec.IDENTITY).build();
+        when(attachmentCacheService.getContent("key", 13)).thenReturn(Optional.of(ByteBuffer.wrap("dummy content".getBytes())));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.transferFile(fileDTO, 6, 7, Channels.newChannel(outputStream));
+
+        assertEquals("content", outputStream.toString());
+        verifyNoInteractions(blobStoreService);
+    }
+
+    @Test
+    void transferFile_successful(@TempDir Path tempDir) throws Exception {
+        Path blob = Files.write(tempDir.resolve("blob"), "dummy content".getBytes());
+        AttachmentFileDTO fileDTO = AttachmentFileDTO.builder().storageKey("key").fileSize(13).storageCodec(StorageCodec.IDENTITY).build();
+        when(blobStoreService.openChannel("key")).thenAnswer(invocation -> FileChannel.open(blob, StandardOpenOption.READ));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.transferFile(fileDTO, 6, 7, Channels.newChannel(outputStream));
+
+        assertEquals("content", outputStream.toString());
     }
 
     @Test
@@ -176,6 +619,248 @@ public class AttachmentFileServiceImpTest {
         });
     }
 
+    @Test
+    void transferFile_DecompressesStoredBlob() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write("dummy content".getBytes());
+        }
+        AttachmentFileDTO fileDTO = AttachmentFileDTO.builder().storageKey("key").fileSize(13).storageCodec(StorageCodec.GZIP).build();
+        when(blobStoreService.openStream("key")).thenReturn(new ByteArrayInputStream(compressed.toByteArray()));
+        when(compressionService.decode(eq(StorageCodec.GZIP), any(InputStream.class)))
+                .thenAnswer(invocation -> new GZIPInputStream(invocation.getArgument(1)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.transferFile(fileDTO, 6, 7, Channels.newChannel(outputStream));
+
+        assertEquals("content", outputStream.toString());
+        verify(blobStoreService, never()).openChannel(any());
+    }
+
+    private FileChannel openChannel(Path directory, byte[] content) throws IOException {
+        return FileChannel.open(Files.write(Files.createTempFile(directory, "blob", ".bin"), content), StandardOpenOption.READ);
+    }
+
+    @Test
+    void transferFile_ReconstructsDeltaChain(@TempDir Path tempDir) throws Exception {
+        byte[] base = randomText(1, 4096);
+        byte[] middle = (new String(base, 0, 1000) + "first edit" + new String(base, 1000, 3096)).getBytes();
+        byte[] latest = (new String(middle, 0, 3000) + "second edit" + new String(middle, 3000, middle.length - 3000)).getBytes();
+        DeltaEncodingServiceImp deltaEncodingService = new DeltaEncodingServiceImp();
+        passThroughCompression();
+        when(attachmentBlobRepository.findByContentHash("base")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("base").storageKey("base-key").storageCodec(StorageCodec.IDENTITY).build()));
+        when(attachmentBlobRepository.findByContentHash("middle")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("middle").storageKey("middle-key").storageCodec(StorageCodec.DELTA).baseContentHash("base").deltaDepth(1).build()));
+        when(attachmentBlobRepository.findByContentHash("latest")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("latest").storageKey("latest-key").storageCodec(StorageCodec.DELTA).baseContentHash("middle").deltaDepth(2).build()));
+        when(blobStoreService.openStream("base-key")).thenReturn(new ByteArrayInputStream(base));
+        when(blobStoreService.openStream("middle-key")).thenReturn(new ByteArrayInputStream(deltaEncodingService.encode(base, middle)));
+        when(blobStoreService.openStream("latest-key")).thenReturn(new ByteArrayInputStream(deltaEncodingService.encode(middle, latest)));
+        AttachmentBlob latestBlob = AttachmentBlob.builder().contentHash("latest").storageKey("latest-key").storageCodec(StorageCodec.DELTA)
+                .baseContentHash("middle").deltaDepth(2).build();
+        when(attachmentBlobRepository.findByContentHash("latest")).thenReturn(Optional.of(latestBlob));
+        when(attachmentBlobRepository.findWithLockByContentHash("latest")).thenReturn(Optional.of(latestBlob));
+        ByteArrayOutputStream rebuilt = new ByteArrayOutputStream();
+        when(blobStoreService.store(any(InputStream.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).transferTo(rebuilt);
+            return "rebuilt-key";
+        });
+        when(blobStoreService.openChannel("rebuilt-key")).thenAnswer(invocation -> openChannel(tempDir, rebuilt.toByteArray()));
+        AttachmentFileDTO fileDTO = AttachmentFileDTO.builder().contentHash("latest").storageKey("latest-key")
+                .fileSize(latest.length).storageCodec(StorageCodec.DELTA).build();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.transferFile(fileDTO, 2990, 40, Channels.newChannel(outputStream));
+
+        assertEquals(new String(latest, 2990, 40), outputStream.toString());
+        assertArrayEquals(latest, rebuilt.toByteArray());
+        assertEquals("rebuilt-key", latestBlob.getMaterializedStorageKey());
+        assertNotNull(latestBlob.getMaterializedDate());
+    }
+
+    @Test
+    void transferFile_ReadsRebuiltDeltaCopy(@TempDir Path tempDir) throws Exception {
+        when(attachmentBlobRepository.findByContentHash("latest")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("latest").storageCodec(StorageCodec.DELTA).baseContentHash("base").materializedStorageKey("rebuilt-key").build()));
+        when(blobStoreService.openChannel("rebuilt-key")).thenReturn(openChannel(tempDir, "full content".getBytes()));
+        AttachmentFileDTO fileDTO = AttachmentFileDTO.builder().contentHash("latest").fileSize(12).storageCodec(StorageCodec.DELTA).build();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.transferFile(fileDTO, 5, 7, Channels.newChannel(outputStream));
+
+        assertEquals("content", outputStream.toString());
+        verify(blobStoreService, never()).openStream(any());
+        verify(blobStoreService, never()).store(any(InputStream.class));
+    }
+
+    @Test
+    void transferFile_DropsOwnCopyWhenDeltaWasRebuiltConcurrently(@TempDir Path tempDir) throws Exception {
+        byte[] base = "base content".getBytes();
+        passThroughCompression();
+        when(attachmentBlobRepository.findByContentHash("base")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("base").storageKey("base-key").storageCodec(StorageCodec.IDENTITY).build()));
+        when(attachmentBlobRepository.findByContentHash("latest")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("latest").storageKey("latest-key").storageCodec(StorageCodec.DELTA).baseContentHash("base").deltaDepth(1).build()));
+        when(attachmentBlobRepository.findWithLockByContentHash("latest")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("latest").storageCodec(StorageCodec.DELTA).materializedStorageKey("other-key").build()));
+        when(blobStoreService.openStream("base-key")).thenReturn(new ByteArrayInputStream(base));
+        when(blobStoreService.openStream("latest-key")).thenReturn(new ByteArrayInputStream(new DeltaEncodingServiceImp().encode(base, base)));
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("own-key");
+        when(blobStoreService.openChannel("other-key")).thenReturn(openChannel(tempDir, base));
+        AttachmentFileDTO fileDTO = AttachmentFileDTO.builder().contentHash("latest").fileSize(base.length).storageCodec(StorageCodec.DELTA).build();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.transferFile(fileDTO, 0, base.length, Channels.newChannel(outputStream));
+
+        assertEquals("base content", outputStream.toString());
+        verify(blobStoreService).delete("own-key");
+    }
+
+    @Test
+    void transferFile_MissingDeltaBase() {
+        when(attachmentBlobRepository.findByContentHash("latest")).thenReturn(Optional.of(AttachmentBlob.builder()
+                .contentHash("latest").storageCodec(StorageCodec.DELTA).baseContentHash("base").build()));
+        AttachmentFileDTO fileDTO = AttachmentFileDTO.builder().contentHash("latest").fileSize(10).storageCodec(StorageCodec.DELTA).build();
+
+        assertThrows(IOException.class, () -> attachmentFileServiceImp.transferFile(fileDTO, 0, 10, Channels.newChannel(new ByteArrayOutputStream())));
+    }
+
+    // ------------------ Version Tests ------------------
+    @Test
+    void getFileVersions_ListsCurrentVersionLast() {
+        Long fileId = 1L;
+        AttachmentFile file = createValidAttachmentFile(fileId, createValidTask(10L));
+        file.setVersionNumber(2);
+        AttachmentVersion version = AttachmentVersion.builder().attachmentFile(file).versionNumber(1).fileName("old.txt")
+                .contentHash("old-hash").fileSize(5).uploadedBy("alice").build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(attachmentVersionRepository.findByAttachmentFileIdAndDeletedFalseOrderByVersionNumber(fileId)).thenReturn(List.of(version));
+
+        List<AttachmentVersionDTO> versions = attachmentFileServiceImp.getFileVersions(fileId);
+
+        assertEquals(2, versions.size());
+        assertEquals(1, versions.get(0).getVersionNumber());
+        assertEquals("old.txt", versions.get(0).getFileName());
+        assertFalse(versions.get(0).isCurrent());
+        assertEquals(2, versions.get(1).getVersionNumber());
+        assertEquals(CONTENT_HASH, versions.get(1).getContentHash());
+        assertTrue(versions.get(1).isCurrent());
+    }
+
+    @Test
+    void getFileVersion_ReturnsHistoricalVersion() {
+        Long fileId = 1L;
+        AttachmentFile file = createValidAttachmentFile(fileId, createValidTask(10L));
+        file.setVersionNumber(3);
+        Date uploadedDate = new Date(1_700_000_000_000L);
+        AttachmentVersion version = AttachmentVersion.builder().attachmentFile(file).versionNumber(2).fileName("old.txt")
+                .fileType("text/plain").contentHash("old-hash").storageKey("old-key").fileSize(5).storedSize(40)
+                .storageCodec(StorageCodec.DELTA).uploadedDate(uploadedDate).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(attachmentVersionRepository.findByAttachmentFileIdAndVersionNumberAndDeletedFalse(fileId, 2)).thenReturn(Optional.of(version));
+
+        AttachmentFileDTO fileDTO = attachmentFileServiceImp.getFileVersion(fileId, 2);
+
+        assertEquals(fileId, fileDTO.getId());
+        assertEquals(2, fileDTO.getVersionNumber());
+        assertEquals("old.txt", fileDTO.getFileName());
+        assertEquals("old-hash", fileDTO.getContentHash());
+        assertEquals(StorageCodec.DELTA, fileDTO.getStorageCodec());
+        assertEquals(10L, fileDTO.getTaskId());
+        assertEquals(uploadedDate, fileDTO.getUpdateDate());
+    }
+
+    @Test
+    void getFileVersion_CurrentVersion() {
+        Long fileId = 1L;
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(createValidAttachmentFile(fileId, createValidTask(10L))));
+
+        AttachmentFileDTO fileDTO = attachmentFileServiceImp.getFileVersion(fileId, 1);
+
+        assertEquals(CONTENT_HASH, fileDTO.getContentHash());
+        verifyNoInteractions(attachmentVersionRepository);
+    }
+
+    @Test
+    void getFileVersion_VersionNotFound() {
+        Long fileId = 1L;
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(createValidAttachmentFile(fileId, createValidTask(10L))));
+        when(attachmentVersionRepository.findByAttachmentFileIdAndVersionNumberAndDeletedFalse(fileId, 7)).thenReturn(Optional.empty());
+
+        assertThrows(AttachmentVersionNotFoundException.class, () -> attachmentFileServiceImp.getFileVersion(fileId, 7));
+    }
+
+    // ------------------ Archive Tests ------------------
+    @Test
+    void getTaskArchive_WritesEntryPerAttachment(@TempDir Path tempDir) throws Exception {
+        Path firstBlob = Files.write(tempDir.resolve("first"), "first content".getBytes());
+        Path secondBlob = Files.write(tempDir.resolve("second"), "second content".getBytes());
+        List<AttachmentFileDTO> firstBatch = List.of(
+                AttachmentFileDTO.builder().id(1L).taskId(10L).fileName("report.txt").storageKey("first").fileSize(13).storageCodec(StorageCodec.IDENTITY).build(),
+                AttachmentFileDTO.builder().id(2L).taskId(10L).fileName("../report.txt").storageKey("second").fileSize(14).storageCodec(StorageCodec.IDENTITY).build());
+        when(taskRepository.existsByIdAndDeletedFalse(10L)).thenReturn(true);
+        when(attachmentFileRepository.findMetadataByTaskIdAfter(eq(10L), eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(firstBatch, Pageable.ofSize(2), true));
+        when(attachmentFileRepository.findMetadataByTaskIdAfter(eq(10L), eq(2L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of()));
+        when(blobStoreService.openChannel("first")).thenAnswer(invocation -> FileChannel.open(firstBlob, StandardOpenOption.READ));
+        when(blobStoreService.openChannel("second")).thenAnswer(invocation -> FileChannel.open(secondBlob, StandardOpenOption.READ));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.getTaskArchive(10L).writeTo(outputStream);
+
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry entry = zipInputStream.getNextEntry();
+            assertEquals("report.txt", entry.getName());
+            assertEquals("first content", new String(zipInputStream.readAllBytes()));
+            entry = zipInputStream.getNextEntry();
+            assertEquals("report (2).txt", entry.getName());
+            assertEquals("second content", new String(zipInputStream.readAllBytes()));
+            assertNull(zipInputStream.getNextEntry());
+        }
+    }
+
+    @Test
+    void getTaskArchive_TaskNotFound() {
+        when(taskRepository.existsByIdAndDeletedFalse(10L)).thenReturn(false);
+        assertThrows(TaskNotFoundException.class, () -> attachmentFileServiceImp.getTaskArchive(10L));
+        verifyNoInteractions(attachmentFileRepository);
+    }
+
+    @Test
+    void getProjectArchive_GroupsEntriesByTask() throws Exception {
+        List<AttachmentFileDTO> batch = List.of(
+                AttachmentFileDTO.builder().id(5L).taskId(10L).fileName("log.txt").storageKey("key").fileSize(13).storageCodec(StorageCodec.GZIP).build(),
+                AttachmentFileDTO.builder().id(6L).taskId(11L).fileName("log.txt").storageKey("key").fileSize(13).storageCodec(StorageCodec.GZIP).build());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write("dummy content".getBytes());
+        }
+        when(projectRepository.existsByIdAndDeletedFalse(3L)).thenReturn(true);
+        when(attachmentFileRepository.findMetadataByProjectIdAfter(eq(3L), eq(0L), any(Pageable.class))).thenReturn(new SliceImpl<>(batch));
+        when(blobStoreService.openStream("key")).thenAnswer(invocation -> new ByteArrayInputStream(compressed.toByteArray()));
+        when(compressionService.decode(eq(StorageCodec.GZIP), any(InputStream.class)))
+                .thenAnswer(invocation -> new GZIPInputStream(invocation.getArgument(1)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        attachmentFileServiceImp.getProjectArchive(3L).writeTo(outputStream);
+
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            assertEquals("task-10/log.txt", zipInputStream.getNextEntry().getName());
+            assertEquals("dummy content", new String(zipInputStream.readAllBytes()));
+            assertEquals("task-11/log.txt", zipInputStream.getNextEntry().getName());
+            assertEquals("dummy content", new String(zipInputStream.readAllBytes()));
+            assertNull(zipInputStream.getNextEntry());
+        }
+    }
+
+    @Test
+    void getProjectArchive_ProjectNotFound() {
+        when(projectRepository.existsByIdAndDeletedFalse(3L)).thenReturn(false);
+        assertThrows(ProjectNotFoundException.class, () -> attachmentFileServiceImp.getProjectArchive(3L));
+    }
+
     // ------------------ updateFile Tests ------------------
     @Test
     void updateFile_successful() throws Exception {
@@ -191,15 +876,157 @@ public class AttachmentFileServiceImpTest {
 
         TaskEntity newTask = createValidTask(newTaskId);
         when(taskRepository.findById(newTaskId)).thenReturn(Optional.of(newTask));
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("new-key");
 
         attachmentFileServiceImp.updateFile(fileId, newTaskId, newDescription, multipartFile);
 
         assertFalse(oldTask.getAttachments().contains(file));
         assertTrue(newTask.getAttachments().contains(file));
+        assertSame(newTask, file.getTaskEntity());
+        verify(attachmentCacheService).evictFile(fileId);
         assertEquals(newDescription, file.getDescription());
         assertEquals("update.txt", file.getFileName());
         assertEquals("text/plain", file.getFileType());
-        assertEquals("new content", new String(file.getFileData()));
+        assertEquals("new-key", file.getStorageKey());
+        assertEquals(sha256("new content"), file.getContentHash());
+        assertEquals("new content".length(), file.getFileSize());
+        verify(storageQuotaService).replaceUsage(oldTask, 13, newTask, 11);
+        assertEquals(2, file.getVersionNumber());
+    }
+
+    @Test
+    void updateFile_KeepsPreviousVersion() throws Exception {
+        Long fileId = 1L;
+        TaskEntity task = createValidTask(10L);
+        AttachmentFile file = createValidAttachmentFile(fileId, task);
+        task.getAttachments().add(file);
+        AttachmentBlob oldBlob = AttachmentBlob.builder().contentHash(CONTENT_HASH).storageKey(CONTENT_HASH).referenceCount(1)
+                .storageCodec(StorageCodec.IDENTITY).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(taskRepository.findById(10L)).thenReturn(Optional.of(task));
+        when(attachmentBlobRepository.findWithLockByContentHash(CONTENT_HASH)).thenReturn(Optional.of(oldBlob));
+        when(blobStoreService.openStream(CONTENT_HASH)).thenReturn(new ByteArrayInputStream("dummy content".getBytes()));
+        passThroughCompression();
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("new-key");
+
+        attachmentFileServiceImp.updateFile(fileId, 10L, "desc",
+                new MockMultipartFile("file", "update.txt", "text/plain", "new content".getBytes()));
+
+        ArgumentCaptor<AttachmentVersion> captor = ArgumentCaptor.forClass(AttachmentVersion.class);
+        verify(attachmentVersionRepository).save(captor.capture());
+        assertEquals(1, captor.getValue().getVersionNumber());
+        assertEquals(CONTENT_HASH, captor.getValue().getContentHash());
+        assertEquals("test.txt", captor.getValue().getFileName());
+        assertSame(file, captor.getValue().getAttachmentFile());
+        assertEquals(1, oldBlob.getReferenceCount());
+        assertNull(oldBlob.getReleasedDate());
+    }
+
+    @Test
+    void updateFile_StoresDeltaAgainstPreviousVersion() throws Exception {
+        Long fileId = 1L;
+        byte[] base = randomText(1, 8192);
+        byte[] edited = (new String(base, 0, 4000) + "a small edit" + new String(base, 4100, 4092)).getBytes();
+        TaskEntity task = createValidTask(10L);
+        AttachmentFile file = createValidAttachmentFile(fileId, task);
+        file.setFileSize(base.length);
+        task.getAttachments().add(file);
+        AttachmentBlob baseBlob = AttachmentBlob.builder().contentHash(CONTENT_HASH).storageKey("base-key").fileSize(base.length)
+                .storageCodec(StorageCodec.IDENTITY).referenceCount(1).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(taskRepository.findById(10L)).thenReturn(Optional.of(task));
+        when(attachmentBlobRepository.findWithLockByContentHash(CONTENT_HASH)).thenReturn(Optional.of(baseBlob));
+        when(attachmentBlobRepository.findByContentHash(CONTENT_HASH)).thenReturn(Optional.of(baseBlob));
+        when(attachmentBlobRepository.retainByContentHash(CONTENT_HASH)).thenReturn(1);
+        when(blobStoreService.openStream("base-key")).thenReturn(new ByteArrayInputStream(base));
+        passThroughCompression();
+        ByteArrayOutputStream storedDelta = new ByteArrayOutputStream();
+        when(blobStoreService.store(any(InputStream.class))).thenAnswer(invocation -> {
+            ((InputStream) invocation.getArgument(0)).transferTo(storedDelta);
+            return "delta-key";
+        });
+
+        attachmentFileServiceImp.updateFile(fileId, 10L, "desc", new MockMultipartFile("file", "edited.txt", "text/plain", edited));
+
+        assertEquals(StorageCodec.DELTA, file.getStorageCodec());
+        assertEquals("delta-key", file.getStorageKey());
+        assertEquals(edited.length, file.getFileSize());
+        assertTrue(storedDelta.size() < 200);
+        assertArrayEquals(edited, new DeltaEncodingServiceImp().apply(base, storedDelta.toByteArray()));
+        ArgumentCaptor<AttachmentBlob> captor = ArgumentCaptor.forClass(AttachmentBlob.class);
+        verify(attachmentBlobRepository, atLeastOnce()).save(captor.capture());
+        AttachmentBlob deltaBlob = captor.getAllValues().getLast();
+        assertEquals(CONTENT_HASH, deltaBlob.getBaseContentHash());
+        assertEquals(1, deltaBlob.getDeltaDepth());
+        verify(attachmentBlobRepository).retainByContentHash(CONTENT_HASH);
+        verify(attachmentBlobRepository, never()).findWithLockByContentHash(CONTENT_HASH);
+    }
+
+    @Test
+    void updateFile_StoresFullBlobWhenDeltaDoesNotPayOff() throws Exception {
+        Long fileId = 1L;
+        byte[] base = randomText(1, 8192);
+        TaskEntity task = createValidTask(10L);
+        AttachmentFile file = createValidAttachmentFile(fileId, task);
+        file.setFileSize(base.length);
+        task.getAttachments().add(file);
+        AttachmentBlob baseBlob = AttachmentBlob.builder().contentHash(CONTENT_HASH).storageKey("base-key")
+                .storageCodec(StorageCodec.IDENTITY).referenceCount(1).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(taskRepository.findById(10L)).thenReturn(Optional.of(task));
+        when(attachmentBlobRepository.findWithLockByContentHash(CONTENT_HASH)).thenReturn(Optional.of(baseBlob));
+        when(attachmentBlobRepository.findByContentHash(CONTENT_HASH)).thenReturn(Optional.of(baseBlob));
+        when(blobStoreService.openStream("base-key")).thenReturn(new ByteArrayInputStream(base));
+        passThroughCompression();
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("new-key");
+
+        attachmentFileServiceImp.updateFile(fileId, 10L, "desc",
+                new MockMultipartFile("file", "other.txt", "text/plain", randomText(2, 8192)));
+
+        assertEquals(StorageCodec.IDENTITY, file.getStorageCodec());
+        assertEquals("new-key", file.getStorageKey());
+        assertEquals(1, baseBlob.getReferenceCount());
+    }
+
+    @Test
+    void updateFile_StoresFullBlobWhenDeltaChainIsTooLong() throws Exception {
+        Long fileId = 1L;
+        TaskEntity task = createValidTask(10L);
+        AttachmentFile file = createValidAttachmentFile(fileId, task);
+        task.getAttachments().add(file);
+        AttachmentBlob baseBlob = AttachmentBlob.builder().contentHash(CONTENT_HASH).storageCodec(StorageCodec.DELTA)
+                .deltaDepth(8).referenceCount(1).build();
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        when(taskRepository.findById(10L)).thenReturn(Optional.of(task));
+        when(attachmentBlobRepository.findByContentHash(CONTENT_HASH)).thenReturn(Optional.of(baseBlob));
+        when(blobStoreService.store(any(InputStream.class))).thenReturn("new-key");
+
+        attachmentFileServiceImp.updateFile(fileId, 10L, "desc",
+                new MockMultipartFile("file", "update.txt", "text/plain", "dummy content!".getBytes()));
+
+        assertEquals(StorageCodec.IDENTITY, file.getStorageCodec());
+        verify(blobStoreService, never()).openStream(any());
+    }
+
+    @Test
+    void updateFile_QuotaExceeded() throws Exception {
+        Long fileId = 1L;
+        Long newTaskId = 2L;
+        MultipartFile fileMock = mock(MultipartFile.class);
+        when(fileMock.getSize()).thenReturn(4096L);
+
+        TaskEntity oldTask = createValidTask(10L);
+        AttachmentFile file = createValidAttachmentFile(fileId, oldTask);
+        oldTask.getAttachments().add(file);
+        when(attachmentFileRepository.findById(fileId)).thenReturn(Optional.of(file));
+        TaskEntity newTask = createValidTask(newTaskId);
+        when(taskRepository.findById(newTaskId)).thenReturn(Optional.of(newTask));
+        doThrow(new StorageQuotaExceededException()).when(storageQuotaService).replaceUsage(eq(oldTask), anyLong(), eq(newTask), eq(4096L));
+
+        assertThrows(StorageQuotaExceededException.class, () -> attachmentFileServiceImp.updateFile(fileId, newTaskId, "desc", fileMock));
+
+        verify(fileMock, never()).getInputStream();
+        verifyNoInteractions(blobStoreService);
     }
 
     @Test
@@ -210,7 +1037,7 @@ public class AttachmentFileServiceImpTest {
         MultipartFile fileMock = mock(MultipartFile.class);
         when(fileMock.getOriginalFilename()).thenReturn("update.txt");
         when(fileMock.getContentType()).thenReturn("text/plain");
-        when(fileMock.getBytes()).thenThrow(new IOException("IO error"));
+        when(fileMock.getInputStream()).thenThrow(new IOException("IO error"));
 
         TaskEntity oldTask = createValidTask(10L);
         AttachmentFile file = createValidAttachmentFile(fileId, oldTask);
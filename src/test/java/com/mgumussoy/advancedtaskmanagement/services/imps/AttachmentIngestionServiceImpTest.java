@@ -0,0 +1,374 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentIngestionDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentIngestion;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.IngestionStatus;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentIngestionNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentRejectedException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentIngestionRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService.StagedBlob;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentScanner;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AttachmentIngestionServiceImpTest {
+
+    private static final String MASTER_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private AttachmentIngestionRepository attachmentIngestionRepository;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Mock
+    private AttachmentFileService attachmentFileService;
+
+    @Mock
+    private StorageQuotaService storageQuotaService;
+
+    @Mock
+    private ObjectProvider<AttachmentScanner> attachmentScanners;
+
+    @Mock
+    private AttachmentScanner attachmentScanner;
+
+    @Mock
+    private AttachmentPreviewService attachmentPreviewService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private AttachmentIngestionServiceImp attachmentIngestionServiceImp;
+
+    private TaskEntity task;
+
+    private final List<AttachmentIngestion> savedIngestions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        attachmentIngestionServiceImp = new AttachmentIngestionServiceImp(attachmentIngestionRepository, taskRepository,
+                attachmentBlobRepository, attachmentFileService, storageQuotaService, attachmentScanners, attachmentPreviewService, transactionTemplate, new BlobEncryptionServiceImp(false, ""), tempDir.toString(), "node-1", Duration.ofHours(1),
+                1, 1, 1, 1, 4, true);
+
+        task = new TaskEntity();
+        task.setId(10L);
+        when(taskRepository.findById(10L)).thenReturn(Optional.of(task));
+        when(attachmentIngestionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<AttachmentIngestion> ingestions = invocation.getArgument(0);
+            for (AttachmentIngestion ingestion : ingestions) {
+                ingestion.setId((long) savedIngestions.size() + 1);
+                savedIngestions.add(ingestion);
+            }
+            return ingestions;
+        });
+        when(attachmentIngestionRepository.save(any(AttachmentIngestion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(attachmentIngestionRepository.findWithLockById(anyLong())).thenAnswer(invocation -> savedIngestions.stream()
+                .filter(ingestion -> ingestion.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(attachmentScanners.orderedStream()).thenAnswer(invocation -> Stream.of(attachmentScanner));
+        when(attachmentFileService.computeContentHash(any(InputStreamSource.class))).thenReturn("hash");
+        when(attachmentFileService.writeStagedBlob(eq("hash"), any(), anyLong(), any(InputStreamSource.class)))
+                .thenReturn(new StagedBlob("hash", 13, "key", StorageCodec.IDENTITY, 13));
+        when(attachmentFileService.saveStagedFile(eq(10L), any(), any(), any(), any(StagedBlob.class), any(InputStreamSource.class)))
+                .thenReturn(AttachmentFileDTO.builder().id(99L).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        attachmentIngestionServiceImp.shutdown();
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitStatus(AttachmentIngestion ingestion, IngestionStatus status) throws InterruptedException {
+        await(() -> ingestion.getStatus() == status);
+        assertEquals(status, ingestion.getStatus());
+    }
+
+    private void awaitStagingDeleted(AttachmentIngestion ingestion) throws InterruptedException {
+        Path stagingPath = Path.of(ingestion.getStagingPath());
+        await(() -> !Files.exists(stagingPath));
+        assertFalse(Files.exists(stagingPath));
+    }
+
+    private AttachmentIngestion pendingIngestion(long id, String claimedBy, Date leaseExpiresAt, Path stagingPath) {
+        AttachmentIngestion ingestion = AttachmentIngestion.builder().taskEntity(task).fileName("test.txt").fileSize(13)
+                .status(IngestionStatus.COMPRESSING).stagingPath(stagingPath.toString())
+                .claimedBy(claimedBy).leaseExpiresAt(leaseExpiresAt).build();
+        ingestion.setId(id);
+        savedIngestions.add(ingestion);
+        return ingestion;
+    }
+
+    private List<MultipartFile> files() {
+        return List.of(new MockMultipartFile("files", "test.txt", "text/plain", "dummy content".getBytes()));
+    }
+
+    // ------------------ receiveFiles Tests ------------------
+    @Test
+    void receiveFiles_successful() throws Exception {
+        List<AttachmentIngestionDTO> received = attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        assertEquals(1, received.size());
+        assertEquals(IngestionStatus.RECEIVED, received.getFirst().getStatus());
+        assertEquals(10L, received.getFirst().getTaskId());
+
+        AttachmentIngestion ingestion = savedIngestions.getFirst();
+        awaitStatus(ingestion, IngestionStatus.COMPLETED);
+        assertEquals(99L, ingestion.getAttachmentFileId());
+        assertEquals("hash", ingestion.getContentHash());
+        assertEquals("node-1", ingestion.getClaimedBy());
+        awaitStagingDeleted(ingestion);
+        verify(attachmentScanner).scan(any(InputStreamSource.class), eq("test.txt"), eq("text/plain"));
+        verify(attachmentFileService).saveStagedFile(eq(10L), eq("desc"), eq("test.txt"), eq("text/plain"),
+                eq(new StagedBlob("hash", 13, "key", StorageCodec.IDENTITY, 13)), any(InputStreamSource.class));
+        verify(attachmentFileService, never()).discardStagedBlob(any());
+        verify(attachmentPreviewService).generatePreviews(eq("hash"), eq("text/plain"), eq(13L), any(InputStreamSource.class));
+    }
+
+    @Test
+    void receiveFiles_StagesUploadEncryptedAtRest() throws Exception {
+        attachmentIngestionServiceImp.shutdown();
+        attachmentIngestionServiceImp = new AttachmentIngestionServiceImp(attachmentIngestionRepository, taskRepository,
+                attachmentBlobRepository, attachmentFileService, storageQuotaService, attachmentScanners, attachmentPreviewService, transactionTemplate,
+                new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString(), "node-1", Duration.ofHours(1), 1, 1, 1, 1, 4, true);
+        List<String> scanned = new ArrayList<>();
+        doAnswer(invocation -> {
+            AttachmentIngestion ingestion = savedIngestions.getFirst();
+            assertFalse(new String(Files.readAllBytes(Path.of(ingestion.getStagingPath()))).contains("dummy content"));
+            try (InputStream inputStream = invocation.<InputStreamSource>getArgument(0).getInputStream()) {
+                scanned.add(new String(inputStream.readAllBytes()));
+            }
+            return null;
+        }).when(attachmentScanner).scan(any(), any(), any());
+
+        attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        awaitStatus(savedIngestions.getFirst(), IngestionStatus.COMPLETED);
+        assertEquals(List.of("dummy content"), scanned);
+    }
+
+    @Test
+    void receiveFiles_PreviewFailureDoesNotFailIngestion() throws Exception {
+        doThrow(new IOException("unreadable")).when(attachmentPreviewService).generatePreviews(any(), any(), anyLong(), any());
+
+        attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        AttachmentIngestion ingestion = savedIngestions.getFirst();
+        awaitStagingDeleted(ingestion);
+        assertEquals(IngestionStatus.COMPLETED, ingestion.getStatus());
+    }
+
+    @Test
+    void receiveFiles_DuplicateContentSkipsCompression() throws Exception {
+        when(attachmentBlobRepository.existsByContentHash("hash")).thenReturn(true);
+
+        attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        awaitStatus(savedIngestions.getFirst(), IngestionStatus.COMPLETED);
+        verify(attachmentFileService, never()).writeStagedBlob(any(), any(), anyLong(), any());
+        verify(attachmentFileService).saveStagedFile(eq(10L), any(), any(), any(),
+                eq(new StagedBlob("hash", 13, null, null, 0)), any(InputStreamSource.class));
+    }
+
+    @Test
+    void receiveFiles_RejectedByScanner() throws Exception {
+        doThrow(new AttachmentRejectedException()).when(attachmentScanner).scan(any(), any(), any());
+
+        attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        AttachmentIngestion ingestion = savedIngestions.getFirst();
+        awaitStatus(ingestion, IngestionStatus.FAILED);
+        assertEquals("AttachmentRejectedException", ingestion.getFailureReason());
+        verify(attachmentFileService).discardStagedBlob(new StagedBlob("hash", 13, "key", StorageCodec.IDENTITY, 13));
+        verify(attachmentFileService, never()).saveStagedFile(any(), any(), any(), any(), any(), any());
+        awaitStagingDeleted(ingestion);
+    }
+
+    @Test
+    void receiveFiles_CommitFails() throws Exception {
+        when(attachmentFileService.saveStagedFile(eq(10L), any(), any(), any(), any(StagedBlob.class), any(InputStreamSource.class)))
+                .thenThrow(new StorageQuotaExceededException());
+
+        attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        AttachmentIngestion ingestion = savedIngestions.getFirst();
+        awaitStatus(ingestion, IngestionStatus.FAILED);
+        assertEquals("StorageQuotaExceededException", ingestion.getFailureReason());
+        assertNull(ingestion.getAttachmentFileId());
+        verify(attachmentFileService).discardStagedBlob(new StagedBlob("hash", 13, "key", StorageCodec.IDENTITY, 13));
+    }
+
+    @Test
+    void receiveFiles_TakenOverBeforeCommit() throws Exception {
+        doAnswer(invocation -> {
+            savedIngestions.getFirst().setClaimedBy("node-2");
+            return null;
+        }).when(attachmentScanner).scan(any(), any(), any());
+
+        attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        AttachmentIngestion ingestion = savedIngestions.getFirst();
+        await(() -> mockingDetails(attachmentFileService).getInvocations().stream()
+                .anyMatch(invocation -> invocation.getMethod().getName().equals("discardStagedBlob")));
+        verify(attachmentFileService).discardStagedBlob(new StagedBlob("hash", 13, "key", StorageCodec.IDENTITY, 13));
+        verify(attachmentFileService, never()).saveStagedFile(any(), any(), any(), any(), any(), any());
+        assertEquals(IngestionStatus.COMMITTING, ingestion.getStatus());
+        assertTrue(Files.exists(Path.of(ingestion.getStagingPath())));
+    }
+
+    @Test
+    void receiveFiles_LongFailureReasonIsTruncated() throws Exception {
+        doThrow(new IOException("x".repeat(300))).when(attachmentScanner).scan(any(), any(), any());
+
+        attachmentIngestionServiceImp.receiveFiles(10L, "desc", files());
+
+        AttachmentIngestion ingestion = savedIngestions.getFirst();
+        awaitStatus(ingestion, IngestionStatus.FAILED);
+        assertEquals("x".repeat(255), ingestion.getFailureReason());
+    }
+
+    @Test
+    void receiveFiles_TaskNotFound() throws Exception {
+        when(taskRepository.findById(10L)).thenReturn(Optional.empty());
+
+        assertThrows(TaskNotFoundException.class, () -> attachmentIngestionServiceImp.receiveFiles(10L, "desc", files()));
+
+        verifyNoInteractions(attachmentIngestionRepository);
+        try (Stream<Path> staged = Files.list(tempDir)) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void receiveFiles_QuotaExceeded() {
+        doThrow(new StorageQuotaExceededException()).when(storageQuotaService).checkQuota(10L, 13, 1);
+
+        assertThrows(StorageQuotaExceededException.class, () -> attachmentIngestionServiceImp.receiveFiles(10L, "desc", files()));
+
+        verifyNoInteractions(attachmentIngestionRepository);
+    }
+
+    // ------------------ getIngestion Tests ------------------
+    @Test
+    void getIngestion_successful() {
+        AttachmentIngestion ingestion = AttachmentIngestion.builder().taskEntity(task).fileName("test.txt")
+                .status(IngestionStatus.SCANNING).stagingPath("staged").build();
+        ingestion.setId(1L);
+        when(attachmentIngestionRepository.findById(1L)).thenReturn(Optional.of(ingestion));
+
+        AttachmentIngestionDTO ingestionDTO = attachmentIngestionServiceImp.getIngestion(1L);
+
+        assertEquals(1L, ingestionDTO.getId());
+        assertEquals(IngestionStatus.SCANNING, ingestionDTO.getStatus());
+    }
+
+    @Test
+    void getIngestion_AttachmentIngestionNotFound() {
+        when(attachmentIngestionRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(AttachmentIngestionNotFoundException.class, () -> attachmentIngestionServiceImp.getIngestion(1L));
+    }
+
+    // ------------------ resumePendingIngestions Tests ------------------
+    @Test
+    void resumePendingIngestions_RestartsStagedUploads() throws Exception {
+        Path staged = Files.write(tempDir.resolve("ingest-1.part"), "dummy content".getBytes());
+        AttachmentIngestion pending = pendingIngestion(1L, "node-1", new Date(), staged);
+        AttachmentIngestion lost = pendingIngestion(2L, "node-1", new Date(), tempDir.resolve("missing.part"));
+        when(attachmentIngestionRepository.findByStatusInAndDeletedFalse(anyCollection())).thenReturn(List.of(pending, lost));
+
+        attachmentIngestionServiceImp.resumePendingIngestions();
+
+        awaitStatus(pending, IngestionStatus.COMPLETED);
+        awaitStatus(lost, IngestionStatus.FAILED);
+    }
+
+    @Test
+    void resumePendingIngestions_LeavesIngestionLeasedByAnotherNode() throws Exception {
+        Path staged = Files.write(tempDir.resolve("ingest-1.part"), "dummy content".getBytes());
+        AttachmentIngestion leased = pendingIngestion(1L, "node-2", new Date(System.currentTimeMillis() + 60000), staged);
+        when(attachmentIngestionRepository.findByStatusInAndDeletedFalse(anyCollection())).thenReturn(List.of(leased));
+
+        attachmentIngestionServiceImp.resumePendingIngestions();
+
+        assertEquals("node-2", leased.getClaimedBy());
+        assertEquals(IngestionStatus.COMPRESSING, leased.getStatus());
+        verify(attachmentFileService, never()).computeContentHash(any());
+    }
+
+    @Test
+    void resumePendingIngestions_LeavesExpiredIngestionWhoseStagedFileIsOnAnotherNode() {
+        AttachmentIngestion expired = pendingIngestion(1L, "node-2", new Date(0), tempDir.resolve("elsewhere.part"));
+        when(attachmentIngestionRepository.findByStatusInAndDeletedFalse(anyCollection())).thenReturn(List.of(expired));
+
+        attachmentIngestionServiceImp.resumePendingIngestions();
+
+        assertEquals("node-2", expired.getClaimedBy());
+        assertEquals(IngestionStatus.COMPRESSING, expired.getStatus());
+        verify(attachmentIngestionRepository, never()).save(any());
+    }
+
+    @Test
+    void resumePendingIngestions_TakesOverExpiredIngestionWithVisibleStagedFile() throws Exception {
+        Path staged = Files.write(tempDir.resolve("ingest-1.part"), "dummy content".getBytes());
+        AttachmentIngestion expired = pendingIngestion(1L, "node-2", new Date(0), staged);
+        when(attachmentIngestionRepository.findByStatusInAndDeletedFalse(anyCollection())).thenReturn(List.of(expired));
+
+        attachmentIngestionServiceImp.resumePendingIngestions();
+
+        awaitStatus(expired, IngestionStatus.COMPLETED);
+        assertEquals("node-1", expired.getClaimedBy());
+        assertEquals(99L, expired.getAttachmentFileId());
+    }
+}
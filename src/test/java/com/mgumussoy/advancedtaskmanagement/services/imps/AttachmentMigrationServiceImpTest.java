@@ -0,0 +1,107 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService.StagedBlob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Runs against the embedded H2 database, with the file_data column of the old schema added back to attachment_files.
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+public class AttachmentMigrationServiceImpTest {
+
+    private static final String CONTENT_HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private AttachmentFileService attachmentFileService;
+
+    private AttachmentMigrationServiceImp attachmentMigrationServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        attachmentFileService = mock(AttachmentFileService.class);
+        attachmentMigrationServiceImp = new AttachmentMigrationServiceImp(jdbcTemplate, transactionTemplate, attachmentFileService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("alter table attachment_files drop column if exists file_data");
+    }
+
+    private long insertLegacyFile(String content) {
+        jdbcTemplate.execute("alter table attachment_files add column if not exists file_data blob");
+        jdbcTemplate.update("insert into attachment_files (file_name, file_type, content_hash, storage_key, file_size, stored_size, " +
+                "storage_codec, version_number, deleted, file_data) values ('legacy.txt', 'text/plain', '', '', 0, 0, 'IDENTITY', 1, false, ?)",
+                (Object) content.getBytes());
+        return jdbcTemplate.queryForObject("select max(id) from attachment_files", Long.class);
+    }
+
+    // ------------------ migrateLegacyFileData Tests ------------------
+    @Test
+    void migrateLegacyFileData_MovesContentIntoBlobStore() throws Exception {
+        long fileId = insertLegacyFile("legacy content");
+        StagedBlob stagedBlob = new StagedBlob(CONTENT_HASH, 14, "stored-key", StorageCodec.GZIP, 10);
+        when(attachmentFileService.computeContentHash(any())).thenReturn(CONTENT_HASH);
+        when(attachmentFileService.writeStagedBlob(eq(CONTENT_HASH), eq("text/plain"), eq(14L), any())).thenReturn(stagedBlob);
+        when(attachmentFileService.retainStagedBlob(eq(stagedBlob), eq("text/plain"), any())).thenReturn(stagedBlob);
+
+        assertEquals(1, attachmentMigrationServiceImp.migrateLegacyFileData());
+
+        ArgumentCaptor<InputStreamSource> content = ArgumentCaptor.forClass(InputStreamSource.class);
+        verify(attachmentFileService).writeStagedBlob(eq(CONTENT_HASH), eq("text/plain"), eq(14L), content.capture());
+        try (InputStream inputStream = content.getValue().getInputStream()) {
+            assertEquals("legacy content", new String(inputStream.readAllBytes()));
+        }
+        Map<String, Object> row = jdbcTemplate.queryForMap("select * from attachment_files where id = ?", fileId);
+        assertEquals(CONTENT_HASH, row.get("CONTENT_HASH"));
+        assertEquals("stored-key", row.get("STORAGE_KEY"));
+        assertEquals(14L, ((Number) row.get("FILE_SIZE")).longValue());
+        assertEquals(10L, ((Number) row.get("STORED_SIZE")).longValue());
+        assertEquals("GZIP", row.get("STORAGE_CODEC"));
+        assertNull(row.get("FILE_DATA"));
+
+        // Migrated rows are not picked up again.
+        assertEquals(0, attachmentMigrationServiceImp.migrateLegacyFileData());
+    }
+
+    @Test
+    void migrateLegacyFileData_KeepsRowWhenClaimFails() throws Exception {
+        long fileId = insertLegacyFile("legacy content");
+        StagedBlob stagedBlob = new StagedBlob(CONTENT_HASH, 14, "stored-key", StorageCodec.IDENTITY, 14);
+        when(attachmentFileService.computeContentHash(any())).thenReturn(CONTENT_HASH);
+        when(attachmentFileService.writeStagedBlob(any(), any(), anyLong(), any())).thenReturn(stagedBlob);
+        when(attachmentFileService.retainStagedBlob(any(), any(), any())).thenThrow(new IllegalStateException("lock timeout"));
+
+        assertEquals(0, attachmentMigrationServiceImp.migrateLegacyFileData());
+
+        verify(attachmentFileService).discardStagedBlob(stagedBlob);
+        assertNotNull(jdbcTemplate.queryForObject("select file_data from attachment_files where id = ?", byte[].class, fileId));
+    }
+
+    @Test
+    void migrateLegacyFileData_NoLegacyColumn() {
+        assertEquals(0, attachmentMigrationServiceImp.migrateLegacyFileData());
+
+        verifyNoInteractions(attachmentFileService);
+    }
+}
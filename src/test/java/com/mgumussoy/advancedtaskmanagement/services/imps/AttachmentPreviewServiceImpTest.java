@@ -0,0 +1,249 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.PreviewSize;
+import com.mgumussoy.advancedtaskmanagement.exceptions.PreviewNotAvailableException;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService.Preview;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AttachmentPreviewServiceImpTest {
+
+    private static final String MASTER_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+    private static final String CONTENT_HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private AttachmentFileService attachmentFileService;
+
+    private AttachmentPreviewServiceImp attachmentPreviewServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        attachmentPreviewServiceImp = new AttachmentPreviewServiceImp(attachmentFileService, new BlobEncryptionServiceImp(false, ""), tempDir.toString(),
+                DataSize.ofMegabytes(32), 50_000_000, 0.8f);
+    }
+
+    private static byte[] createImage(int width, int height, int type, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(width / 2, 0, width - width / 2, height);
+        graphics.dispose();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static BufferedImage readImage(Preview preview) throws IOException {
+        try (InputStream inputStream = preview.resource().getInputStream()) {
+            return ImageIO.read(inputStream);
+        }
+    }
+
+    private AttachmentFileDTO stubFile(byte[] content, String fileType) throws IOException {
+        AttachmentFileDTO file = AttachmentFileDTO.builder()
+                .id(1L)
+                .fileName("photo")
+                .fileType(fileType)
+                .fileSize(content.length)
+                .contentHash(CONTENT_HASH)
+                .build();
+        doAnswer(invocation -> {
+            WritableByteChannel target = invocation.getArgument(3);
+            target.write(ByteBuffer.wrap(content));
+            return null;
+        }).when(attachmentFileService).transferFile(eq(file), eq(0L), eq((long) content.length), any(WritableByteChannel.class));
+        return file;
+    }
+
+    // ------------------ getPreview Tests ------------------
+    @Test
+    void getPreview_RendersAllSizesFromOneDecode() throws Exception {
+        AttachmentFileDTO file = stubFile(createImage(3000, 1500, BufferedImage.TYPE_INT_RGB, "png"), "image/png");
+
+        Preview preview = attachmentPreviewServiceImp.getPreview(file, PreviewSize.MEDIUM);
+
+        assertEquals("image/jpeg", preview.contentType());
+        BufferedImage medium = readImage(preview);
+        assertEquals(512, medium.getWidth());
+        assertEquals(256, medium.getHeight());
+        Color left = new Color(medium.getRGB(10, 128));
+        Color right = new Color(medium.getRGB(500, 128));
+        assertTrue(left.getRed() > 200 && left.getBlue() < 60);
+        assertTrue(right.getBlue() > 200 && right.getRed() < 60);
+
+        BufferedImage small = readImage(attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL));
+        BufferedImage large = readImage(attachmentPreviewServiceImp.getPreview(file, PreviewSize.LARGE));
+        assertEquals(128, small.getWidth());
+        assertEquals(1024, large.getWidth());
+        verify(attachmentFileService, times(1)).transferFile(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getPreview_KeepsTransparencyAsPng() throws Exception {
+        AttachmentFileDTO file = stubFile(createImage(600, 300, BufferedImage.TYPE_INT_ARGB, "png"), "image/png");
+
+        Preview preview = attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL);
+
+        assertEquals("image/png", preview.contentType());
+        assertTrue(preview.resource().getFilename().endsWith(".png"));
+        assertTrue(readImage(preview).getColorModel().hasAlpha());
+    }
+
+    @Test
+    void getPreview_DoesNotUpscaleSmallImages() throws Exception {
+        AttachmentFileDTO file = stubFile(createImage(100, 40, BufferedImage.TYPE_INT_RGB, "jpg"), "image/jpeg");
+
+        BufferedImage large = readImage(attachmentPreviewServiceImp.getPreview(file, PreviewSize.LARGE));
+
+        assertEquals(100, large.getWidth());
+        assertEquals(40, large.getHeight());
+    }
+
+    @Test
+    void getPreview_ConcurrentRequestsDecodeOnce() throws Exception {
+        byte[] content = createImage(2000, 2000, BufferedImage.TYPE_INT_RGB, "png");
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileType("image/png").fileSize(content.length)
+                .contentHash(CONTENT_HASH).build();
+        CountDownLatch transferStarted = new CountDownLatch(1);
+        CountDownLatch releaseTransfer = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            transferStarted.countDown();
+            releaseTransfer.await();
+            WritableByteChannel target = invocation.getArgument(3);
+            target.write(ByteBuffer.wrap(content));
+            return null;
+        }).when(attachmentFileService).transferFile(eq(file), anyLong(), anyLong(), any(WritableByteChannel.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Preview>> previews = new ArrayList<>();
+            previews.add(executor.submit(() -> attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL)));
+            transferStarted.await();
+            for (int i = 0; i < 3; i++) {
+                previews.add(executor.submit(() -> attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL)));
+            }
+            Thread.sleep(100);
+            releaseTransfer.countDown();
+            for (Future<Preview> preview : previews) {
+                assertTrue(preview.get().resource().exists());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(attachmentFileService, times(1)).transferFile(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getPreview_NotAnImage() {
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileType("application/pdf").fileSize(100)
+                .contentHash(CONTENT_HASH).build();
+
+        assertThrows(PreviewNotAvailableException.class, () -> attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL));
+        verifyNoInteractions(attachmentFileService);
+    }
+
+    @Test
+    void getPreview_UndecodableImage() throws Exception {
+        AttachmentFileDTO file = stubFile("not really a png".getBytes(), "image/png");
+
+        assertThrows(PreviewNotAvailableException.class, () -> attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL));
+    }
+
+    @Test
+    void getPreview_SourceTooLarge() throws Exception {
+        attachmentPreviewServiceImp = new AttachmentPreviewServiceImp(attachmentFileService, new BlobEncryptionServiceImp(false, ""), tempDir.toString(),
+                DataSize.ofMegabytes(32), 1_000_000, 0.8f);
+        AttachmentFileDTO file = stubFile(createImage(2000, 1000, BufferedImage.TYPE_INT_RGB, "png"), "image/png");
+
+        assertThrows(PreviewNotAvailableException.class, () -> attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL));
+    }
+
+    // ------------------ generatePreviews Tests ------------------
+    @Test
+    void generatePreviews_RendersFromUploadedContent() throws Exception {
+        byte[] content = createImage(800, 600, BufferedImage.TYPE_INT_RGB, "png");
+
+        attachmentPreviewServiceImp.generatePreviews(CONTENT_HASH, "image/png", content.length, new ByteArrayResource(content));
+
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileType("image/png").fileSize(content.length)
+                .contentHash(CONTENT_HASH).build();
+        for (PreviewSize size : PreviewSize.values()) {
+            assertTrue(attachmentPreviewServiceImp.getPreview(file, size).resource().exists());
+        }
+        verifyNoInteractions(attachmentFileService);
+    }
+
+    @Test
+    void generatePreviews_EncryptsRenditionsAtRest() throws Exception {
+        attachmentPreviewServiceImp = new AttachmentPreviewServiceImp(attachmentFileService,
+                new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString(), DataSize.ofMegabytes(32), 50_000_000, 0.8f);
+        byte[] content = createImage(800, 600, BufferedImage.TYPE_INT_RGB, "png");
+
+        attachmentPreviewServiceImp.generatePreviews(CONTENT_HASH, "image/png", content.length, new ByteArrayResource(content));
+
+        AttachmentFileDTO file = AttachmentFileDTO.builder().id(1L).fileType("image/png").fileSize(content.length)
+                .contentHash(CONTENT_HASH).build();
+        Preview preview = attachmentPreviewServiceImp.getPreview(file, PreviewSize.MEDIUM);
+        try (var renditions = Files.walk(tempDir)) {
+            for (Path rendition : renditions.filter(Files::isRegularFile).toList()) {
+                assertNull(ImageIO.read(rendition.toFile()));
+            }
+        }
+        assertEquals(512, readImage(preview).getWidth());
+    }
+
+    @Test
+    void generatePreviews_IgnoresUndecodableContent() {
+        assertDoesNotThrow(() -> attachmentPreviewServiceImp.generatePreviews(CONTENT_HASH, "image/png", 10,
+                new ByteArrayResource("garbage".getBytes())));
+    }
+
+    // ------------------ evictPreviews Tests ------------------
+    @Test
+    void evictPreviews_DeletesRenditions() throws Exception {
+        byte[] content = createImage(800, 600, BufferedImage.TYPE_INT_RGB, "png");
+        attachmentPreviewServiceImp.generatePreviews(CONTENT_HASH, "image/png", content.length, new ByteArrayResource(content));
+        AttachmentFileDTO file = stubFile(content, "image/png");
+        Resource small = attachmentPreviewServiceImp.getPreview(file, PreviewSize.SMALL).resource();
+
+        attachmentPreviewServiceImp.evictPreviews(CONTENT_HASH);
+
+        assertFalse(small.exists());
+    }
+}
@@ -0,0 +1,211 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentBlob;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentCacheService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentPreviewService;
+import com.mgumussoy.advancedtaskmanagement.services.BlobStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AttachmentReclamationServiceImpTest {
+
+    @Mock
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Mock
+    private BlobStoreService blobStoreService;
+
+    @Mock
+    private AttachmentCacheService attachmentCacheService;
+
+    @Mock
+    private AttachmentPreviewService attachmentPreviewService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private AttachmentReclamationServiceImp attachmentReclamationServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        attachmentReclamationServiceImp = new AttachmentReclamationServiceImp(attachmentBlobRepository, blobStoreService,
+                attachmentCacheService, attachmentPreviewService, transactionTemplate, Duration.ofDays(7), Duration.ofDays(1), 2,
+                DataSize.ofGigabytes(1));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+
+    private AttachmentBlob createReleasedBlob(String contentHash, long storedSize, long daysAgo) {
+        return AttachmentBlob.builder()
+                .contentHash(contentHash)
+                .storageKey("key-" + contentHash)
+                .storedSize(storedSize)
+                .storageCodec(StorageCodec.IDENTITY)
+                .referenceCount(0)
+                .releasedDate(new Date(System.currentTimeMillis() - Duration.ofDays(daysAgo).toMillis()))
+                .build();
+    }
+
+    @Test
+    void reclaimReleasedBlobs_DeletesExpiredBlobsInBatches() throws IOException {
+        AttachmentBlob first = createReleasedBlob("a", 100, 10);
+        AttachmentBlob second = createReleasedBlob("b", 200, 10);
+        AttachmentBlob third = createReleasedBlob("c", 300, 8);
+        when(attachmentBlobRepository.findContentHashesReleasedBefore(any(Date.class), any(Pageable.class)))
+                .thenReturn(List.of("a", "b"), List.of("c"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(first));
+        when(attachmentBlobRepository.findWithLockByContentHash("b")).thenReturn(Optional.of(second));
+        when(attachmentBlobRepository.findWithLockByContentHash("c")).thenReturn(Optional.of(third));
+
+        long freedBytes = attachmentReclamationServiceImp.reclaimReleasedBlobs();
+
+        assertEquals(600, freedBytes);
+        verify(attachmentBlobRepository).delete(first);
+        verify(attachmentBlobRepository).delete(second);
+        verify(attachmentBlobRepository).delete(third);
+        verify(blobStoreService).delete("key-a");
+        verify(attachmentCacheService).evictContent("key-a");
+        verify(attachmentPreviewService).evictPreviews("a");
+        verify(blobStoreService).delete("key-b");
+        verify(blobStoreService).delete("key-c");
+        verify(attachmentBlobRepository, times(2)).findContentHashesReleasedBefore(any(Date.class), any(Pageable.class));
+    }
+
+    @Test
+    void reclaimReleasedBlobs_ReleasesDeltaBase() throws IOException {
+        AttachmentBlob delta = createReleasedBlob("a", 100, 10);
+        delta.setStorageCodec(StorageCodec.DELTA);
+        delta.setBaseContentHash("base");
+        delta.setMaterializedStorageKey("key-rebuilt");
+        AttachmentBlob base = AttachmentBlob.builder().contentHash("base").storageKey("key-base").referenceCount(1).build();
+        when(attachmentBlobRepository.findContentHashesReleasedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of("a"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(delta));
+        when(attachmentBlobRepository.findWithLockByContentHash("base")).thenReturn(Optional.of(base));
+
+        attachmentReclamationServiceImp.reclaimReleasedBlobs();
+
+        verify(attachmentBlobRepository).delete(delta);
+        verify(blobStoreService).delete("key-rebuilt");
+        assertEquals(0, base.getReferenceCount());
+        assertNotNull(base.getReleasedDate());
+        verify(attachmentBlobRepository).save(base);
+        verify(blobStoreService, never()).delete("key-base");
+    }
+
+    @Test
+    void reclaimReleasedBlobs_SkipsBlobReferencedAgain() throws IOException {
+        AttachmentBlob revived = createReleasedBlob("a", 100, 10);
+        revived.setReferenceCount(1);
+        revived.setReleasedDate(null);
+        when(attachmentBlobRepository.findContentHashesReleasedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of("a"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(revived));
+
+        long freedBytes = attachmentReclamationServiceImp.reclaimReleasedBlobs();
+
+        assertEquals(0, freedBytes);
+        verify(attachmentBlobRepository, never()).delete(any());
+        verify(blobStoreService, never()).delete(any());
+    }
+
+    @Test
+    void reclaimReleasedBlobs_KeepsBlobWithinGracePeriod() throws IOException {
+        AttachmentBlob recent = createReleasedBlob("a", 100, 1);
+        when(attachmentBlobRepository.findContentHashesReleasedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of("a"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(recent));
+
+        assertEquals(0, attachmentReclamationServiceImp.reclaimReleasedBlobs());
+        verify(blobStoreService, never()).delete(any());
+    }
+
+    @Test
+    void reclaimReleasedBlobs_ThrottlesToByteBudget() {
+        attachmentReclamationServiceImp = new AttachmentReclamationServiceImp(attachmentBlobRepository, blobStoreService,
+                attachmentCacheService, attachmentPreviewService, transactionTemplate, Duration.ofDays(7), Duration.ofDays(1), 10,
+                DataSize.ofBytes(1000));
+        AttachmentBlob blob = createReleasedBlob("a", 200, 10);
+        when(attachmentBlobRepository.findContentHashesReleasedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of("a"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(blob));
+
+        long start = System.nanoTime();
+        attachmentReclamationServiceImp.reclaimReleasedBlobs();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 150);
+    }
+
+    @Test
+    void reclaimReleasedBlobs_ThrottlesLargeBacklog() {
+        // 10 GB freed at 100 GB/s is a 100 ms budget; in nanoseconds times bytes that product no longer fits a long.
+        attachmentReclamationServiceImp = new AttachmentReclamationServiceImp(attachmentBlobRepository, blobStoreService,
+                attachmentCacheService, attachmentPreviewService, transactionTemplate, Duration.ofDays(7), Duration.ofDays(1), 10,
+                DataSize.ofGigabytes(100));
+        AttachmentBlob blob = createReleasedBlob("a", 10_000_000_000L, 10);
+        when(attachmentBlobRepository.findContentHashesReleasedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of("a"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(blob));
+
+        long start = System.nanoTime();
+        attachmentReclamationServiceImp.reclaimReleasedBlobs();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 80);
+    }
+
+    @Test
+    void reclaimReleasedBlobs_NothingToReclaim() {
+        when(attachmentBlobRepository.findContentHashesReleasedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of());
+
+        assertEquals(0, attachmentReclamationServiceImp.reclaimReleasedBlobs());
+        verifyNoInteractions(blobStoreService, transactionTemplate);
+    }
+
+    // ------------------ expireMaterializedBlobs Tests ------------------
+    @Test
+    void expireMaterializedBlobs_DropsOldCopies() throws IOException {
+        AttachmentBlob old = AttachmentBlob.builder().contentHash("a").storageKey("key-a").storageCodec(StorageCodec.DELTA)
+                .materializedStorageKey("key-rebuilt").materializedDate(new Date(System.currentTimeMillis() - Duration.ofDays(2).toMillis()))
+                .referenceCount(1).build();
+        when(attachmentBlobRepository.findContentHashesMaterializedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of("a"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(old));
+
+        assertEquals(1, attachmentReclamationServiceImp.expireMaterializedBlobs());
+
+        assertNull(old.getMaterializedStorageKey());
+        assertNull(old.getMaterializedDate());
+        verify(attachmentBlobRepository).save(old);
+        verify(attachmentCacheService).evictContent("key-rebuilt");
+        verify(blobStoreService).delete("key-rebuilt");
+        verify(blobStoreService, never()).delete("key-a");
+    }
+
+    @Test
+    void expireMaterializedBlobs_KeepsCopyRebuiltAgain() throws IOException {
+        AttachmentBlob rebuilt = AttachmentBlob.builder().contentHash("a").storageKey("key-a").storageCodec(StorageCodec.DELTA)
+                .materializedStorageKey("key-rebuilt").materializedDate(new Date()).referenceCount(1).build();
+        when(attachmentBlobRepository.findContentHashesMaterializedBefore(any(Date.class), any(Pageable.class))).thenReturn(List.of("a"));
+        when(attachmentBlobRepository.findWithLockByContentHash("a")).thenReturn(Optional.of(rebuilt));
+
+        assertEquals(0, attachmentReclamationServiceImp.expireMaterializedBlobs());
+
+        assertEquals("key-rebuilt", rebuilt.getMaterializedStorageKey());
+        verify(blobStoreService, never()).delete(any());
+    }
+}
@@ -0,0 +1,132 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.sun.nio.file.ExtendedOpenOption;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks that encryption at rest keeps attachment throughput close to raw disk speed. Writes go through the blob store
+// and are synced to disk before the clock stops. Reads of the plain blob bypass the page cache, while decryption reads
+// from it, so the read comparison holds the cipher against what the disk can deliver. Run with
+// mvn test -Dtest=BlobEncryptionBenchmarkTest -Dattachments.benchmark=true
+@Slf4j
+@EnabledIfSystemProperty(named = "attachments.benchmark", matches = "true")
+public class BlobEncryptionBenchmarkTest {
+
+    private static final String MASTER_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+    private static final int BLOB_SIZE = 256 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int DIRECT_READ_SIZE = 1024 * 1024;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int RUNS = 5;
+    // The cipher runs on the writing thread, so an encrypted write pays for encryption and the disk one after the other.
+    private static final double MIN_WRITE_RATIO = 0.6;
+    private static final double MIN_READ_RATIO = 0.8;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void encryptedThroughputStaysCloseToDisk() throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        new Random(1).nextBytes(chunk);
+        Path plainRoot = tempDir.resolve("plain");
+        Path encryptedRoot = tempDir.resolve("encrypted");
+        LocalBlobStoreServiceImp plain = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(false, ""), plainRoot.toString());
+        LocalBlobStoreServiceImp encrypted = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(true, MASTER_KEY),
+                encryptedRoot.toString());
+
+        double[] plainWrites = new double[RUNS];
+        double[] encryptedWrites = new double[RUNS];
+        double[] diskReads = new double[RUNS];
+        double[] decryptingReads = new double[RUNS];
+        // The cipher only reaches its compiled speed after about a gigabyte, so the warm-up runs are not counted.
+        for (int run = -WARM_UP_RUNS; run < RUNS; run++) {
+            String[] keys = new String[2];
+            double plainWrite = measure(() -> keys[0] = storeDurably(plain, plainRoot, chunk));
+            double encryptedWrite = measure(() -> keys[1] = storeDurably(encrypted, encryptedRoot, chunk));
+            double diskRead = measure(() -> readDirect(plain.getPlainFile(keys[0]).orElseThrow()));
+            double decryptingRead = measure(() -> drain(encrypted.openStream(keys[1])));
+            plain.delete(keys[0]);
+            encrypted.delete(keys[1]);
+            if (run >= 0) {
+                plainWrites[run] = plainWrite;
+                encryptedWrites[run] = encryptedWrite;
+                diskReads[run] = diskRead;
+                decryptingReads[run] = decryptingRead;
+            }
+        }
+
+        double plainWrite = median(plainWrites);
+        double encryptedWrite = median(encryptedWrites);
+        double diskRead = median(diskReads);
+        double decryptingRead = median(decryptingReads);
+        log.info("write: plain {} MB/s, encrypted {} MB/s, both synced to disk", Math.round(plainWrite), Math.round(encryptedWrite));
+        log.info("read: plain from disk {} MB/s, decrypting {} MB/s", Math.round(diskRead), Math.round(decryptingRead));
+        assertTrue(encryptedWrite >= plainWrite * MIN_WRITE_RATIO, "encrypted writes fall too far behind the disk");
+        assertTrue(decryptingRead >= diskRead * MIN_READ_RATIO, "decryption falls too far behind reading from disk");
+    }
+
+    private static String storeDurably(LocalBlobStoreServiceImp blobStore, Path root, byte[] chunk) throws IOException {
+        String key = blobStore.store(outputStream -> {
+            for (int written = 0; written < BLOB_SIZE; written += chunk.length) {
+                outputStream.write(chunk);
+            }
+        });
+        try (Stream<Path> files = Files.walk(root)) {
+            Path file = files.filter(path -> path.getFileName().toString().equals(key)).findFirst().orElseThrow();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        return key;
+    }
+
+    private static void readDirect(Path file) throws IOException {
+        int blockSize = (int) Files.getFileStore(file).getBlockSize();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(DIRECT_READ_SIZE + blockSize).alignedSlice(blockSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, ExtendedOpenOption.DIRECT)) {
+            while (channel.read(buffer.clear()) > 0) {
+                // The bytes are not needed, only the time it takes the disk to deliver them.
+            }
+        }
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static double measure(IOAction action) throws IOException {
+        long start = System.nanoTime();
+        action.run();
+        return BLOB_SIZE / 1_048_576.0 / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    @FunctionalInterface
+    private interface IOAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,169 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlobEncryptionServiceImpTest {
+
+    private static final String MASTER_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private BlobEncryptionServiceImp blobEncryptionServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        blobEncryptionServiceImp = new BlobEncryptionServiceImp(true, MASTER_KEY);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private Path encrypt(BlobEncryptionServiceImp service, byte[] content) throws IOException {
+        Path blob = Files.createTempFile(tempDir, "blob", ".bin");
+        try (OutputStream outputStream = service.encrypt(Files.newOutputStream(blob))) {
+            // Uneven writes make sure segments are cut independently of the caller's buffer sizes.
+            for (int offset = 0; offset < content.length; offset += 10_000) {
+                outputStream.write(content, offset, Math.min(10_000, content.length - offset));
+            }
+        }
+        return blob;
+    }
+
+    private byte[] decrypt(BlobEncryptionServiceImp service, Path blob) throws IOException {
+        try (InputStream inputStream = Channels.newInputStream(service.decrypt(FileChannel.open(blob, StandardOpenOption.READ), false))) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    @Test
+    void encrypt_RoundTripsAcrossSegmentBoundaries() throws IOException {
+        for (int length : new int[]{0, 1, SEGMENT_SIZE - 1, SEGMENT_SIZE, SEGMENT_SIZE + 1, 3 * SEGMENT_SIZE + 5}) {
+            byte[] content = randomBytes(length);
+            Path blob = encrypt(blobEncryptionServiceImp, content);
+
+            assertArrayEquals(content, decrypt(blobEncryptionServiceImp, blob), "length " + length);
+            try (SeekableByteChannel channel = blobEncryptionServiceImp.decrypt(FileChannel.open(blob, StandardOpenOption.READ), false)) {
+                assertEquals(length, channel.size());
+            }
+        }
+    }
+
+    @Test
+    void encrypt_UsesFreshDataKeyPerBlob() throws IOException {
+        byte[] content = "same content".repeat(100).getBytes();
+
+        byte[] first = Files.readAllBytes(encrypt(blobEncryptionServiceImp, content));
+        byte[] second = Files.readAllBytes(encrypt(blobEncryptionServiceImp, content));
+
+        assertFalse(Arrays.equals(first, second));
+        assertFalse(new String(first).contains("same content"));
+    }
+
+    @Test
+    void decrypt_ReadsRangeSpanningSegments() throws IOException {
+        byte[] content = randomBytes(3 * SEGMENT_SIZE + 5);
+        Path blob = encrypt(blobEncryptionServiceImp, content);
+
+        try (SeekableByteChannel channel = blobEncryptionServiceImp.decrypt(FileChannel.open(blob, StandardOpenOption.READ), false)) {
+            channel.position(2 * SEGMENT_SIZE - 100);
+            ByteBuffer buffer = ByteBuffer.allocate(300);
+            while (buffer.hasRemaining()) {
+                channel.read(buffer);
+            }
+            assertArrayEquals(Arrays.copyOfRange(content, 2 * SEGMENT_SIZE - 100, 2 * SEGMENT_SIZE + 200), buffer.array());
+            assertEquals(-1, channel.position(content.length).read(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    void decrypt_DetectsTamperedSegment() throws IOException {
+        Path blob = encrypt(blobEncryptionServiceImp, randomBytes(2 * SEGMENT_SIZE));
+        byte[] ciphertext = Files.readAllBytes(blob);
+        ciphertext[ciphertext.length - SEGMENT_SIZE] ^= 1;
+        Files.write(blob, ciphertext);
+
+        assertThrows(IOException.class, () -> decrypt(blobEncryptionServiceImp, blob));
+    }
+
+    @Test
+    void decrypt_DetectsTruncationAtSegmentBoundary() throws IOException {
+        Path blob = encrypt(blobEncryptionServiceImp, randomBytes(2 * SEGMENT_SIZE));
+        byte[] ciphertext = Files.readAllBytes(blob);
+        Files.write(blob, Arrays.copyOf(ciphertext, ciphertext.length - SEGMENT_SIZE - 16));
+
+        assertThrows(IOException.class, () -> decrypt(blobEncryptionServiceImp, blob));
+    }
+
+    @Test
+    void decrypt_WrongMasterKey() throws IOException {
+        Path blob = encrypt(blobEncryptionServiceImp, "secret".getBytes());
+        BlobEncryptionServiceImp otherKey = new BlobEncryptionServiceImp(true, "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+
+        assertThrows(IOException.class, () -> decrypt(otherKey, blob));
+    }
+
+    @Test
+    void decrypt_EncryptedBlobWithoutMasterKey() throws IOException {
+        Path blob = encrypt(blobEncryptionServiceImp, "secret".getBytes());
+
+        assertThrows(IOException.class, () -> decrypt(new BlobEncryptionServiceImp(false, ""), blob));
+    }
+
+    @Test
+    void decrypt_PassesPlainBlobThrough() throws IOException {
+        Path blob = Files.write(tempDir.resolve("plain"), "plain content that is long enough to hold a header".getBytes());
+
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            assertSame(channel, blobEncryptionServiceImp.decrypt(channel, true));
+        }
+    }
+
+    @Test
+    void decrypt_RejectsPlainBlobWhenEncryptionIsRequired() throws IOException {
+        Path blob = Files.write(tempDir.resolve("plain"), "plain content that is long enough to hold a header".getBytes());
+        Path shortBlob = Files.write(tempDir.resolve("short"), "plain".getBytes());
+
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ);
+             FileChannel shortChannel = FileChannel.open(shortBlob, StandardOpenOption.READ)) {
+            assertThrows(IOException.class, () -> blobEncryptionServiceImp.decrypt(channel, false));
+            assertThrows(IOException.class, () -> blobEncryptionServiceImp.decrypt(shortChannel, false));
+        }
+    }
+
+    @Test
+    void encrypt_DisabledWritesPlaintext() throws IOException {
+        BlobEncryptionServiceImp disabled = new BlobEncryptionServiceImp(false, MASTER_KEY);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertSame(outputStream, disabled.encrypt(outputStream));
+    }
+
+    @Test
+    void constructor_EnabledWithoutMasterKey() {
+        assertThrows(IllegalStateException.class, () -> new BlobEncryptionServiceImp(true, ""));
+        assertThrows(IllegalStateException.class, () -> new BlobEncryptionServiceImp(true, "c2hvcnQ="));
+    }
+}
@@ -1,15 +1,19 @@
 package com.mgumussoy.advancedtaskmanagement.services.imps;
 
 import com.mgumussoy.advancedtaskmanagement.dtos.CommentDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.ProjectEventDTO;
 import com.mgumussoy.advancedtaskmanagement.entities.Comment;
+import com.mgumussoy.advancedtaskmanagement.entities.Project;
 import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
 import com.mgumussoy.advancedtaskmanagement.entities.UserEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectEventType;
 import com.mgumussoy.advancedtaskmanagement.exceptions.CommentNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.UserEntityNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.repositories.CommentRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.UserEntityRepository;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectEventService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -17,7 +21,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,6 +48,9 @@ public class CommentServiceImpTest {
     @Mock
     private UserEntityRepository userEntityRepository;
 
+    @Mock
+    private ProjectEventService projectEventService;
+
     private TaskEntity task;
     private UserEntity user;
     private Comment comment;
@@ -47,8 +58,11 @@ public class CommentServiceImpTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        Project project = new Project();
+        project.setId(30L);
         task = new TaskEntity();
         task.setId(10L);
+        task.setProject(project);
         user = new UserEntity();
         user.setId(20L);
         comment = Comment.builder().text("Initial text").taskEntity(task).author(user).build();
@@ -69,6 +83,8 @@ public class CommentServiceImpTest {
         CommentDTO result = commentServiceImp.createComment(dto);
         assertEquals(1L, result.getId());
         assertEquals("New comment", result.getText());
+        verify(projectEventService).publish(ProjectEventDTO.builder().type(ProjectEventType.COMMENT_CREATED).projectId(30L).taskId(10L)
+                .commentId(1L).comment(result).build());
     }
 
     @Test
@@ -87,6 +103,26 @@ public class CommentServiceImpTest {
         assertThrows(CommentNotFoundException.class, () -> commentServiceImp.getComment(1L));
     }
 
+    @Test
+    void getCommentsOfTask_success() throws TaskNotFoundException {
+        when(taskRepository.existsByIdAndDeletedFalse(10L)).thenReturn(true);
+        when(commentRepository.findByTaskEntityIdAndDeletedFalse(10L, PageRequest.of(0, 100, Sort.by("id"))))
+                .thenReturn(new SliceImpl<>(List.of(comment)));
+        when(modelMapper.map(comment, CommentDTO.class)).thenReturn(CommentDTO.builder()
+                .id(1L).text("Initial text").taskId(10L).authorId(20L).build());
+
+        List<CommentDTO> comments = commentServiceImp.getCommentsOfTask(10L, -1, 500);
+        assertEquals(1, comments.size());
+        assertEquals("Initial text", comments.getFirst().getText());
+    }
+
+    @Test
+    void getCommentsOfTask_TaskNotFound() {
+        when(taskRepository.existsByIdAndDeletedFalse(10L)).thenReturn(false);
+        assertThrows(TaskNotFoundException.class, () -> commentServiceImp.getCommentsOfTask(10L, 0, 20));
+        verifyNoInteractions(commentRepository);
+    }
+
     @Test
     void deleteComment_success() throws CommentNotFoundException {
         when(commentRepository.findById(1L)).thenReturn(Optional.of(comment));
@@ -94,6 +130,8 @@ public class CommentServiceImpTest {
         ArgumentCaptor<Comment> captor = ArgumentCaptor.forClass(Comment.class);
         verify(commentRepository).save(captor.capture());
         assertTrue(captor.getValue().isDeleted());
+        verify(projectEventService).publish(ProjectEventDTO.builder().type(ProjectEventType.COMMENT_DELETED).projectId(30L).taskId(10L)
+                .commentId(1L).build());
     }
 
     @Test
@@ -109,16 +147,21 @@ public class CommentServiceImpTest {
         newTask.setId(10L);
         UserEntity newUser = new UserEntity();
         newUser.setId(20L);
+        CommentDTO updatedDto = CommentDTO.builder().id(1L).text("Updated").build();
 
         when(commentRepository.findById(1L)).thenReturn(Optional.of(comment));
         when(taskRepository.findById(10L)).thenReturn(Optional.of(newTask));
         when(userEntityRepository.findById(20L)).thenReturn(Optional.of(newUser));
+        when(modelMapper.map(comment, CommentDTO.class)).thenReturn(updatedDto);
         commentServiceImp.updateComment(1L, newDto);
 
         assertEquals("Updated", comment.getText());
         assertSame(newTask, comment.getTaskEntity());
         assertSame(newUser, comment.getAuthor());
         verify(commentRepository, atLeastOnce()).save(comment);
+        // The comment left a task of project 30, so that project is told as well.
+        verify(projectEventService).publish(ProjectEventDTO.builder().type(ProjectEventType.COMMENT_UPDATED).projectId(30L).taskId(10L)
+                .commentId(1L).comment(updatedDto).build());
     }
 
     @Test
@@ -0,0 +1,84 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionServiceImpTest {
+
+    private CompressionServiceImp compressionServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        compressionServiceImp = new CompressionServiceImp(List.of("text/*", "application/json"),
+                DataSize.ofBytes(100), DataSize.ofKilobytes(64), 0.9);
+    }
+
+    private static byte[] logContent() {
+        return "2025-01-01 INFO request handled in 12ms\n".repeat(200).getBytes();
+    }
+
+    @Test
+    void chooseStorageCodec_CompressibleText() throws IOException {
+        byte[] content = logContent();
+        assertEquals(StorageCodec.GZIP, compressionServiceImp.chooseStorageCodec("text/plain", content.length, new ByteArrayResource(content)));
+    }
+
+    @Test
+    void chooseStorageCodec_StructuredSuffix() throws IOException {
+        byte[] content = logContent();
+        assertEquals(StorageCodec.GZIP, compressionServiceImp.chooseStorageCodec("application/vnd.api+json", content.length, new ByteArrayResource(content)));
+    }
+
+    @Test
+    void chooseStorageCodec_IncompressibleContent() throws IOException {
+        byte[] content = new byte[8192];
+        new Random(42).nextBytes(content);
+        assertEquals(StorageCodec.IDENTITY, compressionServiceImp.chooseStorageCodec("text/plain", content.length, new ByteArrayResource(content)));
+    }
+
+    @Test
+    void chooseStorageCodec_NonCompressibleType() throws IOException {
+        byte[] content = logContent();
+        assertEquals(StorageCodec.IDENTITY, compressionServiceImp.chooseStorageCodec("image/png", content.length, new ByteArrayResource(content)));
+        assertEquals(StorageCodec.IDENTITY, compressionServiceImp.chooseStorageCodec(null, content.length, new ByteArrayResource(content)));
+        assertEquals(StorageCodec.IDENTITY, compressionServiceImp.chooseStorageCodec("not a type", content.length, new ByteArrayResource(content)));
+    }
+
+    @Test
+    void chooseStorageCodec_TooSmall() throws IOException {
+        byte[] content = "tiny".getBytes();
+        assertEquals(StorageCodec.IDENTITY, compressionServiceImp.chooseStorageCodec("text/plain", content.length, new ByteArrayResource(content)));
+    }
+
+    @Test
+    void encodeAndDecode_RoundTrip() throws IOException {
+        byte[] content = logContent();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        compressionServiceImp.encode(StorageCodec.GZIP, new ByteArrayInputStream(content), encoded);
+
+        assertTrue(encoded.size() < content.length);
+        try (InputStream decoded = compressionServiceImp.decode(StorageCodec.GZIP, new ByteArrayInputStream(encoded.toByteArray()))) {
+            assertArrayEquals(content, decoded.readAllBytes());
+        }
+    }
+
+    @Test
+    void encode_Identity() throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        compressionServiceImp.encode(StorageCodec.IDENTITY, new ByteArrayInputStream("plain".getBytes()), encoded);
+        assertEquals("plain", encoded.toString());
+    }
+}
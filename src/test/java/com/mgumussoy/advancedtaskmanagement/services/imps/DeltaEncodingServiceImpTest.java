@@ -0,0 +1,90 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeltaEncodingServiceImpTest {
+
+    private DeltaEncodingServiceImp deltaEncodingServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        deltaEncodingServiceImp = new DeltaEncodingServiceImp();
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        byte[] content = new byte[length];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            outputStream.writeBytes(part);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    void encode_RoundTripsIdenticalContent() throws IOException {
+        byte[] base = randomBytes(1, 10_000);
+
+        byte[] delta = deltaEncodingServiceImp.encode(base, base);
+
+        assertTrue(delta.length < 20);
+        assertArrayEquals(base, deltaEncodingServiceImp.apply(base, delta));
+    }
+
+    @Test
+    void encode_InsertionsAndDeletionsAtAnyAlignment() throws IOException {
+        byte[] base = randomBytes(1, 64_000);
+        byte[] target = concat(
+                Arrays.copyOfRange(base, 0, 1001),
+                "inserted".getBytes(),
+                Arrays.copyOfRange(base, 1001, 30_017),
+                Arrays.copyOfRange(base, 30_500, 64_000),
+                "appended".getBytes());
+
+        byte[] delta = deltaEncodingServiceImp.encode(base, target);
+
+        assertTrue(delta.length < 200, "delta was " + delta.length + " bytes");
+        assertArrayEquals(target, deltaEncodingServiceImp.apply(base, delta));
+    }
+
+    @Test
+    void encode_UnrelatedContentFallsBackToLiterals() throws IOException {
+        byte[] base = randomBytes(1, 5_000);
+        byte[] target = randomBytes(2, 5_000);
+
+        byte[] delta = deltaEncodingServiceImp.encode(base, target);
+
+        assertTrue(delta.length >= target.length);
+        assertArrayEquals(target, deltaEncodingServiceImp.apply(base, delta));
+    }
+
+    @Test
+    void encode_EmptyInputs() throws IOException {
+        byte[] target = "short".getBytes();
+
+        assertArrayEquals(target, deltaEncodingServiceImp.apply(new byte[0], deltaEncodingServiceImp.encode(new byte[0], target)));
+        assertArrayEquals(new byte[0], deltaEncodingServiceImp.apply(target, deltaEncodingServiceImp.encode(target, new byte[0])));
+    }
+
+    @Test
+    void apply_CorruptDelta() {
+        byte[] base = randomBytes(1, 1_000);
+        byte[] delta = deltaEncodingServiceImp.encode(base, concat(base, "tail".getBytes()));
+
+        assertThrows(IOException.class, () -> deltaEncodingServiceImp.apply(new byte[10], delta));
+        assertThrows(IOException.class, () -> deltaEncodingServiceImp.apply(base, Arrays.copyOf(delta, delta.length - 2)));
+        assertThrows(IOException.class, () -> deltaEncodingServiceImp.apply(base, new byte[]{5, 9}));
+    }
+}
@@ -0,0 +1,171 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalBlobStoreServiceImpTest {
+
+    private static final String MASTER_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    @TempDir
+    Path tempDir;
+
+    private LocalBlobStoreServiceImp localBlobStoreServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        localBlobStoreServiceImp = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(false, ""), tempDir.toString());
+    }
+
+    @Test
+    void store_successful() throws IOException {
+        byte[] content = "blob content".getBytes();
+
+        String key = localBlobStoreServiceImp.store(new ByteArrayInputStream(content));
+
+        assertNotNull(key);
+        assertEquals(content.length, localBlobStoreServiceImp.getSize(key));
+        try (InputStream inputStream = localBlobStoreServiceImp.openStream(key)) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void store_SameContentGetsSeparateKeys() throws IOException {
+        String firstKey = localBlobStoreServiceImp.store(new ByteArrayInputStream("blob content".getBytes()));
+        String secondKey = localBlobStoreServiceImp.store(new ByteArrayInputStream("blob content".getBytes()));
+
+        assertNotEquals(firstKey, secondKey);
+        localBlobStoreServiceImp.delete(firstKey);
+        try (InputStream inputStream = localBlobStoreServiceImp.openStream(secondKey)) {
+            assertEquals("blob content", new String(inputStream.readAllBytes()));
+        }
+    }
+
+    @Test
+    void store_WithBlobWriter() throws IOException {
+        String key = localBlobStoreServiceImp.store(outputStream -> outputStream.write("blob content".getBytes()));
+
+        assertEquals(12, localBlobStoreServiceImp.getSize(key));
+    }
+
+    @Test
+    void store_DoesNotLeaveTempFiles() throws IOException {
+        localBlobStoreServiceImp.store(new ByteArrayInputStream("blob content".getBytes()));
+
+        try (var files = Files.walk(tempDir)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".part")));
+        }
+    }
+
+    @Test
+    void getPlainFile_ReturnsFileOfUnencryptedBlob() throws IOException {
+        String key = localBlobStoreServiceImp.store(new ByteArrayInputStream("blob content".getBytes()));
+
+        Path plainFile = localBlobStoreServiceImp.getPlainFile(key).orElseThrow();
+
+        assertEquals("blob content", Files.readString(plainFile));
+    }
+
+    @Test
+    void getPlainFile_EncryptedBlob() throws IOException {
+        LocalBlobStoreServiceImp encryptedStore = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString());
+        String key = encryptedStore.store(new ByteArrayInputStream("blob content".getBytes()));
+
+        assertTrue(encryptedStore.getPlainFile(key).isEmpty());
+    }
+
+    @Test
+    void openChannel_successful() throws IOException {
+        String key = localBlobStoreServiceImp.store(new ByteArrayInputStream("blob content".getBytes()));
+
+        try (SeekableByteChannel channel = localBlobStoreServiceImp.openChannel(key)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            channel.read(buffer);
+            assertEquals("blob content", new String(buffer.array()));
+        }
+    }
+
+    @Test
+    void store_EncryptsAtRest() throws IOException {
+        localBlobStoreServiceImp = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString());
+        byte[] content = "blob content ".repeat(10_000).getBytes();
+
+        String key = localBlobStoreServiceImp.store(new ByteArrayInputStream(content));
+
+        assertTrue(key.endsWith(".enc"));
+        Path blob = tempDir.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+        assertFalse(new String(Files.readAllBytes(blob)).contains("blob content"));
+        assertEquals(content.length, localBlobStoreServiceImp.getSize(key));
+        try (InputStream inputStream = localBlobStoreServiceImp.openStream(key)) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        try (SeekableByteChannel channel = localBlobStoreServiceImp.openChannel(key)) {
+            ByteBuffer buffer = ByteBuffer.allocate(12);
+            channel.position(13 * 5_000).read(buffer);
+            assertEquals("blob content", new String(buffer.array()));
+        }
+    }
+
+    @Test
+    void openStream_ReadsBlobWrittenBeforeEncryption() throws IOException {
+        String key = localBlobStoreServiceImp.store(new ByteArrayInputStream("blob content".getBytes()));
+        localBlobStoreServiceImp = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString());
+
+        try (InputStream inputStream = localBlobStoreServiceImp.openStream(key)) {
+            assertEquals("blob content", new String(inputStream.readAllBytes()));
+        }
+    }
+
+    @Test
+    void openStream_ReadsPlainBlobThatStartsLikeAnEncryptedOne() throws IOException {
+        byte[] content = ("ATMBLOB\u0001" + "x".repeat(200)).getBytes(StandardCharsets.ISO_8859_1);
+        String key = localBlobStoreServiceImp.store(new ByteArrayInputStream(content));
+        localBlobStoreServiceImp = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString());
+
+        try (InputStream inputStream = localBlobStoreServiceImp.openStream(key)) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        assertTrue(localBlobStoreServiceImp.getPlainFile(key).isPresent());
+    }
+
+    @Test
+    void openStream_RejectsPlaintextUnderEncryptedKey() throws IOException {
+        LocalBlobStoreServiceImp encryptedStore = new LocalBlobStoreServiceImp(new BlobEncryptionServiceImp(true, MASTER_KEY), tempDir.toString());
+        String key = encryptedStore.store(new ByteArrayInputStream("blob content".getBytes()));
+        Path blob = tempDir.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+        Files.writeString(blob, "replaced with plaintext that is long enough to hold a header");
+
+        assertThrows(IOException.class, () -> encryptedStore.openStream(key));
+        assertTrue(encryptedStore.getPlainFile(key).isEmpty());
+    }
+
+    @Test
+    void delete_successful() throws IOException {
+        String key = localBlobStoreServiceImp.store(new ByteArrayInputStream("blob content".getBytes()));
+
+        localBlobStoreServiceImp.delete(key);
+
+        assertThrows(NoSuchFileException.class, () -> localBlobStoreServiceImp.getSize(key));
+    }
+
+    @Test
+    void openStream_InvalidKey() {
+        assertThrows(IllegalArgumentException.class, () -> localBlobStoreServiceImp.openStream("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class,
+                () -> localBlobStoreServiceImp.openStream("7b24cf3d897fd680e0258c1c7c23db50a5428581ed1785c08de505c381b4c4b5"));
+    }
+}
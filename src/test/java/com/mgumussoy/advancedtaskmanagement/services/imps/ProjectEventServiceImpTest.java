@@ -0,0 +1,213 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.controllers.ProjectController;
+import com.mgumussoy.advancedtaskmanagement.dtos.ProjectEventDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectEventType;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+public class ProjectEventServiceImpTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("id:(\\S+)\nevent:(\\w+)\n");
+
+    @Mock
+    private ProjectRepository projectRepository;
+
+    private ProjectEventServiceImp projectEventServiceImp;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        start(8);
+        when(projectRepository.existsByIdAndDeletedFalse(anyLong())).thenReturn(true);
+    }
+
+    private void start(int queueCapacity) {
+        projectEventServiceImp = new ProjectEventServiceImp(projectRepository, 3, queueCapacity, 2, Duration.ofMinutes(1), Duration.ofHours(1));
+        // Streams are read through the controller, since only Spring MVC can write what an emitter sends.
+        mockMvc = MockMvcBuilders.standaloneSetup(new ProjectController(mock(ProjectService.class), mock(AttachmentFileService.class),
+                mock(TaskBoardService.class), projectEventServiceImp)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectEventServiceImp.shutdown();
+    }
+
+    private MockHttpServletResponse subscribe(Long projectId, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder request = get("/projects/" + projectId + "/events");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn().getResponse();
+    }
+
+    private static ProjectEventDTO taskCreated(Long projectId, Long taskId) {
+        return ProjectEventDTO.builder().type(ProjectEventType.TASK_CREATED).projectId(projectId).taskId(taskId).build();
+    }
+
+    // Events are sent from the dispatcher thread, so the stream is polled until the expected event shows up.
+    private static String awaitEvent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        assertTrue(content.contains(expected), "missing " + expected + " in " + content);
+        return content;
+    }
+
+    private static String lastEventId(String content) {
+        Matcher matcher = EVENT_ID.matcher(content);
+        String eventId = null;
+        while (matcher.find()) {
+            eventId = matcher.group(1);
+        }
+        return eventId;
+    }
+
+    // ------------------ subscribe Tests ------------------
+    @Test
+    void subscribe_ProjectNotFound() {
+        when(projectRepository.existsByIdAndDeletedFalse(9L)).thenReturn(false);
+
+        assertThrows(ProjectNotFoundException.class, () -> projectEventServiceImp.subscribe(9L, null));
+    }
+
+    @Test
+    void subscribe_StreamsEventsOfItsProjectOnly() throws Exception {
+        MockHttpServletResponse stream = subscribe(1L, null);
+        awaitEvent(stream, "event:SUBSCRIBED");
+
+        projectEventServiceImp.publish(taskCreated(2L, 20L));
+        projectEventServiceImp.publish(taskCreated(1L, 10L));
+
+        String content = awaitEvent(stream, "\"taskId\":10");
+        assertEquals(MediaType.TEXT_EVENT_STREAM_VALUE, stream.getContentType());
+        assertEquals("no-cache", stream.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertTrue(content.contains("event:TASK_CREATED\ndata:{\"type\":\"TASK_CREATED\",\"projectId\":1"));
+        assertFalse(content.contains("\"taskId\":20"));
+    }
+
+    @Test
+    void subscribe_ResumesAfterLastEventId() throws Exception {
+        MockHttpServletResponse first = subscribe(1L, null);
+        awaitEvent(first, "event:SUBSCRIBED");
+        projectEventServiceImp.publish(taskCreated(1L, 10L));
+        String missedFrom = lastEventId(awaitEvent(first, "\"taskId\":10"));
+        projectEventServiceImp.publish(taskCreated(2L, 20L));
+        projectEventServiceImp.publish(taskCreated(1L, 11L));
+        awaitEvent(first, "\"taskId\":11");
+
+        MockHttpServletResponse resumed = subscribe(1L, missedFrom);
+        projectEventServiceImp.publish(taskCreated(1L, 12L));
+
+        String content = awaitEvent(resumed, "\"taskId\":12");
+        assertTrue(content.indexOf("\"taskId\":11") < content.indexOf("\"taskId\":12"));
+        assertFalse(content.contains("\"taskId\":10"));
+        assertFalse(content.contains("\"taskId\":20"));
+        assertFalse(content.contains("event:SUBSCRIBED"));
+        assertFalse(content.contains("event:RESET"));
+    }
+
+    @Test
+    void subscribe_ResetsWhenEventsAreNoLongerBuffered() throws Exception {
+        MockHttpServletResponse first = subscribe(1L, null);
+        String subscribedAt = lastEventId(awaitEvent(first, "event:SUBSCRIBED"));
+        for (long taskId = 10; taskId < 14; taskId++) {
+            projectEventServiceImp.publish(taskCreated(1L, taskId));
+        }
+        awaitEvent(first, "\"taskId\":13");
+
+        String content = awaitEvent(subscribe(1L, subscribedAt), "event:RESET");
+        assertFalse(content.contains("\"taskId\""));
+        assertTrue(lastEventId(content).endsWith("-4"));
+    }
+
+    @Test
+    void subscribe_ResetsWhenReplayExceedsQueue() throws Exception {
+        projectEventServiceImp.shutdown();
+        start(2);
+        String subscribedAt = lastEventId(awaitEvent(subscribe(1L, null), "event:SUBSCRIBED"));
+        // The dispatcher runs in submission order, so these are buffered before the client below resumes.
+        for (long taskId = 10; taskId < 13; taskId++) {
+            projectEventServiceImp.publish(taskCreated(1L, taskId));
+        }
+
+        String content = awaitEvent(subscribe(1L, subscribedAt), "event:RESET");
+        assertFalse(content.contains("\"taskId\""));
+        assertTrue(lastEventId(content).endsWith("-3"));
+    }
+
+    @Test
+    void subscribe_ResetsOnUnknownEventId() throws Exception {
+        awaitEvent(subscribe(1L, "elsewhere-1"), "event:RESET");
+        awaitEvent(subscribe(1L, "garbage"), "event:RESET");
+    }
+
+    // ------------------ publish Tests ------------------
+    @Test
+    void publish_WaitsForCommit() throws Exception {
+        MockHttpServletResponse stream = subscribe(1L, null);
+        awaitEvent(stream, "event:SUBSCRIBED");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            projectEventServiceImp.publish(taskCreated(1L, 10L));
+            assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        } finally {
+            // Rolled back: the synchronization is dropped without running afterCommit.
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            projectEventServiceImp.publish(taskCreated(1L, 11L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        String content = awaitEvent(stream, "\"taskId\":11");
+        assertFalse(content.contains("\"taskId\":10"));
+    }
+
+    @Test
+    void publish_IgnoresEventsWithoutProject() throws Exception {
+        MockHttpServletResponse stream = subscribe(1L, null);
+        awaitEvent(stream, "event:SUBSCRIBED");
+
+        projectEventServiceImp.publish(taskCreated(null, 10L));
+        projectEventServiceImp.publish(taskCreated(1L, 11L));
+
+        String content = awaitEvent(stream, "\"taskId\":11");
+        assertFalse(content.contains("\"taskId\":10"));
+        assertTrue(lastEventId(content).endsWith("-1"));
+    }
+}
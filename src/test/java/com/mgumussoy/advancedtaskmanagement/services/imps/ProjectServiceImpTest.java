@@ -2,12 +2,16 @@ package com.mgumussoy.advancedtaskmanagement.services.imps;
 
 import com.mgumussoy.advancedtaskmanagement.dtos.ProjectDTO;
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
 import com.mgumussoy.advancedtaskmanagement.entities.Department;
 import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
 import com.mgumussoy.advancedtaskmanagement.exceptions.DepartmentNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.InvalidCursorException;
 import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
 import com.mgumussoy.advancedtaskmanagement.repositories.DepartmentRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -15,8 +19,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
-import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +41,9 @@ public class ProjectServiceImpTest {
     @Mock
     private DepartmentRepository departmentRepository;
 
+    @Mock
+    private TaskRepository taskRepository;
+
     @Mock
     private ModelMapper modelMapper;
 
@@ -50,13 +60,76 @@ public class ProjectServiceImpTest {
         project.setDepartment(department);
     }
 
+    private static TaskDTO task(long id, Date createdDate) {
+        return TaskDTO.builder().id(id).projectId(1L).createdDate(createdDate).updateDate(createdDate).build();
+    }
+
     @Test
     void getTasksOfProject_success() throws ProjectNotFoundException {
-        project.setTaskEntities(new ArrayList<>());
-        when(projectRepository.findById(1L)).thenReturn(Optional.of(project));
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(true);
+        when(taskRepository.findByProjectIdAfterId(eq(1L), eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(task(1L, null), task(2L, null)), PageRequest.of(0, 2), false));
+
+        TaskPageDTO tasks = projectServiceImp.getTasksOfProject(1L, null, 2, TaskSortKey.ID);
 
-        List<TaskDTO> tasks = projectServiceImp.getTasksOfProject(1L);
-        assertNotNull(tasks);
+        assertEquals(2, tasks.getTasks().size());
+        assertNull(tasks.getNextCursor());
+        verifyNoInteractions(modelMapper);
+    }
+
+    @Test
+    void getTasksOfProject_NextCursorContinuesAfterLastTask() throws ProjectNotFoundException {
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(true);
+        when(taskRepository.findByProjectIdAfterId(eq(1L), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(task(1L, null), task(2L, null)), PageRequest.of(0, 2), true));
+
+        TaskPageDTO firstPage = projectServiceImp.getTasksOfProject(1L, null, 2, TaskSortKey.ID);
+        assertNotNull(firstPage.getNextCursor());
+
+        projectServiceImp.getTasksOfProject(1L, firstPage.getNextCursor(), 2, TaskSortKey.ID);
+        verify(taskRepository).findByProjectIdAfterId(eq(1L), eq(2L), any(Pageable.class));
+    }
+
+    @Test
+    void getTasksOfProject_CreatedDateCursorCarriesDateAndId() throws ProjectNotFoundException {
+        Date created = new Date(1_700_000_000_000L);
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(true);
+        when(taskRepository.findByProjectIdAfterCreatedDate(eq(1L), any(Date.class), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(task(7L, created)), PageRequest.of(0, 1), true));
+
+        TaskPageDTO firstPage = projectServiceImp.getTasksOfProject(1L, null, 1, TaskSortKey.CREATED_DATE);
+        projectServiceImp.getTasksOfProject(1L, firstPage.getNextCursor(), 1, TaskSortKey.CREATED_DATE);
+
+        verify(taskRepository).findByProjectIdAfterCreatedDate(eq(1L), eq(created), eq(7L), any(Pageable.class));
+    }
+
+    @Test
+    void getTasksOfProject_ClampsPageSize() throws ProjectNotFoundException {
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(true);
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        when(taskRepository.findByProjectIdAfterId(eq(1L), anyLong(), pageable.capture()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        projectServiceImp.getTasksOfProject(1L, null, 10_000, TaskSortKey.ID);
+
+        assertEquals(100, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    void getTasksOfProject_CursorOfOtherSortKey() throws ProjectNotFoundException {
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(true);
+        when(taskRepository.findByProjectIdAfterId(eq(1L), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(task(1L, null)), PageRequest.of(0, 1), true));
+        String cursor = projectServiceImp.getTasksOfProject(1L, null, 1, TaskSortKey.ID).getNextCursor();
+
+        assertThrows(InvalidCursorException.class, () -> projectServiceImp.getTasksOfProject(1L, cursor, 1, TaskSortKey.UPDATE_DATE));
+    }
+
+    @Test
+    void getTasksOfProject_MalformedCursor() {
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(true);
+        assertThrows(InvalidCursorException.class, () -> projectServiceImp.getTasksOfProject(1L, "not a cursor!", 20, TaskSortKey.ID));
+        assertThrows(InvalidCursorException.class, () -> projectServiceImp.getTasksOfProject(1L, "SUQ6eDox", 20, TaskSortKey.ID));
     }
 
     @Test
@@ -111,8 +184,9 @@ public class ProjectServiceImpTest {
 
     @Test
     void getTasksOfProject_NotFound() {
-        when(projectRepository.findById(1L)).thenReturn(Optional.empty());
-        assertThrows(ProjectNotFoundException.class, () -> projectServiceImp.getTasksOfProject(1L));
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(false);
+        assertThrows(ProjectNotFoundException.class, () -> projectServiceImp.getTasksOfProject(1L, null, 20, TaskSortKey.ID));
+        verifyNoInteractions(taskRepository);
     }
 
     @Test
@@ -0,0 +1,114 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.DownloadUrlDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.exceptions.AttachmentFileNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SignedDownloadServiceImpTest {
+
+    @Mock
+    private AttachmentFileService attachmentFileService;
+
+    private SignedDownloadServiceImp signedDownloadServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        signedDownloadServiceImp = createService("secret", Duration.ofMinutes(5));
+        when(attachmentFileService.getFile(1L)).thenReturn(AttachmentFileDTO.builder()
+                .id(1L)
+                .fileName("report.txt")
+                .fileType("text/plain")
+                .fileSize(100)
+                .contentHash("abc123")
+                .storageKey("key")
+                .storedSize(40)
+                .storageCodec(StorageCodec.GZIP)
+                .build());
+    }
+
+    private SignedDownloadServiceImp createService(String signingKey, Duration urlTtl) {
+        return new SignedDownloadServiceImp(attachmentFileService, new ObjectMapper(), signingKey, urlTtl);
+    }
+
+    private String tokenOf(DownloadUrlDTO downloadUrl) {
+        return downloadUrl.getUrl().substring(SignedDownloadServiceImp.DOWNLOAD_PATH.length());
+    }
+
+    // ------------------ createDownloadUrl Tests ------------------
+    @Test
+    void createDownloadUrl_successful() {
+        long before = System.currentTimeMillis();
+
+        DownloadUrlDTO downloadUrl = signedDownloadServiceImp.createDownloadUrl(1L);
+
+        assertTrue(downloadUrl.getUrl().startsWith("/downloads/"));
+        assertTrue(downloadUrl.getExpiresAt().getTime() >= before + Duration.ofMinutes(5).toMillis());
+    }
+
+    @Test
+    void createDownloadUrl_AttachmentFileNotFound() {
+        when(attachmentFileService.getFile(2L)).thenThrow(new AttachmentFileNotFoundException());
+        assertThrows(AttachmentFileNotFoundException.class, () -> signedDownloadServiceImp.createDownloadUrl(2L));
+    }
+
+    // ------------------ resolveToken Tests ------------------
+    @Test
+    void resolveToken_successful() {
+        String token = tokenOf(signedDownloadServiceImp.createDownloadUrl(1L));
+
+        AttachmentFileDTO file = signedDownloadServiceImp.resolveToken(token).orElseThrow();
+
+        assertEquals(1L, file.getId());
+        assertEquals("report.txt", file.getFileName());
+        assertEquals(100, file.getFileSize());
+        assertEquals("abc123", file.getContentHash());
+        assertEquals("key", file.getStorageKey());
+        assertEquals(40, file.getStoredSize());
+        assertEquals(StorageCodec.GZIP, file.getStorageCodec());
+        verify(attachmentFileService, times(1)).getFile(1L);
+    }
+
+    @Test
+    void resolveToken_TamperedPayload() {
+        String token = tokenOf(signedDownloadServiceImp.createDownloadUrl(1L));
+        String tampered = (token.charAt(0) == 'A' ? "B" : "A") + token.substring(1);
+
+        assertEquals(Optional.empty(), signedDownloadServiceImp.resolveToken(tampered));
+    }
+
+    @Test
+    void resolveToken_SignedWithOtherKey() {
+        String token = tokenOf(createService("other", Duration.ofMinutes(5)).createDownloadUrl(1L));
+
+        assertEquals(Optional.empty(), signedDownloadServiceImp.resolveToken(token));
+    }
+
+    @Test
+    void resolveToken_Expired() {
+        SignedDownloadServiceImp expiringService = createService("secret", Duration.ofSeconds(-1));
+        String token = tokenOf(expiringService.createDownloadUrl(1L));
+
+        assertEquals(Optional.empty(), expiringService.resolveToken(token));
+    }
+
+    @Test
+    void resolveToken_Malformed() {
+        assertEquals(Optional.empty(), signedDownloadServiceImp.resolveToken(null));
+        assertEquals(Optional.empty(), signedDownloadServiceImp.resolveToken("no-signature"));
+        assertEquals(Optional.empty(), signedDownloadServiceImp.resolveToken("!!!.???"));
+    }
+}
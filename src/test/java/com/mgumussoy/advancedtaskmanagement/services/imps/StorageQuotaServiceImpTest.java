@@ -0,0 +1,347 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.StorageUsageDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.Department;
+import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.entities.StorageUsage;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageScope;
+import com.mgumussoy.advancedtaskmanagement.exceptions.StorageQuotaExceededException;
+import com.mgumussoy.advancedtaskmanagement.exceptions.TaskNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentFileRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.DepartmentRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.StorageUsageRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class StorageQuotaServiceImpTest {
+
+    @Mock
+    private StorageUsageRepository storageUsageRepository;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private AttachmentFileRepository attachmentFileRepository;
+
+    @Mock
+    private ProjectRepository projectRepository;
+
+    @Mock
+    private DepartmentRepository departmentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private StorageQuotaServiceImp storageQuotaServiceImp;
+
+    private TaskEntity task;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        storageQuotaServiceImp = new StorageQuotaServiceImp(storageUsageRepository, taskRepository, attachmentFileRepository,
+                projectRepository, departmentRepository, new MissingRowInserter(transactionManager), transactionTemplate, 2,
+                DataSize.ofBytes(100), 5, DataSize.ofBytes(1000), 50, DataSize.ofBytes(10000), 500);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+
+        Department department = new Department();
+        department.setId(3L);
+        project = new Project();
+        project.setId(2L);
+        project.setDepartment(department);
+        task = new TaskEntity();
+        task.setId(1L);
+        task.setProject(project);
+    }
+
+    private static StorageUsage newUsage(StorageScope scope, Long scopeId) {
+        return argThat(storageUsage -> storageUsage != null && storageUsage.getScope() == scope && storageUsage.getScopeId().equals(scopeId));
+    }
+
+    private StorageUsage createUsage(StorageScope scope, Long scopeId, long usedBytes, long fileCount) {
+        return StorageUsage.builder().scope(scope).scopeId(scopeId).usedBytes(usedBytes).fileCount(fileCount).build();
+    }
+
+    @Test
+    void checkQuota_WithinLimits() {
+        when(taskRepository.findWithProjectById(1L)).thenReturn(Optional.of(task));
+        when(storageUsageRepository.findByScopeAndScopeId(StorageScope.TASK, 1L))
+                .thenReturn(Optional.of(createUsage(StorageScope.TASK, 1L, 50, 2)));
+
+        assertDoesNotThrow(() -> storageQuotaServiceImp.checkQuota(1L, 50, 3));
+    }
+
+    @Test
+    void checkQuota_TaskBytesExceeded() {
+        when(taskRepository.findWithProjectById(1L)).thenReturn(Optional.of(task));
+        when(storageUsageRepository.findByScopeAndScopeId(StorageScope.TASK, 1L))
+                .thenReturn(Optional.of(createUsage(StorageScope.TASK, 1L, 50, 2)));
+
+        assertThrows(StorageQuotaExceededException.class, () -> storageQuotaServiceImp.checkQuota(1L, 51, 1));
+    }
+
+    @Test
+    void checkQuota_DepartmentFilesExceeded() {
+        when(taskRepository.findWithProjectById(1L)).thenReturn(Optional.of(task));
+        when(storageUsageRepository.findByScopeAndScopeId(StorageScope.DEPARTMENT, 3L))
+                .thenReturn(Optional.of(createUsage(StorageScope.DEPARTMENT, 3L, 0, 500)));
+
+        assertThrows(StorageQuotaExceededException.class, () -> storageQuotaServiceImp.checkQuota(1L, 1, 1));
+    }
+
+    @Test
+    void checkQuota_TaskNotFound() {
+        when(taskRepository.findWithProjectById(1L)).thenReturn(Optional.empty());
+        assertThrows(TaskNotFoundException.class, () -> storageQuotaServiceImp.checkQuota(1L, 1, 1));
+    }
+
+    @Test
+    void recordUsage_UpdatesEveryScope() {
+        StorageUsage projectUsage = createUsage(StorageScope.PROJECT, 2L, 500, 10);
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.PROJECT, 2L)).thenReturn(Optional.of(projectUsage));
+
+        storageQuotaServiceImp.recordUsage(task, 40, 2);
+
+        ArgumentCaptor<StorageUsage> captor = ArgumentCaptor.forClass(StorageUsage.class);
+        verify(storageUsageRepository, times(3)).save(captor.capture());
+        List<StorageUsage> saved = captor.getAllValues();
+        assertEquals(StorageScope.TASK, saved.get(0).getScope());
+        assertEquals(40, saved.get(0).getUsedBytes());
+        assertEquals(2, saved.get(0).getFileCount());
+        assertSame(projectUsage, saved.get(1));
+        assertEquals(540, projectUsage.getUsedBytes());
+        assertEquals(12, projectUsage.getFileCount());
+        assertEquals(StorageScope.DEPARTMENT, saved.get(2).getScope());
+        assertEquals(3L, saved.get(2).getScopeId());
+    }
+
+    @Test
+    void recordUsage_ReleaseNeverGoesNegative() {
+        StorageUsage taskUsage = createUsage(StorageScope.TASK, 1L, 10, 1);
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 1L)).thenReturn(Optional.of(taskUsage));
+
+        storageQuotaServiceImp.recordUsage(task, -20, -2);
+
+        assertEquals(0, taskUsage.getUsedBytes());
+        assertEquals(0, taskUsage.getFileCount());
+    }
+
+    @Test
+    void recordUsage_QuotaExceeded() {
+        StorageUsage taskUsage = createUsage(StorageScope.TASK, 1L, 90, 1);
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 1L)).thenReturn(Optional.of(taskUsage));
+
+        assertThrows(StorageQuotaExceededException.class, () -> storageQuotaServiceImp.recordUsage(task, 20, 1));
+        assertEquals(90, taskUsage.getUsedBytes());
+        verify(storageUsageRepository, never()).save(any());
+    }
+
+    @Test
+    void getUsage_ReturnsZeroWhenNothingStored() {
+        when(storageUsageRepository.findByScopeAndScopeId(StorageScope.PROJECT, 2L)).thenReturn(Optional.empty());
+
+        StorageUsageDTO usage = storageQuotaServiceImp.getUsage(StorageScope.PROJECT, 2L);
+
+        assertEquals(0, usage.getUsedBytes());
+        assertEquals(0, usage.getFileCount());
+        assertEquals(1000, usage.getMaxBytes());
+        assertEquals(50, usage.getMaxFiles());
+    }
+
+    @Test
+    void getUsages_ReturnsScopeTotals() {
+        when(storageUsageRepository.findByScopeOrderByUsedBytesDesc(StorageScope.DEPARTMENT))
+                .thenReturn(List.of(createUsage(StorageScope.DEPARTMENT, 3L, 700, 7)));
+
+        List<StorageUsageDTO> usages = storageQuotaServiceImp.getUsages(StorageScope.DEPARTMENT);
+
+        assertEquals(1, usages.size());
+        assertEquals(700, usages.getFirst().getUsedBytes());
+        assertEquals(10000, usages.getFirst().getMaxBytes());
+    }
+
+    @Test
+    void recordUsage_CreatesMissingRowsBeforeLocking() {
+        when(storageUsageRepository.existsByScopeAndScopeId(StorageScope.TASK, 1L)).thenReturn(true);
+
+        storageQuotaServiceImp.recordUsage(task, 40, 2);
+
+        InOrder inOrder = inOrder(storageUsageRepository);
+        inOrder.verify(storageUsageRepository).saveAndFlush(newUsage(StorageScope.PROJECT, 2L));
+        inOrder.verify(storageUsageRepository).saveAndFlush(newUsage(StorageScope.DEPARTMENT, 3L));
+        inOrder.verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.TASK, 1L);
+        verify(storageUsageRepository, never()).saveAndFlush(newUsage(StorageScope.TASK, 1L));
+    }
+
+    @Test
+    void recordUsage_ConcurrentlyCreatedRowIsLockedInstead() {
+        StorageUsage taskUsage = createUsage(StorageScope.TASK, 1L, 10, 1);
+        when(storageUsageRepository.saveAndFlush(newUsage(StorageScope.TASK, 1L))).thenThrow(new DataIntegrityViolationException("storage_usages"));
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 1L)).thenReturn(Optional.of(taskUsage));
+
+        storageQuotaServiceImp.recordUsage(task, 40, 2);
+
+        assertEquals(50, taskUsage.getUsedBytes());
+        assertEquals(3, taskUsage.getFileCount());
+    }
+
+    @Test
+    void replaceUsage_LocksScopesInOneOrder() {
+        TaskEntity otherTask = new TaskEntity();
+        otherTask.setId(7L);
+        otherTask.setProject(project);
+        StorageUsage otherUsage = createUsage(StorageScope.TASK, 7L, 30, 1);
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 7L)).thenReturn(Optional.of(otherUsage));
+
+        storageQuotaServiceImp.replaceUsage(otherTask, 30, task, 20);
+
+        InOrder inOrder = inOrder(storageUsageRepository);
+        inOrder.verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.TASK, 1L);
+        inOrder.verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.TASK, 7L);
+        // The file stays in the same project and department, so their rows only change by the size difference.
+        inOrder.verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.PROJECT, 2L);
+        inOrder.verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.DEPARTMENT, 3L);
+        assertEquals(0, otherUsage.getUsedBytes());
+        assertEquals(0, otherUsage.getFileCount());
+    }
+
+    @Test
+    void replaceUsage_QuotaExceededLeavesEveryScopeUntouched() {
+        TaskEntity otherTask = new TaskEntity();
+        otherTask.setId(7L);
+        StorageUsage otherUsage = createUsage(StorageScope.TASK, 7L, 30, 1);
+        StorageUsage taskUsage = createUsage(StorageScope.TASK, 1L, 90, 1);
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 7L)).thenReturn(Optional.of(otherUsage));
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 1L)).thenReturn(Optional.of(taskUsage));
+
+        assertThrows(StorageQuotaExceededException.class, () -> storageQuotaServiceImp.replaceUsage(otherTask, 30, task, 20));
+
+        assertEquals(30, otherUsage.getUsedBytes());
+        verify(storageUsageRepository, never()).save(any());
+    }
+
+    @Test
+    void moveTaskUsage_MovesProjectAndDepartmentTotals() {
+        Department otherDepartment = new Department();
+        otherDepartment.setId(4L);
+        Project otherProject = new Project();
+        otherProject.setId(5L);
+        otherProject.setDepartment(otherDepartment);
+        StorageUsage projectUsage = createUsage(StorageScope.PROJECT, 2L, 500, 10);
+        StorageUsage otherProjectUsage = createUsage(StorageScope.PROJECT, 5L, 990, 1);
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 1L))
+                .thenReturn(Optional.of(createUsage(StorageScope.TASK, 1L, 40, 2)));
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.PROJECT, 2L)).thenReturn(Optional.of(projectUsage));
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.PROJECT, 5L)).thenReturn(Optional.of(otherProjectUsage));
+
+        storageQuotaServiceImp.moveTaskUsage(1L, project, otherProject);
+
+        assertEquals(460, projectUsage.getUsedBytes());
+        assertEquals(8, projectUsage.getFileCount());
+        // Moves are never refused, even when the target ends up above its limit.
+        assertEquals(1030, otherProjectUsage.getUsedBytes());
+        assertEquals(3, otherProjectUsage.getFileCount());
+        verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.DEPARTMENT, 3L);
+        verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.DEPARTMENT, 4L);
+    }
+
+    @Test
+    void moveTaskUsage_SameProject() {
+        storageQuotaServiceImp.moveTaskUsage(1L, project, project);
+        verifyNoInteractions(storageUsageRepository);
+    }
+
+    @Test
+    void releaseTaskUsage_ClearsEveryScope() {
+        StorageUsage taskUsage = createUsage(StorageScope.TASK, 1L, 40, 2);
+        StorageUsage projectUsage = createUsage(StorageScope.PROJECT, 2L, 500, 10);
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.TASK, 1L)).thenReturn(Optional.of(taskUsage));
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.PROJECT, 2L)).thenReturn(Optional.of(projectUsage));
+
+        storageQuotaServiceImp.releaseTaskUsage(task);
+
+        assertEquals(0, taskUsage.getUsedBytes());
+        assertEquals(0, taskUsage.getFileCount());
+        assertEquals(460, projectUsage.getUsedBytes());
+        assertEquals(8, projectUsage.getFileCount());
+    }
+
+    @Test
+    void releaseTaskUsage_NothingRecorded() {
+        storageQuotaServiceImp.releaseTaskUsage(task);
+        verify(storageUsageRepository, never()).save(any());
+    }
+
+    // ------------------ Reconciliation Tests ------------------
+    @Test
+    void reconcileUsage_BackfillsAndRepairsUsage() {
+        when(projectRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(2L));
+        when(departmentRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(3L));
+        when(attachmentFileRepository.sumUsageByTaskOfProject(2L)).thenReturn(List.of(createUsage(StorageScope.TASK, 1L, 40, 2)));
+        when(attachmentFileRepository.sumUsageOfDepartment(3L)).thenReturn(Optional.of(createUsage(StorageScope.DEPARTMENT, 3L, 40, 2)));
+        when(taskRepository.findIdsByProjectId(2L)).thenReturn(List.of(1L, 6L));
+        StorageUsage taskUsage = createUsage(StorageScope.TASK, 1L, 0, 0);
+        StorageUsage deletedTaskUsage = createUsage(StorageScope.TASK, 6L, 15, 1);
+        StorageUsage projectUsage = createUsage(StorageScope.PROJECT, 2L, 0, 0);
+        StorageUsage departmentUsage = createUsage(StorageScope.DEPARTMENT, 3L, 40, 2);
+        when(storageUsageRepository.findWithLockByScopeAndScopeIdInOrderByScopeId(StorageScope.TASK, List.of(1L, 6L)))
+                .thenReturn(List.of(taskUsage, deletedTaskUsage));
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.PROJECT, 2L)).thenReturn(Optional.of(projectUsage));
+        when(storageUsageRepository.findWithLockByScopeAndScopeId(StorageScope.DEPARTMENT, 3L)).thenReturn(Optional.of(departmentUsage));
+
+        assertEquals(3, storageQuotaServiceImp.reconcileUsage());
+
+        verify(storageUsageRepository).saveAndFlush(newUsage(StorageScope.TASK, 1L));
+        verify(storageUsageRepository).saveAndFlush(newUsage(StorageScope.PROJECT, 2L));
+        assertEquals(40, taskUsage.getUsedBytes());
+        assertEquals(2, taskUsage.getFileCount());
+        assertEquals(0, deletedTaskUsage.getUsedBytes());
+        assertEquals(40, projectUsage.getUsedBytes());
+        verify(storageUsageRepository, never()).save(departmentUsage);
+    }
+
+    @Test
+    void reconcileUsage_LocksRowsBeforeSumming() {
+        when(projectRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(2L));
+        when(departmentRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of());
+        when(taskRepository.findIdsByProjectId(2L)).thenReturn(List.of(1L));
+
+        storageQuotaServiceImp.reconcileUsage();
+
+        InOrder inOrder = inOrder(storageUsageRepository, attachmentFileRepository);
+        inOrder.verify(attachmentFileRepository).sumUsageByTaskOfProject(2L);
+        inOrder.verify(storageUsageRepository).findWithLockByScopeAndScopeIdInOrderByScopeId(eq(StorageScope.TASK), anyList());
+        inOrder.verify(storageUsageRepository).findWithLockByScopeAndScopeId(StorageScope.PROJECT, 2L);
+        inOrder.verify(attachmentFileRepository).sumUsageByTaskOfProject(2L);
+    }
+}
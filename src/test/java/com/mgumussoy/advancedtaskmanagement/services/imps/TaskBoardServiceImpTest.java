@@ -0,0 +1,184 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskBoardSummaryDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskBoardCounter;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import com.mgumussoy.advancedtaskmanagement.exceptions.ProjectNotFoundException;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskBoardCounterRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService.BoardSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TaskBoardServiceImpTest {
+
+    @Mock
+    private TaskBoardCounterRepository taskBoardCounterRepository;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private ProjectRepository projectRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TaskBoardServiceImp taskBoardServiceImp;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        taskBoardServiceImp = new TaskBoardServiceImp(taskBoardCounterRepository, taskRepository, projectRepository,
+                new MissingRowInserter(transactionManager), transactionTemplate, 2);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+
+    private static TaskBoardCounter counter(Long projectId, TaskState state, TaskPriority priority, boolean assigned, long taskCount) {
+        return new TaskBoardCounter(projectId, state, priority, assigned, taskCount);
+    }
+
+    private static TaskBoardCounter newCounter(Long projectId, TaskState state, TaskPriority priority, boolean assigned) {
+        return argThat(counter -> counter != null && counter.getProjectId().equals(projectId) && counter.getState() == state
+                && counter.getPriority() == priority && counter.isAssigned() == assigned);
+    }
+
+    // ------------------ recordChange Tests ------------------
+    @Test
+    void recordChange_CreatesCounterForNewSlot() {
+        when(taskBoardCounterRepository.existsByProjectIdAndStateAndPriorityAndAssigned(1L, TaskState.BACKLOG, TaskPriority.HIGH, true))
+                .thenReturn(false);
+
+        taskBoardServiceImp.recordChange(null, new BoardSlot(1L, TaskState.BACKLOG, TaskPriority.HIGH, true));
+
+        InOrder inOrder = inOrder(taskBoardCounterRepository);
+        inOrder.verify(taskBoardCounterRepository).saveAndFlush(newCounter(1L, TaskState.BACKLOG, TaskPriority.HIGH, true));
+        inOrder.verify(taskBoardCounterRepository).adjustTaskCount(1L, TaskState.BACKLOG, TaskPriority.HIGH, true, 1);
+    }
+
+    @Test
+    void recordChange_ConcurrentlyCreatedCounter() {
+        when(taskBoardCounterRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("task_board_counters"));
+
+        taskBoardServiceImp.recordChange(null, new BoardSlot(1L, TaskState.BACKLOG, TaskPriority.HIGH, true));
+
+        verify(taskBoardCounterRepository).adjustTaskCount(1L, TaskState.BACKLOG, TaskPriority.HIGH, true, 1);
+    }
+
+    @Test
+    void recordChange_MovesTaskBetweenSlotsInLockOrder() {
+        when(taskBoardCounterRepository.existsByProjectIdAndStateAndPriorityAndAssigned(eq(1L), any(), any(), anyBoolean())).thenReturn(true);
+
+        taskBoardServiceImp.recordChange(new BoardSlot(1L, TaskState.IN_ANALYSIS, TaskPriority.HIGH, true),
+                new BoardSlot(1L, TaskState.BACKLOG, TaskPriority.HIGH, true));
+
+        InOrder inOrder = inOrder(taskBoardCounterRepository);
+        inOrder.verify(taskBoardCounterRepository).adjustTaskCount(1L, TaskState.BACKLOG, TaskPriority.HIGH, true, 1);
+        inOrder.verify(taskBoardCounterRepository).adjustTaskCount(1L, TaskState.IN_ANALYSIS, TaskPriority.HIGH, true, -1);
+        verify(taskBoardCounterRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void recordChange_SameSlot() {
+        BoardSlot slot = new BoardSlot(1L, TaskState.BACKLOG, TaskPriority.HIGH, true);
+
+        taskBoardServiceImp.recordChange(slot, slot);
+        taskBoardServiceImp.recordChange(null, null);
+
+        verifyNoInteractions(taskBoardCounterRepository);
+    }
+
+    // ------------------ getBoardSummary Tests ------------------
+    @Test
+    void getBoardSummary_SumsCountersPerStateAndPriority() {
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(true);
+        when(taskBoardCounterRepository.findByProjectId(1L)).thenReturn(List.of(
+                counter(1L, TaskState.BACKLOG, TaskPriority.HIGH, true, 4),
+                counter(1L, TaskState.BACKLOG, TaskPriority.LOW, false, 2),
+                counter(1L, TaskState.COMPLETED, TaskPriority.HIGH, true, 1)));
+
+        TaskBoardSummaryDTO summary = taskBoardServiceImp.getBoardSummary(1L);
+
+        assertEquals(7, summary.getTotalCount());
+        assertEquals(2, summary.getUnassignedCount());
+        assertEquals(6L, summary.getStateCounts().get(TaskState.BACKLOG));
+        assertEquals(1L, summary.getStateCounts().get(TaskState.COMPLETED));
+        assertEquals(0L, summary.getStateCounts().get(TaskState.BLOCKED));
+        assertEquals(5L, summary.getPriorityCounts().get(TaskPriority.HIGH));
+        assertEquals(2L, summary.getPriorityCounts().get(TaskPriority.LOW));
+        assertEquals(TaskPriority.values().length, summary.getPriorityCounts().size());
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    void getBoardSummary_ProjectNotFound() {
+        when(projectRepository.existsByIdAndDeletedFalse(1L)).thenReturn(false);
+
+        assertThrows(ProjectNotFoundException.class, () -> taskBoardServiceImp.getBoardSummary(1L));
+        verifyNoInteractions(taskBoardCounterRepository);
+    }
+
+    // ------------------ reconcileCounters Tests ------------------
+    @Test
+    void reconcileCounters_RepairsDriftedCounters() {
+        TaskBoardCounter drifted = counter(1L, TaskState.BACKLOG, TaskPriority.HIGH, true, 5);
+        TaskBoardCounter stale = counter(1L, TaskState.BLOCKED, TaskPriority.HIGH, true, 2);
+        TaskBoardCounter correct = counter(1L, TaskState.COMPLETED, TaskPriority.LOW, false, 1);
+        when(projectRepository.findIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L));
+        TaskBoardCounter missing = counter(1L, TaskState.IN_ANALYSIS, TaskPriority.LOW, true, 0);
+        when(taskBoardCounterRepository.findWithLockByProjectId(1L)).thenReturn(List.of(drifted, stale, correct));
+        when(taskBoardCounterRepository.findWithLockByProjectIdAndStateAndPriorityAndAssigned(1L, TaskState.IN_ANALYSIS, TaskPriority.LOW, true))
+                .thenReturn(Optional.of(missing));
+        when(taskRepository.countBoardByProjectId(1L)).thenReturn(List.of(
+                counter(1L, TaskState.BACKLOG, TaskPriority.HIGH, true, 3),
+                counter(1L, TaskState.COMPLETED, TaskPriority.LOW, false, 1),
+                counter(1L, TaskState.IN_ANALYSIS, TaskPriority.LOW, true, 2)));
+
+        assertEquals(3, taskBoardServiceImp.reconcileCounters());
+
+        assertEquals(3, drifted.getTaskCount());
+        assertEquals(0, stale.getTaskCount());
+        assertEquals(2, missing.getTaskCount());
+        verify(taskBoardCounterRepository, never()).save(correct);
+        verify(taskBoardCounterRepository).saveAndFlush(newCounter(1L, TaskState.IN_ANALYSIS, TaskPriority.LOW, true));
+    }
+
+    @Test
+    void reconcileCounters_WalksProjectsInBatches() {
+        when(projectRepository.findIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(projectRepository.findIdsAfter(eq(2L), any(Pageable.class))).thenReturn(List.of(5L));
+
+        assertEquals(0, taskBoardServiceImp.reconcileCounters());
+
+        verify(taskRepository).countBoardByProjectId(1L);
+        verify(taskRepository).countBoardByProjectId(2L);
+        verify(taskRepository).countBoardByProjectId(5L);
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(taskBoardCounterRepository, never()).save(any());
+    }
+}
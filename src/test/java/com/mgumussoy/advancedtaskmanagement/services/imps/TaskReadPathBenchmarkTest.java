@@ -0,0 +1,144 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.configs.ModelMapperConfig;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.Department;
+import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.entities.UserEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectStatus;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import com.mgumussoy.advancedtaskmanagement.repositories.DepartmentRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.UserEntityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares the getTask read path, a TaskDTO projection, with loading the entity and mapping it with ModelMapper. Runs
+// against the embedded H2 database, so the latencies leave out the network but not the per-row work. Run with
+// mvn test -Dtest=TaskReadPathBenchmarkTest -Dtasks.benchmark=true
+@Slf4j
+@EnabledIfSystemProperty(named = "tasks.benchmark", matches = "true")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+public class TaskReadPathBenchmarkTest {
+
+    private static final int TASKS = 1_000;
+    private static final int READS = 20_000;
+    private static final double MAX_LATENCY_RATIO = 0.7;
+    private static final double MAX_ALLOCATION_RATIO = 0.9;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserEntityRepository userEntityRepository;
+
+    @Test
+    void projectionAllocatesLessAndIsFasterThanEntityMapping() {
+        List<Long> taskIds = seedTasks();
+        ModelMapper modelMapper = new ModelMapperConfig().modelMapper();
+        // Opening a transaction costs both paths the same, so the reads share the test's one. The persistence context is
+        // cleared before each of them instead, as a new request would find it, so the entity path cannot hit the first level cache.
+        Function<Long, TaskDTO> entityPath = id -> {
+            testEntityManager.clear();
+            return modelMapper.map(taskRepository.findById(id).orElseThrow(), TaskDTO.class);
+        };
+        Function<Long, TaskDTO> projectionPath = id -> {
+            testEntityManager.clear();
+            return taskRepository.findDTOById(id).orElseThrow();
+        };
+
+        TaskDTO mapped = entityPath.apply(taskIds.getFirst());
+        TaskDTO projected = projectionPath.apply(taskIds.getFirst());
+        assertEquals(mapped.getUserStory(), projected.getUserStory());
+        assertEquals(mapped.getAssigneeId(), projected.getAssigneeId());
+        assertEquals(mapped.getProjectId(), projected.getProjectId());
+
+        // Both paths share the repository, Hibernate and JDBC code, so each is warmed up before either is measured.
+        read(entityPath, taskIds);
+        read(projectionPath, taskIds);
+        Measurement entity = measure(entityPath, taskIds);
+        Measurement projection = measure(projectionPath, taskIds);
+
+        log.info("median latency: entity {} us/read, projection {} us/read", String.format("%.1f", entity.nanosPerRead() / 1e3),
+                String.format("%.1f", projection.nanosPerRead() / 1e3));
+        log.info("allocation: entity {} B/read, projection {} B/read", Math.round(entity.bytesPerRead()),
+                Math.round(projection.bytesPerRead()));
+        assertTrue(projection.nanosPerRead() <= entity.nanosPerRead() * MAX_LATENCY_RATIO, "projection reads are not faster");
+        assertTrue(projection.bytesPerRead() <= entity.bytesPerRead() * MAX_ALLOCATION_RATIO, "projection reads do not allocate less");
+    }
+
+    private List<Long> seedTasks() {
+        Department department = departmentRepository.save(Department.builder().departmentName("Engineering").build());
+        UserEntity assignee = userEntityRepository.save(UserEntity.builder().username("assignee").password("secret")
+                .department(department).build());
+        Project project = projectRepository.save(Project.builder().title("Benchmark").description("Read path benchmark")
+                .status(ProjectStatus.IN_PROGRESS).department(department).build());
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(TaskEntity.builder()
+                    .userStory("As a user I want to export invoice " + i + " so that I can send it to accounting")
+                    .acceptanceCriteria("The export contains every line of invoice " + i + " and its totals")
+                    .state(TaskState.BACKLOG)
+                    .priority(TaskPriority.MEDIUM)
+                    .assignee(assignee)
+                    .project(project)
+                    .build());
+        }
+        List<Long> taskIds = taskRepository.saveAll(tasks).stream().map(TaskEntity::getId).toList();
+        testEntityManager.flush();
+        return taskIds;
+    }
+
+    // Reads are timed one by one and compared at the median, so a garbage collection or a JIT compilation during the
+    // run moves a few samples and not the result.
+    private static Measurement measure(Function<Long, TaskDTO> readPath, List<Long> taskIds) {
+        long[] nanos = new long[READS];
+        long bytesBefore = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < READS; i++) {
+            long start = System.nanoTime();
+            readPath.apply(taskIds.get(i % taskIds.size()));
+            nanos[i] = System.nanoTime() - start;
+        }
+        long bytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - bytesBefore;
+        Arrays.sort(nanos);
+        return new Measurement(nanos[READS / 2], (double) bytes / READS);
+    }
+
+    private static void read(Function<Long, TaskDTO> readPath, List<Long> taskIds) {
+        for (int i = 0; i < READS; i++) {
+            readPath.apply(taskIds.get(i % taskIds.size()));
+        }
+    }
+
+    private record Measurement(long nanosPerRead, double bytesPerRead) {
+    }
+}
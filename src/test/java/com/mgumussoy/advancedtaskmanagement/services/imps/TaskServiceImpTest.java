@@ -1,14 +1,25 @@
 package com.mgumussoy.advancedtaskmanagement.services.imps;
 
+import com.mgumussoy.advancedtaskmanagement.dtos.ProjectEventDTO;
 import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
 import com.mgumussoy.advancedtaskmanagement.entities.Project;
 import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
 import com.mgumussoy.advancedtaskmanagement.entities.UserEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectEventType;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
 import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
 import com.mgumussoy.advancedtaskmanagement.exceptions.*;
 import com.mgumussoy.advancedtaskmanagement.repositories.ProjectRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
 import com.mgumussoy.advancedtaskmanagement.repositories.UserEntityRepository;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectEventService;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskBoardService.BoardSlot;
+import com.mgumussoy.advancedtaskmanagement.services.TaskTextSearchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -16,7 +27,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -39,6 +55,18 @@ public class TaskServiceImpTest {
     @Mock
     private UserEntityRepository userEntityRepository;
 
+    @Mock
+    private TaskTextSearchService taskTextSearchService;
+
+    @Mock
+    private TaskBoardService taskBoardService;
+
+    @Mock
+    private ProjectEventService projectEventService;
+
+    @Mock
+    private StorageQuotaService storageQuotaService;
+
     private TaskEntity taskEntity;
     private Project project;
     private UserEntity user;
@@ -54,6 +82,7 @@ public class TaskServiceImpTest {
                 .userStory("Story")
                 .acceptanceCriteria("Criteria")
                 .state(TaskState.BACKLOG)
+                .priority(TaskPriority.HIGH)
                 .assignee(user)
                 .project(project)
                 .build();
@@ -75,6 +104,10 @@ public class TaskServiceImpTest {
         when(modelMapper.map(taskEntity, TaskDTO.class)).thenReturn(dto);
         TaskDTO result = taskServiceImp.saveTask(dto);
         assertEquals("Story", result.getUserStory());
+        verify(taskTextSearchService).indexTask(1L, "Story", "Criteria");
+        verify(projectEventService).publish(ProjectEventDTO.builder().type(ProjectEventType.TASK_CREATED).projectId(20L).taskId(1L)
+                .task(dto).build());
+        verify(taskBoardService).recordChange(null, new BoardSlot(20L, TaskState.BACKLOG, TaskPriority.HIGH, true));
     }
 
     @Test
@@ -86,25 +119,40 @@ public class TaskServiceImpTest {
 
     @Test
     void getTask_success() throws TaskNotFoundException {
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
-        when(modelMapper.map(taskEntity, TaskDTO.class)).thenReturn(TaskDTO.builder().id(1L).build());
+        when(taskRepository.findDTOById(1L)).thenReturn(Optional.of(TaskDTO.builder().id(1L).build()));
         TaskDTO dto = taskServiceImp.getTask(1L);
         assertEquals(1L, dto.getId());
+        verify(taskRepository, never()).findById(anyLong());
+        verifyNoInteractions(modelMapper);
     }
 
     @Test
     void getTask_NotFound() {
-        when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+        when(taskRepository.findDTOById(1L)).thenReturn(Optional.empty());
         assertThrows(TaskNotFoundException.class, () -> taskServiceImp.getTask(1L));
     }
 
     @Test
     void deleteTask_success() {
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         taskServiceImp.deleteTask(1L);
         ArgumentCaptor<TaskEntity> captor = ArgumentCaptor.forClass(TaskEntity.class);
         verify(taskRepository).save(captor.capture());
         assertTrue(captor.getValue().isDeleted());
+        verify(taskTextSearchService).removeTask(1L);
+        verify(taskBoardService).recordChange(new BoardSlot(20L, TaskState.BACKLOG, TaskPriority.HIGH, true), null);
+        verify(storageQuotaService).releaseTaskUsage(taskEntity);
+        verify(projectEventService).publish(ProjectEventDTO.builder().type(ProjectEventType.TASK_DELETED).projectId(20L).taskId(1L).build());
+    }
+
+    @Test
+    void assignTask_UnassignedTask_MovesBoardSlot() throws UserEntityNotFoundException, TaskNotFoundException {
+        taskEntity.setAssignee(null);
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
+        when(userEntityRepository.findById(10L)).thenReturn(Optional.of(user));
+        taskServiceImp.assignTask(1L, 10L);
+        verify(taskBoardService).recordChange(new BoardSlot(20L, TaskState.BACKLOG, TaskPriority.HIGH, false),
+                new BoardSlot(20L, TaskState.BACKLOG, TaskPriority.HIGH, true));
     }
 
     @Test
@@ -112,11 +160,15 @@ public class TaskServiceImpTest {
         UserEntity newUser = new UserEntity();
         newUser.setId(30L);
         taskEntity.setAssignee(user);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         when(userEntityRepository.findById(30L)).thenReturn(Optional.of(newUser));
         taskServiceImp.assignTask(1L, 30L);
         assertSame(newUser, taskEntity.getAssignee());
         verify(taskRepository).save(taskEntity);
+        ArgumentCaptor<ProjectEventDTO> event = ArgumentCaptor.forClass(ProjectEventDTO.class);
+        verify(projectEventService).publish(event.capture());
+        assertEquals(ProjectEventType.TASK_ASSIGNED, event.getValue().getType());
+        assertEquals(20L, event.getValue().getProjectId());
     }
 
     @Test
@@ -125,6 +177,7 @@ public class TaskServiceImpTest {
                 .userStory("Updated Story")
                 .acceptanceCriteria("Updated Criteria")
                 .state(TaskState.IN_ANALYSIS)
+                .priority(TaskPriority.LOW)
                 .assigneeId(10L)
                 .projectId(20L)
                 .build();
@@ -132,14 +185,45 @@ public class TaskServiceImpTest {
 
         taskEntity.setState(TaskState.BACKLOG);
 
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         when(userEntityRepository.findById(10L)).thenReturn(Optional.of(user));
         when(projectRepository.findById(20L)).thenReturn(Optional.of(project));
-        when(taskRepository.save(any(TaskEntity.class))).thenReturn(taskEntity);
+        when(taskRepository.save(any(TaskEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(modelMapper.map(any(TaskEntity.class), eq(TaskDTO.class))).thenReturn(dto);
 
         TaskDTO result = taskServiceImp.updateTask(1L, dto);
         assertEquals("Updated Story", result.getUserStory());
+        verify(taskTextSearchService).indexTask(eq(1L), any(), any());
+        verify(taskBoardService).recordChange(new BoardSlot(20L, TaskState.BACKLOG, TaskPriority.HIGH, true),
+                new BoardSlot(20L, TaskState.IN_ANALYSIS, TaskPriority.LOW, true));
+        verify(projectEventService).publish(ProjectEventDTO.builder().type(ProjectEventType.TASK_UPDATED).projectId(20L).taskId(1L)
+                .task(dto).build());
+    }
+
+    @Test
+    void updateTask_MovedToAnotherProject_NotifiesBothProjects() {
+        Project newProject = new Project();
+        newProject.setId(21L);
+        TaskDTO dto = TaskDTO.builder()
+                .userStory("Story")
+                .acceptanceCriteria("Criteria")
+                .state(TaskState.IN_ANALYSIS)
+                .priority(TaskPriority.HIGH)
+                .assigneeId(10L)
+                .projectId(21L)
+                .build();
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
+        when(userEntityRepository.findById(10L)).thenReturn(Optional.of(user));
+        when(projectRepository.findById(21L)).thenReturn(Optional.of(newProject));
+        when(taskRepository.save(any(TaskEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(modelMapper.map(any(TaskEntity.class), eq(TaskDTO.class))).thenReturn(dto);
+
+        taskServiceImp.updateTask(1L, dto);
+
+        ArgumentCaptor<ProjectEventDTO> events = ArgumentCaptor.forClass(ProjectEventDTO.class);
+        verify(projectEventService, times(2)).publish(events.capture());
+        assertEquals(List.of(21L, 20L), events.getAllValues().stream().map(ProjectEventDTO::getProjectId).toList());
+        verify(storageQuotaService).moveTaskUsage(1L, project, newProject);
     }
 
     @Test
@@ -158,13 +242,13 @@ public class TaskServiceImpTest {
 
     @Test
     void assignTask_TaskNotFound() {
-        when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.empty());
         assertThrows(TaskNotFoundException.class, () -> taskServiceImp.assignTask(1L, 30L));
     }
 
     @Test
     void assignTask_UserNotFound() {
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         when(userEntityRepository.findById(30L)).thenReturn(Optional.empty());
         assertThrows(UserEntityNotFoundException.class, () -> taskServiceImp.assignTask(1L, 30L));
     }
@@ -178,7 +262,7 @@ public class TaskServiceImpTest {
                 .assigneeId(user.getId())
                 .projectId(project.getId())
                 .build();
-        when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.empty());
         assertThrows(TaskNotFoundException.class, () -> taskServiceImp.updateTask(1L, dto));
     }
 
@@ -191,7 +275,7 @@ public class TaskServiceImpTest {
                 .assigneeId(999L)
                 .projectId(project.getId())
                 .build();
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         when(userEntityRepository.findById(999L)).thenReturn(Optional.empty());
         assertThrows(UserEntityNotFoundException.class, () -> taskServiceImp.updateTask(1L, dto));
     }
@@ -205,7 +289,7 @@ public class TaskServiceImpTest {
                 .assigneeId(user.getId())
                 .projectId(999L)
                 .build();
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         when(userEntityRepository.findById(user.getId())).thenReturn(Optional.of(user));
         when(projectRepository.findById(999L)).thenReturn(Optional.empty());
         assertThrows(ProjectNotFoundException.class, () -> taskServiceImp.updateTask(1L, dto));
@@ -221,7 +305,7 @@ public class TaskServiceImpTest {
                 .assigneeId(user.getId())
                 .projectId(project.getId())
                 .build();
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         when(userEntityRepository.findById(user.getId())).thenReturn(Optional.of(user));
         when(projectRepository.findById(project.getId())).thenReturn(Optional.of(project));
         assertThrows(TaskStateCanNotBeChanged.class, () -> taskServiceImp.updateTask(1L, dto));
@@ -237,9 +321,90 @@ public class TaskServiceImpTest {
                 .assigneeId(user.getId())
                 .projectId(project.getId())
                 .build();
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(taskEntity));
+        when(taskRepository.findWithAssigneeAndProjectById(1L)).thenReturn(Optional.of(taskEntity));
         when(userEntityRepository.findById(user.getId())).thenReturn(Optional.of(user));
         when(projectRepository.findById(project.getId())).thenReturn(Optional.of(project));
         assertThrows(ReasonOfStateChangeMustBeEntered.class, () -> taskServiceImp.updateTask(1L, dto));
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchTasks_PassesFilterAndReturnsNextCursor() {
+        TaskFilterDTO filter = TaskFilterDTO.builder().state(List.of(TaskState.BACKLOG)).priority(List.of(TaskPriority.HIGHEST))
+                .assigneeId(10L).projectId(20L).build();
+        Date updated = new Date(1_700_000_000_000L);
+        TaskDTO task = TaskDTO.builder().id(5L).updateDate(updated).build();
+        when(taskRepository.findByFilterAfter(eq(filter), eq(TaskSortKey.UPDATE_DATE), any(Date.class), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(task), PageRequest.of(0, 1), true));
+
+        TaskPageDTO page = taskServiceImp.searchTasks(filter, null, 1, TaskSortKey.UPDATE_DATE);
+        assertEquals(List.of(task), page.getTasks());
+        assertNotNull(page.getNextCursor());
+
+        taskServiceImp.searchTasks(filter, page.getNextCursor(), 1, TaskSortKey.UPDATE_DATE);
+        verify(taskRepository).findByFilterAfter(eq(filter), eq(TaskSortKey.UPDATE_DATE), eq(new Date(0)), eq(0L), any(Pageable.class));
+        verify(taskRepository).findByFilterAfter(eq(filter), eq(TaskSortKey.UPDATE_DATE), eq(updated), eq(5L), any(Pageable.class));
+    }
+
+    @Test
+    void searchTasks_LastPageHasNoCursor() {
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        when(taskRepository.findByFilterAfter(any(), eq(TaskSortKey.ID), isNull(), eq(0L), pageable.capture()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        TaskPageDTO page = taskServiceImp.searchTasks(new TaskFilterDTO(), "", 0, TaskSortKey.ID);
+
+        assertNull(page.getNextCursor());
+        assertEquals(1, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    void searchTasks_InvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> taskServiceImp.searchTasks(new TaskFilterDTO(), "%%%", 20, TaskSortKey.ID));
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    void getTasksOfAssignee_StartsAtMostUrgentAndReturnsNextCursor() {
+        TaskDTO task = TaskDTO.builder().id(5L).priority(TaskPriority.HIGH).assigneeId(10L).build();
+        when(taskRepository.findByAssigneeIdAfterPriorityRank(eq(10L), anyInt(), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(task), PageRequest.of(0, 1), true));
+
+        TaskPageDTO page = taskServiceImp.getTasksOfAssignee(10L, null, 1);
+        assertEquals(List.of(task), page.getTasks());
+        assertNotNull(page.getNextCursor());
+
+        taskServiceImp.getTasksOfAssignee(10L, page.getNextCursor(), 1);
+        verify(taskRepository).findByAssigneeIdAfterPriorityRank(eq(10L), eq(-1), eq(0L), any(Pageable.class));
+        verify(taskRepository).findByAssigneeIdAfterPriorityRank(eq(10L), eq(TaskPriority.HIGH.getRank()), eq(5L), any(Pageable.class));
+    }
+
+    @Test
+    void getTasksOfAssignee_LastPageHasNoCursor() {
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        when(taskRepository.findByAssigneeIdAfterPriorityRank(eq(10L), eq(-1), eq(0L), pageable.capture()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        TaskPageDTO page = taskServiceImp.getTasksOfAssignee(10L, "", 500);
+
+        assertNull(page.getNextCursor());
+        assertEquals(100, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    void getTasksOfAssignee_InvalidCursor() {
+        String searchCursor = new TaskCursor(TaskSortKey.ID, null, 5L).encode();
+
+        assertThrows(InvalidCursorException.class, () -> taskServiceImp.getTasksOfAssignee(10L, "%%%", 20));
+        assertThrows(InvalidCursorException.class, () -> taskServiceImp.getTasksOfAssignee(10L, searchCursor, 20));
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    void fillMissingPriorityRanks_RanksEveryPriority() {
+        when(taskRepository.fillPriorityRank(TaskPriority.HIGHEST, 0)).thenReturn(2);
+        when(taskRepository.fillPriorityRank(TaskPriority.LOWEST, 4)).thenReturn(3);
+
+        assertEquals(5, taskServiceImp.fillMissingPriorityRanks());
+        verify(taskRepository, times(TaskPriority.values().length)).fillPriorityRank(any(), anyInt());
+    }
+}
@@ -0,0 +1,283 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.configs.ModelMapperConfig;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskFilterDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskPageDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentFile;
+import com.mgumussoy.advancedtaskmanagement.entities.AttachmentVersion;
+import com.mgumussoy.advancedtaskmanagement.entities.Comment;
+import com.mgumussoy.advancedtaskmanagement.entities.Department;
+import com.mgumussoy.advancedtaskmanagement.entities.Project;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.entities.UserEntity;
+import com.mgumussoy.advancedtaskmanagement.enums.ProjectStatus;
+import com.mgumussoy.advancedtaskmanagement.enums.StorageCodec;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskPriority;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskState;
+import com.mgumussoy.advancedtaskmanagement.services.CommentService;
+import com.mgumussoy.advancedtaskmanagement.services.ProjectService;
+import com.mgumussoy.advancedtaskmanagement.services.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Counts the SQL statements of the task and comment paths, so a page or a detail read costs the same number of
+// queries however many rows hang off the tasks it touches.
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({ModelMapperConfig.class, ProjectServiceImp.class, TaskServiceImp.class, CommentServiceImp.class,
+        TaskTextSearchServiceImp.class, TaskBoardServiceImp.class, ProjectEventServiceImp.class, StorageQuotaServiceImp.class,
+        MissingRowInserter.class})
+public class TaskStatementCountTest {
+
+    private static final int TASKS = 30;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private CommentService commentService;
+
+    private Statistics statistics;
+    private Department department;
+    private Project busyProject;
+    private UserEntity busyUser;
+    private List<TaskEntity> busyProjectTasks;
+    private TaskEntity loneTask;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        department = entityManager.persist(Department.builder().departmentName("Engineering").build());
+        busyProject = createProject("Busy");
+        busyUser = createUser("busy");
+
+        // Every task of the busy project has its own assignee, and the busy user has one task in each of TASKS projects,
+        // so eager to-one associations would cost a select per task on both sides.
+        busyProjectTasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            TaskEntity task = createTask(busyProject, i == 0 ? busyUser : createUser("member" + i));
+            busyProjectTasks.add(task);
+            entityManager.persist(Comment.builder().text("Comment " + i).author(createUser("author" + i)).taskEntity(task).build());
+        }
+        for (int i = 1; i < TASKS; i++) {
+            createTask(createProject("Side " + i), busyUser);
+        }
+        loneTask = createTask(createProject("Lone"), createUser("lone"));
+        entityManager.persist(Comment.builder().text("Lone comment").author(createUser("lone author")).taskEntity(loneTask).build());
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Project createProject(String title) {
+        return entityManager.persist(Project.builder().title(title).description(title).status(ProjectStatus.IN_PROGRESS)
+                .department(department).build());
+    }
+
+    private UserEntity createUser(String username) {
+        return entityManager.persist(UserEntity.builder().username(username).password("secret").department(department).build());
+    }
+
+    private TaskEntity createTask(Project project, UserEntity assignee) {
+        return entityManager.persist(TaskEntity.builder().userStory("Story of " + assignee.getUsername()).acceptanceCriteria("Criteria")
+                .state(TaskState.BACKLOG).priority(TaskPriority.MEDIUM).project(project).assignee(assignee).build());
+    }
+
+    private AttachmentFile attachment(TaskEntity task) {
+        return AttachmentFile.builder().fileName("notes.txt").fileType("text/plain").contentHash("0".repeat(64))
+                .storageKey("0".repeat(32)).fileSize(5).storedSize(5).storageCodec(StorageCodec.IDENTITY).versionNumber(1)
+                .taskEntity(task).build();
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        return statements;
+    }
+
+    private TaskDTO analysisUpdate(TaskEntity task) {
+        return TaskDTO.builder().userStory("Story").acceptanceCriteria("Criteria").state(TaskState.IN_ANALYSIS)
+                .priority(TaskPriority.HIGH).assigneeId(task.getAssignee().getId()).projectId(task.getProject().getId()).build();
+    }
+
+    // ------------------ List Tests ------------------
+    @Test
+    void getTasksOfProject_PageIsTwoStatements() {
+        for (TaskSortKey sortKey : TaskSortKey.values()) {
+            assertEquals(2, countStatements(() ->
+                    assertEquals(TASKS, projectService.getTasksOfProject(busyProject.getId(), null, 100, sortKey).getTasks().size())));
+        }
+    }
+
+    @Test
+    void searchTasks_PageIsOneStatement() {
+        TaskFilterDTO filter = TaskFilterDTO.builder().projectId(busyProject.getId()).build();
+
+        assertEquals(1, countStatements(() ->
+                assertEquals(TASKS, taskService.searchTasks(filter, null, 100, TaskSortKey.ID).getTasks().size())));
+    }
+
+    @Test
+    void getTasksOfAssignee_PageIsOneStatementInPriorityOrder() {
+        // Half of the busy user's tasks move to another priority through the update path, so their rank has to follow.
+        TaskPriority[] priorities = TaskPriority.values();
+        for (TaskDTO task : taskService.getTasksOfAssignee(busyUser.getId(), null, 100).getTasks()) {
+            if (task.getId() % 2 == 0) {
+                task.setPriority(priorities[(int) (task.getId() % priorities.length)]);
+                task.setState(TaskState.IN_ANALYSIS);
+                taskService.updateTask(task.getId(), task);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<TaskPageDTO> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            String after = cursor;
+            assertEquals(1, countStatements(() -> pages.add(taskService.getTasksOfAssignee(busyUser.getId(), after, 7))));
+            cursor = pages.getLast().getNextCursor();
+        } while (cursor != null);
+
+        List<TaskDTO> busyUserTasks = pages.stream().flatMap(page -> page.getTasks().stream()).toList();
+        assertEquals(TASKS, busyUserTasks.size());
+        assertEquals(busyUserTasks.stream()
+                        .sorted(Comparator.comparing((TaskDTO task) -> task.getPriority().getRank()).thenComparing(TaskDTO::getId))
+                        .toList(),
+                busyUserTasks);
+        assertEquals(priorities.length, busyUserTasks.stream().map(TaskDTO::getPriority).distinct().count());
+    }
+
+    // ------------------ Detail Tests ------------------
+    @Test
+    void getTask_IsOneStatement() {
+        assertEquals(1, countStatements(() -> taskService.getTask(busyProjectTasks.getFirst().getId())));
+    }
+
+    @Test
+    void getComment_IsOneStatement() {
+        Long commentId = entityManager.getEntityManager()
+                .createQuery("select c.id from Comment c order by c.id", Long.class).setMaxResults(1).getSingleResult();
+
+        assertEquals(1, countStatements(() -> commentService.getComment(commentId)));
+    }
+
+    @Test
+    void getCommentsOfTask_PageIsTwoStatements() {
+        // Every comment of the busy task has its own author, so eager associations would cost a select per comment.
+        TaskEntity busyTask = entityManager.find(TaskEntity.class, busyProjectTasks.getFirst().getId());
+        for (int i = 0; i < TASKS; i++) {
+            entityManager.persist(Comment.builder().text("Reply " + i).author(createUser("replier" + i)).taskEntity(busyTask).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, countStatements(() ->
+                assertEquals(TASKS + 1, commentService.getCommentsOfTask(busyTask.getId(), 0, 100).size())));
+    }
+
+    // ------------------ Write Tests ------------------
+    @Test
+    void updateTask_DoesNotGrowWithRelatedTasks() {
+        TaskEntity busyTask = busyProjectTasks.getFirst();
+
+        long loneStatements = countStatements(() -> taskService.updateTask(loneTask.getId(), analysisUpdate(loneTask)));
+        long busyStatements = countStatements(() -> taskService.updateTask(busyTask.getId(), analysisUpdate(busyTask)));
+
+        assertEquals(loneStatements, busyStatements);
+    }
+
+    @Test
+    void updateTask_KeepsCommentsAndAttachments() {
+        entityManager.persist(attachment(entityManager.find(TaskEntity.class, loneTask.getId())));
+        entityManager.flush();
+        entityManager.clear();
+
+        taskService.updateTask(loneTask.getId(), analysisUpdate(loneTask));
+        entityManager.flush();
+        entityManager.clear();
+
+        TaskEntity updated = entityManager.find(TaskEntity.class, loneTask.getId());
+        assertEquals(TaskState.IN_ANALYSIS, updated.getState());
+        assertEquals(1, updated.getComments().size());
+        assertEquals(1, updated.getAttachments().size());
+    }
+
+    @Test
+    void updateTask_KeepsVersionedAttachments() {
+        AttachmentFile attachment = entityManager.persist(attachment(entityManager.find(TaskEntity.class, loneTask.getId())));
+        entityManager.persist(AttachmentVersion.builder().attachmentFile(attachment).versionNumber(1).fileName("notes.txt")
+                .fileType("text/plain").contentHash("1".repeat(64)).storageKey("1".repeat(32)).fileSize(4).storedSize(4)
+                .storageCodec(StorageCodec.IDENTITY).build());
+        attachment.setVersionNumber(2);
+        entityManager.flush();
+        entityManager.clear();
+
+        taskService.updateTask(loneTask.getId(), analysisUpdate(loneTask));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, entityManager.find(TaskEntity.class, loneTask.getId()).getAttachments().size());
+        assertEquals(1L, entityManager.getEntityManager()
+                .createQuery("select count(v) from AttachmentVersion v where v.attachmentFile.id = :id", Long.class)
+                .setParameter("id", attachment.getId()).getSingleResult());
+    }
+
+    @Test
+    void updateTask_KeepsTaskInCreatedDateOrder() {
+        for (TaskEntity task : busyProjectTasks.subList(0, TASKS / 2)) {
+            taskService.updateTask(task.getId(), analysisUpdate(task));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<TaskDTO> tasks = new ArrayList<>();
+        String cursor = null;
+        do {
+            TaskPageDTO page = projectService.getTasksOfProject(busyProject.getId(), cursor, 7, TaskSortKey.CREATED_DATE);
+            tasks.addAll(page.getTasks());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(busyProjectTasks.stream().map(TaskEntity::getId).toList(), tasks.stream().map(TaskDTO::getId).toList());
+        assertTrue(tasks.stream().allMatch(task -> task.getCreatedDate() != null));
+    }
+
+    @Test
+    void deleteTask_DoesNotGrowWithRelatedTasks() {
+        long loneStatements = countStatements(() -> taskService.deleteTask(loneTask.getId()));
+        long busyStatements = countStatements(() -> taskService.deleteTask(busyProjectTasks.getFirst().getId()));
+
+        assertEquals(loneStatements, busyStatements);
+    }
+}
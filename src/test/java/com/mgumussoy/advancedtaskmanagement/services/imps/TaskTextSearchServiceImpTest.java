@@ -0,0 +1,205 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.TaskSearchHitDTO;
+import com.mgumussoy.advancedtaskmanagement.enums.TaskSortKey;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TaskTextSearchServiceImpTest {
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    private TaskTextSearchServiceImp taskTextSearchServiceImp;
+    private final Map<Long, TaskDTO> tasks = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        taskTextSearchServiceImp = new TaskTextSearchServiceImp(taskRepository);
+        when(taskRepository.findByIdIn(anyCollection())).thenAnswer(invocation -> ((Collection<Long>) invocation.getArgument(0)).stream()
+                .filter(tasks::containsKey)
+                .map(tasks::get)
+                .toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void index(long id, String userStory, String acceptanceCriteria) {
+        tasks.put(id, TaskDTO.builder().id(id).userStory(userStory).acceptanceCriteria(acceptanceCriteria).build());
+        taskTextSearchServiceImp.indexTask(id, userStory, acceptanceCriteria);
+    }
+
+    private List<Long> searchIds(String query) {
+        return taskTextSearchServiceImp.search(query, 0, 20).stream().map(hit -> hit.getTask().getId()).toList();
+    }
+
+    // ------------------ search Tests ------------------
+    @Test
+    void search_RanksUserStoryMatchesAboveAcceptanceCriteriaMatches() {
+        index(1L, "Show the invoice list", "The export button downloads a CSV file");
+        index(2L, "Export invoices as CSV", "A file is downloaded");
+        index(3L, "Reset password by mail", "The link expires after an hour");
+
+        assertEquals(List.of(2L, 1L), searchIds("export"));
+    }
+
+    @Test
+    void search_MatchingMoreTermsRanksHigher() {
+        index(1L, "Export invoices", "Works for admins");
+        index(2L, "Export invoices as PDF", "Works for admins");
+        index(3L, "Print the PDF", "Works for admins");
+
+        assertEquals(2L, searchIds("export pdf").getFirst());
+        assertEquals(3, searchIds("export pdf").size());
+    }
+
+    @Test
+    void search_IgnoresCaseAndAccents() {
+        index(1L, "Öğrenci kaydı için CAFÉ menüsü", "Kayıt onaylanır");
+
+        assertEquals(List.of(1L), searchIds("cafe"));
+        assertEquals(List.of(1L), searchIds("OGRENCI"));
+    }
+
+    @Test
+    void search_HighlightsMatchesAndEscapesHtml() {
+        index(1L, "Render <b>bold</b> export & import", "No match here");
+
+        TaskSearchHitDTO hit = taskTextSearchServiceImp.search("export", 0, 20).getFirst();
+
+        assertEquals("Render &lt;b&gt;bold&lt;/b&gt; <mark>export</mark> &amp; import", hit.getUserStoryHighlight());
+        assertNull(hit.getAcceptanceCriteriaHighlight());
+        assertTrue(hit.getScore() > 0);
+    }
+
+    @Test
+    void search_HighlightIsASnippetAroundTheFirstMatch() {
+        String filler = "lorem ipsum dolor sit amet ".repeat(20);
+        index(1L, filler + "deadline reminder " + filler, "criteria");
+
+        String highlight = taskTextSearchServiceImp.search("deadline", 0, 20).getFirst().getUserStoryHighlight();
+
+        assertTrue(highlight.startsWith("…"));
+        assertTrue(highlight.endsWith("…"));
+        assertTrue(highlight.contains("<mark>deadline</mark> reminder"));
+        assertTrue(highlight.length() < 260);
+    }
+
+    @Test
+    void search_Pages() {
+        for (long id = 1; id <= 5; id++) {
+            index(id, "Release notes " + id, "criteria");
+        }
+
+        assertEquals(2, taskTextSearchServiceImp.search("release", 0, 2).size());
+        assertEquals(1, taskTextSearchServiceImp.search("release", 2, 2).size());
+        assertTrue(taskTextSearchServiceImp.search("release", 3, 2).isEmpty());
+    }
+
+    @Test
+    void search_BlankQuery() {
+        index(1L, "Release notes", "criteria");
+
+        assertTrue(taskTextSearchServiceImp.search("  ?! ", 0, 20).isEmpty());
+        verify(taskRepository, never()).findByIdIn(anyCollection());
+    }
+
+    @Test
+    void search_SkipsTasksDeletedSinceIndexing() {
+        index(1L, "Release notes", "criteria");
+        tasks.remove(1L);
+
+        assertTrue(searchIds("release").isEmpty());
+    }
+
+    // ------------------ indexTask / removeTask Tests ------------------
+    @Test
+    void indexTask_ReplacesPreviousText() {
+        index(1L, "Release notes", "criteria");
+        index(1L, "Changelog", "criteria");
+
+        assertTrue(searchIds("release").isEmpty());
+        assertEquals(List.of(1L), searchIds("changelog"));
+    }
+
+    @Test
+    void removeTask_DropsTaskFromIndex() {
+        index(1L, "Release notes", "criteria");
+
+        taskTextSearchServiceImp.removeTask(1L);
+
+        assertTrue(searchIds("release").isEmpty());
+    }
+
+    @Test
+    void indexTask_WaitsForCommit() {
+        tasks.put(1L, TaskDTO.builder().id(1L).userStory("Release notes").acceptanceCriteria("criteria").build());
+        TransactionSynchronizationManager.initSynchronization();
+
+        taskTextSearchServiceImp.indexTask(1L, "Release notes", "criteria");
+        assertTrue(searchIds("release").isEmpty());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of(1L), searchIds("release"));
+    }
+
+    // ------------------ rebuildIndex Tests ------------------
+    @Test
+    void rebuildIndex_ReadsAllTasksInBatches() {
+        TaskDTO first = TaskDTO.builder().id(1L).userStory("Release notes").acceptanceCriteria("criteria").build();
+        TaskDTO second = TaskDTO.builder().id(7L).userStory("Release checklist").acceptanceCriteria("criteria").build();
+        tasks.put(1L, first);
+        tasks.put(7L, second);
+        when(taskRepository.findByFilterAfter(any(), eq(TaskSortKey.ID), isNull(), eq(0L), any()))
+                .thenReturn(new SliceImpl<>(List.of(first), PageRequest.of(0, 1), true));
+        when(taskRepository.findByFilterAfter(any(), eq(TaskSortKey.ID), isNull(), eq(1L), any()))
+                .thenReturn(new SliceImpl<>(List.of(second), PageRequest.of(0, 1), false));
+
+        taskTextSearchServiceImp.rebuildIndex();
+
+        assertEquals(List.of(1L, 7L), searchIds("release").stream().sorted().toList());
+    }
+
+    @Test
+    void rebuildIndex_KeepsChangesMadeWhileRebuilding() {
+        index(2L, "Stale text", "criteria");
+        TaskDTO stale = TaskDTO.builder().id(1L).userStory("Old title").acceptanceCriteria("criteria").build();
+        when(taskRepository.findByFilterAfter(any(), eq(TaskSortKey.ID), isNull(), eq(0L), any())).thenAnswer(invocation -> {
+            // Another request updates task 1 after the rebuild has read it.
+            index(1L, "New title", "criteria");
+            return new SliceImpl<>(List.of(stale));
+        });
+
+        taskTextSearchServiceImp.rebuildIndex();
+
+        assertEquals(List.of(1L), searchIds("new"));
+        assertTrue(searchIds("old").isEmpty());
+        assertTrue(searchIds("stale").isEmpty());
+    }
+}
@@ -0,0 +1,358 @@
+package com.mgumussoy.advancedtaskmanagement.services.imps;
+
+import com.mgumussoy.advancedtaskmanagement.dtos.AttachmentFileDTO;
+import com.mgumussoy.advancedtaskmanagement.dtos.UploadSessionDTO;
+import com.mgumussoy.advancedtaskmanagement.entities.TaskEntity;
+import com.mgumussoy.advancedtaskmanagement.entities.UploadSession;
+import com.mgumussoy.advancedtaskmanagement.exceptions.*;
+import com.mgumussoy.advancedtaskmanagement.repositories.AttachmentBlobRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.TaskRepository;
+import com.mgumussoy.advancedtaskmanagement.repositories.UploadSessionRepository;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService;
+import com.mgumussoy.advancedtaskmanagement.services.AttachmentFileService.StagedBlob;
+import com.mgumussoy.advancedtaskmanagement.services.StorageQuotaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UploadSessionServiceImpTest {
+
+    private static final String MASTER_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private AttachmentFileService attachmentFileService;
+
+    @Mock
+    private StorageQuotaService storageQuotaService;
+
+    @Mock
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private UploadSessionServiceImp uploadSessionServiceImp;
+
+    private TaskEntity task;
+    private UploadSession uploadSession;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        uploadSessionServiceImp = new UploadSessionServiceImp(uploadSessionRepository, taskRepository, attachmentBlobRepository,
+                attachmentFileService, storageQuotaService, transactionTemplate, new BlobEncryptionServiceImp(false, ""),
+                tempDir.toString(), DataSize.ofBytes(16), Duration.ofDays(1));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+        doCallRealMethod().when(transactionTemplate).executeWithoutResult(any());
+
+        task = new TaskEntity();
+        task.setId(1L);
+        uploadSession = UploadSession.builder()
+                .taskEntity(task)
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .description("desc")
+                .fileSize(10)
+                .chunkSize(4)
+                .build();
+        uploadSession.setId(5L);
+    }
+
+    private static String sha256(String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes()));
+    }
+
+    private void uploadAllChunks() throws IOException {
+        uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("0123".getBytes()));
+        uploadSessionServiceImp.uploadChunk(5L, 1, new ByteArrayInputStream("4567".getBytes()));
+        uploadSessionServiceImp.uploadChunk(5L, 2, new ByteArrayInputStream("89".getBytes()));
+    }
+
+    @Test
+    void createSession_success() {
+        UploadSessionDTO dto = UploadSessionDTO.builder().taskId(1L).fileName("test.txt").fileSize(10L).chunkSize(4L).build();
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(uploadSessionRepository.save(any(UploadSession.class))).thenReturn(uploadSession);
+
+        UploadSessionDTO result = uploadSessionServiceImp.createSession(dto);
+
+        assertEquals(5L, result.getId());
+        assertEquals(3, result.getTotalChunks());
+        assertTrue(result.getReceivedChunks().isEmpty());
+    }
+
+    @Test
+    void createSession_ChunkSizeTooLarge() {
+        UploadSessionDTO dto = UploadSessionDTO.builder().taskId(1L).fileName("test.txt").fileSize(100L).chunkSize(32L).build();
+        assertThrows(InvalidUploadChunkException.class, () -> uploadSessionServiceImp.createSession(dto));
+        verify(uploadSessionRepository, never()).save(any());
+    }
+
+    @Test
+    void createSession_TaskNotFound() {
+        UploadSessionDTO dto = UploadSessionDTO.builder().taskId(1L).fileName("test.txt").fileSize(10L).chunkSize(4L).build();
+        when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(TaskNotFoundException.class, () -> uploadSessionServiceImp.createSession(dto));
+    }
+
+    @Test
+    void createSession_QuotaExceeded() {
+        UploadSessionDTO dto = UploadSessionDTO.builder().taskId(1L).fileName("test.txt").fileSize(10L).chunkSize(4L).build();
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        doThrow(new StorageQuotaExceededException()).when(storageQuotaService).checkQuota(1L, 10L, 1);
+
+        assertThrows(StorageQuotaExceededException.class, () -> uploadSessionServiceImp.createSession(dto));
+        verify(uploadSessionRepository, never()).save(any());
+    }
+
+    @Test
+    void uploadChunk_tracksReceivedChunks() throws IOException {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+
+        uploadSessionServiceImp.uploadChunk(5L, 2, new ByteArrayInputStream("89".getBytes()));
+        uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("0123".getBytes()));
+
+        assertEquals(List.of(0, 2), uploadSessionServiceImp.getSession(5L).getReceivedChunks());
+    }
+
+    @Test
+    void uploadChunk_WrongSize() throws IOException {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+
+        assertThrows(InvalidUploadChunkException.class,
+                () -> uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("012345".getBytes())));
+        assertThrows(InvalidUploadChunkException.class,
+                () -> uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("01".getBytes())));
+        assertTrue(uploadSessionServiceImp.getSession(5L).getReceivedChunks().isEmpty());
+    }
+
+    @Test
+    void uploadChunk_OutOfRange() {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        assertThrows(InvalidUploadChunkException.class,
+                () -> uploadSessionServiceImp.uploadChunk(5L, 3, new ByteArrayInputStream("01".getBytes())));
+    }
+
+    @Test
+    void uploadChunk_SessionNotFound() {
+        uploadSession.setDeleted(true);
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        assertThrows(UploadSessionNotFoundException.class,
+                () -> uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("0123".getBytes())));
+    }
+
+    private static String hashOf(InputStreamSource inputStreamSource) throws Exception {
+        try (InputStream inputStream = inputStreamSource.getInputStream()) {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(inputStream.readAllBytes()));
+        }
+    }
+
+    @Test
+    void commitSession_success() throws Exception {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        when(uploadSessionRepository.findWithLockById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadAllChunks();
+        when(attachmentFileService.computeContentHash(any(InputStreamSource.class)))
+                .thenAnswer(invocation -> hashOf(invocation.getArgument(0)));
+        StagedBlob stagedBlob = new StagedBlob(sha256("0123456789"), 10, "key", null, 10);
+        when(attachmentFileService.writeStagedBlob(eq(sha256("0123456789")), eq("text/plain"), eq(10L), any(InputStreamSource.class)))
+                .thenAnswer(invocation -> {
+                    InputStreamSource inputStreamSource = invocation.getArgument(3);
+                    try (InputStream inputStream = inputStreamSource.getInputStream()) {
+                        assertEquals("0123456789", new String(inputStream.readAllBytes()));
+                    }
+                    return stagedBlob;
+                });
+
+        uploadSessionServiceImp.commitSession(5L, sha256("0123456789").toUpperCase());
+
+        verify(attachmentFileService).saveStagedFile(eq(1L), eq("desc"), eq("test.txt"), eq("text/plain"), eq(stagedBlob),
+                any(InputStreamSource.class));
+        assertTrue(uploadSession.isDeleted());
+        assertFalse(Files.exists(tempDir.resolve("5")));
+    }
+
+    @Test
+    void commitSession_ReadsChunksEncryptedAtRest() throws Exception {
+        uploadSessionServiceImp = new UploadSessionServiceImp(uploadSessionRepository, taskRepository, attachmentBlobRepository,
+                attachmentFileService, storageQuotaService, transactionTemplate, new BlobEncryptionServiceImp(true, MASTER_KEY),
+                tempDir.toString(), DataSize.ofBytes(16), Duration.ofDays(1));
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        when(uploadSessionRepository.findWithLockById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadAllChunks();
+        assertFalse(new String(Files.readAllBytes(tempDir.resolve("5").resolve("0.chunk"))).contains("0123"));
+        when(attachmentFileService.computeContentHash(any(InputStreamSource.class)))
+                .thenAnswer(invocation -> hashOf(invocation.getArgument(0)));
+        when(attachmentBlobRepository.existsByContentHash(sha256("0123456789"))).thenReturn(true);
+
+        uploadSessionServiceImp.commitSession(5L, sha256("0123456789"));
+
+        assertTrue(uploadSession.isDeleted());
+    }
+
+    @Test
+    void commitSession_ExistingContentIsNotWrittenAgain() throws Exception {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        when(uploadSessionRepository.findWithLockById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadAllChunks();
+        when(attachmentFileService.computeContentHash(any(InputStreamSource.class)))
+                .thenAnswer(invocation -> hashOf(invocation.getArgument(0)));
+        when(attachmentBlobRepository.existsByContentHash(sha256("0123456789"))).thenReturn(true);
+
+        uploadSessionServiceImp.commitSession(5L, sha256("0123456789"));
+
+        verify(attachmentFileService, never()).writeStagedBlob(any(), any(), anyLong(), any());
+        verify(attachmentFileService).saveStagedFile(eq(1L), eq("desc"), eq("test.txt"), eq("text/plain"),
+                eq(new StagedBlob(sha256("0123456789"), 10, null, null, 0)), any(InputStreamSource.class));
+    }
+
+    @Test
+    void commitSession_EmptyFile() throws Exception {
+        uploadSession.setFileSize(0);
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        when(uploadSessionRepository.findWithLockById(5L)).thenReturn(Optional.of(uploadSession));
+        when(attachmentFileService.computeContentHash(any(InputStreamSource.class)))
+                .thenAnswer(invocation -> hashOf(invocation.getArgument(0)));
+
+        uploadSessionServiceImp.commitSession(5L, sha256(""));
+
+        verify(attachmentFileService).writeStagedBlob(eq(sha256("")), eq("text/plain"), eq(0L), any(InputStreamSource.class));
+        assertTrue(uploadSession.isDeleted());
+    }
+
+    @Test
+    void commitSession_ChecksumMismatch() throws Exception {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadAllChunks();
+        when(attachmentFileService.computeContentHash(any(InputStreamSource.class)))
+                .thenAnswer(invocation -> hashOf(invocation.getArgument(0)));
+
+        String checksum = sha256("something else");
+        assertThrows(ChecksumMismatchException.class, () -> uploadSessionServiceImp.commitSession(5L, checksum));
+        assertFalse(uploadSession.isDeleted());
+        verify(attachmentFileService, never()).writeStagedBlob(any(), any(), anyLong(), any());
+        verify(attachmentFileService, never()).saveStagedFile(any(), any(), any(), any(), any(), any());
+        assertTrue(Files.exists(tempDir.resolve("5")));
+    }
+
+    @Test
+    void commitSession_SaveFailsDiscardsStagedBlob() throws Exception {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        when(uploadSessionRepository.findWithLockById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadAllChunks();
+        when(attachmentFileService.computeContentHash(any(InputStreamSource.class)))
+                .thenAnswer(invocation -> hashOf(invocation.getArgument(0)));
+        StagedBlob stagedBlob = new StagedBlob(sha256("0123456789"), 10, "key", null, 10);
+        when(attachmentFileService.writeStagedBlob(any(), any(), anyLong(), any())).thenReturn(stagedBlob);
+        when(attachmentFileService.saveStagedFile(any(), any(), any(), any(), any(), any())).thenThrow(new StorageQuotaExceededException());
+
+        assertThrows(StorageQuotaExceededException.class, () -> uploadSessionServiceImp.commitSession(5L, sha256("0123456789")));
+        verify(attachmentFileService).discardStagedBlob(stagedBlob);
+        assertTrue(Files.exists(tempDir.resolve("5")));
+    }
+
+    @Test
+    void commitSession_Incomplete() throws IOException {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("0123".getBytes()));
+
+        assertThrows(UploadSessionIncompleteException.class, () -> uploadSessionServiceImp.commitSession(5L, "checksum"));
+        verifyNoInteractions(attachmentFileService);
+    }
+
+    @Test
+    void abortSession_success() throws IOException {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("0123".getBytes()));
+
+        uploadSessionServiceImp.abortSession(5L);
+
+        assertTrue(uploadSession.isDeleted());
+        assertFalse(Files.exists(tempDir.resolve("5")));
+    }
+
+    // ------------------ Expiry Tests ------------------
+
+    private void ageSessionPath(Path sessionPath) throws IOException {
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(2).toMillis());
+        try (var files = Files.list(sessionPath)) {
+            for (Path file : files.toList()) {
+                Files.setLastModifiedTime(file, old);
+            }
+        }
+        Files.setLastModifiedTime(sessionPath, old);
+    }
+
+    @Test
+    void expireSessions_ExpiresAbandonedSession() throws IOException {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("0123".getBytes()));
+        ageSessionPath(tempDir.resolve("5"));
+        when(uploadSessionRepository.findIdsCreatedBefore(any(Date.class))).thenReturn(List.of(5L));
+        when(uploadSessionRepository.findWithLockById(5L)).thenReturn(Optional.of(uploadSession));
+
+        assertEquals(1, uploadSessionServiceImp.expireSessions());
+        assertTrue(uploadSession.isDeleted());
+        assertFalse(Files.exists(tempDir.resolve("5")));
+    }
+
+    @Test
+    void expireSessions_KeepsSessionWithRecentChunks() throws IOException {
+        when(uploadSessionRepository.findById(5L)).thenReturn(Optional.of(uploadSession));
+        uploadSessionServiceImp.uploadChunk(5L, 0, new ByteArrayInputStream("0123".getBytes()));
+        when(uploadSessionRepository.findIdsCreatedBefore(any(Date.class))).thenReturn(List.of(5L));
+
+        assertEquals(0, uploadSessionServiceImp.expireSessions());
+        assertFalse(uploadSession.isDeleted());
+        assertTrue(Files.exists(tempDir.resolve("5").resolve("0.chunk")));
+        verify(uploadSessionRepository, never()).findWithLockById(any());
+    }
+
+    @Test
+    void expireSessions_RemovesChunksOfClosedSessions() throws IOException {
+        Path sessionPath = Files.createDirectories(tempDir.resolve("7"));
+        Files.write(sessionPath.resolve("0.chunk"), "0123".getBytes());
+        ageSessionPath(sessionPath);
+        when(uploadSessionRepository.findIdsCreatedBefore(any(Date.class))).thenReturn(List.of());
+        when(uploadSessionRepository.findById(7L)).thenReturn(Optional.empty());
+
+        uploadSessionServiceImp.expireSessions();
+
+        assertFalse(Files.exists(sessionPath));
+    }
+}